@@ -3,6 +3,7 @@ package com.wheatmall.authadmin;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 认证授权管理模块启动类
@@ -12,9 +13,12 @@ import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
  * 2. JWT Token签发与验证
  * 3. RBAC权限管理
  * 4. Token黑名单管理
+ *
+ * 启用定时任务：热点用户判定（HotUserDetailsCache）
  */
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
 public class AuthAdminApplication {
     public static void main(String[] args) {
         SpringApplication.run(AuthAdminApplication.class, args);
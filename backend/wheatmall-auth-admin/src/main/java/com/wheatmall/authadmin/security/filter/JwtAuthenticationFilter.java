@@ -2,6 +2,7 @@ package com.wheatmall.authadmin.security.filter;
 
 import com.wheatmall.authadmin.exception.TokenInvalidException;
 import com.wheatmall.authadmin.security.jwt.JwtUtil;
+import com.wheatmall.authadmin.security.service.HotUserDetailsCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,7 +11,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -24,17 +24,19 @@ import java.io.IOException;
  * 2. 提取 Bearer Token
  * 3. 验证 Token 有效性
  * 4. 设置 SecurityContext
+ *
+ * 用户权限通过 {@link HotUserDetailsCache} 加载，热点用户不重复查询
  */
 @Component
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final HotUserDetailsCache userDetailsCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, HotUserDetailsCache userDetailsCache) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -54,8 +56,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     // 4. 解析 Token 获取用户信息
                     String username = jwtUtil.getUsernameFromToken(token);
                     
-                    // 5. 加载用户权限
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    // 5. 加载用户权限（热点用户走缓存）
+                    UserDetails userDetails = userDetailsCache.loadUserByUsername(username);
                     
                     // 6. 创建 Authentication 对象
                     UsernamePasswordAuthenticationToken authentication = 
@@ -0,0 +1,94 @@
+package com.wheatmall.authadmin.security.service;
+
+import com.wheatmall.common.sketch.HotKeyDetector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 热点用户的 UserDetails 缓存（JWT 认证过滤器使用）
+ *
+ * 每个带 Token 的请求都要加载一次用户权限。按用户名抽样判定热点（默认10秒一个窗口），
+ * 只缓存热点用户：窗口结束时重新加载当前所有热点用户，移除不再热点的用户，其余用户每次都实时加载。
+ * 因此热点用户的权限变更最多延迟一个窗口生效，缓存大小不超过 capacity。
+ * 登录认证不经过本缓存（认证过程可能擦除 UserDetails 中的密码）。
+ */
+@Component
+@Slf4j
+public class HotUserDetailsCache implements HotKeyDetector.Listener {
+
+    private final UserDetailsService userDetailsService;
+
+    private final HotKeyDetector detector;
+
+    private final Map<String, UserDetails> hotUsers = new ConcurrentHashMap<>();
+
+    public HotUserDetailsCache(UserDetailsService userDetailsService,
+                               @Value("${wheatmall.auth.hot-keys.stripes:64}") int stripes,
+                               @Value("${wheatmall.auth.hot-keys.sample-rate:16}") int sampleRate,
+                               @Value("${wheatmall.auth.hot-keys.buffer-size:1024}") int bufferSize,
+                               @Value("${wheatmall.auth.hot-keys.capacity:256}") int capacity,
+                               @Value("${wheatmall.auth.hot-keys.hot-share:0.01}") double hotShare,
+                               @Value("${wheatmall.auth.hot-keys.cool-share:0.005}") double coolShare,
+                               @Value("${wheatmall.auth.hot-keys.min-samples:100}") long minSamples) {
+        this.userDetailsService = userDetailsService;
+        this.detector = new HotKeyDetector(stripes, sampleRate, bufferSize, capacity, hotShare, coolShare, minSamples);
+        detector.addListener(this);
+    }
+
+    /**
+     * 加载用户权限：记录一次访问，热点用户直接返回缓存
+     */
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        detector.record(username);
+        UserDetails cached = hotUsers.get(username);
+        return cached != null ? cached : userDetailsService.loadUserByUsername(username);
+    }
+
+    public boolean isCached(String username) {
+        return hotUsers.containsKey(username);
+    }
+
+    @Scheduled(fixedDelayString = "${wheatmall.auth.hot-keys.drain-interval:PT0.1S}")
+    public void drain() {
+        detector.drain();
+    }
+
+    @Scheduled(fixedRateString = "${wheatmall.auth.hot-keys.window:PT10S}",
+            initialDelayString = "${wheatmall.auth.hot-keys.window:PT10S}")
+    public void endWindow() {
+        detector.endWindow();
+    }
+
+    @Override
+    public void onWindowEnd(HotKeyDetector.HotSet hotSet, List<HotKeyDetector.HotKey> added,
+                            List<HotKeyDetector.HotKey> removed) {
+        for (HotKeyDetector.HotKey key : removed) {
+            if (key.name() != null) {
+                hotUsers.remove(key.name());
+            }
+        }
+        for (HotKeyDetector.HotKey key : hotSet.keys()) {
+            String username = key.name();
+            if (username == null) {
+                continue;
+            }
+            try {
+                hotUsers.put(username, userDetailsService.loadUserByUsername(username));
+            } catch (UsernameNotFoundException e) {
+                hotUsers.remove(username);
+            }
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            log.info("热点用户变化, 新增: {}, 移出: {}, 当前: {}", added.size(), removed.size(), hotSet.size());
+        }
+    }
+}
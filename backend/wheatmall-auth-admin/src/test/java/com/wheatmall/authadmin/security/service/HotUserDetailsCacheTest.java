@@ -0,0 +1,95 @@
+package com.wheatmall.authadmin.security.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HotUserDetailsCache 测试类
+ */
+class HotUserDetailsCacheTest {
+
+    private final Map<String, Integer> loads = new HashMap<>();
+
+    private final Set<String> users = ConcurrentHashMap.newKeySet();
+
+    private final UserDetailsService userDetailsService = username -> {
+        if (!users.contains(username)) {
+            throw new UsernameNotFoundException("用户不存在");
+        }
+        loads.merge(username, 1, Integer::sum);
+        return User.withUsername(username).password("").authorities("ROLE_USER").build();
+    };
+
+    /** 每次请求都抽样，样本数不少于10时判定，占比30%成为热点 */
+    private final HotUserDetailsCache cache = new HotUserDetailsCache(userDetailsService, 1, 1, 256, 16, 0.3, 0.2,
+            10);
+
+    @Test
+    @DisplayName("只缓存热点用户，热点用户不重复加载")
+    void testOnlyHotUsersCached() {
+        users.addAll(Set.of("admin", "user1", "user2"));
+        for (int i = 0; i < 8; i++) {
+            cache.loadUserByUsername("admin");
+        }
+        cache.loadUserByUsername("user1");
+        cache.loadUserByUsername("user2");
+        assertEquals(8, loads.get("admin"));
+        cache.endWindow();
+
+        assertTrue(cache.isCached("admin"));
+        assertFalse(cache.isCached("user1"));
+        loads.clear();
+        UserDetails details = cache.loadUserByUsername("admin");
+        assertEquals("admin", details.getUsername());
+        assertNull(loads.get("admin"));
+        cache.loadUserByUsername("user1");
+        assertEquals(1, loads.get("user1"));
+    }
+
+    @Test
+    @DisplayName("窗口结束时重新加载热点用户，移除不再热点和已删除的用户")
+    void testReloadAndRemove() {
+        users.addAll(Set.of("admin", "user1"));
+        for (int i = 0; i < 10; i++) {
+            cache.loadUserByUsername("admin");
+        }
+        cache.endWindow();
+        assertTrue(cache.isCached("admin"));
+
+        // 仍是热点：每个窗口重新加载一次
+        loads.clear();
+        for (int i = 0; i < 10; i++) {
+            cache.loadUserByUsername("admin");
+        }
+        cache.endWindow();
+        assertEquals(1, loads.get("admin"));
+
+        // 不再热点时移除
+        for (int i = 0; i < 10; i++) {
+            cache.loadUserByUsername("user1");
+        }
+        cache.endWindow();
+        assertFalse(cache.isCached("admin"));
+        assertTrue(cache.isCached("user1"));
+
+        // 用户被删除后不再缓存
+        users.remove("user1");
+        for (int i = 0; i < 10; i++) {
+            cache.loadUserByUsername("user1");
+        }
+        cache.endWindow();
+        assertFalse(cache.isCached("user1"));
+        assertThrows(UsernameNotFoundException.class, () -> cache.loadUserByUsername("user1"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.wheatmall.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * 服务间内部调用的二进制编码（Jackson Smile）
+ *
+ * 内部调用方通过 Accept: application/x-jackson-smile 协商使用二进制格式，
+ * 对外接口默认仍然返回JSON。
+ * - BigDecimal 以 scale + 原始字节写出，不再转成十进制字符串
+ * - LocalDateTime 以数字数组写出（小整数在Smile中只占1字节）
+ * - 列表中重复出现的字段名通过back-reference共享，列表越大收益越明显
+ */
+public final class BinaryCodec {
+
+    private BinaryCodec() {
+        // 私有构造器，防止实例化
+    }
+
+    /** Smile 媒体类型 */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /** Smile 媒体类型 */
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * 创建服务间共用的Smile ObjectMapper
+     * 编码端和解码端必须使用相同配置，因此统一从这里获取
+     */
+    public static ObjectMapper smileObjectMapper() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
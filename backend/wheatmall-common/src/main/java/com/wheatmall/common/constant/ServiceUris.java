@@ -31,8 +31,41 @@ public final class ServiceUris {
         /** 供内部服务调用 - 根据ID查询商品 */
         public static final String GET_BY_ID_INTERNAL = PRODUCT_SERVICE + "/get/{id}";
         
-        /** 查询所有商品列表 */
+        /** 供内部服务调用 - 按ID批量查询商品（POST，请求体为ID列表） */
+        public static final String GET_BATCH = PRODUCT_SERVICE + "/batch";
+
+        /** 查询所有商品列表（支持cursor+size键集分页） */
         public static final String LIST = PRODUCT_SERVICE + "/list";
+
+        /** 流式查询所有商品（NDJSON） */
+        public static final String STREAM = PRODUCT_SERVICE + "/stream";
+
+        /** 搜索商品（名称和描述） */
+        public static final String SEARCH = PRODUCT_SERVICE + "/search";
+        
+        /** 商品名称前缀补全 */
+        public static final String SUGGEST = PRODUCT_SERVICE + "/suggest";
+        
+        /** 畅销榜（最近1小时销量最多的商品） */
+        public static final String BEST_SELLERS = PRODUCT_SERVICE + "/best-sellers";
+
+        /** 近期热销（最近5分钟销量增长最快的商品） */
+        public static final String TRENDING = PRODUCT_SERVICE + "/trending";
+
+        /** 经常一起购买的商品 */
+        public static final String RELATED = PRODUCT_SERVICE + "/{id}/related";
+
+        /** 热点商品（上一个窗口内详情访问量占比高的商品） */
+        public static final String HOT = PRODUCT_SERVICE + "/hot";
+
+        /** 按价格区间、库存筛选商品，按价格排序 */
+        public static final String FILTER = PRODUCT_SERVICE + "/filter";
+        
+        /** 批量导入商品（CSV或NDJSON） */
+        public static final String IMPORT = PRODUCT_SERVICE + "/import";
+        
+        /** 查询导入进度和错误报告 */
+        public static final String IMPORT_REPORT = PRODUCT_SERVICE + "/import/{jobId}";
         
         /** 创建商品 */
         public static final String CREATE = PRODUCT_SERVICE;
@@ -45,6 +78,9 @@ public final class ServiceUris {
         
         /** 扣减库存 */
         public static final String DEDUCT_STOCK = PRODUCT_SERVICE + "/{id}/deduct-stock";
+
+        /** 批量扣减库存 */
+        public static final String DEDUCT_STOCK_BATCH = PRODUCT_SERVICE + "/deduct-stock/batch";
     }
 
     // ==================== Order服务相关URI ====================
@@ -59,9 +95,42 @@ public final class ServiceUris {
         
         /** 获取商品列表（调用Product服务） */
         public static final String GET_PRODUCT_LIST = ORDER_SERVICE + "/products";
+
+        /** 流式获取商品列表（调用Product服务，NDJSON） */
+        public static final String GET_PRODUCT_STREAM = ORDER_SERVICE + "/products/stream";
         
         /** 创建订单 */
         public static final String CREATE = ORDER_SERVICE + "/create";
+
+        /** 根据ID查询订单 */
+        public static final String GET_BY_ID = ORDER_SERVICE + "/{orderId}";
+
+        /** 查询用户的订单（支持cursor+size键集分页） */
+        public static final String USER_ORDERS = ORDER_SERVICE + "/user/{userId}";
+
+        /** 异步下单（受理后立即返回订单号） */
+        public static final String SUBMIT = ORDER_SERVICE + "/submit";
+
+        /** 查询异步下单的处理状态 */
+        public static final String SUBMIT_STATUS = ORDER_SERVICE + "/submit/{orderId}";
+
+        /** 支付订单 */
+        public static final String PAY = ORDER_SERVICE + "/{orderId}/pay";
+
+        /** 订单发货 */
+        public static final String SHIP = ORDER_SERVICE + "/{orderId}/ship";
+
+        /** 取消订单 */
+        public static final String CANCEL = ORDER_SERVICE + "/{orderId}/cancel";
+
+        /** 订单处理分区的运行状态 */
+        public static final String PARTITIONS = ORDER_SERVICE + "/partitions";
+
+        /** 查看购物车（默认刷新价格和库存） */
+        public static final String CART = ORDER_SERVICE + "/cart/{userId}";
+
+        /** 购物车中的商品（PUT设置数量，DELETE移除） */
+        public static final String CART_ITEM = ORDER_SERVICE + "/cart/{userId}/items/{productId}";
     }
 
     // ==================== User服务相关URI（预留） ====================
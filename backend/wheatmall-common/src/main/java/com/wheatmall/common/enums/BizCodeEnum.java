@@ -66,7 +66,22 @@ public enum BizCodeEnum {
 	/**
 	 * 商品已下架
 	 */
-	PRODUCT_OFF_SHELF(20002, "商品已下架");
+	PRODUCT_OFF_SHELF(20002, "商品已下架"),
+	
+	/**
+	 * 订单不存在
+	 */
+	ORDER_NOT_FOUND(30001, "订单不存在"),
+
+	/**
+	 * 下单排队已满
+	 */
+	ORDER_QUEUE_FULL(30002, "下单人数过多，请稍后重试"),
+
+	/**
+	 * 订单状态不允许该操作
+	 */
+	ORDER_STATUS_INVALID(30003, "订单状态不允许该操作");
 
 	private final int code;
 	private final String message;
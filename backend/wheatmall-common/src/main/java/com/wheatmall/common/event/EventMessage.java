@@ -0,0 +1,18 @@
+package com.wheatmall.common.event;
+
+/**
+ * 事件日志中的一条事件
+ * @param offset 在日志中的位置（从0开始连续递增），追加前为-1
+ * @param id 事件ID，由生产方生成，消费方据此去重（至少一次投递时同一事件可能出现多次）
+ * @param type 事件类型
+ * @param payload 事件内容
+ */
+public record EventMessage(long offset, long id, String type, byte[] payload) {
+
+    /**
+     * 待追加的事件
+     */
+    public static EventMessage of(long id, String type, byte[] payload) {
+        return new EventMessage(-1, id, type, payload);
+    }
+}
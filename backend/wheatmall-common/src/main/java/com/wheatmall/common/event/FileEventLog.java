@@ -0,0 +1,477 @@
+package com.wheatmall.common.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于文件的事件日志（内嵌的日志型消息通道，不依赖外部中间件）
+ *
+ * 一个目录是一个主题，事件按追加顺序分配连续的offset，按段存放，段文件以段内第一条事件的offset命名。
+ * 每条记录：payloadLength(int) crc32c(int) payload[offset(long) + 事件ID(long) + 类型 + 内容]。
+ *
+ * 写入方只能有一个（写入时持有目录下writer.lock的文件锁，另一个进程同时写入会失败），
+ * 每次 {@link #append} 一次write + 一次fsync，返回后事件已落盘。
+ * 首次写入时扫描最后一段恢复下一个offset，不完整或校验失败的尾部（写入中途崩溃）被截断。
+ * 当前段超过段大小后写入新段，并删除最后修改时间早于保留期的旧段（当前段不删除）。
+ *
+ * 读取方可以有多个（可以在其他进程），各自从指定offset开始顺序读取（见 {@link Reader}），
+ * 读到不完整的记录时视为写入方正在写，下次再读。
+ */
+@Slf4j
+public final class FileEventLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "events-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String LOCK_FILE = "writer.lock";
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    /** 单条记录的最大长度，超过时视为损坏 */
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /** 默认段大小 */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /** 默认保留期 */
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final long retentionMillis;
+
+    /** 以下字段由this锁保护 */
+    private FileChannel lockChannel;
+
+    private FileLock writerLock;
+
+    private FileChannel current;
+
+    private long nextOffset = -1;
+
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private volatile long syncCount;
+
+    public FileEventLog(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RETENTION);
+    }
+
+    public FileEventLog(Path directory, long segmentBytes, Duration retention) {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("段大小必须大于0: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retention.toMillis();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 追加一批事件并fsync，返回后事件已落盘
+     * @return 第一条事件的offset，之后的事件依次加1
+     * @throws IOException 写入失败，或另一个进程正在写入
+     */
+    public synchronized long append(List<EventMessage> events) throws IOException {
+        openForWrite();
+        long first = nextOffset;
+        if (events.isEmpty()) {
+            return first;
+        }
+        ByteBuffer buffer = fill(events, first);
+        long position = current.position();
+        try {
+            while (buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+            current.force(false);
+        } catch (IOException e) {
+            // 不确定写入了多少，截回写入前的位置，截断失败时由下次打开时的恢复处理
+            try {
+                current.truncate(position);
+                current.position(position);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+                closeCurrent();
+            }
+            throw e;
+        }
+        syncCount++;
+        nextOffset = first + events.size();
+        if (current.size() >= segmentBytes) {
+            roll();
+        }
+        return first;
+    }
+
+    /**
+     * 下一条事件的offset（即已写入的事件数）
+     */
+    public synchronized long nextOffset() throws IOException {
+        openForWrite();
+        return nextOffset;
+    }
+
+    /**
+     * 已执行的fsync次数
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * 从指定offset开始读取
+     */
+    public Reader reader(long fromOffset) {
+        return new Reader(fromOffset);
+    }
+
+    /**
+     * 关闭写入方（释放文件锁），已创建的读取方需各自关闭
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeCurrent();
+        if (writerLock != null) {
+            writerLock.release();
+            writerLock = null;
+        }
+        if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+        }
+        nextOffset = -1;
+    }
+
+    private void openForWrite() throws IOException {
+        if (current != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        if (writerLock == null) {
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            try {
+                writerLock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 同一进程中的另一个实例持有锁
+                writerLock = null;
+            }
+            if (writerLock == null) {
+                lockChannel.close();
+                lockChannel = null;
+                throw new IOException("事件日志正在被另一个进程写入: " + directory);
+            }
+        }
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            nextOffset = 0;
+            current = openSegment(0);
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        Scan scan = scan(last);
+        if (scan.validBytes < Files.size(last)) {
+            log.warn("事件日志尾部不完整，截断: {}, 有效字节: {}, 文件大小: {}", last, scan.validBytes, Files.size(last));
+        }
+        FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE);
+        channel.truncate(scan.validBytes);
+        channel.force(true);
+        channel.position(scan.validBytes);
+        current = channel;
+        nextOffset = scan.nextOffset;
+    }
+
+    private FileChannel openSegment(long firstOffset) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(segmentName(firstOffset)), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /**
+     * 写入新段，删除超过保留期的旧段
+     */
+    private void roll() throws IOException {
+        closeCurrent();
+        current = openSegment(nextOffset);
+        long expireBefore = System.currentTimeMillis() - retentionMillis;
+        List<Path> segments = segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (Files.getLastModifiedTime(segment).toMillis() < expireBefore) {
+                Files.deleteIfExists(segment);
+                log.info("删除超过保留期的事件日志段: {}", segment);
+            }
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    /**
+     * 把一批事件依次编码到复用的直接缓冲区
+     */
+    private ByteBuffer fill(List<EventMessage> events, long firstOffset) {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        int bytes = 0;
+        for (int i = 0; i < events.size(); i++) {
+            byte[] payload = encode(firstOffset + i, events.get(i));
+            payloads.add(payload);
+            bytes += RECORD_HEADER_BYTES + payload.length;
+        }
+        if (bytes > batchBuffer.capacity()) {
+            batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes - 1) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer buffer = batchBuffer.clear();
+        CRC32C crc = new CRC32C();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] encode(long offset, EventMessage event) {
+        byte[] type = event.type().getBytes(StandardCharsets.UTF_8);
+        byte[] body = event.payload();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES + 2 * Integer.BYTES + type.length + body.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(offset).putLong(event.id()).putInt(type.length).put(type).putInt(body.length).put(body);
+        return buffer.array();
+    }
+
+    private static EventMessage decode(ByteBuffer payload) throws IOException {
+        try {
+            long offset = payload.getLong();
+            long id = payload.getLong();
+            byte[] type = new byte[payload.getInt()];
+            payload.get(type);
+            byte[] body = new byte[payload.getInt()];
+            payload.get(body);
+            return new EventMessage(offset, id, new String(type, StandardCharsets.UTF_8), body);
+        } catch (RuntimeException e) {
+            throw new IOException("事件记录内容非法", e);
+        }
+    }
+
+    /**
+     * 读取channel中position处的一条完整记录
+     * @return 记录内容；记录不完整或校验失败时为null
+     */
+    private static ByteBuffer readRecord(FileChannel channel, long position, ByteBuffer header) throws IOException {
+        long size = channel.size();
+        if (position + RECORD_HEADER_BYTES > size) {
+            return null;
+        }
+        header.clear();
+        readFully(channel, header, position);
+        header.flip();
+        int length = header.getInt();
+        int expectedCrc = header.getInt();
+        if (length <= 0 || length > MAX_RECORD_BYTES || position + RECORD_HEADER_BYTES + length > size) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, payload, position + RECORD_HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        return payload.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("读取事件日志时遇到文件末尾");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * 扫描一段：有效部分的字节数和下一个offset
+     */
+    private static Scan scan(Path segment) throws IOException {
+        long offset = firstOffset(segment);
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer payload;
+            while ((payload = readRecord(channel, position, header)) != null) {
+                offset = payload.getLong(0) + 1;
+                position += RECORD_HEADER_BYTES + payload.limit();
+            }
+        }
+        return new Scan(position, offset);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(firstOffset(a), firstOffset(b)))
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long firstOffset) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstOffset, SEGMENT_SUFFIX);
+    }
+
+    private static long firstOffset(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record Scan(long validBytes, long nextOffset) {
+    }
+
+    /**
+     * 顺序读取方，单线程使用
+     */
+    public final class Reader implements Closeable {
+
+        private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        private long nextOffset;
+
+        private FileChannel channel;
+
+        /** 当前段的第一条事件的offset */
+        private long segmentFirst;
+
+        /** 下一条记录在当前段中的位置 */
+        private long position;
+
+        private Reader(long fromOffset) {
+            this.nextOffset = fromOffset;
+        }
+
+        /**
+         * 下一条要读取的事件的offset
+         */
+        public long position() {
+            return nextOffset;
+        }
+
+        /**
+         * 读取之后的事件
+         * @param maxEvents 最多读取的条数
+         * @return 读到的事件，没有新事件时为空
+         */
+        public List<EventMessage> poll(int maxEvents) throws IOException {
+            List<EventMessage> events = new ArrayList<>(Math.min(maxEvents, 256));
+            if (channel == null && !locate()) {
+                return events;
+            }
+            while (events.size() < maxEvents) {
+                ByteBuffer payload = readRecord(channel, position, header);
+                if (payload == null) {
+                    if (!hasSegment(nextOffset)) {
+                        // 等待写入
+                        break;
+                    }
+                    // 写入方写完当前段后才创建新段：新段已存在时再读一次当前段，确认没有遗漏后切换
+                    if (readRecord(channel, position, header) == null) {
+                        open(directory.resolve(segmentName(nextOffset)));
+                    }
+                    continue;
+                }
+                position += RECORD_HEADER_BYTES + payload.limit();
+                EventMessage event = decode(payload);
+                if (event.offset() < nextOffset) {
+                    continue;
+                }
+                events.add(event);
+                nextOffset = event.offset() + 1;
+            }
+            return events;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        /**
+         * 打开包含nextOffset的段，并跳过段中nextOffset之前的记录
+         * @return 是否找到
+         */
+        private boolean locate() throws IOException {
+            List<Path> segments = segments(directory);
+            if (segments.isEmpty()) {
+                return false;
+            }
+            Path target = null;
+            for (Path segment : segments) {
+                if (firstOffset(segment) <= nextOffset) {
+                    target = segment;
+                }
+            }
+            if (target == null) {
+                // 要读的事件已超过保留期被删除，从最早的事件开始
+                target = segments.get(0);
+                log.warn("事件日志中offset {} 之前的事件已被删除，从 {} 开始读取", nextOffset, firstOffset(target));
+                nextOffset = firstOffset(target);
+            }
+            open(target);
+            while (true) {
+                ByteBuffer payload = readRecord(channel, position, header);
+                if (payload == null || payload.getLong(0) >= nextOffset) {
+                    return true;
+                }
+                position += RECORD_HEADER_BYTES + payload.limit();
+            }
+        }
+
+        private boolean hasSegment(long firstOffset) {
+            return firstOffset != segmentFirst && Files.exists(directory.resolve(segmentName(firstOffset)));
+        }
+
+        private void open(Path segment) throws IOException {
+            close();
+            channel = FileChannel.open(segment, StandardOpenOption.READ);
+            segmentFirst = firstOffset(segment);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.wheatmall.common.event;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 消费位置：下一条要消费的事件的offset，保存在一个小文件中
+ * 先写临时文件并fsync，再原子改名覆盖，崩溃时文件要么是旧值要么是新值
+ */
+public final class OffsetCheckpoint {
+
+    private final Path file;
+
+    public OffsetCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return 保存的offset，没有保存过时为0
+     */
+    public long load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        String text = Files.readString(file).trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("消费位置文件内容非法: " + file + ", " + text, e);
+        }
+    }
+
+    public void save(long offset) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Long.toString(offset).getBytes());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,77 @@
+package com.wheatmall.common.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 扣减库存事件：订单服务下单后发出，商品服务按订单号去重后扣减；
+ * 类型为 {@link #RELEASE_TYPE} 时是释放库存（订单取消或超时关闭后退回扣减的数量）；
+ * 商品服务未能扣减（库存不足、商品不存在）的事件原样写入 {@link #REJECTED_TOPIC}，类型为 {@link #REJECTED_TYPE}
+ * 编码：版本(byte) + 订单号(long) + 商品ID(long) + 数量(int) + 用户ID(long)；
+ * 版本1没有用户ID，解码为0，升级期间旧实例写入的事件仍可读取
+ * @param orderId 订单号，同时是事件ID
+ * @param productId 商品ID
+ * @param quantity 扣减数量
+ * @param userId 下单用户ID，未登录或未知时为0
+ */
+public record StockDeductionEvent(long orderId, long productId, int quantity, long userId) {
+
+    /** 事件日志主题（目录名） */
+    public static final String TOPIC = "stock-deduction";
+
+    /** 事件类型：扣减库存 */
+    public static final String TYPE = "StockDeduction";
+
+    /** 事件类型：释放库存 */
+    public static final String RELEASE_TYPE = "StockRelease";
+
+    /** 未能扣减的事件的主题（商品服务写入） */
+    public static final String REJECTED_TOPIC = "stock-deduction-rejected";
+
+    /** 事件类型：扣减被拒绝 */
+    public static final String REJECTED_TYPE = "StockDeductionRejected";
+
+    private static final byte VERSION_WITHOUT_USER = 1;
+
+    private static final byte VERSION = 2;
+
+    public StockDeductionEvent(long orderId, long productId, int quantity) {
+        this(orderId, productId, quantity, 0);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(29);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(orderId);
+            out.writeLong(productId);
+            out.writeInt(quantity);
+            out.writeLong(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException 版本不支持或内容不完整
+     */
+    public static StockDeductionEvent decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != VERSION && version != VERSION_WITHOUT_USER) {
+                throw new IllegalArgumentException("不支持的扣减库存事件版本: " + version);
+            }
+            long orderId = in.readLong();
+            long productId = in.readLong();
+            int quantity = in.readInt();
+            return new StockDeductionEvent(orderId, productId, quantity, version == VERSION ? in.readLong() : 0);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("扣减库存事件内容不完整", e);
+        }
+    }
+}
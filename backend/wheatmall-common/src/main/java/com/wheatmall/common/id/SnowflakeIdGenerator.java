@@ -0,0 +1,119 @@
+package com.wheatmall.common.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花算法ID生成器：64位，按时间递增，无锁
+ *
+ * ID结构（从高到低）：1位符号位（恒为0）| 41位毫秒时间戳（相对2026-01-01，约69年）| 10位机器ID | 12位毫秒内序号
+ * 时间戳和序号打包在一个AtomicLong中，用CAS推进：
+ * - 当前毫秒大于上次的时间戳时从新毫秒的序号0开始
+ * - 同一毫秒内序号加1，序号用完时进位到下一毫秒，即借用未来的时间戳吸收短时突发；
+ *   超前系统时钟 {@link #MAX_BORROW_MILLIS} 以上时自旋等待时钟前进，持续速率上限为每毫秒4096个
+ * - 时钟回拨时继续在上次的时间戳上递增，ID仍然唯一且递增；回拨超过 {@link #MAX_ROLLBACK_MILLIS} 时抛出异常
+ * 同一机器ID只能有一个实例在运行，否则ID会重复。
+ */
+public final class SnowflakeIdGenerator {
+
+    /** 起始时间 2026-01-01T00:00:00Z */
+    public static final long EPOCH_MILLIS = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    public static final int WORKER_ID_BITS = 10;
+
+    public static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    /** 序号用完时最多借用的未来毫秒数，超过后等待时钟 */
+    public static final long MAX_BORROW_MILLIS = 10;
+
+    /** 容忍的最大时钟回拨毫秒数 */
+    public static final long MAX_ROLLBACK_MILLIS = 5_000;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerBits;
+
+    private final LongSupplier clock;
+
+    /** 上一个ID的 (时间戳 << SEQUENCE_BITS | 序号) */
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @param workerId 机器ID，0 ~ {@link #MAX_WORKER_ID}
+     */
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("机器ID超出范围 [0, " + MAX_WORKER_ID + "]: " + workerId);
+        }
+        this.workerBits = workerId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个ID
+     * @throws IllegalStateException 时钟回拨超过 {@link #MAX_ROLLBACK_MILLIS} 时抛出
+     */
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        long current;
+        long next;
+        do {
+            current = last.get();
+            long timestamp = current >>> SEQUENCE_BITS;
+            if (now > timestamp) {
+                next = now << SEQUENCE_BITS;
+                continue;
+            }
+            // 同一毫秒或时钟回拨：在上次的基础上递增，序号溢出时自然进位到下一毫秒
+            long ahead = timestamp - now;
+            if (ahead >= MAX_ROLLBACK_MILLIS) {
+                throw new IllegalStateException("时钟回拨 " + ahead + "ms，超过上限 " + MAX_ROLLBACK_MILLIS + "ms");
+            }
+            if ((current & SEQUENCE_MASK) == SEQUENCE_MASK && ahead >= MAX_BORROW_MILLIS) {
+                // 借用的毫秒已用完，等待时钟前进
+                Thread.onSpinWait();
+                now = clock.getAsLong() - EPOCH_MILLIS;
+                next = -1;
+                continue;
+            }
+            next = current + 1;
+        } while (next < 0 || !last.compareAndSet(current, next));
+        return (next >>> SEQUENCE_BITS) << (WORKER_ID_BITS + SEQUENCE_BITS) | workerBits | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * ID中的机器ID
+     */
+    public static long workerIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_WORKER_ID;
+    }
+
+    /**
+     * ID中的时间戳（毫秒，Unix时间）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_ID_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * 由实例地址计算机器ID（IP和端口的哈希取模），适用于没有配置机器ID的场景
+     * 不同实例可能冲突，实例较多时应为每个实例显式配置机器ID
+     * @param host 实例IP或主机名
+     * @param port 实例端口
+     */
+    public static long workerIdFromAddress(String host, int port) {
+        int hash = host.hashCode() * 31 + port;
+        // 打散高位，减少相邻IP或端口的冲突
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return (hash & 0x7FFFFFFF) % (MAX_WORKER_ID + 1);
+    }
+}
@@ -0,0 +1,137 @@
+package com.wheatmall.common.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch：固定大小的计数矩阵（depth行 × width列），估计每个键的累计数量
+ *
+ * 每行用一个哈希函数把键映射到一列，加入时每行对应的计数器加上数量，估计值取各行计数器的最小值。
+ * 估计值不小于真实值；以不低于 1 - e^-depth 的概率，估计值不超过 真实值 + (e / width) × 总数量。
+ * 内存与键的个数无关，加入和估计都是O(depth)。数量须为非负，减去的只能是之前加入的（见 {@link #subtract}）。
+ * 非线程安全。
+ */
+public final class CountMinSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final int mask;
+
+    /** 按行存放：第row行第column列在 row * width + column */
+    private final long[] counters;
+
+    private long total;
+
+    /**
+     * @param width 每行的计数器数，向上取整到2的幂
+     * @param depth 行数（哈希函数个数）
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || width > 1 << 24 || depth <= 0 || depth > 16) {
+            throw new IllegalArgumentException("width须在1到2^24之间，depth须在1到16之间");
+        }
+        this.width = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+        this.depth = depth;
+        this.mask = this.width - 1;
+        this.counters = new long[this.width * depth];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 加入的总数量
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 相对误差上限 e / width：估计值超过真实值的部分不超过它乘以总数量
+     */
+    public double getEpsilon() {
+        return Math.E / width;
+    }
+
+    /**
+     * 估计值超过误差上限的概率 e^-depth
+     */
+    public double getDelta() {
+        return Math.exp(-depth);
+    }
+
+    /**
+     * @param count 数量，须为非负
+     */
+    public void add(long key, long count) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + ((h1 + row * h2) & mask)] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * 加上另一个同样大小的sketch（结果等同于两者加入的键都加入这一个）
+     */
+    public void merge(CountMinSketch other) {
+        checkCompatible(other);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * 减去另一个同样大小的sketch，other加入的键须都已加入过这一个（用于滑动窗口移出过期的子窗口）
+     */
+    public void subtract(CountMinSketch other) {
+        checkCompatible(other);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] -= other.counters[i];
+        }
+        total -= other.total;
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+    }
+
+    private void checkCompatible(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("sketch大小不一致");
+        }
+    }
+
+    /**
+     * 64位混合函数（MurmurHash3 fmix64），高低32位作为两个独立的哈希值组合出每行的列
+     */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,342 @@
+package com.wheatmall.common.sketch;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 热点键检测：在请求路径上抽样记录键（商品ID、用户名等），按时间窗口用 {@link SpaceSaving} 统计访问最多的键，
+ * 窗口结束时得到热点集合并通知 {@link Listener}（缓存据此固定热点、预热数据）
+ *
+ * 请求路径（{@link #record}）只做三件事：按线程选一个分段、分段计数器加1、每sampleRate次把键写入分段的环形缓冲区。
+ * 不加锁、不做CAS、不分配对象；多个线程落在同一分段时计数和缓冲区可能互相覆盖，只会少记几个样本。
+ * 后台定期 {@link #drain()} 把缓冲区中的样本计入当前窗口，两次取样之间超过缓冲区大小的样本丢弃（只保留最新的）。
+ *
+ * 热点判定按窗口内的样本：确定计数（计数 - 误差）不低于总样本数 × hotShare 的键成为热点；
+ * 已是热点的键，估计计数不低于总样本数 × coolShare 时保留（coolShare ≤ hotShare，避免在阈值附近反复进出）。
+ * 样本总数少于minSamples时（流量太小）不判定，热点集合为空。
+ * drain和endWindow由同一个后台线程或以this为锁调用；热点集合不可变，查询无锁。
+ */
+public final class HotKeyDetector {
+
+    /** 分段计数器的间隔（int个数），每个分段的计数器独占64字节，避免伪共享 */
+    private static final int STRIDE = 16;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int stripeMask;
+
+    private final int sampleMask;
+
+    private final int bufferMask;
+
+    /** 分段i的访问计数在 ticks[i × STRIDE]，已写入样本数在 ticks[i × STRIDE + 1] */
+    private final int[] ticks;
+
+    private final long[][] keys;
+
+    /** 字符串键，数字键的位置为null */
+    private final String[][] names;
+
+    /** 每个分段已取走的样本数，只由取样线程访问 */
+    private final int[] drained;
+
+    private final double hotShare;
+
+    private final double coolShare;
+
+    private final long minSamples;
+
+    private final SpaceSaving window;
+
+    /** 当前窗口出现过的字符串键：哈希 → 原字符串 */
+    private final Map<Long, String> windowNames = new HashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile HotSet hotSet = HotSet.EMPTY;
+
+    private long droppedSamples;
+
+    /**
+     * @param stripes 分段数（向上取2的幂），不少于并发请求线程数时冲突最少
+     * @param sampleRate 每多少次访问取一个样本（2的幂）
+     * @param bufferSize 每个分段的缓冲区大小（2的幂），应大于两次取样之间每个分段的样本数
+     * @param capacity 每个窗口跟踪的键数，热点不超过这么多；估计误差不超过样本数 / capacity，应明显小于hotShare
+     * @param hotShare 成为热点的样本占比
+     * @param coolShare 保持热点的样本占比，不大于hotShare
+     * @param minSamples 判定热点所需的最少样本数
+     */
+    public HotKeyDetector(int stripes, int sampleRate, int bufferSize, int capacity, double hotShare,
+                          double coolShare, long minSamples) {
+        if (stripes <= 0 || Integer.bitCount(sampleRate) != 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("分段数须大于0，抽样间隔和缓冲区大小须为2的幂");
+        }
+        if (!(hotShare > 0 && hotShare <= 1 && coolShare > 0 && coolShare <= hotShare)) {
+            throw new IllegalArgumentException("热点占比须在0到1之间，保持占比须在0到热点占比之间");
+        }
+        int stripeCount = Integer.highestOneBit(stripes * 2 - 1);
+        this.stripeMask = stripeCount - 1;
+        this.sampleMask = sampleRate - 1;
+        this.bufferMask = bufferSize - 1;
+        this.ticks = new int[stripeCount * STRIDE];
+        this.keys = new long[stripeCount][bufferSize];
+        this.names = new String[stripeCount][bufferSize];
+        this.drained = new int[stripeCount];
+        this.hotShare = hotShare;
+        this.coolShare = coolShare;
+        this.minSamples = minSamples;
+        this.window = new SpaceSaving(capacity);
+    }
+
+    /**
+     * 记录一次数字键的访问
+     */
+    public void record(long key) {
+        int stripe = stripe();
+        int base = stripe * STRIDE;
+        if ((ticks[base]++ & sampleMask) != 0) {
+            return;
+        }
+        int written = ticks[base + 1];
+        int slot = written & bufferMask;
+        keys[stripe][slot] = key;
+        names[stripe][slot] = null;
+        // 先写样本再发布计数，取样线程读到计数后一定能看到样本
+        INTS.setRelease(ticks, base + 1, written + 1);
+    }
+
+    /**
+     * 记录一次字符串键的访问，取样时才计算哈希
+     */
+    public void record(String key) {
+        int stripe = stripe();
+        int base = stripe * STRIDE;
+        if ((ticks[base]++ & sampleMask) != 0) {
+            return;
+        }
+        int written = ticks[base + 1];
+        names[stripe][written & bufferMask] = key;
+        INTS.setRelease(ticks, base + 1, written + 1);
+    }
+
+    /**
+     * 当前热点集合，每个窗口结束时替换
+     */
+    public HotSet hotSet() {
+        return hotSet;
+    }
+
+    /**
+     * 是否热点（判定于上一个窗口结束时）
+     */
+    public boolean isHot(long key) {
+        return hotSet.contains(key);
+    }
+
+    /**
+     * 是否热点（判定于上一个窗口结束时）
+     */
+    public boolean isHot(String key) {
+        return hotSet.contains(hash(key));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 把各分段缓冲区中的样本计入当前窗口
+     * @return 计入的样本数
+     */
+    public synchronized int drain() {
+        int count = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int written = (int) INTS.getAcquire(ticks, stripe * STRIDE + 1);
+            int from = drained[stripe];
+            if (written - from > bufferMask + 1) {
+                // 缓冲区已被覆盖，只取最新的一轮
+                droppedSamples += written - from - (bufferMask + 1);
+                from = written - (bufferMask + 1);
+            }
+            long[] stripeKeys = keys[stripe];
+            String[] stripeNames = names[stripe];
+            for (int i = from; i != written; i++) {
+                String name = stripeNames[i & bufferMask];
+                long key;
+                if (name == null) {
+                    key = stripeKeys[i & bufferMask];
+                } else {
+                    key = hash(name);
+                    windowNames.putIfAbsent(key, name);
+                }
+                window.add(key, 1);
+            }
+            count += written - from;
+            drained[stripe] = written;
+        }
+        return count;
+    }
+
+    /**
+     * 结束当前窗口：取走剩余样本，判定热点集合，通知监听器后开始新窗口
+     * @return 新的热点集合
+     */
+    public synchronized HotSet endWindow() {
+        drain();
+        HotSet previous = hotSet;
+        long total = window.getTotal();
+        List<HotKey> hot = new ArrayList<>();
+        if (total >= minSamples) {
+            for (int i = 0; i < window.size(); i++) {
+                long key = window.keyAt(i);
+                long count = window.countAt(i);
+                long guaranteed = count - window.errorAt(i);
+                boolean keep = previous.contains(key) && count >= coolShare * total;
+                if (keep || guaranteed >= hotShare * total) {
+                    String name = windowNames.get(key);
+                    if (name == null) {
+                        HotKey before = previous.get(key);
+                        name = before == null ? null : before.name();
+                    }
+                    hot.add(new HotKey(key, name, count, (double) count / total));
+                }
+            }
+        }
+        hot.sort(Comparator.comparingLong(HotKey::samples).reversed().thenComparingLong(HotKey::key));
+        HotSet current = new HotSet(hot, total);
+        List<HotKey> added = new ArrayList<>();
+        for (HotKey key : hot) {
+            if (!previous.contains(key.key())) {
+                added.add(key);
+            }
+        }
+        List<HotKey> removed = new ArrayList<>();
+        for (HotKey key : previous.keys()) {
+            if (!current.contains(key.key())) {
+                removed.add(key);
+            }
+        }
+        hotSet = current;
+        window.clear();
+        windowNames.clear();
+        for (Listener listener : listeners) {
+            listener.onWindowEnd(current, added, removed);
+        }
+        return current;
+    }
+
+    /**
+     * 因取样不及时而被覆盖的样本数
+     */
+    public synchronized long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public int getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * 字符串键的64位哈希（FNV-1a + 混合），与 {@link HotKey#key()} 对应
+     */
+    public static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return CountMinSketch.mix(h);
+    }
+
+    private int stripe() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+
+    /**
+     * 窗口结束时的回调，在取样线程中执行，耗时的预热应交给其他线程
+     */
+    public interface Listener {
+
+        /**
+         * @param hotSet 新的热点集合
+         * @param added 新成为热点的键
+         * @param removed 不再是热点的键
+         */
+        void onWindowEnd(HotSet hotSet, List<HotKey> added, List<HotKey> removed);
+    }
+
+    /**
+     * 一个热点键
+     * @param key 数字键，或字符串键的哈希
+     * @param name 字符串键，数字键为null
+     * @param samples 窗口内的估计样本数（乘以抽样间隔约为访问次数）
+     * @param share 占窗口内总样本数的比例
+     */
+    public record HotKey(long key, String name, long samples, double share) {
+    }
+
+    /**
+     * 不可变的热点集合，按样本数降序
+     */
+    public static final class HotSet {
+
+        /** 空集合 */
+        public static final HotSet EMPTY = new HotSet(List.of(), 0);
+
+        private final List<HotKey> keys;
+
+        /** keys按键排序，用于二分查找 */
+        private final long[] sortedKeys;
+
+        private final HotKey[] byKey;
+
+        private final long totalSamples;
+
+        private HotSet(List<HotKey> keys, long totalSamples) {
+            this.keys = List.copyOf(keys);
+            this.totalSamples = totalSamples;
+            this.byKey = keys.toArray(new HotKey[0]);
+            Arrays.sort(byKey, Comparator.comparingLong(HotKey::key));
+            this.sortedKeys = new long[byKey.length];
+            for (int i = 0; i < byKey.length; i++) {
+                sortedKeys[i] = byKey[i].key();
+            }
+        }
+
+        public boolean contains(long key) {
+            return Arrays.binarySearch(sortedKeys, key) >= 0;
+        }
+
+        /**
+         * @return 键对应的热点，不是热点时为null
+         */
+        public HotKey get(long key) {
+            int i = Arrays.binarySearch(sortedKeys, key);
+            return i < 0 ? null : byKey[i];
+        }
+
+        /**
+         * 热点键，按样本数降序
+         */
+        public List<HotKey> keys() {
+            return keys;
+        }
+
+        public int size() {
+            return keys.size();
+        }
+
+        /**
+         * 判定时窗口内的总样本数
+         */
+        public long getTotalSamples() {
+            return totalSamples;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.wheatmall.common.sketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 滑动时间窗口内的Top-N和近期增长最快的键（近似），内存固定，与键的个数无关
+ *
+ * 窗口由subWindows个等长的子窗口组成环形数组（包括当前未结束的子窗口，窗口实际长度在 subWindows - 1 到 subWindows 个子窗口之间），
+ * 时间前进时最旧的子窗口移出、清空后复用。每个子窗口有一个 {@link CountMinSketch} 和一个 {@link SpaceSaving}；
+ * 另外维护整个窗口和最近recentSubWindows个子窗口的两个聚合sketch（加入时同时累加，子窗口移出时减去），
+ * 查询时不需要逐个子窗口合并。加入是O(depth + log topK)，时间前进一个子窗口是O(width × depth)。
+ *
+ * 误差：
+ * - 数量估计不小于真实值，以不低于 1 - {@link #getDelta()} 的概率不超过 真实值 + {@link #getEpsilon()} × 窗口总数量
+ * - 候选键是各子窗口Space-Saving跟踪的键：窗口内数量超过 窗口总数量 / topK 的键一定在候选中
+ *
+ * 事件按自身的时间戳归入子窗口：早于窗口的丢弃，晚于当前时间的（时钟偏差）归入当前子窗口。非线程安全。
+ */
+public final class SlidingWindowTopK {
+
+    private final long subWindowMillis;
+
+    private final int subWindows;
+
+    private final int recentSubWindows;
+
+    private final int topK;
+
+    private final SubWindow[] ring;
+
+    /** 整个窗口的聚合 */
+    private final CountMinSketch window;
+
+    /** 最近recentSubWindows个子窗口的聚合 */
+    private final CountMinSketch recent;
+
+    /** 当前子窗口的编号（时间戳 / subWindowMillis），首次使用前为Long.MIN_VALUE */
+    private long head = Long.MIN_VALUE;
+
+    private long droppedCount;
+
+    /**
+     * @param subWindowMillis 子窗口长度（毫秒）
+     * @param subWindows 窗口包含的子窗口数
+     * @param recentSubWindows 近期窗口包含的子窗口数，小于subWindows
+     * @param width 每个sketch每行的计数器数
+     * @param depth 每个sketch的行数
+     * @param topK 每个子窗口跟踪的键数
+     */
+    public SlidingWindowTopK(long subWindowMillis, int subWindows, int recentSubWindows, int width, int depth,
+                             int topK) {
+        if (subWindowMillis <= 0 || subWindows < 2 || recentSubWindows <= 0 || recentSubWindows >= subWindows) {
+            throw new IllegalArgumentException("子窗口长度须大于0，子窗口数须不小于2，近期子窗口数须在1到子窗口数之间");
+        }
+        this.subWindowMillis = subWindowMillis;
+        this.subWindows = subWindows;
+        this.recentSubWindows = recentSubWindows;
+        this.topK = topK;
+        this.ring = new SubWindow[subWindows];
+        for (int i = 0; i < subWindows; i++) {
+            ring[i] = new SubWindow(new CountMinSketch(width, depth), new SpaceSaving(topK));
+        }
+        this.window = new CountMinSketch(width, depth);
+        this.recent = new CountMinSketch(width, depth);
+    }
+
+    /**
+     * 加入一个事件
+     * @param count 数量，须为非负
+     * @param timestampMillis 事件时间
+     * @param nowMillis 当前时间，用于推进窗口
+     * @return 是否计入；事件早于窗口时不计入
+     */
+    public boolean add(long key, long count, long timestampMillis, long nowMillis) {
+        advance(nowMillis);
+        long epoch = Math.min(Math.floorDiv(timestampMillis, subWindowMillis), head);
+        if (epoch <= head - subWindows) {
+            droppedCount++;
+            return false;
+        }
+        SubWindow subWindow = slot(epoch);
+        subWindow.sketch.add(key, count);
+        subWindow.heavyHitters.add(key, count);
+        window.add(key, count);
+        if (epoch > head - recentSubWindows) {
+            recent.add(key, count);
+        }
+        return true;
+    }
+
+    /**
+     * 窗口内数量最多的键
+     * @param n 返回的个数，不超过topK时候选键的保证成立
+     * @param nowMillis 当前时间，用于推进窗口
+     * @return 按数量从多到少
+     */
+    public List<Ranked> top(int n, long nowMillis) {
+        advance(nowMillis);
+        long[] candidates = candidates(subWindows);
+        List<Ranked> ranked = new ArrayList<>(candidates.length);
+        for (long key : candidates) {
+            ranked.add(new Ranked(key, window.estimate(key)));
+        }
+        ranked.sort(Comparator.comparingLong(Ranked::count).reversed().thenComparingLong(Ranked::key));
+        return new ArrayList<>(ranked.subList(0, Math.min(n, ranked.size())));
+    }
+
+    /**
+     * 近期增长最快的键：近期每个子窗口的平均数量与窗口内更早的子窗口平均数量之比
+     * （更早的数量加1平滑，之前没有出现过的键按更早的平均数量 1 / (subWindows - recentSubWindows) 计算）
+     * @param n 返回的个数
+     * @param minRecentCount 近期数量的下限，低于它的不计入（避免少量订单造成很高的比值）
+     * @param nowMillis 当前时间，用于推进窗口
+     * @return 按比值从高到低
+     */
+    public List<Trend> trending(int n, long minRecentCount, long nowMillis) {
+        advance(nowMillis);
+        long[] candidates = candidates(recentSubWindows);
+        int earlierSubWindows = subWindows - recentSubWindows;
+        List<Trend> trends = new ArrayList<>();
+        for (long key : candidates) {
+            long recentCount = recent.estimate(key);
+            if (recentCount < minRecentCount) {
+                continue;
+            }
+            long earlierCount = Math.max(0, window.estimate(key) - recentCount);
+            double score = ((double) recentCount / recentSubWindows) / ((earlierCount + 1.0) / earlierSubWindows);
+            trends.add(new Trend(key, recentCount, earlierCount, score));
+        }
+        trends.sort(Comparator.comparingDouble(Trend::score).reversed()
+                .thenComparing(Comparator.comparingLong(Trend::recentCount).reversed())
+                .thenComparingLong(Trend::key));
+        return new ArrayList<>(trends.subList(0, Math.min(n, trends.size())));
+    }
+
+    /**
+     * 推进到当前时间：移出过期的子窗口
+     */
+    public void advance(long nowMillis) {
+        long epoch = Math.floorDiv(nowMillis, subWindowMillis);
+        if (epoch <= head) {
+            return;
+        }
+        if (head == Long.MIN_VALUE || epoch - head >= subWindows) {
+            for (long e = epoch - subWindows + 1; e <= epoch; e++) {
+                slot(e).clear();
+            }
+            window.clear();
+            recent.clear();
+            head = epoch;
+            return;
+        }
+        // 移出近期窗口的子窗口：(head - recent, epoch - recent] 中不晚于head的
+        if (epoch - head >= recentSubWindows) {
+            recent.clear();
+        } else {
+            for (long e = head - recentSubWindows + 1; e <= epoch - recentSubWindows; e++) {
+                recent.subtract(slot(e).sketch);
+            }
+        }
+        // 移出窗口的子窗口与新的子窗口共用位置
+        for (long e = head + 1; e <= epoch; e++) {
+            SubWindow subWindow = slot(e);
+            window.subtract(subWindow.sketch);
+            subWindow.clear();
+        }
+        head = epoch;
+    }
+
+    /**
+     * 窗口内的总数量
+     */
+    public long getWindowTotal() {
+        return window.getTotal();
+    }
+
+    /**
+     * 近期窗口内的总数量
+     */
+    public long getRecentTotal() {
+        return recent.getTotal();
+    }
+
+    /**
+     * 相对误差上限：估计值超过真实值的部分不超过它乘以窗口（或近期窗口）总数量
+     */
+    public double getEpsilon() {
+        return window.getEpsilon();
+    }
+
+    /**
+     * 估计值超过误差上限的概率
+     */
+    public double getDelta() {
+        return window.getDelta();
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * 早于窗口而丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * 最近count个子窗口跟踪的键，去重
+     */
+    private long[] candidates(int count) {
+        int total = 0;
+        for (long e = head - count + 1; e <= head; e++) {
+            total += slot(e).heavyHitters.size();
+        }
+        long[] keys = new long[total];
+        int size = 0;
+        for (long e = head - count + 1; e <= head; e++) {
+            SpaceSaving heavyHitters = slot(e).heavyHitters;
+            for (int i = 0; i < heavyHitters.size(); i++) {
+                keys[size++] = heavyHitters.keyAt(i);
+            }
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    private SubWindow slot(long epoch) {
+        return ring[(int) Math.floorMod(epoch, (long) subWindows)];
+    }
+
+    /**
+     * 窗口内的一个键及其估计数量
+     */
+    public record Ranked(long key, long count) {
+    }
+
+    /**
+     * 近期增长的键
+     * @param recentCount 近期窗口内的估计数量
+     * @param earlierCount 窗口内近期之前的估计数量
+     * @param score 近期与之前的平均数量之比
+     */
+    public record Trend(long key, long recentCount, long earlierCount, double score) {
+    }
+
+    private static final class SubWindow {
+
+        private final CountMinSketch sketch;
+
+        private final SpaceSaving heavyHitters;
+
+        private SubWindow(CountMinSketch sketch, SpaceSaving heavyHitters) {
+            this.sketch = sketch;
+            this.heavyHitters = heavyHitters;
+        }
+
+        private void clear() {
+            sketch.clear();
+            heavyHitters.clear();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.wheatmall.common.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Space-Saving：用固定的capacity个计数器跟踪数量最多的键（加权版本，每次加入的数量可以大于1）
+ *
+ * 已跟踪的键直接累加；未跟踪的键在计数器未满时新占一个，已满时替换计数最小的键，
+ * 继承其计数作为误差（计数 = 被替换者的计数 + 数量）。保证：
+ * - 计数 - 误差 ≤ 真实数量 ≤ 计数
+ * - 真实数量超过 总数量 / capacity 的键一定被跟踪
+ *
+ * 计数器按计数组成最小堆，键到堆位置用开放寻址表索引，全部是基本类型数组：
+ * 加入是O(log capacity)（capacity固定，与键的个数无关），不分配对象。非线程安全。
+ */
+public final class SpaceSaving {
+
+    private static final int EMPTY = -1;
+
+    private final int capacity;
+
+    /** 最小堆，按counts排序 */
+    private final long[] keys;
+
+    private final long[] counts;
+
+    private final long[] errors;
+
+    /** 堆中每个位置的键在table中的槽位 */
+    private final int[] slots;
+
+    /** 开放寻址（线性探测）：槽位 -> 堆位置，EMPTY为空 */
+    private final int[] table;
+
+    private final int tableMask;
+
+    private int size;
+
+    private long total;
+
+    /**
+     * @param capacity 计数器个数
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 20) {
+            throw new IllegalArgumentException("计数器个数须在1到2^20之间: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.slots = new int[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(table, EMPTY);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 已跟踪的键数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 加入的总数量
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param count 数量，须为非负
+     */
+    public void add(long key, long count) {
+        total += count;
+        int slot = find(key);
+        if (table[slot] != EMPTY) {
+            int index = table[slot];
+            counts[index] += count;
+            siftDown(index);
+            return;
+        }
+        if (size < capacity) {
+            int index = size++;
+            keys[index] = key;
+            counts[index] = count;
+            errors[index] = 0;
+            table[slot] = index;
+            slots[index] = slot;
+            siftUp(index);
+            return;
+        }
+        // 替换计数最小的键（堆顶）
+        removeSlot(slots[0]);
+        slot = find(key);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += count;
+        table[slot] = 0;
+        slots[0] = slot;
+        siftDown(0);
+    }
+
+    /**
+     * 第index个计数器的键（0 ≤ index < size，顺序不确定）
+     */
+    public long keyAt(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * 第index个计数器的计数（真实数量的上限）
+     */
+    public long countAt(int index) {
+        checkIndex(index);
+        return counts[index];
+    }
+
+    /**
+     * 第index个计数器的误差（计数 - 误差 为真实数量的下限）
+     */
+    public long errorAt(int index) {
+        checkIndex(index);
+        return errors[index];
+    }
+
+    /**
+     * 键的计数；未跟踪的键返回0（其真实数量不超过最小计数）
+     */
+    public long count(long key) {
+        int index = table[find(key)];
+        return index == EMPTY ? 0 : counts[index];
+    }
+
+    /**
+     * 最小的计数，计数器未满时为0
+     */
+    public long minCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+        total = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * @return 键所在的槽位，不在表中时为应插入的空槽位
+     */
+    private int find(long key) {
+        int slot = (int) CountMinSketch.mix(key) & tableMask;
+        while (table[slot] != EMPTY && keys[table[slot]] != key) {
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    /**
+     * 删除槽位，后面同一探测链上的条目前移（不使用墓碑）
+     */
+    private void removeSlot(int slot) {
+        table[slot] = EMPTY;
+        int next = (slot + 1) & tableMask;
+        while (table[next] != EMPTY) {
+            int index = table[next];
+            int home = (int) CountMinSketch.mix(keys[index]) & tableMask;
+            // home不在(slot, next]之间时，条目可以前移到slot
+            if (((next - home) & tableMask) >= ((next - slot) & tableMask)) {
+                table[slot] = index;
+                slots[index] = slot;
+                table[next] = EMPTY;
+                slot = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[index] <= counts[child]) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        int slot = slots[a];
+        slots[a] = slots[b];
+        slots[b] = slot;
+        table[slots[a]] = a;
+        table[slots[b]] = b;
+    }
+}
@@ -0,0 +1,62 @@
+package com.wheatmall.common.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.utils.R;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinaryCodec单元测试
+ */
+class BinaryCodecTest {
+
+    private final ObjectMapper smileObjectMapper = BinaryCodec.smileObjectMapper();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Item {
+        private Long id;
+        private String name;
+        private BigDecimal price;
+        private LocalDateTime createTime;
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Item item = new Item(1L, "测试商品", new BigDecimal("5999.00"), LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000));
+
+        byte[] bytes = smileObjectMapper.writeValueAsBytes(R.ok(item));
+        R<Item> result = smileObjectMapper.readValue(bytes, new TypeReference<R<Item>>() {});
+
+        assertEquals(0, result.getCode());
+        assertEquals(item, result.getData());
+        // BigDecimal的scale必须保留
+        assertEquals(2, result.getData().getPrice().scale());
+    }
+
+    @Test
+    void testSmallerThanJsonForList() throws Exception {
+        List<Item> items = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            items.add(new Item(i, "商品-" + i, new BigDecimal("99.99"), LocalDateTime.now()));
+        }
+        ObjectMapper jsonObjectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        int smileSize = smileObjectMapper.writeValueAsBytes(R.ok(items)).length;
+        int jsonSize = jsonObjectMapper.writeValueAsBytes(R.ok(items)).length;
+
+        assertTrue(smileSize < jsonSize, "smile=" + smileSize + ", json=" + jsonSize);
+    }
+}
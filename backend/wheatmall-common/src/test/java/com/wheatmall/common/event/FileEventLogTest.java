@@ -0,0 +1,169 @@
+package com.wheatmall.common.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FileEventLog、OffsetCheckpoint单元测试
+ */
+class FileEventLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<EventMessage> events(long firstId, int count) {
+        List<EventMessage> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long id = firstId + i;
+            events.add(EventMessage.of(id, StockDeductionEvent.TYPE, new StockDeductionEvent(id, 1L, 2).encode()));
+        }
+        return events;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("events-")).sorted().toList();
+        }
+    }
+
+    @Test
+    void testAppendAndRead() throws IOException {
+        try (FileEventLog log = new FileEventLog(dir);
+             FileEventLog.Reader reader = log.reader(0)) {
+            assertTrue(reader.poll(10).isEmpty());
+            assertEquals(0, log.append(events(100, 3)));
+            assertEquals(3, log.append(events(200, 2)));
+            assertEquals(5, log.nextOffset());
+            assertEquals(2, log.getSyncCount());
+
+            List<EventMessage> read = reader.poll(4);
+            assertEquals(4, read.size());
+            assertEquals(0, read.get(0).offset());
+            assertEquals(100, read.get(0).id());
+            assertEquals(200, read.get(3).id());
+            assertEquals(new StockDeductionEvent(200, 1L, 2), StockDeductionEvent.decode(read.get(3).payload()));
+            // 之后追加的事件接着读到
+            log.append(events(300, 1));
+            read = reader.poll(10);
+            assertEquals(List.of(201L, 300L), read.stream().map(EventMessage::id).toList());
+            assertEquals(6, reader.position());
+            assertTrue(reader.poll(10).isEmpty());
+        }
+        // 从中间开始读
+        try (FileEventLog.Reader reader = new FileEventLog(dir).reader(4)) {
+            assertEquals(List.of(201L, 300L), reader.poll(10).stream().map(EventMessage::id).toList());
+        }
+    }
+
+    @Test
+    void testRecoverTornTail() throws IOException {
+        try (FileEventLog log = new FileEventLog(dir)) {
+            log.append(events(1, 3));
+        }
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        // 模拟写入中途崩溃：最后一条记录只写了一半
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+        try (FileEventLog.Reader reader = new FileEventLog(dir).reader(0)) {
+            // 不完整的记录视为正在写入，不读取
+            assertEquals(2, reader.poll(10).size());
+        }
+        try (FileEventLog log = new FileEventLog(dir)) {
+            assertEquals(2, log.nextOffset());
+            assertEquals(2, log.append(events(10, 1)));
+        }
+        try (FileEventLog.Reader reader = new FileEventLog(dir).reader(0)) {
+            assertEquals(List.of(1L, 2L, 10L), reader.poll(10).stream().map(EventMessage::id).toList());
+        }
+    }
+
+    @Test
+    void testSegmentsRollAndExpire() throws IOException {
+        try (FileEventLog log = new FileEventLog(dir, 200, Duration.ofDays(1));
+             FileEventLog.Reader reader = log.reader(0)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(events(i * 2L, 2));
+            }
+            assertTrue(segments().size() > 2);
+            // 读取跨越段边界
+            List<Long> ids = new ArrayList<>();
+            List<EventMessage> read;
+            while (!(read = reader.poll(3)).isEmpty()) {
+                read.forEach(event -> ids.add(event.id()));
+            }
+            assertEquals(20, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i, ids.get(i));
+            }
+            try (FileEventLog.Reader middle = log.reader(13)) {
+                assertEquals(13, middle.poll(1).get(0).offset());
+            }
+        }
+        // 超过保留期的旧段在写入新段时删除，当前段保留
+        Path first = segments().get(0);
+        Files.setLastModifiedTime(first, FileTime.fromMillis(0));
+        try (FileEventLog log = new FileEventLog(dir, 200, Duration.ofDays(1))) {
+            log.append(events(100, 5));
+            assertFalse(Files.exists(first));
+            assertEquals(25, log.nextOffset());
+            // 要读的事件已删除时从最早的事件开始
+            try (FileEventLog.Reader reader = log.reader(0)) {
+                assertTrue(reader.poll(1).get(0).offset() > 0);
+            }
+        }
+    }
+
+    @Test
+    void testSingleWriter() throws IOException {
+        try (FileEventLog first = new FileEventLog(dir)) {
+            first.append(events(1, 1));
+            FileEventLog second = new FileEventLog(dir);
+            IOException e = assertThrows(IOException.class, () -> second.append(events(2, 1)));
+            assertTrue(e.getMessage().contains("另一个进程"));
+        }
+        // 前一个写入方关闭后可以写入
+        try (FileEventLog log = new FileEventLog(dir)) {
+            assertEquals(1, log.append(events(2, 1)));
+        }
+    }
+
+    @Test
+    void testOffsetCheckpoint() throws IOException {
+        OffsetCheckpoint checkpoint = new OffsetCheckpoint(dir.resolve("consumers").resolve("test.offset"));
+        assertEquals(0, checkpoint.load());
+        checkpoint.save(42);
+        assertEquals(42, checkpoint.load());
+        checkpoint.save(43);
+        assertEquals(43, new OffsetCheckpoint(dir.resolve("consumers").resolve("test.offset")).load());
+    }
+
+    @Test
+    void testStockDeductionEventCodec() {
+        StockDeductionEvent event = new StockDeductionEvent(123456789L, 7L, 3, 42L);
+        assertEquals(event, StockDeductionEvent.decode(event.encode()));
+        assertEquals(29, event.encode().length);
+        // 版本1没有用户ID
+        byte[] v1 = Arrays.copyOf(event.encode(), 21);
+        v1[0] = 1;
+        assertEquals(new StockDeductionEvent(123456789L, 7L, 3), StockDeductionEvent.decode(v1));
+        assertEquals(0, StockDeductionEvent.decode(v1).userId());
+        assertThrows(IllegalArgumentException.class, () -> StockDeductionEvent.decode(new byte[]{9, 0}));
+        assertThrows(IllegalArgumentException.class, () -> StockDeductionEvent.decode(new byte[]{1, 0}));
+    }
+}
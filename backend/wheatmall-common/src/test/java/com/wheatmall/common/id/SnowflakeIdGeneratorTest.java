@@ -0,0 +1,134 @@
+package com.wheatmall.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SnowflakeIdGenerator单元测试
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final long START = SnowflakeIdGenerator.EPOCH_MILLIS + 1_000_000;
+
+    @Test
+    void testLayout() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1023, () -> START);
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertTrue(first > 0);
+        assertEquals(first + 1, second);
+        assertEquals(1023, SnowflakeIdGenerator.workerIdOf(first));
+        assertEquals(START, SnowflakeIdGenerator.timestampOf(first));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    }
+
+    @Test
+    void testSequenceOverflowBorrowsNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> START);
+        long previous = 0;
+        for (int i = 0; i < 4096 * 3; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 每毫秒4096个，用完后借用后面的毫秒
+        assertEquals(START + 2, SnowflakeIdGenerator.timestampOf(previous));
+        assertEquals(5, SnowflakeIdGenerator.workerIdOf(previous));
+    }
+
+    @Test
+    void testSustainedRateWaitsForClock() {
+        // 每调用1万次时钟前进1毫秒，生成速度超过每毫秒4096个
+        AtomicLong calls = new AtomicLong();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, () -> START + calls.incrementAndGet() / 10_000);
+        long previous = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+            long clockNow = START + calls.get() / 10_000;
+            assertTrue(SnowflakeIdGenerator.timestampOf(id) <= clockNow + SnowflakeIdGenerator.MAX_BORROW_MILLIS);
+        }
+    }
+
+    @Test
+    void testClockRollback() {
+        AtomicLong now = new AtomicLong(START);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, now::get);
+        long beforeRollback = generator.nextId();
+
+        // 小幅回拨：在上次的时间戳上继续递增
+        now.addAndGet(-100);
+        long afterRollback = generator.nextId();
+        assertTrue(afterRollback > beforeRollback);
+        assertEquals(START, SnowflakeIdGenerator.timestampOf(afterRollback));
+
+        // 时钟追上后使用新的时间戳
+        now.set(START + 1);
+        assertEquals(START + 1, SnowflakeIdGenerator.timestampOf(generator.nextId()));
+
+        // 回拨超过上限时拒绝生成
+        now.set(START + 1 - SnowflakeIdGenerator.MAX_ROLLBACK_MILLIS);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void testUniqueAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(42);
+        int threads = 8;
+        int perThread = 200_000;
+        long[][] ids = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] out = ids[t];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = generator.nextId();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            // 同一线程内严格递增
+            for (int i = 1; i < perThread; i++) {
+                assertTrue(ids[t][i] > ids[t][i - 1]);
+            }
+            System.arraycopy(ids[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "ID重复");
+        }
+    }
+
+    @Test
+    void testWorkerIdFromAddress() {
+        long workerId = SnowflakeIdGenerator.workerIdFromAddress("192.168.1.10", 8090);
+        assertTrue(workerId >= 0 && workerId <= SnowflakeIdGenerator.MAX_WORKER_ID);
+        assertEquals(workerId, SnowflakeIdGenerator.workerIdFromAddress("192.168.1.10", 8090));
+        assertNotEquals(workerId, SnowflakeIdGenerator.workerIdFromAddress("192.168.1.10", 8091));
+    }
+}
@@ -0,0 +1,67 @@
+package com.wheatmall.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CountMinSketch单元测试
+ */
+class CountMinSketchTest {
+
+    @Test
+    void testEstimateWithinBound() {
+        CountMinSketch sketch = new CountMinSketch(1000, 4);
+        assertEquals(1024, sketch.getWidth());
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // 偏斜分布：少数键占大部分数量
+            long key = (long) Math.pow(random.nextDouble(), 3) * 50_000;
+            int count = 1 + random.nextInt(3);
+            sketch.add(key, count);
+            exact.merge(key, (long) count, Long::sum);
+        }
+        long bound = (long) Math.ceil(sketch.getEpsilon() * sketch.getTotal());
+        int exceeded = 0;
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue());
+            if (estimate - entry.getValue() > bound) {
+                exceeded++;
+            }
+        }
+        // 超出误差上限的比例不超过 e^-depth（约1.8%）
+        assertTrue(exceeded <= exact.size() * sketch.getDelta(), "exceeded: " + exceeded);
+        assertEquals(0, new CountMinSketch(1024, 4).estimate(1L));
+    }
+
+    @Test
+    void testMergeAndSubtract() {
+        CountMinSketch first = new CountMinSketch(256, 3);
+        CountMinSketch second = new CountMinSketch(256, 3);
+        first.add(1L, 10);
+        first.add(2L, 5);
+        second.add(1L, 7);
+        second.add(3L, 2);
+
+        CountMinSketch sum = new CountMinSketch(256, 3);
+        sum.merge(first);
+        sum.merge(second);
+        assertEquals(24, sum.getTotal());
+        assertTrue(sum.estimate(1L) >= 17);
+
+        sum.subtract(second);
+        assertEquals(15, sum.getTotal());
+        assertEquals(first.estimate(1L), sum.estimate(1L));
+        assertEquals(first.estimate(3L), sum.estimate(3L));
+
+        sum.clear();
+        assertEquals(0, sum.estimate(1L));
+        assertThrows(IllegalArgumentException.class, () -> sum.merge(new CountMinSketch(128, 3)));
+    }
+}
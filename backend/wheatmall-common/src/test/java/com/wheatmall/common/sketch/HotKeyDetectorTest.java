@@ -0,0 +1,154 @@
+package com.wheatmall.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HotKeyDetector单元测试
+ */
+class HotKeyDetectorTest {
+
+    private static List<Long> keys(List<HotKeyDetector.HotKey> hotKeys) {
+        return hotKeys.stream().map(HotKeyDetector.HotKey::key).toList();
+    }
+
+    private static void record(HotKeyDetector detector, long key, int times) {
+        for (int i = 0; i < times; i++) {
+            detector.record(key);
+        }
+    }
+
+    @Test
+    void testHotKeysAndListener() {
+        HotKeyDetector detector = new HotKeyDetector(1, 1, 256, 16, 0.2, 0.1, 10);
+        List<List<Long>> events = new ArrayList<>();
+        detector.addListener((hotSet, added, removed) -> {
+            events.add(keys(added));
+            events.add(keys(removed));
+        });
+        record(detector, 1L, 50);
+        record(detector, 2L, 30);
+        for (long key = 100; key < 120; key++) {
+            record(detector, key, 1);
+        }
+        HotKeyDetector.HotSet hotSet = detector.endWindow();
+
+        // 按样本数降序
+        assertEquals(List.of(1L, 2L), keys(hotSet.keys()));
+        assertEquals(100, hotSet.getTotalSamples());
+        assertEquals(0.5, hotSet.get(1L).share(), 1e-9);
+        assertTrue(detector.isHot(2L));
+        assertFalse(detector.isHot(100L));
+        assertNull(hotSet.get(100L));
+        assertEquals(List.of(List.of(1L, 2L), List.of()), events);
+
+        // 下一个窗口只有商品2和3热门
+        events.clear();
+        record(detector, 2L, 40);
+        record(detector, 3L, 60);
+        detector.endWindow();
+        assertEquals(List.of(3L, 2L), keys(detector.hotSet().keys()));
+        assertEquals(List.of(List.of(3L), List.of(1L)), events);
+    }
+
+    @Test
+    void testHysteresis() {
+        HotKeyDetector detector = new HotKeyDetector(1, 1, 256, 16, 0.2, 0.1, 10);
+        record(detector, 1L, 30);
+        record(detector, 2L, 70);
+        detector.endWindow();
+        assertTrue(detector.isHot(1L));
+
+        // 占比15%：低于成为热点的20%，但已是热点的商品保留
+        record(detector, 1L, 15);
+        record(detector, 2L, 85);
+        detector.endWindow();
+        assertTrue(detector.isHot(1L));
+
+        // 占比降到10%以下时移出，之后再到15%也不会成为热点
+        record(detector, 1L, 5);
+        record(detector, 2L, 95);
+        detector.endWindow();
+        assertFalse(detector.isHot(1L));
+        record(detector, 1L, 15);
+        record(detector, 2L, 85);
+        detector.endWindow();
+        assertFalse(detector.isHot(1L));
+    }
+
+    @Test
+    void testStringKeysAndMinSamples() {
+        HotKeyDetector detector = new HotKeyDetector(4, 1, 256, 16, 0.3, 0.2, 10);
+        for (int i = 0; i < 8; i++) {
+            detector.record("alice");
+        }
+        // 样本不足时不判定
+        assertEquals(0, detector.endWindow().size());
+
+        for (int i = 0; i < 8; i++) {
+            detector.record("alice");
+            detector.record("bob-" + i);
+        }
+        HotKeyDetector.HotSet hotSet = detector.endWindow();
+        assertEquals(1, hotSet.size());
+        assertEquals("alice", hotSet.keys().get(0).name());
+        assertEquals(HotKeyDetector.hash("alice"), hotSet.keys().get(0).key());
+        assertTrue(detector.isHot("alice"));
+        assertFalse(detector.isHot("bob-0"));
+
+        // 已是热点的字符串键，窗口内只取到哈希时沿用原来的名字
+        for (int i = 0; i < 10; i++) {
+            detector.record("alice");
+        }
+        assertEquals("alice", detector.endWindow().keys().get(0).name());
+    }
+
+    @Test
+    void testSamplingAndOverflow() {
+        HotKeyDetector detector = new HotKeyDetector(1, 4, 8, 16, 0.5, 0.5, 1);
+        assertEquals(4, detector.getSampleRate());
+        record(detector, 1L, 16);
+        assertEquals(4, detector.drain());
+        assertEquals(0, detector.drain());
+
+        // 两次取样之间超过缓冲区的样本丢弃，只保留最新的8个
+        record(detector, 1L, 40);
+        record(detector, 2L, 40);
+        assertEquals(8, detector.drain());
+        assertEquals(12, detector.getDroppedSamples());
+        HotKeyDetector.HotSet hotSet = detector.endWindow();
+        assertEquals(12, hotSet.getTotalSamples());
+        assertTrue(hotSet.contains(2L));
+    }
+
+    @Test
+    void testConcurrentRecord() throws InterruptedException {
+        HotKeyDetector detector = new HotKeyDetector(8, 1, 1 << 16, 16, 0.4, 0.2, 100);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    detector.record(i % 2 == 0 ? 7L : i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 同一分段上的并发写入可能丢失少量样本，热点不受影响
+        HotKeyDetector.HotSet hotSet = detector.endWindow();
+        assertEquals(List.of(7L), keys(hotSet.keys()));
+        assertTrue(hotSet.getTotalSamples() <= 80_000);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(4, 3, 256, 16, 0.1, 0.05, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(4, 4, 256, 16, 0.1, 0.2, 10));
+    }
+}
@@ -0,0 +1,91 @@
+package com.wheatmall.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SlidingWindowTopK单元测试（子窗口1秒，窗口10秒，近期窗口2秒）
+ */
+class SlidingWindowTopKTest {
+
+    private static final long SECOND = 1000;
+
+    private final SlidingWindowTopK sales = new SlidingWindowTopK(SECOND, 10, 2, 1024, 4, 20);
+
+    @Test
+    void testTopWithinWindow() {
+        long now = 100 * SECOND;
+        for (int i = 0; i < 10; i++) {
+            // 商品1每秒5件，商品2每秒2件，商品3只在第一秒有50件
+            sales.add(1L, 5, now + i * SECOND, now + i * SECOND);
+            sales.add(2L, 2, now + i * SECOND, now + i * SECOND);
+        }
+        sales.add(3L, 50, now, now + 9 * SECOND);
+
+        List<SlidingWindowTopK.Ranked> top = sales.top(2, now + 9 * SECOND);
+        // 数量相同时按键升序
+        assertEquals(List.of(new SlidingWindowTopK.Ranked(1L, 50), new SlidingWindowTopK.Ranked(3L, 50)), top);
+        assertEquals(120, sales.getWindowTotal());
+
+        // 窗口滑过第一秒：商品3和第一秒的销量移出
+        top = sales.top(3, now + 10 * SECOND);
+        assertEquals(new SlidingWindowTopK.Ranked(1L, 45), top.get(0));
+        assertEquals(new SlidingWindowTopK.Ranked(2L, 18), top.get(1));
+        assertEquals(2, top.size());
+        assertEquals(63, sales.getWindowTotal());
+
+        // 整个窗口过期
+        assertTrue(sales.top(3, now + 30 * SECOND).isEmpty());
+        assertEquals(0, sales.getWindowTotal());
+        assertEquals(0, sales.getRecentTotal());
+    }
+
+    @Test
+    void testLateAndFutureEvents() {
+        long now = 100 * SECOND;
+        sales.add(1L, 1, now, now);
+        // 晚到的事件归入其所在的子窗口，早于窗口的丢弃
+        assertTrue(sales.add(1L, 2, now - 9 * SECOND, now));
+        assertFalse(sales.add(1L, 4, now - 10 * SECOND, now));
+        assertEquals(1, sales.getDroppedCount());
+        // 晚于当前时间的归入当前子窗口
+        assertTrue(sales.add(1L, 8, now + 60 * SECOND, now));
+        assertEquals(11, sales.top(1, now).get(0).count());
+        assertEquals(9, sales.getRecentTotal());
+
+        // 1秒后，9秒前的子窗口移出
+        assertEquals(9, sales.top(1, now + SECOND).get(0).count());
+    }
+
+    @Test
+    void testTrending() {
+        long now = 100 * SECOND;
+        for (int i = 0; i < 8; i++) {
+            sales.add(1L, 10, now + i * SECOND, now + i * SECOND);
+            sales.add(2L, 1, now + i * SECOND, now + i * SECOND);
+        }
+        // 近期两秒：商品1持平，商品2突增，商品3首次出现但数量少
+        long recent = now + 8 * SECOND;
+        for (int i = 0; i < 2; i++) {
+            sales.add(1L, 10, recent + i * SECOND, recent + i * SECOND);
+            sales.add(2L, 20, recent + i * SECOND, recent + i * SECOND);
+        }
+        sales.add(3L, 2, recent, recent + SECOND);
+        assertEquals(62, sales.getRecentTotal());
+
+        List<SlidingWindowTopK.Trend> trends = sales.trending(10, 5, recent + SECOND);
+        assertEquals(List.of(2L, 1L), trends.stream().map(SlidingWindowTopK.Trend::key).toList());
+        SlidingWindowTopK.Trend surging = trends.get(0);
+        assertEquals(40, surging.recentCount());
+        assertEquals(8, surging.earlierCount());
+        // 近期每秒20件，之前每秒 (8 + 1) / 8 件
+        assertEquals(20 / (9.0 / 8), surging.score(), 1e-9);
+        assertEquals(10 / (81.0 / 8), trends.get(1).score(), 1e-9);
+
+        // 近期窗口滑过后不再增长
+        assertTrue(sales.trending(10, 5, recent + 4 * SECOND).isEmpty());
+    }
+}
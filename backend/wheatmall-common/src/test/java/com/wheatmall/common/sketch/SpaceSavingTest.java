@@ -0,0 +1,79 @@
+package com.wheatmall.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SpaceSaving单元测试
+ */
+class SpaceSavingTest {
+
+    @Test
+    void testTracksHeavyHitters() {
+        SpaceSaving heavyHitters = new SpaceSaving(50);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = (long) (Math.pow(random.nextDouble(), 4) * 10_000);
+            int count = 1 + random.nextInt(5);
+            heavyHitters.add(key, count);
+            exact.merge(key, (long) count, Long::sum);
+        }
+        assertEquals(50, heavyHitters.size());
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, heavyHitters.getTotal());
+
+        // 计数 - 误差 ≤ 真实数量 ≤ 计数
+        for (int i = 0; i < heavyHitters.size(); i++) {
+            long real = exact.getOrDefault(heavyHitters.keyAt(i), 0L);
+            assertTrue(heavyHitters.countAt(i) >= real);
+            assertTrue(heavyHitters.countAt(i) - heavyHitters.errorAt(i) <= real);
+        }
+        // 超过 总数量 / capacity 的键一定被跟踪
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > total / 50) {
+                assertTrue(heavyHitters.count(entry.getKey()) >= entry.getValue(), "key: " + entry.getKey());
+            }
+            // 未跟踪的键不超过最小计数
+            if (heavyHitters.count(entry.getKey()) == 0) {
+                assertTrue(entry.getValue() <= heavyHitters.minCount());
+            }
+        }
+    }
+
+    @Test
+    void testReplacesMinimum() {
+        SpaceSaving heavyHitters = new SpaceSaving(2);
+        heavyHitters.add(1L, 5);
+        heavyHitters.add(2L, 3);
+        assertEquals(3, heavyHitters.minCount());
+        // 替换计数最小的键2，继承其计数作为误差
+        heavyHitters.add(3L, 1);
+        assertEquals(0, heavyHitters.count(2L));
+        assertEquals(4, heavyHitters.count(3L));
+        assertEquals(5, heavyHitters.count(1L));
+        for (int i = 0; i < heavyHitters.size(); i++) {
+            if (heavyHitters.keyAt(i) == 3L) {
+                assertEquals(3, heavyHitters.errorAt(i));
+            }
+        }
+        // 重复替换同一位置，开放寻址表保持一致
+        for (long key = 10; key < 1000; key++) {
+            heavyHitters.add(key, 10);
+        }
+        assertEquals(2, heavyHitters.size());
+        // 计数器已满时计数之和等于总数量
+        assertEquals(9909, heavyHitters.getTotal());
+        assertEquals(heavyHitters.getTotal(), heavyHitters.count(998L) + heavyHitters.count(999L));
+
+        heavyHitters.clear();
+        assertEquals(0, heavyHitters.size());
+        assertEquals(0, heavyHitters.count(999L));
+        assertThrows(IndexOutOfBoundsException.class, () -> heavyHitters.keyAt(0));
+    }
+}
@@ -0,0 +1,44 @@
+package com.wheatmall.order.cache;
+
+import com.wheatmall.order.dto.CachedResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 条件请求缓存
+ *
+ * 保存上游响应的ETag和解码后的数据，下次请求携带If-None-Match，
+ * 上游返回304时直接复用本地数据，不再重复下载和解码。容量有限，按LRU淘汰。
+ * @param <K> 缓存键类型
+ * @param <V> 数据类型
+ */
+public class ConditionalCache<K, V> {
+
+    private final Map<K, CachedResponse<V>> entries;
+
+    public ConditionalCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedResponse<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的响应，不存在时返回null
+     */
+    public synchronized CachedResponse<V> get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * 保存响应，没有ETag的响应无法做条件请求，不缓存
+     */
+    public synchronized void put(K key, CachedResponse<V> response) {
+        if (response.getEtag() != null) {
+            entries.put(key, response);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.wheatmall.order.cart;
+
+import com.wheatmall.order.dto.CartLineView;
+import com.wheatmall.order.dto.CartView;
+import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.pricing.Money;
+import com.wheatmall.order.service.OrderService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 购物车服务：活跃用户的购物车在内存中（{@link UserCart}，基本类型数组），读写都不访问存储
+ *
+ * 内存中最多capacity个购物车，按用户ID分为 {@value #SEGMENTS} 段，每段一个按访问顺序的LRU表；
+ * 超出容量时淘汰最久未访问的购物车，有修改的写入 {@link JdbcCartStore}（在引起淘汰的请求线程上、锁外写入），
+ * 再次访问时从存储加载。服务关闭时把内存中有修改的购物车全部写入存储；进程崩溃时丢失内存中未写入的修改。
+ *
+ * 加入商品时不校验商品，打开购物车（{@link #open}）时一次批量调用Product服务刷新所有商品的名称、单价和库存，
+ * 商品不存在或库存不足的行标记为不可购买。
+ *
+ * 并发：购物车对象本身是锁；段锁只保护LRU表，持有购物车锁时可以获取段锁，反之不行。
+ * 淘汰的购物车写入存储前留在 {@code evicting} 中，期间再次访问直接放回内存；写入后标记为detached，
+ * 持有旧引用的请求发现detached后重新获取。
+ */
+@Slf4j
+@Service
+public class CartService {
+
+    private static final int SEGMENTS = 16;
+
+    /** 一次刷新的商品数上限，与Product服务批量查询的上限一致 */
+    static final int MAX_LINES_LIMIT = 1000;
+
+    private final OrderService orderService;
+
+    private final JdbcCartStore cartStore;
+
+    private final int maxLines;
+
+    private final Segment[] segments;
+
+    /** 已从LRU表淘汰、尚未写入存储的购物车 */
+    private final ConcurrentHashMap<Long, UserCart> evicting = new ConcurrentHashMap<>();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param capacity 内存中最多的购物车数
+     * @param maxLines 每个购物车最多的商品种类
+     */
+    public CartService(OrderService orderService, JdbcCartStore cartStore,
+                       @Value("${wheatmall.order.cart.capacity:100000}") int capacity,
+                       @Value("${wheatmall.order.cart.max-lines:100}") int maxLines) {
+        if (capacity < SEGMENTS || maxLines <= 0 || maxLines > MAX_LINES_LIMIT) {
+            throw new IllegalArgumentException("购物车容量不能小于" + SEGMENTS + "，商品种类上限须在1到"
+                    + MAX_LINES_LIMIT + "之间");
+        }
+        this.orderService = orderService;
+        this.cartStore = cartStore;
+        this.maxLines = maxLines;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment((capacity + SEGMENTS - 1) / SEGMENTS);
+        }
+    }
+
+    /**
+     * 查看购物车（内存中的内容，单价和库存为最近一次刷新的结果，不调用Product服务）
+     */
+    public CartView get(long userId) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (!cart.detached) {
+                    return view(cart);
+                }
+            }
+        }
+    }
+
+    /**
+     * 打开购物车：一次批量调用Product服务刷新所有商品的名称、单价和库存
+     * Product服务不可用时返回上次刷新的结果（refreshTime不变）
+     */
+    public CartView open(long userId) {
+        List<Long> productIds = new ArrayList<>();
+        while (productIds.isEmpty()) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.detached) {
+                    continue;
+                }
+                if (cart.size() == 0) {
+                    return view(cart);
+                }
+                for (int i = 0; i < cart.size(); i++) {
+                    productIds.add(cart.productId(i));
+                }
+            }
+        }
+        // 调用Product服务时不持有锁
+        List<ProductDTO> products;
+        try {
+            products = orderService.getProductsForOrder(productIds);
+        } catch (RuntimeException e) {
+            log.warn("刷新购物车失败, 返回上次刷新的结果, userId: {}", userId, e);
+            return get(userId);
+        }
+        Map<Long, ProductDTO> byId = new HashMap<>();
+        for (ProductDTO product : products) {
+            byId.put(product.getId(), product);
+        }
+        Set<Long> requested = new HashSet<>(productIds);
+        long now = System.currentTimeMillis();
+        return update(userId, cart -> {
+            for (int i = 0; i < cart.size(); i++) {
+                long productId = cart.productId(i);
+                ProductDTO product = byId.get(productId);
+                if (product != null) {
+                    cart.refresh(i, product.getName(),
+                            product.getPrice() == null ? UserCart.UNKNOWN : Money.toCents(product.getPrice()),
+                            product.getStock() == null ? 0 : product.getStock());
+                } else if (requested.contains(productId)) {
+                    cart.refresh(i, null, UserCart.UNKNOWN, UserCart.UNKNOWN);
+                }
+                // 刷新期间新加入的商品等下次打开时刷新
+            }
+            cart.refreshed(now);
+        });
+    }
+
+    /**
+     * 设置商品数量，不在购物车中时加入
+     * @param quantity 数量，必须大于0
+     * @throws IllegalStateException 购物车商品种类已达上限
+     */
+    public CartView setQuantity(long userId, long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("数量必须大于0: " + quantity);
+        }
+        return update(userId, cart -> cart.set(productId, quantity, maxLines));
+    }
+
+    /**
+     * 移除商品，不在购物车中时不变
+     */
+    public CartView remove(long userId, long productId) {
+        return update(userId, cart -> cart.remove(productId));
+    }
+
+    /**
+     * 清空购物车
+     */
+    public CartView clear(long userId) {
+        return update(userId, UserCart::clear);
+    }
+
+    /**
+     * 内存中的购物车数
+     */
+    public int getCachedCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    /**
+     * 从存储加载（或新建）购物车的次数
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * 淘汰出内存的购物车数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 把内存中有修改的购物车写入存储（服务关闭时调用）
+     */
+    @PreDestroy
+    public void flush() {
+        int saved = 0;
+        for (Segment segment : segments) {
+            for (UserCart cart : segment.snapshot()) {
+                synchronized (cart) {
+                    if (!cart.detached && cart.dirty) {
+                        cartStore.save(cart);
+                        cart.dirty = false;
+                        saved++;
+                    }
+                }
+            }
+        }
+        for (UserCart cart : evicting.values()) {
+            writeBack(cart);
+        }
+        log.info("购物车已写入存储, 数量: {}", saved);
+    }
+
+    private CartView update(long userId, Consumer<UserCart> change) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (!cart.detached) {
+                    change.accept(cart);
+                    return view(cart);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取用户的购物车：内存中没有时放回正在淘汰的购物车，或从存储加载
+     */
+    private UserCart acquire(long userId) {
+        Segment segment = segmentOf(userId);
+        UserCart cart = segment.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        List<UserCart> evicted = new ArrayList<>();
+        UserCart pending = evicting.get(userId);
+        if (pending != null) {
+            synchronized (pending) {
+                if (!pending.detached) {
+                    cart = segment.putIfAbsent(pending, evicted);
+                    evicting.remove(userId, pending);
+                }
+            }
+        }
+        if (cart == null) {
+            byte[] bytes = cartStore.load(userId);
+            loadCount.increment();
+            cart = segment.putIfAbsent(bytes == null ? new UserCart(userId) : UserCart.decode(userId, bytes), evicted);
+        }
+        for (UserCart victim : evicted) {
+            writeBack(victim);
+        }
+        return cart;
+    }
+
+    /**
+     * 把淘汰的购物车写入存储；期间又被访问而放回内存的跳过
+     */
+    private void writeBack(UserCart cart) {
+        Segment segment = segmentOf(cart.userId);
+        synchronized (cart) {
+            if (cart.detached || segment.contains(cart.userId)) {
+                return;
+            }
+            if (cart.dirty) {
+                try {
+                    cartStore.save(cart);
+                } catch (RuntimeException e) {
+                    // 留在evicting中，下次访问时放回内存
+                    log.error("购物车写入存储失败, userId: {}", cart.userId, e);
+                    return;
+                }
+                cart.dirty = false;
+            }
+            cart.detached = true;
+            evicting.remove(cart.userId, cart);
+        }
+        evictionCount.increment();
+    }
+
+    private CartView view(UserCart cart) {
+        List<CartLineView> lines = new ArrayList<>(cart.size());
+        long total = 0;
+        for (int i = 0; i < cart.size(); i++) {
+            long unitPrice = cart.unitPrice(i);
+            int stock = cart.stock(i);
+            int quantity = cart.quantity(i);
+            boolean available = unitPrice != UserCart.UNKNOWN && stock >= quantity;
+            if (available) {
+                total += Money.multiply(unitPrice, quantity);
+            }
+            lines.add(new CartLineView(cart.productId(i), cart.name(i),
+                    unitPrice == UserCart.UNKNOWN ? null : Money.toBigDecimal(unitPrice), quantity,
+                    stock == UserCart.UNKNOWN ? null : stock, available));
+        }
+        LocalDateTime refreshTime = cart.refreshedAt() == 0 ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(cart.refreshedAt()), ZoneId.systemDefault());
+        return new CartView(cart.userId, lines, Money.toBigDecimal(total), refreshTime);
+    }
+
+    private Segment segmentOf(long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return segments[(int) Math.floorMod(hash ^ (hash >>> 32), (long) SEGMENTS)];
+    }
+
+    /**
+     * 一段LRU表，只在锁内做内存操作
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<Long, UserCart> carts = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized UserCart get(long userId) {
+            return carts.get(userId);
+        }
+
+        /**
+         * 不改变访问顺序
+         */
+        synchronized boolean contains(long userId) {
+            return carts.containsKey(userId);
+        }
+
+        /**
+         * 放入购物车，已有同一用户的购物车时返回已有的；超出容量时淘汰最久未访问的，放入evicted和evicting
+         */
+        synchronized UserCart putIfAbsent(UserCart cart, List<UserCart> evicted) {
+            UserCart existing = carts.get(cart.userId);
+            if (existing != null) {
+                return existing;
+            }
+            carts.put(cart.userId, cart);
+            Iterator<UserCart> eldest = carts.values().iterator();
+            while (carts.size() > capacity) {
+                UserCart victim = eldest.next();
+                eldest.remove();
+                evicting.put(victim.userId, victim);
+                evicted.add(victim);
+            }
+            return cart;
+        }
+
+        synchronized List<UserCart> snapshot() {
+            return new ArrayList<>(carts.values());
+        }
+
+        synchronized int size() {
+            return carts.size();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.wheatmall.order.cart;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 购物车存储（与订单共用内嵌H2）：{@value #TABLE} 表每个用户一行，内容为 {@link UserCart#encode} 的编码
+ *
+ * 只保存不在内存中的购物车：内存中的购物车被淘汰或服务关闭时写入，再次访问时读取。
+ */
+@Repository
+public class JdbcCartStore {
+
+    static final String TABLE = "CARTS";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcCartStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                + "USER_ID BIGINT PRIMARY KEY, "
+                + "LINES VARBINARY NOT NULL, "
+                + "UPDATE_TIME TIMESTAMP NOT NULL)");
+    }
+
+    /**
+     * @return 购物车编码，没有保存过时为null
+     */
+    byte[] load(long userId) {
+        List<byte[]> rows = jdbcTemplate.query("SELECT LINES FROM " + TABLE + " WHERE USER_ID = ?",
+                (rs, rowNum) -> rs.getBytes(1), userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * 保存购物车，空购物车删除对应的行
+     */
+    void save(UserCart cart) {
+        if (cart.size() == 0) {
+            jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE USER_ID = ?", cart.userId);
+            return;
+        }
+        jdbcTemplate.update("MERGE INTO " + TABLE + " (USER_ID, LINES, UPDATE_TIME) KEY (USER_ID) VALUES (?, ?, ?)",
+                cart.userId, cart.encode(), new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * 已保存的购物车数
+     */
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + TABLE, Long.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,216 @@
+package com.wheatmall.order.cart;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 一个用户的购物车：商品行以并行的基本类型数组存放，按加入顺序排列
+ *
+ * 商品ID和数量是购物车本身的内容，淘汰时编码后写入 {@link JdbcCartStore}；
+ * 单价、库存和名称是最近一次刷新时从Product服务读到的展示数据，不写入存储，重新加载后打开时再刷新。
+ * 非线程安全，由 {@link CartService} 以购物车对象为锁访问。
+ */
+final class UserCart {
+
+    /** 单价、库存未刷新或商品不存在 */
+    static final int UNKNOWN = -1;
+
+    private static final byte VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final long[] NO_LONGS = new long[0];
+
+    private static final int[] NO_INTS = new int[0];
+
+    private static final String[] NO_NAMES = new String[0];
+
+    final long userId;
+
+    private long[] productIds = NO_LONGS;
+
+    private int[] quantities = NO_INTS;
+
+    private long[] unitPrices = NO_LONGS;
+
+    private int[] stocks = NO_INTS;
+
+    private String[] names = NO_NAMES;
+
+    private int size;
+
+    /** 最近一次刷新的时间（毫秒），0表示未刷新 */
+    private long refreshedAt;
+
+    /** 加载或上次写入存储后是否修改过 */
+    boolean dirty;
+
+    /** 已淘汰并写入存储，之后的访问须重新获取购物车 */
+    boolean detached;
+
+    UserCart(long userId) {
+        this.userId = userId;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long productId(int line) {
+        return productIds[line];
+    }
+
+    int quantity(int line) {
+        return quantities[line];
+    }
+
+    /**
+     * 单价（分），未刷新或商品不存在时为 {@link #UNKNOWN}
+     */
+    long unitPrice(int line) {
+        return unitPrices[line];
+    }
+
+    /**
+     * 库存，未刷新或商品不存在时为 {@link #UNKNOWN}
+     */
+    int stock(int line) {
+        return stocks[line];
+    }
+
+    String name(int line) {
+        return names[line];
+    }
+
+    long refreshedAt() {
+        return refreshedAt;
+    }
+
+    int indexOf(long productId) {
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 设置商品数量，不在购物车中时加到末尾（单价、库存待刷新）
+     * @param quantity 数量，必须大于0
+     * @param maxLines 最多的商品行数
+     * @throws IllegalStateException 新加入商品时已达到maxLines
+     */
+    void set(long productId, int quantity, int maxLines) {
+        int line = indexOf(productId);
+        if (line < 0) {
+            if (size >= maxLines) {
+                throw new IllegalStateException("购物车最多" + maxLines + "种商品");
+            }
+            if (size == productIds.length) {
+                grow();
+            }
+            line = size++;
+            productIds[line] = productId;
+            unitPrices[line] = UNKNOWN;
+            stocks[line] = UNKNOWN;
+            names[line] = null;
+        }
+        quantities[line] = quantity;
+        dirty = true;
+    }
+
+    /**
+     * 移除商品，后面的行前移
+     * @return 商品是否在购物车中
+     */
+    boolean remove(long productId) {
+        int line = indexOf(productId);
+        if (line < 0) {
+            return false;
+        }
+        int moved = size - line - 1;
+        System.arraycopy(productIds, line + 1, productIds, line, moved);
+        System.arraycopy(quantities, line + 1, quantities, line, moved);
+        System.arraycopy(unitPrices, line + 1, unitPrices, line, moved);
+        System.arraycopy(stocks, line + 1, stocks, line, moved);
+        System.arraycopy(names, line + 1, names, line, moved);
+        names[--size] = null;
+        dirty = true;
+        return true;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(names, 0, size, null);
+            size = 0;
+            dirty = true;
+        }
+    }
+
+    /**
+     * 写入刷新结果
+     * @param unitPrice 单价（分），商品不存在时为 {@link #UNKNOWN}
+     * @param stock 库存，商品不存在时为 {@link #UNKNOWN}
+     */
+    void refresh(int line, String name, long unitPrice, int stock) {
+        names[line] = name;
+        unitPrices[line] = unitPrice;
+        stocks[line] = stock;
+    }
+
+    void refreshed(long now) {
+        refreshedAt = now;
+    }
+
+    /**
+     * 编码：版本(byte) + 行数(int) + 每行商品ID(long)和数量(int)
+     */
+    byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(5 + size * 12);
+        buffer.put(VERSION).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(productIds[i]).putInt(quantities[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException 版本或长度不匹配
+     */
+    static UserCart decode(long userId, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 5 || buffer.get() != VERSION) {
+            throw new IllegalArgumentException("不支持的购物车编码, userId: " + userId);
+        }
+        int lines = buffer.getInt();
+        if (lines < 0 || buffer.remaining() != lines * 12) {
+            throw new IllegalArgumentException("购物车编码长度不匹配, userId: " + userId);
+        }
+        UserCart cart = new UserCart(userId);
+        if (lines > 0) {
+            cart.productIds = new long[lines];
+            cart.quantities = new int[lines];
+            cart.unitPrices = new long[lines];
+            cart.stocks = new int[lines];
+            cart.names = new String[lines];
+            Arrays.fill(cart.unitPrices, UNKNOWN);
+            Arrays.fill(cart.stocks, UNKNOWN);
+            for (int i = 0; i < lines; i++) {
+                cart.productIds[i] = buffer.getLong();
+                cart.quantities[i] = buffer.getInt();
+            }
+            cart.size = lines;
+        }
+        return cart;
+    }
+
+    private void grow() {
+        int capacity = productIds.length == 0 ? INITIAL_CAPACITY : productIds.length + (productIds.length >> 1);
+        productIds = Arrays.copyOf(productIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        unitPrices = Arrays.copyOf(unitPrices, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+}
@@ -0,0 +1,43 @@
+package com.wheatmall.order.config;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 订单ID生成器配置
+ * 机器ID优先取配置 wheatmall.id.worker-id；未配置时由Nacos注册的实例IP和服务端口计算，
+ * 并写入实例元数据 worker-id，便于在Nacos控制台检查实例之间是否冲突
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    /** Nacos实例元数据中的机器ID */
+    public static final String WORKER_ID_METADATA = "worker-id";
+
+    @Bean
+    public SnowflakeIdGenerator orderIdGenerator(@Value("${wheatmall.id.worker-id:-1}") long workerId,
+                                                 @Value("${server.port:8080}") int port,
+                                                 ObjectProvider<NacosDiscoveryProperties> nacosProperties)
+            throws UnknownHostException {
+        NacosDiscoveryProperties nacos = nacosProperties.getIfAvailable();
+        if (workerId < 0) {
+            String host = nacos != null && nacos.getIp() != null && !nacos.getIp().isEmpty()
+                    ? nacos.getIp() : InetAddress.getLocalHost().getHostAddress();
+            workerId = SnowflakeIdGenerator.workerIdFromAddress(host, port);
+            log.info("未配置机器ID, 由实例地址计算: {}:{} -> {}", host, port, workerId);
+        }
+        if (nacos != null) {
+            nacos.getMetadata().put(WORKER_ID_METADATA, String.valueOf(workerId));
+        }
+        return new SnowflakeIdGenerator(workerId);
+    }
+}
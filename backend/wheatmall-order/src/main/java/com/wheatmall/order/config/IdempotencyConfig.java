@@ -0,0 +1,45 @@
+package com.wheatmall.order.config;
+
+import com.wheatmall.order.idempotency.IdempotencyService;
+import com.wheatmall.order.idempotency.IdempotencyStore;
+import com.wheatmall.order.idempotency.InMemoryIdempotencyStore;
+import com.wheatmall.order.idempotency.JdbcIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 下单幂等键配置
+ * wheatmall.order.idempotency.store：memory（默认，进程内，单实例）或 jdbc（数据库表，多实例共享，数据源需指向同一个数据库）
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    private static final String STORE_PROPERTY = "wheatmall.order.idempotency.store";
+
+    @Bean
+    @ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(
+            @Value("${wheatmall.order.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${wheatmall.order.idempotency.max-keys:100000}") int maxKeys) {
+        return new InMemoryIdempotencyStore(ttl, maxKeys);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(DataSource dataSource,
+                                                 @Value("${wheatmall.order.idempotency.ttl:PT24H}") Duration ttl) {
+        return new JdbcIdempotencyStore(dataSource, ttl);
+    }
+
+    @Bean
+    public IdempotencyService idempotencyService(
+            IdempotencyStore idempotencyStore,
+            @Value("${wheatmall.order.idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        return new IdempotencyService(idempotencyStore, waitTimeout);
+    }
+}
@@ -0,0 +1,26 @@
+package com.wheatmall.order.config;
+
+import com.wheatmall.order.pricing.PricingEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 促销计价配置
+ * wheatmall.order.promotions：促销规则，逗号分隔，格式见 {@link com.wheatmall.order.pricing.PromotionRule#parse}；
+ * 规则格式非法时启动失败
+ */
+@Slf4j
+@Configuration
+public class PricingConfig {
+
+    @Bean
+    public PricingEngine pricingEngine(@Value("${wheatmall.order.promotions:}") List<String> promotions) {
+        PricingEngine engine = PricingEngine.parse(promotions);
+        log.info("促销规则已加载, 规则数: {}", engine.getRules().size());
+        return engine;
+    }
+}
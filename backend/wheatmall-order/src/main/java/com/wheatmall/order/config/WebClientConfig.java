@@ -1,8 +1,14 @@
 package com.wheatmall.order.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.codec.BinaryCodec;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
@@ -25,11 +31,26 @@ public class WebClientConfig {
     /**
      * 配置Product服务的WebClient
      * 使用服务名 wheatmall-product 通过Nacos发现和调用
+     * 内部调用优先协商Smile二进制编码，Product服务不支持时回退到JSON
      */
     @Bean
     public WebClient productWebClient(WebClient.Builder loadBalancedWebClientBuilder) {
+        ObjectMapper smileObjectMapper = BinaryCodec.smileObjectMapper();
         return loadBalancedWebClientBuilder
                 .baseUrl("http://wheatmall-product")
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileObjectMapper));
+                    configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileObjectMapper));
+                })
+                .defaultHeader(HttpHeaders.ACCEPT, BinaryCodec.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_JSON_VALUE + ";q=0.9")
                 .build();
     }
+
+    /**
+     * 异步下单回调使用的WebClient（回调地址由客户端提供，不经过服务发现）
+     */
+    @Bean
+    public WebClient callbackWebClient() {
+        return WebClient.builder().build();
+    }
 }
@@ -1,12 +1,38 @@
 package com.wheatmall.order.controller;
 
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.order.cart.CartService;
+import com.wheatmall.order.dto.CartView;
 import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.idempotency.IdempotencyService;
+import com.wheatmall.order.intake.IntakeStatus;
+import com.wheatmall.order.intake.OrderIntakeService;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.partition.PartitionStats;
+import com.wheatmall.order.pricing.Cart;
+import com.wheatmall.order.pricing.Money;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.pricing.Quote;
+import com.wheatmall.order.repository.OrderRepository;
 import com.wheatmall.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 订单控制器 - 演示使用WebClient调用Product模块
@@ -16,8 +42,55 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    /** 订单分页默认每页数量 */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** 订单分页单页最大数量 */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /** 商品列表默认每页数量 */
+    private static final int DEFAULT_PRODUCT_PAGE_SIZE = 100;
+
+    /** 分页结果中下一页游标的扩展字段名 */
+    public static final String NEXT_CURSOR = "nextCursor";
+
+    /** 幂等键请求头 */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** 新订单的状态（待支付） */
+    public static final String STATUS_CREATED = "CREATED";
+
+    /** 已支付 */
+    public static final String STATUS_PAID = "PAID";
+
+    /** 已发货 */
+    public static final String STATUS_SHIPPED = "SHIPPED";
+
+    /** 已取消 */
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    /** 超时未支付，已关闭 */
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    /** 扣减库存被拒绝，下单失败 */
+    public static final String STATUS_FAILED = "FAILED";
+
     private final OrderService orderService;
 
+    private final SnowflakeIdGenerator orderIdGenerator;
+
+    private final OrderRepository orderRepository;
+
+    private final IdempotencyService idempotencyService;
+
+    private final OrderIntakeService orderIntakeService;
+
+    private final OrderPartitions orderPartitions;
+
+    private final PricingEngine pricingEngine;
+
+    private final CartService cartService;
+
     /**
      * 根据商品ID获取商品信息（同步调用）
      * @param productId 商品ID
@@ -29,12 +102,33 @@ public class OrderController {
     }
 
     /**
-     * 获取所有商品列表（同步调用）
-     * @return 商品列表
+     * 分页获取商品列表（同步调用），下一页游标放在extra.nextCursor；需要全部商品时用/products/stream
+     * 透传Product服务的列表ETag，客户端If-None-Match匹配时返回304
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param size 每页数量，默认100
+     * @param webRequest 当前请求
+     * @return 商品列表，未修改时返回null（响应304）
      */
     @GetMapping("/products")
-    public List<ProductDTO> getProductList() {
-        return orderService.getProductList();
+    public R<List<ProductDTO>> getProductList(@RequestParam(required = false) Long cursor,
+                                              @RequestParam(required = false) Integer size,
+                                              WebRequest webRequest) {
+        ResponseEntity<R<List<ProductDTO>>> page = orderService.getProductPage(cursor,
+                size == null ? DEFAULT_PRODUCT_PAGE_SIZE : size, webRequest.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (webRequest.checkNotModified(page.getHeaders().getETag())) {
+            return null;
+        }
+        return page.getBody();
+    }
+
+    /**
+     * 流式获取所有商品列表（NDJSON）
+     * 从Product服务读取一个商品就写出一个，带背压，内存占用与商品总数无关
+     * @return 商品流
+     */
+    @GetMapping(value = "/products/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductDTO> streamProducts() {
+        return orderService.streamProducts();
     }
 
     /**
@@ -49,13 +143,44 @@ public class OrderController {
 
     /**
      * 创建订单 - 演示调用Product模块获取商品信息
+     * 订单写入后（所在事务提交后）才返回，并发下单共用事务
+     * 带Idempotency-Key时同一用户的同一个键只下单一次：重复请求返回第一次的结果，第一次还在处理时等待其完成
+     * 总价按促销规则计算（见 {@link PricingEngine}）
+     * 库存异步扣减：扣减库存事件与订单在同一个事务中写入发件箱，由商品服务按订单号去重后扣减（至少一次）
      * @param productId 商品ID
-     * @param quantity 数量
+     * @param quantity 数量，1-{@value OrderIntakeService#MAX_QUANTITY}，超出时不查询商品也不占用幂等键
+     * @param userId 用户ID（暂无登录态，默认0）
+     * @param couponCode 优惠券码，不传则不使用优惠券
+     * @param idempotencyKey 幂等键（客户端为每次下单生成，重试时不变），加上"用户ID:"前缀后不超过128字符，不传则不做幂等处理
      * @return 订单信息
      */
     @PostMapping("/create")
-    public String createOrder(@RequestParam Long productId, @RequestParam Integer quantity) {
-        ProductDTO product = orderService.getProductById(productId);
+    public String createOrder(@RequestParam Long productId, @RequestParam Integer quantity,
+                              @RequestParam(defaultValue = "0") Long userId,
+                              @RequestParam(required = false) String couponCode,
+                              @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (quantity == null || quantity <= 0 || quantity > OrderIntakeService.MAX_QUANTITY) {
+            return BizCodeEnum.PARAM_ERROR.getMessage();
+        }
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return doCreateOrder(productId, quantity, userId, couponCode);
+        }
+        // 键按用户隔离，不同用户使用相同的键互不影响；长度限制针对加上用户前缀后的键
+        String scopedKey = userId + ":" + idempotencyKey;
+        if (scopedKey.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            return "幂等键过长";
+        }
+        try {
+            return idempotencyService.execute(scopedKey, () -> doCreateOrder(productId, quantity, userId, couponCode));
+        } catch (IllegalArgumentException e) {
+            return BizCodeEnum.PARAM_ERROR.getMessage();
+        } catch (IllegalStateException e) {
+            return "订单处理中，请稍后重试";
+        }
+    }
+
+    private String doCreateOrder(Long productId, Integer quantity, Long userId, String couponCode) {
+        ProductDTO product = orderService.getProductForOrder(productId);
         
         if (product == null) {
             return "商品不存在";
@@ -65,11 +190,205 @@ public class OrderController {
             return "库存不足";
         }
         
-        // 模拟创建订单逻辑
-        return String.format("订单创建成功！商品：%s，单价：%s，数量：%d，总价：%s",
-                product.getName(),
-                product.getPrice(),
-                quantity,
-                product.getPrice().multiply(new java.math.BigDecimal(quantity)));
+        // 订单号按时间递增，各实例独立生成
+        long orderId = orderIdGenerator.nextId();
+        // 金额以分计算，只在保存订单和返回结果时转换
+        long unitPrice = Money.toCents(product.getPrice());
+        Quote quote = pricingEngine.price(new Cart().add(productId, 0, unitPrice, quantity).coupon(couponCode),
+                new Quote());
+        OutboxEvent stockDeduction = OutboxEvent.of(StockDeductionEvent.TOPIC, orderId, StockDeductionEvent.TYPE,
+                new StockDeductionEvent(orderId, productId, quantity, userId).encode());
+        orderPartitions.create(new Order(orderId, userId, productId, product.getName(), product.getPrice(), quantity,
+                quote.totalAmount(), STATUS_CREATED, LocalDateTime.now()), List.of(stockDeduction)).join();
+        StringBuilder result = new StringBuilder(96).append("订单创建成功！订单号：").append(orderId)
+                .append("，商品：").append(product.getName()).append("，单价：");
+        Money.append(result, unitPrice).append("，数量：").append(quantity);
+        if (quote.discount() > 0) {
+            Money.append(result.append("，优惠："), quote.discount());
+        }
+        return Money.append(result.append("，总价："), quote.total()).toString();
+    }
+
+    /**
+     * 异步下单：受理后立即返回订单号，后台按批扣减库存并保存订单
+     * 处理结果通过 GET /api/order/submit/{orderId} 查询，或在处理完成后POST到callbackUrl
+     * @param productId 商品ID
+     * @param quantity 数量，1-{@value OrderIntakeService#MAX_QUANTITY}
+     * @param userId 用户ID（暂无登录态，默认0）
+     * @param callbackUrl 回调地址（http(s)，主机须在 wheatmall.order.intake.callback-hosts 中），不传则不回调
+     * @return 订单号，排队已满时返回ORDER_QUEUE_FULL，数量或回调地址不合法时返回PARAM_ERROR
+     */
+    @PostMapping("/submit")
+    public R<Long> submitOrder(@RequestParam Long productId, @RequestParam Integer quantity,
+                               @RequestParam(defaultValue = "0") Long userId,
+                               @RequestParam(required = false) String callbackUrl) {
+        if (quantity <= 0 || quantity > OrderIntakeService.MAX_QUANTITY) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        Long orderId;
+        try {
+            orderId = orderIntakeService.submit(userId, productId, quantity, callbackUrl);
+        } catch (IllegalArgumentException e) {
+            return R.fail(BizCodeEnum.PARAM_ERROR.getCode(), e.getMessage());
+        }
+        if (orderId == null) {
+            return R.fail(BizCodeEnum.ORDER_QUEUE_FULL);
+        }
+        return R.ok(orderId);
+    }
+
+    /**
+     * 查询异步下单的处理状态
+     * @param orderId 异步下单返回的订单号
+     * @return 处理状态（PENDING、CREATED、FAILED）
+     */
+    @GetMapping("/submit/{orderId}")
+    public R<IntakeStatus> getSubmitStatus(@PathVariable Long orderId) {
+        IntakeStatus status = orderIntakeService.getStatus(orderId);
+        if (status == null) {
+            return R.fail(BizCodeEnum.ORDER_NOT_FOUND);
+        }
+        return R.ok(status);
+    }
+
+    /**
+     * 支付订单（只有待支付的订单可以支付）
+     * @param orderId 订单ID
+     * @param userId 用户ID（暂无登录态，由调用方传入），与订单不符时视为订单不存在
+     * @return 支付后的订单
+     */
+    @PostMapping("/{orderId}/pay")
+    public CompletableFuture<R<Order>> payOrder(@PathVariable Long orderId, @RequestParam Long userId) {
+        return toResult(orderPartitions.pay(userId, orderId));
+    }
+
+    /**
+     * 订单发货（只有已支付的订单可以发货）
+     * @param orderId 订单ID
+     * @param userId 下单用户ID，订单按用户路由，与订单不符时视为订单不存在
+     * @return 发货后的订单
+     */
+    @PostMapping("/{orderId}/ship")
+    public CompletableFuture<R<Order>> shipOrder(@PathVariable Long orderId, @RequestParam Long userId) {
+        return toResult(orderPartitions.ship(userId, orderId));
+    }
+
+    /**
+     * 取消订单（只有待支付的订单可以取消）
+     * @param orderId 订单ID
+     * @param userId 用户ID（暂无登录态，由调用方传入），与订单不符时视为订单不存在
+     * @return 取消后的订单
+     */
+    @PostMapping("/{orderId}/cancel")
+    public CompletableFuture<R<Order>> cancelOrder(@PathVariable Long orderId, @RequestParam Long userId) {
+        return toResult(orderPartitions.cancel(userId, orderId));
+    }
+
+    /**
+     * 订单处理分区的运行状态：队列深度、已处理命令数、处理耗时
+     * @return 各分区的状态
+     */
+    @GetMapping("/partitions")
+    public R<List<PartitionStats>> getPartitionStats() {
+        return R.ok(orderPartitions.getStats());
+    }
+
+    private static CompletableFuture<R<Order>> toResult(CompletableFuture<Order> transition) {
+        return transition.handle((order, e) -> {
+            if (e == null) {
+                return order == null ? R.fail(BizCodeEnum.ORDER_NOT_FOUND) : R.ok(order);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IllegalStateException) {
+                return R.<Order>fail(BizCodeEnum.ORDER_STATUS_INVALID);
+            }
+            return R.<Order>fail(BizCodeEnum.SYSTEM_ERROR);
+        });
+    }
+
+    /**
+     * 根据ID查询订单
+     * @param orderId 订单ID
+     * @return 订单信息
+     */
+    @GetMapping("/{orderId}")
+    public R<Order> getOrder(@PathVariable Long orderId) {
+        Order order = orderRepository.findById(orderId);
+        if (order == null) {
+            return R.fail(BizCodeEnum.ORDER_NOT_FOUND);
+        }
+        return R.ok(order);
+    }
+
+    /**
+     * 查询用户的订单（我的订单），按创建时间倒序，键集分页
+     * 下一页游标放在extra.nextCursor，没有下一页时为null
+     * @param userId 用户ID
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param size 每页数量，默认20，最大100
+     * @return 订单列表
+     */
+    @GetMapping("/user/{userId}")
+    public R<List<Order>> getUserOrders(@PathVariable Long userId, @RequestParam(required = false) Long cursor,
+                                        @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        List<Order> page = orderRepository.findByUser(userId, cursor, limit);
+        Long nextCursor = page.size() < limit ? null : page.get(page.size() - 1).getId();
+        return R.ok(page).put(NEXT_CURSOR, nextCursor);
+    }
+
+    /**
+     * 查看购物车
+     * @param userId 用户ID
+     * @param refresh 是否刷新价格和库存（一次批量调用Product服务），默认刷新；false时直接返回内存中的内容
+     * @return 购物车，价格未知或库存不足的商品标记为不可购买，不计入总金额
+     */
+    @GetMapping("/cart/{userId}")
+    public R<CartView> getCart(@PathVariable Long userId, @RequestParam(defaultValue = "true") boolean refresh) {
+        return R.ok(refresh ? cartService.open(userId) : cartService.get(userId));
+    }
+
+    /**
+     * 设置购物车中商品的数量，不在购物车中时加入
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param quantity 数量，必须大于0
+     * @return 修改后的购物车，商品种类已达上限时返回PARAM_ERROR
+     */
+    @PutMapping("/cart/{userId}/items/{productId}")
+    public R<CartView> setCartItem(@PathVariable Long userId, @PathVariable Long productId,
+                                   @RequestParam Integer quantity) {
+        if (quantity <= 0) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        try {
+            return R.ok(cartService.setQuantity(userId, productId, quantity));
+        } catch (IllegalStateException e) {
+            return R.fail(BizCodeEnum.PARAM_ERROR.getCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * 从购物车移除商品
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @return 修改后的购物车
+     */
+    @DeleteMapping("/cart/{userId}/items/{productId}")
+    public R<CartView> removeCartItem(@PathVariable Long userId, @PathVariable Long productId) {
+        return R.ok(cartService.remove(userId, productId));
+    }
+
+    /**
+     * 清空购物车
+     * @param userId 用户ID
+     * @return 清空后的购物车
+     */
+    @DeleteMapping("/cart/{userId}")
+    public R<CartView> clearCart(@PathVariable Long userId) {
+        return R.ok(cartService.clear(userId));
     }
 }
@@ -0,0 +1,23 @@
+package com.wheatmall.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 带ETag的上游响应数据
+ * @param <T> 数据泛型
+ */
+@Getter
+@AllArgsConstructor
+public class CachedResponse<T> {
+
+    /**
+     * 上游返回的ETag，可能为null
+     */
+    private final String etag;
+
+    /**
+     * 解码后的数据
+     */
+    private final T data;
+}
@@ -0,0 +1,46 @@
+package com.wheatmall.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 购物车中的一行商品
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLineView {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称，未刷新或商品不存在时为null
+     */
+    private String productName;
+
+    /**
+     * 最近一次刷新的单价，未刷新或商品不存在时为null
+     */
+    private BigDecimal price;
+
+    /**
+     * 数量
+     */
+    private Integer quantity;
+
+    /**
+     * 最近一次刷新的库存，未刷新或商品不存在时为null
+     */
+    private Integer stock;
+
+    /**
+     * 商品存在且库存足够
+     */
+    private Boolean available;
+}
@@ -0,0 +1,38 @@
+package com.wheatmall.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 购物车
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartView {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品行，按加入顺序
+     */
+    private List<CartLineView> lines;
+
+    /**
+     * 可购买的商品行按最近一次刷新的单价计算的总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 最近一次刷新价格和库存的时间，未刷新时为null
+     */
+    private LocalDateTime refreshTime;
+}
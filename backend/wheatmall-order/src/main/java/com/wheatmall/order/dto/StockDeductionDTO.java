@@ -0,0 +1,24 @@
+package com.wheatmall.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量扣减库存中的一项 - 用于Order模块调用Product模块
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDeductionDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 扣减数量
+     */
+    private Integer quantity;
+}
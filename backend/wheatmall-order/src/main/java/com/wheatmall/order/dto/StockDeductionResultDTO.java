@@ -0,0 +1,41 @@
+package com.wheatmall.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 批量扣减库存中一项的结果 - 用于Order模块接收Product模块的数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDeductionResultDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 结果码：0成功，否则为BizCodeEnum中的错误码
+     */
+    private Integer code;
+
+    /**
+     * 商品名称
+     */
+    private String name;
+
+    /**
+     * 商品价格
+     */
+    private BigDecimal price;
+
+    /**
+     * 处理后的库存（成功时为扣减后的库存，库存不足时为当前库存）
+     */
+    private Integer stock;
+}
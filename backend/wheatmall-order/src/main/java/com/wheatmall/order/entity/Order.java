@@ -0,0 +1,62 @@
+package com.wheatmall.order.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单实体类
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Order {
+
+    /**
+     * 订单ID（雪花算法，按创建时间递增）
+     */
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称（下单时）
+     */
+    private String productName;
+
+    /**
+     * 单价（下单时）
+     */
+    private BigDecimal price;
+
+    /**
+     * 数量
+     */
+    private Integer quantity;
+
+    /**
+     * 总价
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 订单状态
+     */
+    private String status;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,83 @@
+package com.wheatmall.order.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 幂等执行：同一个幂等键的操作只执行一次，重复请求得到第一次的结果
+ *
+ * - 第一个请求占用键并执行，正常返回的结果保存在 {@link IdempotencyStore} 中
+ * - 执行中到达的重复请求等待同一个结果，不重复执行；等待超过waitTimeout时抛出 {@link IllegalStateException}
+ * - 执行抛出异常时释放键，等待中的重复请求重新尝试占用（其中一个会重新执行）
+ */
+@Slf4j
+public class IdempotencyService {
+
+    /** 幂等键最大长度 */
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyStore store;
+
+    private final long waitTimeoutMillis;
+
+    public IdempotencyService(IdempotencyStore store, Duration waitTimeout) {
+        this.store = store;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+    }
+
+    /**
+     * 按幂等键执行操作
+     * @param key 幂等键，null表示不做幂等处理
+     * @param action 操作，正常返回的结果会被保存
+     * @return 本次或第一次执行的结果
+     * @throws IllegalArgumentException 幂等键过长
+     * @throws IllegalStateException 等待执行中的重复请求超时
+     */
+    public String execute(String key, Supplier<String> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("幂等键超过" + MAX_KEY_LENGTH + "字符");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        while (true) {
+            CompletableFuture<String> existing = store.begin(key);
+            if (existing == null) {
+                return run(key, action);
+            }
+            try {
+                String result = existing.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                log.debug("重复请求, 返回已有结果, key: {}", key);
+                return result;
+            } catch (TimeoutException e) {
+                existing.cancel(false);
+                throw new IllegalStateException("请求正在处理中: " + key);
+            } catch (CancellationException | ExecutionException e) {
+                // 执行方放弃，重新占用
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待重复请求的结果时被中断: " + key, e);
+            }
+        }
+    }
+
+    private String run(String key, Supplier<String> action) {
+        String result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            store.abort(key);
+            throw e;
+        }
+        store.complete(key, result);
+        return result;
+    }
+}
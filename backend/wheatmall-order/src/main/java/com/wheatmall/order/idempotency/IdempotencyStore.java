@@ -0,0 +1,30 @@
+package com.wheatmall.order.idempotency;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 幂等键存储：记录每个幂等键的执行结果，同一个键只执行一次
+ *
+ * 调用方先 {@link #begin} 占用键，执行完成后 {@link #complete} 保存结果，执行失败时 {@link #abort} 释放键以便重试。
+ * 结果为字符串，共享存储时可直接保存。
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 占用幂等键
+     * @param key 幂等键
+     * @return null表示占用成功，调用方负责执行；否则为该键的结果，执行中时在完成后完成，
+     *         执行方放弃（abort）时异常完成。每次返回新的future，调用方可以取消（如等待超时）而不影响其他请求
+     */
+    CompletableFuture<String> begin(String key);
+
+    /**
+     * 保存执行结果，唤醒等待的重复请求
+     */
+    void complete(String key, String result);
+
+    /**
+     * 放弃执行并释放幂等键，之后同一个键可以重新执行
+     */
+    void abort(String key);
+}
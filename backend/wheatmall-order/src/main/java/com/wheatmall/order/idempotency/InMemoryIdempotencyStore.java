@@ -0,0 +1,131 @@
+package com.wheatmall.order.idempotency;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内幂等键存储（单实例部署的默认实现）
+ *
+ * 键 → 结果future 存放在ConcurrentHashMap中，执行中的重复请求直接等待同一个future。
+ * 所有键的有效期相同，按占用顺序放入队列，队首即最早过期的键：每次占用时从队首清理已过期的键，
+ * 键数超过上限时淘汰最早的已完成的键（此时这些键提前失效），内存占用有上限。
+ * 执行中的键不因超过上限淘汰，否则并发的重复请求会再执行一次；执行中的键数受并发请求数限制。
+ * 释放的键同时移出队列，不占用容量。
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final long ttlMillis;
+
+    private final int maxKeys;
+
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** 按占用顺序排列的条目 */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+
+    public InMemoryIdempotencyStore(Duration ttl, int maxKeys) {
+        this(ttl, maxKeys, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(Duration ttl, int maxKeys, LongSupplier clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    @Override
+    public CompletableFuture<String> begin(String key) {
+        long now = clock.getAsLong();
+        evict(now);
+        Entry claimed = new Entry(key, now + ttlMillis);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, claimed);
+            if (existing == null) {
+                order.add(claimed);
+                return null;
+            }
+            if (existing.expireAt > now) {
+                return existing.result.copy();
+            }
+            // 已过期但还未清理，替换后由本次请求执行
+            if (entries.replace(key, existing, claimed)) {
+                order.add(claimed);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String result) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.result.complete(result);
+        }
+    }
+
+    @Override
+    public void abort(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            order.remove(entry);
+            entry.result.completeExceptionally(new CancellationException("幂等键已释放: " + key));
+        }
+    }
+
+    /**
+     * 当前保存的键数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 队列中的条目数（含已被替换、尚未出队的过期条目）
+     */
+    int queued() {
+        return order.size();
+    }
+
+    /**
+     * 从队首清理过期的键，键数超过上限时按占用顺序淘汰已完成的键，跳过执行中的键
+     */
+    private void evict(long now) {
+        Entry head;
+        while ((head = order.peek()) != null && head.expireAt <= now) {
+            if (order.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+        Iterator<Entry> it = order.iterator();
+        while (entries.size() >= maxKeys && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.result.isDone()) {
+                it.remove();
+                entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+
+        private final long expireAt;
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private Entry(String key, long expireAt) {
+            this.key = key;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.wheatmall.order.idempotency;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于数据库表的幂等键存储（多实例部署时使用，各实例的数据源指向同一个数据库）
+ *
+ * 占用即插入一行，主键冲突说明键已被占用：已有结果时直接返回；执行中（可能在其他实例）时
+ * 每隔 {@value #POLL_INTERVAL_MILLIS}ms 查询一次，直到有结果或行被删除（执行方放弃）。
+ * 过期的行在占用冲突时删除，并定期批量清理。
+ */
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long ttlMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JdbcIdempotencyStore(DataSource dataSource, Duration ttl) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttlMillis = ttl.toMillis();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS IDEMPOTENCY_KEYS ("
+                + "IDEM_KEY VARCHAR(160) PRIMARY KEY, "
+                + "RESULT VARCHAR(4000), "
+                + "EXPIRE_AT TIMESTAMP NOT NULL)");
+        scheduler.scheduleWithFixedDelay(this::purgeExpired, PURGE_INTERVAL_MILLIS, PURGE_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<String> begin(String key) {
+        while (true) {
+            try {
+                jdbcTemplate.update("INSERT INTO IDEMPOTENCY_KEYS (IDEM_KEY, RESULT, EXPIRE_AT) VALUES (?, NULL, ?)",
+                        key, new Timestamp(System.currentTimeMillis() + ttlMillis));
+                return null;
+            } catch (DuplicateKeyException e) {
+                // 键已被占用
+            }
+            List<Row> rows = select(key);
+            if (rows.isEmpty()) {
+                // 执行方刚刚放弃，重新占用
+                continue;
+            }
+            Row row = rows.get(0);
+            if (row.expireAt <= System.currentTimeMillis()) {
+                jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEYS WHERE IDEM_KEY = ? AND EXPIRE_AT = ?", key,
+                        new Timestamp(row.expireAt));
+                continue;
+            }
+            if (row.result != null) {
+                return CompletableFuture.completedFuture(row.result);
+            }
+            CompletableFuture<String> result = new CompletableFuture<>();
+            poll(key, result);
+            return result;
+        }
+    }
+
+    @Override
+    public void complete(String key, String result) {
+        jdbcTemplate.update("UPDATE IDEMPOTENCY_KEYS SET RESULT = ? WHERE IDEM_KEY = ?", result, key);
+    }
+
+    @Override
+    public void abort(String key) {
+        jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEYS WHERE IDEM_KEY = ? AND RESULT IS NULL", key);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 定时查询执行中的键，直到有结果或被放弃；调用方等待超时后取消future即停止查询
+     */
+    private void poll(String key, CompletableFuture<String> result) {
+        scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                List<Row> rows = select(key);
+                if (rows.isEmpty()) {
+                    result.completeExceptionally(new CancellationException("幂等键已释放: " + key));
+                } else if (rows.get(0).result != null) {
+                    result.complete(rows.get(0).result);
+                } else {
+                    poll(key, result);
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private List<Row> select(String key) {
+        return jdbcTemplate.query("SELECT RESULT, EXPIRE_AT FROM IDEMPOTENCY_KEYS WHERE IDEM_KEY = ?",
+                (rs, rowNum) -> new Row(rs.getString(1), rs.getTimestamp(2).getTime()), key);
+    }
+
+    private void purgeExpired() {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEYS WHERE EXPIRE_AT <= ?",
+                    new Timestamp(System.currentTimeMillis()));
+            if (purged > 0) {
+                log.debug("已清理过期的幂等键: {}", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("清理过期的幂等键失败", e);
+        }
+    }
+
+    private record Row(String result, long expireAt) {
+    }
+}
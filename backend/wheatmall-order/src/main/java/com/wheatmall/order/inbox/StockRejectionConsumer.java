@@ -0,0 +1,235 @@
+package com.wheatmall.order.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.OffsetCheckpoint;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.state.OrderState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 扣减库存被拒绝事件的消费者：商品服务未能扣减库存（库存不足、商品不存在）时写入 stock-deduction-rejected 主题，
+ * 这里读取后把对应的待支付订单转为下单失败（{@link OrderPartitions#reject}），之后不能再支付
+ *
+ * 单线程顺序消费：每次读一批，全部提交到订单分区并等待状态落库后保存消费位置
+ * （{data-dir}/consumers/stock-deduction-rejected.offset）。保存前崩溃时重启后重新处理，已失败的订单不再变更。
+ * 订单已支付或已发货时（支付先于拒绝到达）无法自动处理，记录错误日志并计数，需人工退款；
+ * 已取消或超时关闭的订单不用处理（商品服务跳过这些订单的释放事件）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.order.rejection-consumer.enabled", havingValue = "true",
+        matchIfMissing = true)
+public class StockRejectionConsumer {
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final OrderPartitions orderPartitions;
+
+    private final FileEventLog eventLog;
+
+    private final OffsetCheckpoint checkpoint;
+
+    private final int batchSize;
+
+    private final long pollIntervalNanos;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile long position;
+
+    private volatile long failedCount;
+
+    private volatile long conflictCount;
+
+    private FileEventLog.Reader reader;
+
+    @Autowired
+    public StockRejectionConsumer(OrderPartitions orderPartitions,
+                                  @Value("${wheatmall.events.dir:/tmp/wheatmall-events}") String eventsDir,
+                                  @Value("${wheatmall.order.data-dir:/tmp/wheatmall-order}") String dataDir,
+                                  @Value("${wheatmall.order.rejection-consumer.batch-size:500}") int batchSize,
+                                  @Value("${wheatmall.order.rejection-consumer.poll-interval:PT0.1S}")
+                                  Duration pollInterval) {
+        this(orderPartitions, Paths.get(eventsDir, StockDeductionEvent.REJECTED_TOPIC),
+                Paths.get(dataDir, "consumers", StockDeductionEvent.REJECTED_TOPIC + ".offset"), batchSize,
+                pollInterval, true);
+    }
+
+    StockRejectionConsumer(OrderPartitions orderPartitions, Path topicDir, Path checkpointFile, int batchSize,
+                           Duration pollInterval, boolean start) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批次大小必须大于0: " + batchSize);
+        }
+        this.orderPartitions = orderPartitions;
+        this.eventLog = new FileEventLog(topicDir);
+        this.checkpoint = new OffsetCheckpoint(checkpointFile);
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.thread = new Thread(this::run, "stock-rejection-consumer");
+        thread.setDaemon(true);
+        if (start) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 消费一批事件（首次调用时加载消费位置）
+     * @return 读到的事件数，没有新事件时为0
+     * @throws IOException 读取事件日志或保存消费位置失败
+     */
+    int consumeOnce() throws IOException {
+        if (reader == null) {
+            long from = checkpoint.load();
+            reader = eventLog.reader(from);
+            position = from;
+        }
+        List<EventMessage> events = reader.poll(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<StockDeductionEvent> rejected = new ArrayList<>(events.size());
+        List<CompletableFuture<Order>> results = new ArrayList<>(events.size());
+        for (EventMessage event : events) {
+            if (!StockDeductionEvent.REJECTED_TYPE.equals(event.type())) {
+                log.warn("跳过未知类型的事件, offset: {}, type: {}", event.offset(), event.type());
+                continue;
+            }
+            StockDeductionEvent decoded;
+            try {
+                decoded = StockDeductionEvent.decode(event.payload());
+            } catch (IllegalArgumentException e) {
+                log.warn("跳过无法解析的事件, offset: {}", event.offset(), e);
+                continue;
+            }
+            rejected.add(decoded);
+            results.add(orderPartitions.reject(decoded.userId(), decoded.orderId()));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            settle(rejected.get(i), results.get(i));
+        }
+        checkpoint.save(reader.position());
+        position = reader.position();
+        return events.size();
+    }
+
+    /**
+     * 等待一个订单的状态变更完成；写库失败时从上次的消费位置重新读取这一批
+     */
+    private void settle(StockDeductionEvent event, CompletableFuture<Order> result) {
+        Order order;
+        try {
+            order = result.join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof IllegalStateException conflict)) {
+                closeReader();
+                throw e;
+            }
+            // 状态已不是待支付：重复的事件（已失败）、已取消或关闭的不用处理，已支付的需要退款
+            String message = conflict.getMessage();
+            if (message.endsWith(OrderState.PAID.name()) || message.endsWith(OrderState.SHIPPED.name())) {
+                conflictCount++;
+                log.error("扣减库存被拒绝但订单已支付, 需人工退款, orderId: {}, userId: {}, productId: {}, {}",
+                        event.orderId(), event.userId(), event.productId(), message);
+            } else {
+                log.debug("扣减库存被拒绝的订单无需处理, orderId: {}, {}", event.orderId(), message);
+            }
+            return;
+        }
+        if (order == null) {
+            log.warn("扣减库存被拒绝的订单不存在, orderId: {}, userId: {}", event.orderId(), event.userId());
+            return;
+        }
+        failedCount++;
+        log.info("扣减库存被拒绝, 订单下单失败, orderId: {}, productId: {}, 数量: {}", event.orderId(),
+                event.productId(), event.quantity());
+    }
+
+    /**
+     * 下一条要消费的事件的offset
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 转为下单失败的订单数
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * 扣减被拒绝时订单已支付、需人工退款的订单数
+     */
+    public long getConflictCount() {
+        return conflictCount;
+    }
+
+    /**
+     * 处理完当前一批后停止
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeReader();
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            int consumed;
+            try {
+                consumed = consumeOnce();
+                backoffMillis = 0;
+            } catch (IOException | RuntimeException e) {
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(pollIntervalNanos / 1_000_000, backoffMillis * 2));
+                log.warn("消费扣减库存被拒绝事件失败, {} 毫秒后重试", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, backoffMillis)));
+                continue;
+            }
+            if (consumed < batchSize) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("关闭扣减库存被拒绝事件读取方失败", e);
+            }
+            reader = null;
+        }
+    }
+}
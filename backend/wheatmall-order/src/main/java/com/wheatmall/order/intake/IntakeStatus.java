@@ -0,0 +1,19 @@
+package com.wheatmall.order.intake;
+
+/**
+ * 异步下单的处理状态
+ * @param orderId 订单号
+ * @param state 状态
+ * @param message 失败原因，其他状态为null
+ */
+public record IntakeStatus(long orderId, State state, String message) {
+
+    public enum State {
+        /** 排队或处理中 */
+        PENDING,
+        /** 已扣减库存并保存订单 */
+        CREATED,
+        /** 下单失败（库存不足、商品不存在等），未保存订单 */
+        FAILED
+    }
+}
@@ -0,0 +1,472 @@
+package com.wheatmall.order.intake;
+
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.dto.StockDeductionDTO;
+import com.wheatmall.order.dto.StockDeductionResultDTO;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.EventTransport;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.pricing.Cart;
+import com.wheatmall.order.pricing.Money;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.pricing.Quote;
+import com.wheatmall.order.repository.OrderRepository;
+import com.wheatmall.order.service.OrderService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步下单：受理即返回订单号，后台按批扣减库存并保存订单
+ *
+ * 下单请求写入预分配的 {@link RingBuffer}（多个请求线程并发写入），单个处理线程每次取出所有已到达的订单（最多maxBatch个）：
+ * 1. 按商品合并数量，一次批量扣减库存调用处理整批
+ * 2. 库存不足的商品按受理顺序挑出库存够用的订单，再扣减一次
+ * 3. 扣减成功的订单按促销规则计价（见 {@link PricingEngine}），交给 {@link OrderPartitions} 保存（组提交，并参与支付超时关闭），之后更新状态并回调
+ * 高峰期每批的订单越多，每个订单分摊的远程调用越少，吞吐量取决于批处理效率而不是单个订单的往返。
+ * 客户端轮询 {@link #getStatus}，或提供回调地址在处理完成后接收 {@link IntakeStatus}；
+ * 回调地址只能是http(s)且主机在 wheatmall.order.intake.callback-hosts 中（默认为空，即不支持回调），不跟随重定向。
+ *
+ * 扣减成功但没有保存订单（计价失败、保存失败或批处理异常）的订单标记为失败，
+ * 按订单写入释放库存事件（与订单取消时相同的主题），由商品服务按订单号去重后归还。
+ * 扣减调用失败时（如超时）整批订单标记为失败，但Product服务可能已经扣减，需要对账；暂不自动补偿。
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    /** 每批订单数上限，与Product服务批量扣减的项数上限一致 */
+    public static final int MAX_BATCH = 1000;
+
+    /** 单个订单的数量上限，一批按商品合计的数量（最多 {@value #MAX_BATCH} 个订单）不超过int */
+    public static final int MAX_QUANTITY = 10_000;
+
+    /** 保留的失败状态数量上限，超过时丢弃最早的 */
+    private static final int MAX_FAILED_STATUSES = 100_000;
+
+    /** 消费者没有数据时单次等待的最长时间 */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Duration CALLBACK_TIMEOUT = Duration.ofSeconds(5);
+
+    private final RingBuffer<PendingOrder> ring;
+
+    private final int maxBatch;
+
+    private final OrderService orderService;
+
+    private final OrderRepository orderRepository;
+
+    private final OrderPartitions orderPartitions;
+
+    private final SnowflakeIdGenerator orderIdGenerator;
+
+    private final PricingEngine pricingEngine;
+
+    private final WebClient callbackWebClient;
+
+    private final EventTransport eventTransport;
+
+    /** 允许回调的主机（小写） */
+    private final Set<String> callbackHosts;
+
+    /** 计价用的购物车和结果（只由处理线程访问，循环使用） */
+    private final Cart cart = new Cart();
+
+    private final Quote quote = new Quote();
+
+    /** 排队中和失败的订单状态；已保存的订单从这里移除，状态以订单存储为准 */
+    private final Map<Long, IntakeStatus> statuses = new ConcurrentHashMap<>();
+
+    /** 失败状态的保留顺序（只由处理线程访问） */
+    private final ArrayDeque<Long> failedOrder = new ArrayDeque<>();
+
+    /** 当前批次中已扣减库存、还未交给订单分区保存的订单（只由处理线程访问） */
+    private final Map<Long, PendingOrder> deducted = new HashMap<>();
+
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+
+    private volatile long batchCount;
+
+    private volatile long processedCount;
+
+    public OrderIntakeService(OrderService orderService, OrderRepository orderRepository,
+                              OrderPartitions orderPartitions, SnowflakeIdGenerator orderIdGenerator,
+                              PricingEngine pricingEngine, WebClient callbackWebClient, EventTransport eventTransport,
+                              @Value("${wheatmall.order.intake.callback-hosts:}") List<String> callbackHosts,
+                              @Value("${wheatmall.order.intake.buffer-size:8192}") int bufferSize,
+                              @Value("${wheatmall.order.intake.max-batch:512}") int maxBatch) {
+        if (maxBatch <= 0 || maxBatch > MAX_BATCH) {
+            throw new IllegalArgumentException("每批订单数必须在1-" + MAX_BATCH + "之间: " + maxBatch);
+        }
+        this.ring = new RingBuffer<>(bufferSize, PendingOrder::new);
+        this.maxBatch = maxBatch;
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.orderPartitions = orderPartitions;
+        this.orderIdGenerator = orderIdGenerator;
+        this.pricingEngine = pricingEngine;
+        this.callbackWebClient = callbackWebClient;
+        this.eventTransport = eventTransport;
+        this.callbackHosts = new HashSet<>();
+        for (String host : callbackHosts) {
+            if (!host.isBlank()) {
+                this.callbackHosts.add(host.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        this.consumer = new Thread(this::consume, "order-intake");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * 受理下单
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param quantity 数量，1-{@value #MAX_QUANTITY}
+     * @param callbackUrl 处理完成后POST状态的地址，null表示不回调
+     * @return 订单号，排队已满或服务关闭时返回null
+     * @throws IllegalArgumentException 数量超出范围，或回调地址不是允许的http(s)主机
+     */
+    public Long submit(long userId, long productId, int quantity, String callbackUrl) {
+        if (quantity <= 0 || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("数量必须在1-" + MAX_QUANTITY + "之间: " + quantity);
+        }
+        checkCallbackUrl(callbackUrl);
+        if (!running) {
+            return null;
+        }
+        // 先生成订单号（可能因时钟回拨抛出异常），申请到的槽位必须发布
+        long orderId = orderIdGenerator.nextId();
+        long sequence = ring.tryClaim();
+        if (sequence < 0) {
+            return null;
+        }
+        statuses.put(orderId, new IntakeStatus(orderId, IntakeStatus.State.PENDING, null));
+        ring.get(sequence).set(orderId, userId, productId, quantity, callbackUrl);
+        ring.publish(sequence);
+        return orderId;
+    }
+
+    /**
+     * 查询处理状态
+     * @return 状态，订单号不存在（或失败状态已过期）时返回null
+     */
+    public IntakeStatus getStatus(long orderId) {
+        IntakeStatus status = statuses.get(orderId);
+        if (status != null) {
+            return status;
+        }
+        // 已保存的订单不再保留状态；先保存后移除状态，不会两边都查不到
+        return orderRepository.findById(orderId) == null ? null
+                : new IntakeStatus(orderId, IntakeStatus.State.CREATED, null);
+    }
+
+    /**
+     * 排队中（已受理未处理完）的订单数
+     */
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    /**
+     * 已处理的批次数
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * 已处理的订单数（含失败）
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * 停止受理，处理完已受理的订单后返回
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        while (true) {
+            long upTo = ring.availableUpTo(next, maxBatch);
+            if (upTo < next) {
+                if (!running && ring.size() == 0) {
+                    return;
+                }
+                ring.await(next, IDLE_PARK_NANOS);
+                continue;
+            }
+            List<PendingOrder> batch = new ArrayList<>((int) (upTo - next + 1));
+            for (long sequence = next; sequence <= upTo; sequence++) {
+                batch.add(ring.get(sequence));
+            }
+            deducted.clear();
+            try {
+                process(batch);
+            } catch (RuntimeException e) {
+                log.error("异步下单批处理失败, 订单数: {}", batch.size(), e);
+                List<PendingOrder> releases = new ArrayList<>();
+                for (PendingOrder order : batch) {
+                    IntakeStatus status = statuses.get(order.orderId);
+                    if (status != null && status.state() == IntakeStatus.State.PENDING) {
+                        finish(order, IntakeStatus.State.FAILED, "系统繁忙，下单失败");
+                        if (deducted.containsKey(order.orderId)) {
+                            releases.add(order);
+                        }
+                    }
+                }
+                release(releases);
+            }
+            batchCount++;
+            processedCount += batch.size();
+            // 处理完才释放，槽位在此之前不会被覆盖
+            ring.release(upTo);
+            next = upTo + 1;
+        }
+    }
+
+    private void process(List<PendingOrder> batch) {
+        // 按商品合并，保持受理顺序
+        Map<Long, List<PendingOrder>> byProduct = new LinkedHashMap<>();
+        for (PendingOrder order : batch) {
+            byProduct.computeIfAbsent(order.productId, key -> new ArrayList<>()).add(order);
+        }
+        List<Order> accepted = new ArrayList<>(batch.size());
+        Map<Long, List<PendingOrder>> retry = deduct(byProduct, accepted, true);
+        if (!retry.isEmpty()) {
+            deduct(retry, accepted, false);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        List<PendingOrder> submitted = new ArrayList<>(accepted.size());
+        List<CompletableFuture<Order>> saved = new ArrayList<>(accepted.size());
+        List<PendingOrder> releases = new ArrayList<>();
+        for (Order order : accepted) {
+            PendingOrder pending = deducted.get(order.getId());
+            try {
+                saved.add(orderPartitions.create(order));
+                submitted.add(pending);
+            } catch (RuntimeException e) {
+                log.error("异步下单提交订单失败, 归还库存, orderId: {}", pending.orderId, e);
+                finish(pending, IntakeStatus.State.FAILED, "订单保存失败");
+                releases.add(pending);
+            }
+            deducted.remove(order.getId());
+        }
+        for (int i = 0; i < submitted.size(); i++) {
+            PendingOrder order = submitted.get(i);
+            try {
+                saved.get(i).join();
+                finish(order, IntakeStatus.State.CREATED, null);
+            } catch (RuntimeException e) {
+                log.error("异步下单保存订单失败, 归还库存, orderId: {}", order.orderId, e);
+                finish(order, IntakeStatus.State.FAILED, "订单保存失败");
+                releases.add(order);
+            }
+        }
+        release(releases);
+    }
+
+    /**
+     * 按商品批量扣减，成功的订单加入accepted，失败的订单标记为失败
+     * @param allowRetry 库存不足时是否挑出库存够用的订单重试
+     * @return 需要重试的订单（按商品）
+     */
+    private Map<Long, List<PendingOrder>> deduct(Map<Long, List<PendingOrder>> byProduct, List<Order> accepted,
+                                                 boolean allowRetry) {
+        List<StockDeductionDTO> deductions = new ArrayList<>(byProduct.size());
+        List<List<PendingOrder>> groups = new ArrayList<>(byProduct.size());
+        for (Map.Entry<Long, List<PendingOrder>> entry : byProduct.entrySet()) {
+            long total = 0;
+            for (PendingOrder order : entry.getValue()) {
+                total += order.quantity;
+            }
+            deductions.add(new StockDeductionDTO(entry.getKey(), Math.toIntExact(total)));
+            groups.add(entry.getValue());
+        }
+        List<StockDeductionResultDTO> results;
+        try {
+            results = orderService.deductStockBatch(deductions);
+        } catch (RuntimeException e) {
+            log.error("批量扣减库存失败, 商品数: {}", deductions.size(), e);
+            for (List<PendingOrder> group : groups) {
+                fail(group, "库存服务暂不可用");
+            }
+            return Map.of();
+        }
+        Map<Long, List<PendingOrder>> retry = new LinkedHashMap<>();
+        List<PendingOrder> releases = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            StockDeductionResultDTO result = results.get(i);
+            List<PendingOrder> group = groups.get(i);
+            if (result.getCode() == 0) {
+                for (PendingOrder order : group) {
+                    try {
+                        accepted.add(toOrder(order, result));
+                        deducted.put(order.orderId, order);
+                    } catch (RuntimeException e) {
+                        log.error("异步下单生成订单失败, 归还库存, orderId: {}, productId: {}", order.orderId,
+                                order.productId, e);
+                        finish(order, IntakeStatus.State.FAILED, BizCodeEnum.ORDER_CREATE_FAILED.getMessage());
+                        releases.add(order);
+                    }
+                }
+            } else if (result.getCode() == BizCodeEnum.STOCK_NOT_ENOUGH.getCode() && allowRetry) {
+                List<PendingOrder> fitted = fit(group, result.getStock() == null ? 0 : result.getStock());
+                if (!fitted.isEmpty()) {
+                    retry.put(result.getProductId(), fitted);
+                }
+            } else if (result.getCode() == BizCodeEnum.STOCK_NOT_ENOUGH.getCode()) {
+                fail(group, BizCodeEnum.STOCK_NOT_ENOUGH.getMessage());
+            } else if (result.getCode() == BizCodeEnum.PRODUCT_NOT_FOUND.getCode()) {
+                fail(group, BizCodeEnum.PRODUCT_NOT_FOUND.getMessage());
+            } else {
+                fail(group, BizCodeEnum.ORDER_CREATE_FAILED.getMessage());
+            }
+        }
+        release(releases);
+        return retry;
+    }
+
+    /**
+     * 归还已扣减但没有保存订单的库存：释放库存事件直接写入扣减库存事件的主题（fsync后返回），
+     * 由商品服务的消费者按订单号去重后归还，重发或重复写入不会多归还；写入失败时记录日志，需要对账
+     */
+    private void release(List<PendingOrder> releases) {
+        if (releases.isEmpty()) {
+            return;
+        }
+        List<EventMessage> events = new ArrayList<>(releases.size());
+        for (PendingOrder order : releases) {
+            events.add(EventMessage.of(order.orderId, StockDeductionEvent.RELEASE_TYPE,
+                    new StockDeductionEvent(order.orderId, order.productId, order.quantity, order.userId).encode()));
+        }
+        try {
+            eventTransport.publish(StockDeductionEvent.TOPIC, events);
+        } catch (IOException | RuntimeException e) {
+            for (PendingOrder order : releases) {
+                log.error("写入释放库存事件失败, 需要对账, orderId: {}, productId: {}, 数量: {}", order.orderId,
+                        order.productId, order.quantity, e);
+            }
+        }
+    }
+
+    /**
+     * 按受理顺序挑出库存够用的订单，放不下的标记为库存不足
+     */
+    private List<PendingOrder> fit(List<PendingOrder> group, int stock) {
+        List<PendingOrder> fitted = new ArrayList<>();
+        int remaining = stock;
+        for (PendingOrder order : group) {
+            if (order.quantity <= remaining) {
+                fitted.add(order);
+                remaining -= order.quantity;
+            } else {
+                finish(order, IntakeStatus.State.FAILED, BizCodeEnum.STOCK_NOT_ENOUGH.getMessage());
+            }
+        }
+        return fitted;
+    }
+
+    private void fail(List<PendingOrder> group, String message) {
+        for (PendingOrder order : group) {
+            finish(order, IntakeStatus.State.FAILED, message);
+        }
+    }
+
+    private Order toOrder(PendingOrder order, StockDeductionResultDTO product) {
+        cart.clear().add(order.productId, 0, Money.toCents(product.getPrice()), order.quantity);
+        BigDecimal totalAmount = pricingEngine.price(cart, quote).totalAmount();
+        return new Order(order.orderId, order.userId, order.productId, product.getName(), product.getPrice(),
+                order.quantity, totalAmount, OrderController.STATUS_CREATED, order.acceptTime);
+    }
+
+    /**
+     * 记录最终状态并回调
+     */
+    private void finish(PendingOrder order, IntakeStatus.State state, String message) {
+        IntakeStatus status = new IntakeStatus(order.orderId, state, message);
+        if (state == IntakeStatus.State.CREATED) {
+            statuses.remove(order.orderId);
+        } else {
+            statuses.put(order.orderId, status);
+            failedOrder.add(order.orderId);
+            if (failedOrder.size() > MAX_FAILED_STATUSES) {
+                statuses.remove(failedOrder.poll());
+            }
+        }
+        if (order.callbackUrl != null) {
+            callback(order.callbackUrl, status);
+        }
+    }
+
+    /**
+     * 回调地址只能是http(s)，主机必须在配置的范围内，不能带用户信息
+     */
+    private void checkCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = new URI(callbackUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("回调地址格式错误: " + callbackUrl);
+        }
+        String scheme = uri.getScheme();
+        if (!("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) || uri.getHost() == null
+                || uri.getRawUserInfo() != null
+                || !callbackHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("回调地址不在允许的范围内: " + callbackUrl);
+        }
+    }
+
+    private void callback(String url, IntakeStatus status) {
+        callbackWebClient.post()
+                .uri(url)
+                .bodyValue(status)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(CALLBACK_TIMEOUT)
+                .subscribe(response -> { }, e -> log.warn("异步下单回调失败, orderId: {}, url: {}, {}",
+                        status.orderId(), url, e.toString()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.wheatmall.order.intake;
+
+import java.time.LocalDateTime;
+
+/**
+ * 环形缓冲区中待处理的订单（槽位对象，预先分配，循环使用）
+ */
+final class PendingOrder {
+
+    long orderId;
+
+    long userId;
+
+    long productId;
+
+    int quantity;
+
+    String callbackUrl;
+
+    LocalDateTime acceptTime;
+
+    void set(long orderId, long userId, long productId, int quantity, String callbackUrl) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.callbackUrl = callbackUrl;
+        this.acceptTime = LocalDateTime.now();
+    }
+}
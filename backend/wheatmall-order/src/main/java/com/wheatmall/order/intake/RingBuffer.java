@@ -0,0 +1,136 @@
+package com.wheatmall.order.intake;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 多生产者、单消费者的环形缓冲区（Disruptor式）
+ *
+ * 槽位在创建时全部分配，生产者申请序号后原地填写槽位再发布，运行期间不分配对象：
+ * - 申请：CAS递增申请序号，与消费者已处理的序号相差一圈时表示已满，返回-1（不阻塞，由调用方决定拒绝或重试）
+ * - 发布：把序号写入该槽位的发布标记；多个生产者乱序发布时，消费者只读取从头开始连续发布的部分
+ * - 消费：消费者批量读取连续已发布的槽位，处理完后释放，释放前槽位不会被覆盖
+ * 消费者没有数据时park，生产者发布后只在消费者等待时unpark。
+ *
+ * @param <E> 槽位类型
+ */
+public final class RingBuffer<E> {
+
+    private final Object[] slots;
+
+    private final int mask;
+
+    /** 每个槽位最近一次发布的序号 */
+    private final AtomicLongArray published;
+
+    /** 最大已申请的序号 */
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    /** 消费者已处理完的序号 */
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    private volatile Thread waitingConsumer;
+
+    /**
+     * @param capacity 槽位数，必须是2的幂
+     * @param factory 槽位对象工厂
+     */
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区大小必须是2的幂: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * 申请下一个槽位
+     * @return 序号，已满时返回-1；申请成功后必须发布
+     */
+    public long tryClaim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - consumed.get() > slots.length) {
+                return -1;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 序号对应的槽位
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    /**
+     * 发布已填写的槽位
+     */
+    public void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 消费者：从next起连续已发布的最后一个序号
+     * @param next 下一个要处理的序号
+     * @param maxCount 最多读取的数量
+     * @return 最后一个可处理的序号，没有已发布的槽位时返回next-1
+     */
+    public long availableUpTo(long next, int maxCount) {
+        long limit = Math.min(claimed.get(), next + maxCount - 1);
+        long sequence = next;
+        while (sequence <= limit && published.get((int) sequence & mask) == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * 消费者：next还未发布时等待，最长timeoutNanos
+     */
+    public void await(long next, long timeoutNanos) {
+        waitingConsumer = Thread.currentThread();
+        try {
+            // 设置等待标记后再检查一次，避免错过在此之前的发布
+            if (published.get((int) next & mask) != next) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * 消费者：sequence及之前的槽位已处理完，可以被生产者重新使用
+     */
+    public void release(long sequence) {
+        consumed.set(sequence);
+    }
+
+    /**
+     * 已申请但未处理完的槽位数
+     */
+    public int size() {
+        return (int) (claimed.get() - consumed.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
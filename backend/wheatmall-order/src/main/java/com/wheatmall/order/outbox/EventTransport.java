@@ -0,0 +1,21 @@
+package com.wheatmall.order.outbox;
+
+import com.wheatmall.common.event.EventMessage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 事件传输通道：把发件箱中的事件发到消息通道，可替换（默认为内嵌的文件日志，见 {@link FileEventTransport}）
+ */
+public interface EventTransport {
+
+    /**
+     * 发送一批事件，返回时事件已持久化（消费方一定能收到）
+     * 失败时可以部分已发送，转发方会整批重发，消费方按事件ID去重
+     * @param topic 主题
+     * @param events 事件，按顺序发送
+     * @throws IOException 发送失败
+     */
+    void publish(String topic, List<EventMessage> events) throws IOException;
+}
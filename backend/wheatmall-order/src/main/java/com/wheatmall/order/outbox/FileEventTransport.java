@@ -0,0 +1,60 @@
+package com.wheatmall.order.outbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于文件事件日志的传输通道：每个主题一个目录 {events-dir}/{topic}，消费方（可在其他进程）直接读取
+ * 不依赖外部中间件，适合同一台机器或共享存储上的部署；本进程是各主题唯一的写入方
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.order.outbox.transport", havingValue = "file", matchIfMissing = true)
+public class FileEventTransport implements EventTransport {
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final Duration retention;
+
+    private final Map<String, FileEventLog> logs = new ConcurrentHashMap<>();
+
+    public FileEventTransport(@Value("${wheatmall.events.dir:/tmp/wheatmall-events}") String directory,
+                              @Value("${wheatmall.events.segment-bytes:67108864}") long segmentBytes,
+                              @Value("${wheatmall.events.retention:P7D}") Duration retention) {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.retention = retention;
+    }
+
+    @Override
+    public void publish(String topic, List<EventMessage> events) throws IOException {
+        logs.computeIfAbsent(topic, name -> new FileEventLog(directory.resolve(name), segmentBytes, retention))
+                .append(events);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (FileEventLog eventLog : logs.values()) {
+            try {
+                eventLog.close();
+            } catch (IOException e) {
+                log.warn("关闭事件日志失败: {}", eventLog.getDirectory(), e);
+            }
+        }
+    }
+}
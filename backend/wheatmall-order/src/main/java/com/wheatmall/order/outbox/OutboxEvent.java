@@ -0,0 +1,19 @@
+package com.wheatmall.order.outbox;
+
+/**
+ * 发件箱中的一条事件：与订单在同一个事务中写入，提交后由 {@link OutboxRelay} 转发
+ * @param id 发件箱中的序号（写入时由数据库生成，按提交顺序递增），写入前为0
+ * @param eventId 事件ID，消费方据此去重
+ * @param topic 主题
+ * @param type 事件类型
+ * @param payload 事件内容
+ */
+public record OutboxEvent(long id, long eventId, String topic, String type, byte[] payload) {
+
+    /**
+     * 待写入的事件
+     */
+    public static OutboxEvent of(String topic, long eventId, String type, byte[] payload) {
+        return new OutboxEvent(0, eventId, topic, type, payload);
+    }
+}
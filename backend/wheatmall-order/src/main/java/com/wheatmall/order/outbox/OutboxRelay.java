@@ -0,0 +1,144 @@
+package com.wheatmall.order.outbox;
+
+import com.wheatmall.common.event.EventMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 发件箱转发：后台线程按序号成批读取已提交的事件，按主题发到 {@link EventTransport}，发送成功后删除
+ *
+ * 至少一次：先发送后删除，发送成功、删除前崩溃时重启后会重发，消费方按事件ID去重。
+ * 发件箱只由订单存储的写线程写入，事务按序号顺序提交，按序号删除不会删掉未转发的事件。
+ * 读满一批时立即读下一批，否则间隔pollInterval再读；发送失败时按指数退避重试（最长 {@value #MAX_BACKOFF_MILLIS} 毫秒）。
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final OutboxStore outboxStore;
+
+    private final EventTransport transport;
+
+    private final int batchSize;
+
+    private final long pollIntervalNanos;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile long relayedCount;
+
+    private volatile long failureCount;
+
+    @Autowired
+    public OutboxRelay(OutboxStore outboxStore, EventTransport transport,
+                       @Value("${wheatmall.order.outbox.batch-size:500}") int batchSize,
+                       @Value("${wheatmall.order.outbox.poll-interval:PT0.02S}") Duration pollInterval) {
+        this(outboxStore, transport, batchSize, pollInterval, true);
+    }
+
+    OutboxRelay(OutboxStore outboxStore, EventTransport transport, int batchSize, Duration pollInterval,
+                boolean start) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("发件箱转发批次大小必须大于0: " + batchSize);
+        }
+        this.outboxStore = outboxStore;
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.thread = new Thread(this::run, "outbox-relay");
+        thread.setDaemon(true);
+        if (start) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 转发一批事件
+     * @return 转发的事件数，没有待转发的事件时为0
+     * @throws IOException 发送失败（这一批未删除，下次重发）
+     */
+    int relayOnce() throws IOException {
+        List<OutboxEvent> batch = outboxStore.findOutboxEvents(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // 同一主题内保持序号顺序
+        Map<String, List<EventMessage>> byTopic = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            byTopic.computeIfAbsent(event.topic(), topic -> new ArrayList<>())
+                    .add(EventMessage.of(event.eventId(), event.type(), event.payload()));
+        }
+        for (Map.Entry<String, List<EventMessage>> entry : byTopic.entrySet()) {
+            transport.publish(entry.getKey(), entry.getValue());
+        }
+        outboxStore.deleteOutboxEvents(batch.get(batch.size() - 1).id());
+        relayedCount += batch.size();
+        return batch.size();
+    }
+
+    /**
+     * 已转发的事件数（重发的计入多次）
+     */
+    public long getRelayedCount() {
+        return relayedCount;
+    }
+
+    /**
+     * 发送失败的次数
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * 停止转发线程，未转发的事件留在发件箱中，重启后转发
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayOnce();
+                backoffMillis = 0;
+            } catch (IOException | RuntimeException e) {
+                failureCount++;
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(pollIntervalNanos / 1_000_000, backoffMillis * 2));
+                log.warn("发件箱转发失败, {} 毫秒后重试", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, backoffMillis)));
+                continue;
+            }
+            if (relayed < batchSize) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+}
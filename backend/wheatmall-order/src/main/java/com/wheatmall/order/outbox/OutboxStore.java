@@ -0,0 +1,27 @@
+package com.wheatmall.order.outbox;
+
+import java.util.List;
+
+/**
+ * 发件箱存储：事件随订单写入（见 {@link com.wheatmall.order.repository.OrderRepository#save(com.wheatmall.order.entity.Order, List)}），
+ * 由 {@link OutboxRelay} 按序号读取、转发后删除
+ */
+public interface OutboxStore {
+
+    /**
+     * 读取最早的一批事件（已提交的），按序号升序
+     * @param limit 最多读取的数量
+     */
+    List<OutboxEvent> findOutboxEvents(int limit);
+
+    /**
+     * 删除序号不大于upToId的事件（已转发）
+     * @return 删除的数量
+     */
+    int deleteOutboxEvents(long upToId);
+
+    /**
+     * 待转发的事件数
+     */
+    long countOutboxEvents();
+}
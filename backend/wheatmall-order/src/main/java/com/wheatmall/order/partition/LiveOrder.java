@@ -0,0 +1,33 @@
+package com.wheatmall.order.partition;
+
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.state.OrderStateCell;
+
+/**
+ * 分区内存中的订单：订单内容不变，状态以state为准（订单对象中的状态字段不再更新）
+ * 待支付期间本身就是超时时间轮中的定时器，到期时直接关闭
+ */
+final class LiveOrder extends TimingWheel.Timer {
+
+    final OrderPartition partition;
+
+    final Order order;
+
+    final OrderStateCell state;
+
+    LiveOrder(OrderPartition partition, Order order, OrderStateCell state) {
+        this.partition = partition;
+        this.order = order;
+        this.state = state;
+    }
+
+    @Override
+    void fire() {
+        partition.expire(this);
+    }
+
+    @Override
+    public String toString() {
+        return "LiveOrder[" + order.getId() + "]";
+    }
+}
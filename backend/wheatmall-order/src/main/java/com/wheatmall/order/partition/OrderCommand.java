@@ -0,0 +1,65 @@
+package com.wheatmall.order.partition;
+
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.state.OrderEvent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 分区队列中的订单命令（槽位对象，预先分配，循环使用）
+ */
+final class OrderCommand {
+
+    enum Type {
+        CREATE(null),
+        PAY(OrderEvent.PAY),
+        SHIP(OrderEvent.SHIP),
+        CANCEL(OrderEvent.CANCEL),
+        /** 超时关闭（启动时重建的超时登记到期时提交，订单不在内存中） */
+        EXPIRE(OrderEvent.EXPIRE),
+        /** 商品服务拒绝扣减库存 */
+        REJECT(OrderEvent.STOCK_REJECTED);
+
+        /** 状态变更命令对应的事件，CREATE为null */
+        final OrderEvent event;
+
+        Type(OrderEvent event) {
+            this.event = event;
+        }
+    }
+
+    Type type;
+
+    long userId;
+
+    long orderId;
+
+    /** CREATE时的新订单 */
+    Order order;
+
+    /** CREATE时随订单写入发件箱的事件 */
+    List<OutboxEvent> events;
+
+    CompletableFuture<Order> result;
+
+    long enqueueNanos;
+
+    void set(Type type, long userId, long orderId, Order order, List<OutboxEvent> events,
+             CompletableFuture<Order> result) {
+        this.type = type;
+        this.userId = userId;
+        this.orderId = orderId;
+        this.order = order;
+        this.events = events;
+        this.result = result;
+        this.enqueueNanos = System.nanoTime();
+    }
+
+    void clear() {
+        order = null;
+        events = null;
+        result = null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.wheatmall.order.partition;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 待支付订单的超时关闭：所有分区共用一个线程，每 {@value #TICK_MILLIS} 毫秒推进一次分层时间轮，关闭到期的订单
+ *
+ * 内存中的订单（{@link LiveOrder}）超时关闭不经过分区队列，直接对订单状态做CAS（见 {@link OrderPartition#expire}），
+ * 与分区线程上的支付、取消并发，同一订单只有一个变更能成功；订单支付或取消后取消定时器，时间轮中只有仍待支付的订单。
+ * 启动时从订单存储重建的订单（{@link StoredExpiry}）只登记订单号，到期时向分区提交超时关闭命令。
+ * 登记和取消都是O(1)，定时器是订单对象本身（见 {@link TimingWheel}），超时关闭不早于超时时间，最多晚一个刻度。
+ */
+@Slf4j
+final class OrderExpirer {
+
+    static final long TICK_MILLIS = 100;
+
+    private final TimingWheel wheel;
+
+    private final LongSupplier clock;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    OrderExpirer(LongSupplier clock) {
+        this.clock = clock;
+        this.wheel = new TimingWheel(TICK_MILLIS, clock.getAsLong());
+        this.thread = new Thread(this::run, "order-expirer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 登记超时时间，已过期的在下一个刻度关闭
+     * @param deadline 超时时间（毫秒，与clock同一时间基准）
+     */
+    void schedule(TimingWheel.Timer timer, long deadline) {
+        wheel.schedule(timer, deadline);
+    }
+
+    /**
+     * 订单已支付、取消或保存失败，不再需要超时关闭
+     */
+    void cancel(TimingWheel.Timer timer) {
+        wheel.cancel(timer);
+    }
+
+    int size() {
+        return wheel.size();
+    }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<TimingWheel.Timer> expired = new ArrayList<>();
+        while (running) {
+            wheel.advance(clock.getAsLong(), expired);
+            for (TimingWheel.Timer timer : expired) {
+                try {
+                    timer.fire();
+                } catch (RuntimeException e) {
+                    log.error("超时关闭订单失败: {}", timer, e);
+                }
+            }
+            expired.clear();
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.wheatmall.order.partition;
+
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.intake.RingBuffer;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.repository.OrderRepository;
+import com.wheatmall.order.state.OrderEvent;
+import com.wheatmall.order.state.OrderState;
+import com.wheatmall.order.state.OrderStateCell;
+import com.wheatmall.order.state.OrderStateMachine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 一个订单处理分区：一个线程独占分区内的订单状态，命令通过无锁环形缓冲区进入
+ *
+ * live只由分区线程读写，不需要锁：其中是待支付的订单，以及状态已修改但还未落库的订单（避免落库前再次从数据库读到旧状态）。
+ * 订单状态由 {@link OrderStateMachine} 按CAS修改：支付、取消、发货在分区线程上，超时关闭在 {@link OrderExpirer} 线程上，
+ * 两者并发时只有一个成功。订单取消或超时关闭时，释放库存事件与状态一起写入发件箱；
+ * 商品服务拒绝扣减库存的待支付订单转为下单失败，之后不能再支付。
+ * 状态修改先在内存中完成并返回，写库异步进行（与新订单一起组提交）；落库后由写线程通知分区，
+ * 订单没有更新的变更时移出live。
+ */
+@Slf4j
+final class OrderPartition {
+
+    /** 分区线程单次最多处理的命令数 */
+    private static final int MAX_DRAIN = 256;
+
+    /** 空闲时单次等待的最长时间，到期后处理已落库的订单 */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int index;
+
+    private final RingBuffer<OrderCommand> queue;
+
+    private final OrderRepository orderRepository;
+
+    private final OrderStateMachine<Order> stateMachine;
+
+    private final OrderExpirer expirer;
+
+    private final long paymentTimeoutMillis;
+
+    private final LongSupplier clock;
+
+    private final Map<Long, LiveOrder> live = new HashMap<>();
+
+    /** 状态已落库的订单和落库的版本，由写线程放入，分区线程取出 */
+    private final Queue<Settled> settled = new ConcurrentLinkedQueue<>();
+
+    /** 保存失败的新订单，由写线程放入，分区线程取出后移出内存 */
+    private final Queue<Long> dropped = new ConcurrentLinkedQueue<>();
+
+    /** 耗时直方图：第i个桶为 [2^(i-1), 2^i) 纳秒 */
+    private final long[] latencyBuckets = new long[64];
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile long processed;
+
+    private volatile long latencySumNanos;
+
+    private volatile long maxLatencyNanos;
+
+    private volatile int liveCount;
+
+    OrderPartition(int index, int queueSize, OrderRepository orderRepository, OrderStateMachine<Order> stateMachine,
+                   OrderExpirer expirer, long paymentTimeoutMillis, LongSupplier clock) {
+        this.index = index;
+        this.queue = new RingBuffer<>(queueSize, OrderCommand::new);
+        this.orderRepository = orderRepository;
+        this.stateMachine = stateMachine;
+        this.expirer = expirer;
+        this.paymentTimeoutMillis = paymentTimeoutMillis;
+        this.clock = clock;
+        this.thread = new Thread(this::run, "order-partition-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交命令，队列已满时等待
+     * @throws IllegalStateException 分区已关闭
+     */
+    CompletableFuture<Order> submit(OrderCommand.Type type, long userId, long orderId, Order order,
+                                    List<OutboxEvent> events) {
+        CompletableFuture<Order> result;
+        while ((result = trySubmit(type, userId, orderId, order, events)) == null) {
+            Thread.yield();
+        }
+        return result;
+    }
+
+    /**
+     * 提交命令，队列已满时不等待（供不能阻塞的超时线程使用）
+     * @return 命令的结果，队列已满时为null
+     * @throws IllegalStateException 分区已关闭
+     */
+    CompletableFuture<Order> trySubmit(OrderCommand.Type type, long userId, long orderId, Order order,
+                                       List<OutboxEvent> events) {
+        if (!running) {
+            throw new IllegalStateException("订单处理分区已关闭");
+        }
+        long sequence = queue.tryClaim();
+        if (sequence < 0) {
+            return null;
+        }
+        if (!running) {
+            // 已申请的槽位必须发布，以空命令占位
+            queue.get(sequence).set(null, userId, orderId, null, null, null);
+            queue.publish(sequence);
+            throw new IllegalStateException("订单处理分区已关闭");
+        }
+        CompletableFuture<Order> result = new CompletableFuture<>();
+        queue.get(sequence).set(type, userId, orderId, order, events, result);
+        queue.publish(sequence);
+        return result;
+    }
+
+    PartitionStats stats() {
+        long count = processed;
+        long p99 = 0;
+        if (count > 0) {
+            long threshold = count - count / 100;
+            long cumulative = 0;
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                cumulative += latencyBuckets[i];
+                if (cumulative >= threshold) {
+                    p99 = i == 0 ? 0 : 1L << i;
+                    break;
+                }
+            }
+        }
+        return new PartitionStats(index, queue.size(), count, liveCount,
+                count == 0 ? 0 : latencySumNanos / count / 1000, p99 / 1000, maxLatencyNanos / 1000);
+    }
+
+    /**
+     * 处理完已提交的命令后停止
+     */
+    void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        while (true) {
+            long upTo = queue.availableUpTo(next, MAX_DRAIN);
+            boolean progressed = upTo >= next;
+            for (long sequence = next; sequence <= upTo; sequence++) {
+                OrderCommand command = queue.get(sequence);
+                if (command.type != null) {
+                    apply(command);
+                    record(System.nanoTime() - command.enqueueNanos);
+                }
+                command.clear();
+            }
+            if (progressed) {
+                queue.release(upTo);
+                next = upTo + 1;
+            }
+            drainSettled();
+            liveCount = live.size();
+            if (progressed) {
+                continue;
+            }
+            if (!running && queue.size() == 0) {
+                return;
+            }
+            queue.await(next, MAX_IDLE_PARK_NANOS);
+        }
+    }
+
+    private void apply(OrderCommand command) {
+        try {
+            switch (command.type) {
+                case CREATE -> create(command);
+                case PAY, SHIP, CANCEL, EXPIRE, REJECT -> transition(command);
+            }
+        } catch (RuntimeException e) {
+            log.error("订单命令处理失败, type: {}, orderId: {}", command.type, command.orderId, e);
+            command.result.completeExceptionally(e);
+        }
+    }
+
+    private void create(OrderCommand command) {
+        Order order = command.order;
+        LiveOrder entry = new LiveOrder(this, order, new OrderStateCell(OrderState.CREATED));
+        live.put(order.getId(), entry);
+        expirer.schedule(entry, clock.getAsLong() + paymentTimeoutMillis);
+        Order snapshot = copy(order, OrderState.CREATED);
+        CompletableFuture<Order> result = command.result;
+        orderRepository.save(snapshot, command.events).whenComplete((ignored, e) -> {
+            if (e != null) {
+                dropped.add(snapshot.getId());
+                result.completeExceptionally(e);
+            } else {
+                result.complete(snapshot);
+            }
+        });
+    }
+
+    /**
+     * 订单状态变更（支付、发货、取消、扣减库存被拒绝，以及启动时重建的超时登记到期后的超时关闭）
+     */
+    private void transition(OrderCommand command) {
+        LiveOrder entry = live.get(command.orderId);
+        boolean loaded = false;
+        if (entry == null) {
+            // 不在内存中：状态变更已落库，或在重启前创建
+            Order order = orderRepository.findById(command.orderId);
+            if (order != null) {
+                entry = new LiveOrder(this, order, new OrderStateCell(OrderState.valueOf(order.getStatus())));
+                loaded = true;
+            }
+        }
+        if (entry == null || entry.order.getUserId() != command.userId) {
+            command.result.complete(null);
+            return;
+        }
+        if (loaded && entry.state.state() == OrderState.CREATED && command.type != OrderCommand.Type.EXPIRE
+                && command.type != OrderCommand.Type.REJECT) {
+            live.put(command.orderId, entry);
+            long deadline = entry.order.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    + paymentTimeoutMillis;
+            if (deadline <= clock.getAsLong()) {
+                expire(entry);
+            } else {
+                expirer.schedule(entry, deadline);
+            }
+        }
+        long word = stateMachine.fire(entry.state, command.type.event, entry.order);
+        if (word == OrderStateMachine.REJECTED) {
+            command.result.completeExceptionally(new IllegalStateException("订单状态为" + entry.state.state()));
+            return;
+        }
+        if (loaded) {
+            // 落库前同一订单的后续命令使用内存中的状态
+            live.put(command.orderId, entry);
+        }
+        expirer.cancel(entry);
+        CompletableFuture<Order> result = command.result;
+        Order snapshot = copy(entry.order, OrderStateCell.stateOf(word));
+        persist(entry, word).whenComplete((ignored, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(snapshot);
+            }
+        });
+    }
+
+    /**
+     * 关闭超时未支付的订单，在超时线程上调用（重启前创建、之后才访问到的订单在分区线程上访问时调用）
+     * 只访问线程安全的状态：订单状态的CAS、写库和落库通知队列
+     */
+    void expire(LiveOrder entry) {
+        long word = stateMachine.fire(entry.state, OrderEvent.EXPIRE, entry.order);
+        if (word == OrderStateMachine.REJECTED) {
+            // 已被支付或取消
+            return;
+        }
+        persist(entry, word);
+    }
+
+    /**
+     * 写入新状态；取消和超时关闭的订单同时写入释放库存事件（由商品服务退回库存），
+     * 扣减库存被拒绝的订单没有可释放的库存
+     * 只有写库成功才通知分区移出内存：失败时订单留在live中，之后的命令使用内存中的状态，
+     * 不会从数据库读到旧状态（如已取消的订单再次支付）；数据库中的状态由该订单之后的变更写入，
+     * 仍为待支付的在重启时重建超时登记后关闭
+     */
+    private CompletableFuture<Void> persist(LiveOrder entry, long word) {
+        Order order = entry.order;
+        long orderId = order.getId();
+        long version = OrderStateCell.versionOf(word);
+        OrderState state = OrderStateCell.stateOf(word);
+        List<OutboxEvent> events = state == OrderState.CANCELLED || state == OrderState.EXPIRED
+                ? List.of(OutboxEvent.of(StockDeductionEvent.TOPIC, orderId, StockDeductionEvent.RELEASE_TYPE,
+                        new StockDeductionEvent(orderId, order.getProductId(), order.getQuantity(),
+                                order.getUserId() == null ? 0 : order.getUserId()).encode()))
+                : List.of();
+        return orderRepository.updateStatus(orderId, state.name(), events)
+                .whenComplete((ignored, e) -> {
+                    if (e == null) {
+                        settled.add(new Settled(orderId, version));
+                    } else {
+                        log.error("订单状态写库失败, 保留内存中的状态, orderId: {}, 状态: {}", orderId, state, e);
+                    }
+                });
+    }
+
+    /**
+     * 状态已落库且之后没有新变更的订单移出内存，之后的命令从数据库读取
+     */
+    private void drainSettled() {
+        Long orderId;
+        while ((orderId = dropped.poll()) != null) {
+            LiveOrder entry = live.remove(orderId);
+            if (entry != null) {
+                expirer.cancel(entry);
+            }
+        }
+        Settled done;
+        while ((done = settled.poll()) != null) {
+            LiveOrder entry = live.get(done.orderId());
+            if (entry != null && entry.state.version() == done.version()) {
+                live.remove(done.orderId());
+            }
+        }
+    }
+
+    private void record(long latencyNanos) {
+        latencyBuckets[Math.min(63, 64 - Long.numberOfLeadingZeros(Math.max(0, latencyNanos)))]++;
+        latencySumNanos += latencyNanos;
+        if (latencyNanos > maxLatencyNanos) {
+            maxLatencyNanos = latencyNanos;
+        }
+        processed++;
+    }
+
+    private static Order copy(Order order, OrderState state) {
+        return new Order(order.getId(), order.getUserId(), order.getProductId(), order.getProductName(),
+                order.getPrice(), order.getQuantity(), order.getTotalAmount(), state.name(),
+                order.getCreateTime());
+    }
+
+    private record Settled(long orderId, long version) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.wheatmall.order.partition;
+
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.repository.OrderRepository;
+import com.wheatmall.order.state.OrderState;
+import com.wheatmall.order.state.OrderStateMachine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单命令的单写者分区处理
+ *
+ * 按用户ID哈希把订单命令（下单、支付、发货、取消、下单失败）路由到N个分区之一，同一用户的所有订单都在同一个分区，
+ * 每个分区由一个线程独占处理，命令通过无锁环形缓冲区进入（见 {@link OrderPartition}）。
+ * 同一订单、同一用户的命令天然串行；待支付订单超时后由共用的超时线程直接关闭（见 {@link OrderExpirer}），
+ * 与分区线程上的支付、取消通过订单状态机的CAS决出先后（见 {@link OrderStateMachine}）。
+ * 启动时从订单存储读取全部待支付订单，在超时时间轮中重建超时登记（只保存订单号），不需要定期扫描订单表。
+ * 分区数默认等于CPU核数。
+ */
+@Slf4j
+@Service
+public class OrderPartitions {
+
+    /** 启动时重建超时登记每次读取的订单数 */
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final OrderPartition[] partitions;
+
+    private final OrderExpirer expirer;
+
+    @Autowired
+    public OrderPartitions(OrderRepository orderRepository,
+                           @Value("${wheatmall.order.partition.count:0}") int count,
+                           @Value("${wheatmall.order.partition.queue-size:4096}") int queueSize,
+                           @Value("${wheatmall.order.payment-timeout:PT30M}") Duration paymentTimeout) {
+        this(orderRepository, count, queueSize, paymentTimeout, System::currentTimeMillis);
+    }
+
+    OrderPartitions(OrderRepository orderRepository, int count, int queueSize, Duration paymentTimeout,
+                    LongSupplier clock) {
+        int partitionCount = count > 0 ? count : Runtime.getRuntime().availableProcessors();
+        OrderStateMachine<Order> stateMachine = OrderStateMachine.<Order>standard()
+                .onAnyTransition((order, from, to, version) ->
+                        log.debug("订单状态变更, orderId: {}, {} -> {}, version: {}", order.getId(), from, to, version))
+                .build();
+        this.expirer = new OrderExpirer(clock);
+        this.partitions = new OrderPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new OrderPartition(i, queueSize, orderRepository, stateMachine, expirer,
+                    paymentTimeout.toMillis(), clock);
+        }
+        int rebuilt = rebuildExpiries(orderRepository, paymentTimeout.toMillis());
+        log.info("订单处理分区就绪, 分区数: {}, 支付超时: {}, 重建超时登记: {}", partitionCount, paymentTimeout, rebuilt);
+    }
+
+    /**
+     * 保存新订单（状态为CREATED），超时未支付时自动关闭
+     * @return 保存后的订单，写库完成后完成
+     */
+    public CompletableFuture<Order> create(Order order) {
+        return create(order, List.of());
+    }
+
+    /**
+     * 保存新订单，事件与订单在同一个事务中写入发件箱，之后由 {@link com.wheatmall.order.outbox.OutboxRelay} 转发
+     * @return 保存后的订单，订单和事件写库完成后完成
+     */
+    public CompletableFuture<Order> create(Order order, List<OutboxEvent> events) {
+        return partitionOf(order.getUserId()).submit(OrderCommand.Type.CREATE, order.getUserId(), order.getId(),
+                order, events);
+    }
+
+    /**
+     * 支付订单
+     * @return 支付后的订单；订单不存在或不属于该用户时为null；订单不是待支付状态时以IllegalStateException异常完成
+     */
+    public CompletableFuture<Order> pay(long userId, long orderId) {
+        return partitionOf(userId).submit(OrderCommand.Type.PAY, userId, orderId, null, null);
+    }
+
+    /**
+     * 订单发货
+     * @return 发货后的订单；订单不存在或不属于该用户时为null；订单不是已支付状态时以IllegalStateException异常完成
+     */
+    public CompletableFuture<Order> ship(long userId, long orderId) {
+        return partitionOf(userId).submit(OrderCommand.Type.SHIP, userId, orderId, null, null);
+    }
+
+    /**
+     * 取消订单
+     * @return 取消后的订单；订单不存在或不属于该用户时为null；订单不是待支付状态时以IllegalStateException异常完成
+     */
+    public CompletableFuture<Order> cancel(long userId, long orderId) {
+        return partitionOf(userId).submit(OrderCommand.Type.CANCEL, userId, orderId, null, null);
+    }
+
+    /**
+     * 商品服务拒绝扣减库存后，待支付订单转为下单失败
+     * @return 失败后的订单；订单不存在或不属于该用户时为null；订单不是待支付状态时以IllegalStateException异常完成
+     */
+    public CompletableFuture<Order> reject(long userId, long orderId) {
+        return partitionOf(userId).submit(OrderCommand.Type.REJECT, userId, orderId, null, null);
+    }
+
+    /**
+     * 各分区的队列深度和处理耗时
+     */
+    public List<PartitionStats> getStats() {
+        List<PartitionStats> stats = new ArrayList<>(partitions.length);
+        for (OrderPartition partition : partitions) {
+            stats.add(partition.stats());
+        }
+        return stats;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * 等待超时关闭的订单数
+     */
+    public int getPendingExpiryCount() {
+        return expirer.size();
+    }
+
+    /**
+     * 处理完已提交的命令后停止各分区和超时线程
+     */
+    @PreDestroy
+    public void close() {
+        for (OrderPartition partition : partitions) {
+            partition.close();
+        }
+        expirer.close();
+    }
+
+    /**
+     * 从订单存储分页读取待支付订单，登记超时时间（已超时的在下一个刻度关闭）
+     * @return 登记的订单数
+     */
+    private int rebuildExpiries(OrderRepository orderRepository, long paymentTimeoutMillis) {
+        int count = 0;
+        Long afterId = null;
+        List<Order> page;
+        while (!(page = orderRepository.findByStatus(OrderState.CREATED.name(), afterId, REBUILD_PAGE_SIZE))
+                .isEmpty()) {
+            for (Order order : page) {
+                long deadline = order.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        + paymentTimeoutMillis;
+                StoredExpiry expiry = new StoredExpiry(partitionOf(order.getUserId()), expirer, order.getId(),
+                        order.getUserId());
+                expirer.schedule(expiry, deadline);
+                count++;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        return count;
+    }
+
+    /**
+     * 用户所在的分区（用户ID先打散，避免连续ID集中在相邻分区的规律影响均匀性）
+     */
+    int indexOf(long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) partitions.length);
+    }
+
+    private OrderPartition partitionOf(long userId) {
+        return partitions[indexOf(userId)];
+    }
+}
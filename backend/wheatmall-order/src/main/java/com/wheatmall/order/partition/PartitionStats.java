@@ -0,0 +1,15 @@
+package com.wheatmall.order.partition;
+
+/**
+ * 订单处理分区的运行状态
+ * @param partition 分区编号
+ * @param queueDepth 排队中的命令数
+ * @param processed 已处理的命令数
+ * @param liveOrders 分区内存中的订单数（待支付和状态未落库的订单）
+ * @param meanLatencyMicros 命令从入队到处理完的平均耗时（微秒，不含写库）
+ * @param p99LatencyMicros 99分位耗时（微秒，按2的幂分桶，取桶的上界）
+ * @param maxLatencyMicros 最大耗时（微秒）
+ */
+public record PartitionStats(int partition, int queueDepth, long processed, int liveOrders, long meanLatencyMicros,
+                             long p99LatencyMicros, long maxLatencyMicros) {
+}
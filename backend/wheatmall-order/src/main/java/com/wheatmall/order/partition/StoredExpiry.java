@@ -0,0 +1,36 @@
+package com.wheatmall.order.partition;
+
+/**
+ * 启动时从订单存储重建的超时登记：只保存订单号和用户ID，不加载订单，到期时由分区线程读取订单后关闭
+ * 到期时在超时线程上调用，分区队列已满时不等待，推迟一个刻度重新登记，不阻塞其他订单的超时关闭
+ */
+final class StoredExpiry extends TimingWheel.Timer {
+
+    private final OrderPartition partition;
+
+    private final OrderExpirer expirer;
+
+    private final long orderId;
+
+    private final long userId;
+
+    StoredExpiry(OrderPartition partition, OrderExpirer expirer, long orderId, long userId) {
+        this.partition = partition;
+        this.expirer = expirer;
+        this.orderId = orderId;
+        this.userId = userId;
+    }
+
+    @Override
+    void fire() {
+        if (partition.trySubmit(OrderCommand.Type.EXPIRE, userId, orderId, null, null) == null) {
+            // 已到期，在下一个刻度重试
+            expirer.schedule(this, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StoredExpiry[" + orderId + "]";
+    }
+}
@@ -0,0 +1,192 @@
+package com.wheatmall.order.partition;
+
+import java.util.List;
+
+/**
+ * 分层时间轮：{@value #LEVELS} 层，每层 {@value #SLOTS} 个槽，第0层每槽一个刻度，第i层每槽 64^i 个刻度
+ *
+ * 定时器按到期刻度与当前刻度的差放入对应层（差小于64在第0层，小于64^2在第1层……），槽号取到期刻度在该层的位；
+ * 每前进一个刻度触发第0层当前槽中的全部定时器，第0层转满一圈时把上一层的下一个槽重新分配到下层（逐层进位）。
+ * 登记、取消都是O(1)：定时器本身就是双向链表的节点（侵入式，见 {@link Timer}），不另外分配对象；
+ * 每个定时器只在进位时被移动，最多移动 {@value #LEVELS} - 1 次。
+ * 超出最上层范围（64^5个刻度）的定时器先放在最上层最远的槽，进位时再按实际到期刻度重新放置。
+ * 所有操作由this锁保护，触发的回调由调用方在锁外执行。
+ */
+final class TimingWheel {
+
+    static final int LEVELS = 5;
+
+    private static final int SLOT_BITS = 6;
+
+    static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** 最上层能表示的最大刻度差 */
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    /**
+     * 定时器：时间轮中的节点，同一时刻只能登记在一个时间轮中
+     */
+    abstract static class Timer {
+
+        private long deadlineTick;
+
+        private Timer prev;
+
+        private Timer next;
+
+        /**
+         * 到期时在时间轮线程上调用（锁外）
+         */
+        abstract void fire();
+
+        boolean isScheduled() {
+            return prev != null;
+        }
+    }
+
+    private static final class Sentinel extends Timer {
+
+        @Override
+        void fire() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final long tickMillis;
+
+    /** 每层每槽一个循环链表的哨兵，下标为 level * SLOTS + slot */
+    private final Timer[] buckets = new Timer[LEVELS * SLOTS];
+
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * @param tickMillis 刻度（毫秒），即到期时间的精度
+     * @param startMillis 当前时间
+     */
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("刻度必须大于0: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < buckets.length; i++) {
+            Timer sentinel = new Sentinel();
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            buckets[i] = sentinel;
+        }
+    }
+
+    /**
+     * 登记定时器，已登记的先取消；到期时间不晚于当前刻度的在下一个刻度触发
+     * @param deadlineMillis 到期时间（毫秒，与startMillis同一时间基准），向上取整到刻度
+     */
+    synchronized void schedule(Timer timer, long deadlineMillis) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+            size--;
+        }
+        long tick = Math.max(currentTick + 1, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        timer.deadlineTick = tick;
+        place(timer);
+        size++;
+    }
+
+    /**
+     * 取消定时器
+     * @return 是否在登记中（已触发或未登记的返回false）
+     */
+    synchronized boolean cancel(Timer timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * 前进到nowMillis，取出到期的定时器
+     * @param expired 到期的定时器按到期刻度顺序加入其中，由调用方触发
+     */
+    synchronized void advance(long nowMillis, List<Timer> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < target) {
+            if (size == 0) {
+                // 没有定时器时直接跳到目标刻度（各层都是空的，不需要进位）
+                currentTick = target;
+                return;
+            }
+            currentTick++;
+            if ((currentTick & SLOT_MASK) == 0) {
+                cascade();
+            }
+            Timer bucket = buckets[(int) (currentTick & SLOT_MASK)];
+            Timer timer = bucket.next;
+            while (timer != bucket) {
+                Timer next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                expired.add(timer);
+                size--;
+                timer = next;
+            }
+            bucket.prev = bucket;
+            bucket.next = bucket;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 第0层转满一圈：把上层的当前槽重新分配到下层，该层也转满一圈时继续向上
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timer bucket = buckets[level * SLOTS + slot];
+            Timer timer = bucket.next;
+            bucket.prev = bucket;
+            bucket.next = bucket;
+            while (timer != bucket) {
+                Timer next = timer.next;
+                place(timer);
+                timer = next;
+            }
+            if (slot != 0) {
+                return;
+            }
+        }
+    }
+
+    private void place(Timer timer) {
+        long delta = Math.max(0, timer.deadlineTick - currentTick);
+        long tick = timer.deadlineTick;
+        if (delta >= MAX_SPAN) {
+            tick = currentTick + MAX_SPAN - 1;
+            delta = MAX_SPAN - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timer bucket = buckets[level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.prev = bucket.prev;
+        timer.next = bucket;
+        bucket.prev.next = timer;
+        bucket.prev = timer;
+    }
+
+    private static void unlink(Timer timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.wheatmall.order.pricing;
+
+import java.util.Arrays;
+
+/**
+ * 待计价的购物车：订单行以并行的基本类型数组存放，可以 {@link #clear} 后重复使用
+ * 非线程安全。
+ */
+public final class Cart {
+
+    private long[] productIds = new long[8];
+
+    private long[] categoryIds = new long[8];
+
+    private long[] unitPrices = new long[8];
+
+    private int[] quantities = new int[8];
+
+    private int size;
+
+    private String couponCode;
+
+    /**
+     * 加入一个订单行
+     * @param productId 商品ID
+     * @param categoryId 分类ID，没有分类时为0
+     * @param unitPrice 单价（分）
+     * @param quantity 数量
+     * @throws IllegalArgumentException 单价为负或数量不大于0
+     */
+    public Cart add(long productId, long categoryId, long unitPrice, int quantity) {
+        if (unitPrice < 0 || quantity <= 0) {
+            throw new IllegalArgumentException("单价不能为负，数量必须大于0");
+        }
+        if (size == productIds.length) {
+            int capacity = size * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        productIds[size] = productId;
+        categoryIds[size] = categoryId;
+        unitPrices[size] = unitPrice;
+        quantities[size] = quantity;
+        size++;
+        return this;
+    }
+
+    /**
+     * 使用优惠券，null表示不使用
+     */
+    public Cart coupon(String couponCode) {
+        this.couponCode = couponCode;
+        return this;
+    }
+
+    public Cart clear() {
+        size = 0;
+        couponCode = null;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long productId(int line) {
+        return productIds[line];
+    }
+
+    public long categoryId(int line) {
+        return categoryIds[line];
+    }
+
+    public long unitPrice(int line) {
+        return unitPrices[line];
+    }
+
+    public int quantity(int line) {
+        return quantities[line];
+    }
+
+    public String couponCode() {
+        return couponCode;
+    }
+}
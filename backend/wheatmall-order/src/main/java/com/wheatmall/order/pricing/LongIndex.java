@@ -0,0 +1,55 @@
+package com.wheatmall.order.pricing;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * long键到int值的只读哈希表（开放寻址，线性探测），查找不装箱、不分配对象
+ */
+final class LongIndex {
+
+    private static final int ABSENT = -1;
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    LongIndex(Map<Long, Integer> entries) {
+        // 装载因子不超过1/2
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(values, ABSENT);
+        for (Map.Entry<Long, Integer> entry : entries.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (values[slot] != ABSENT) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+    }
+
+    /**
+     * @return 键对应的值，不存在时返回-1
+     */
+    int get(long key) {
+        int slot = slot(key);
+        int value;
+        while ((value = values[slot]) != ABSENT) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,67 @@
+package com.wheatmall.order.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额运算：金额以分为单位存为long，只在接口边界与BigDecimal互转
+ *
+ * 运算溢出时抛出ArithmeticException（单笔金额上限约9.2京分，正常业务不会溢出），不会静默回绕。
+ */
+public final class Money {
+
+    /** 金额小数位数（分） */
+    public static final int SCALE = 2;
+
+    /** 比例的分母：万分之一 */
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    /**
+     * BigDecimal金额转为分
+     * @throws ArithmeticException 小数位超过两位或超出long范围
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 分转为BigDecimal金额（两位小数）
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * 单价乘以数量
+     */
+    public static long multiply(long cents, long quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    /**
+     * 金额的万分之basisPoints，四舍五入到分
+     */
+    public static long fraction(long cents, long basisPoints) {
+        long product = Math.multiplyExact(cents, basisPoints);
+        return Math.floorDiv(Math.addExact(product, BASIS_POINTS / 2), BASIS_POINTS);
+    }
+
+    /**
+     * 以"元.角分"格式追加金额，不创建BigDecimal
+     */
+    public static StringBuilder append(StringBuilder builder, long cents) {
+        if (cents < 0) {
+            builder.append('-');
+        }
+        long abs = Math.abs(cents);
+        long fen = abs % 100;
+        builder.append(abs / 100).append('.');
+        if (fen < 10) {
+            builder.append('0');
+        }
+        return builder.append(fen);
+    }
+}
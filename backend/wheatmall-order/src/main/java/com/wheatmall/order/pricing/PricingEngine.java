@@ -0,0 +1,250 @@
+package com.wheatmall.order.pricing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 促销计价引擎：促销规则在构建时编译成按商品ID、分类ID索引的规则表，计价时每个订单行只查自己的规则
+ *
+ * 计价顺序（金额单位：分）：
+ * 1. 单品优惠：每行在所属商品、分类的单品规则（打折、立减、买N付M）中取优惠最多的一条，不叠加
+ * 2. 满减：同一范围（同一商品、同一分类、全部商品）的满减规则是一组，按该范围内各行单品优惠后的合计金额取优惠最多的一条；
+ *    不同范围的满减叠加
+ * 3. 优惠券：按前两步之后的金额计算，规则与满减相同
+ * 应付金额不小于0。
+ * 规则编译成基本类型数组：规则按"桶"（同一索引键下的规则）连续存放，商品ID、分类ID到桶的映射是开放寻址的long哈希表。
+ * 计价复杂度为O(订单行数 * 每行命中的规则数)，与规则总数无关；复用 {@link Cart} 和 {@link Quote} 时不分配对象。
+ * 引擎不可变，可以在多个线程间共享。
+ */
+public final class PricingEngine {
+
+    private static final int NONE = -1;
+
+    private final List<PromotionRule> rules;
+
+    /** 规则类型、门槛、数值，下标为规则编号 */
+    private final PromotionRule.Type[] types;
+
+    private final long[] thresholds;
+
+    private final long[] values;
+
+    /** 桶i的规则编号为 bucketRules[bucketStart[i] .. bucketStart[i + 1]) */
+    private final int[] bucketStart;
+
+    private final int[] bucketRules;
+
+    /** 商品ID、分类ID到单品规则桶 */
+    private final LongIndex skuLineBuckets;
+
+    private final LongIndex categoryLineBuckets;
+
+    /** 商品ID、分类ID到满减桶（每个满减桶是一个分组） */
+    private final LongIndex skuGroupBuckets;
+
+    private final LongIndex categoryGroupBuckets;
+
+    /** 全部商品的满减桶，没有时为-1 */
+    private final int allGroupBucket;
+
+    /** 优惠券码到满减桶 */
+    private final Map<String, Integer> couponBuckets;
+
+    private PricingEngine(List<PromotionRule> rules) {
+        this.rules = List.copyOf(rules);
+        int count = rules.size();
+        this.types = new PromotionRule.Type[count];
+        this.thresholds = new long[count];
+        this.values = new long[count];
+        // 桶的键：单品规则和满减规则分开
+        Map<String, List<Integer>> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            PromotionRule rule = rules.get(i);
+            types[i] = rule.type();
+            thresholds[i] = rule.threshold();
+            values[i] = rule.value();
+            String key = (rule.type().perLine ? "line:" : "group:") + rule.scope() + ":"
+                    + (rule.scope() == PromotionRule.Scope.COUPON ? rule.couponCode() : rule.targetId());
+            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        this.bucketStart = new int[buckets.size() + 1];
+        this.bucketRules = new int[count];
+        Map<Long, Integer> skuLine = new HashMap<>();
+        Map<Long, Integer> categoryLine = new HashMap<>();
+        Map<Long, Integer> skuGroup = new HashMap<>();
+        Map<Long, Integer> categoryGroup = new HashMap<>();
+        Map<String, Integer> coupons = new HashMap<>();
+        int allGroup = NONE;
+        int bucket = 0;
+        int offset = 0;
+        for (List<Integer> ruleIds : buckets.values()) {
+            bucketStart[bucket] = offset;
+            for (int ruleId : ruleIds) {
+                bucketRules[offset++] = ruleId;
+            }
+            PromotionRule first = rules.get(ruleIds.get(0));
+            boolean perLine = first.type().perLine;
+            switch (first.scope()) {
+                case SKU -> (perLine ? skuLine : skuGroup).put(first.targetId(), bucket);
+                case CATEGORY -> (perLine ? categoryLine : categoryGroup).put(first.targetId(), bucket);
+                case ALL -> allGroup = bucket;
+                case COUPON -> coupons.put(first.couponCode(), bucket);
+            }
+            bucket++;
+        }
+        bucketStart[bucket] = offset;
+        this.skuLineBuckets = new LongIndex(skuLine);
+        this.categoryLineBuckets = new LongIndex(categoryLine);
+        this.skuGroupBuckets = new LongIndex(skuGroup);
+        this.categoryGroupBuckets = new LongIndex(categoryGroup);
+        this.allGroupBucket = allGroup;
+        this.couponBuckets = coupons;
+    }
+
+    /**
+     * 编译促销规则
+     */
+    public static PricingEngine compile(List<PromotionRule> rules) {
+        return new PricingEngine(rules);
+    }
+
+    /**
+     * 解析并编译促销规则文本，格式见 {@link PromotionRule#parse}
+     * @throws IllegalArgumentException 规则格式非法
+     */
+    public static PricingEngine parse(List<String> rules) {
+        List<PromotionRule> parsed = new ArrayList<>(rules.size());
+        for (String rule : rules) {
+            if (!rule.isBlank()) {
+                parsed.add(PromotionRule.parse(rule));
+            }
+        }
+        return compile(parsed);
+    }
+
+    public List<PromotionRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 编号对应的规则，编号见 {@link Quote#lineRule}
+     */
+    public PromotionRule getRule(int ruleId) {
+        return rules.get(ruleId);
+    }
+
+    /**
+     * 计价，结果写入quote
+     * @throws ArithmeticException 金额超出long范围
+     */
+    public Quote price(Cart cart, Quote quote) {
+        int lines = cart.size();
+        quote.reset(lines, bucketStart.length - 1);
+        long subtotal = 0;
+        long lineDiscount = 0;
+        for (int line = 0; line < lines; line++) {
+            long productId = cart.productId(line);
+            long categoryId = cart.categoryId(line);
+            long unitPrice = cart.unitPrice(line);
+            int quantity = cart.quantity(line);
+            long amount = Money.multiply(unitPrice, quantity);
+            // 单品优惠取最优
+            quote.lineAmounts[line] = amount;
+            quote.lineDiscounts[line] = 0;
+            quote.lineRules[line] = NONE;
+            applyLineRules(skuLineBuckets.get(productId), quote, line, unitPrice, quantity);
+            if (categoryId != 0) {
+                applyLineRules(categoryLineBuckets.get(categoryId), quote, line, unitPrice, quantity);
+            }
+            long best = quote.lineDiscounts[line];
+            subtotal = Math.addExact(subtotal, amount);
+            lineDiscount += best;
+            // 单品优惠后的金额计入所属的满减分组
+            long net = amount - best;
+            int bucket = skuGroupBuckets.get(productId);
+            if (bucket != NONE) {
+                quote.touch(bucket, net);
+            }
+            bucket = categoryId == 0 ? NONE : categoryGroupBuckets.get(categoryId);
+            if (bucket != NONE) {
+                quote.touch(bucket, net);
+            }
+            if (allGroupBucket != NONE) {
+                quote.touch(allGroupBucket, net);
+            }
+        }
+        long promotionDiscount = 0;
+        for (int i = 0; i < quote.touchedCount; i++) {
+            int group = quote.touched[i];
+            promotionDiscount += groupDiscount(group, quote.groupTotals[group]);
+        }
+        // 不同范围的满减叠加后不超过单品优惠后的金额
+        promotionDiscount = Math.min(promotionDiscount, subtotal - lineDiscount);
+        long remaining = subtotal - lineDiscount - promotionDiscount;
+        long couponDiscount = 0;
+        String couponCode = cart.couponCode();
+        if (couponCode != null) {
+            Integer bucket = couponBuckets.get(couponCode);
+            if (bucket != null) {
+                couponDiscount = groupDiscount(bucket, remaining);
+            }
+        }
+        quote.subtotal = subtotal;
+        quote.lineDiscount = lineDiscount;
+        quote.promotionDiscount = promotionDiscount;
+        quote.couponDiscount = couponDiscount;
+        quote.total = remaining - couponDiscount;
+        return quote;
+    }
+
+    /**
+     * 用桶中的单品规则计算该行的优惠，比当前的优惠多时替换
+     */
+    private void applyLineRules(int bucket, Quote quote, int line, long unitPrice, int quantity) {
+        if (bucket == NONE) {
+            return;
+        }
+        long amount = quote.lineAmounts[line];
+        for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+            int rule = bucketRules[k];
+            long discount = lineDiscount(rule, unitPrice, quantity, amount);
+            if (discount > quote.lineDiscounts[line]) {
+                quote.lineDiscounts[line] = discount;
+                quote.lineRules[line] = rule;
+            }
+        }
+    }
+
+    /**
+     * 单品规则的优惠金额，不超过该行金额
+     */
+    private long lineDiscount(int rule, long unitPrice, int quantity, long amount) {
+        return switch (types[rule]) {
+            case PERCENT -> Money.fraction(amount, values[rule]);
+            case UNIT_OFF -> Money.multiply(Math.min(unitPrice, values[rule]), quantity);
+            case BUNDLE -> Money.multiply(unitPrice, quantity / thresholds[rule] * (thresholds[rule] - values[rule]));
+            default -> 0;
+        };
+    }
+
+    /**
+     * 满减分组在合计金额total下的最优优惠，不超过合计金额
+     */
+    private long groupDiscount(int bucket, long total) {
+        long best = 0;
+        for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+            int rule = bucketRules[k];
+            long discount = 0;
+            if (types[rule] == PromotionRule.Type.THRESHOLD) {
+                discount = total >= thresholds[rule] ? values[rule] : 0;
+            } else if (types[rule] == PromotionRule.Type.EVERY) {
+                discount = Money.multiply(total / thresholds[rule], values[rule]);
+            }
+            best = Math.max(best, discount);
+        }
+        return Math.min(best, total);
+    }
+}
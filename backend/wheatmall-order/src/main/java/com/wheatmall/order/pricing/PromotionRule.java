@@ -0,0 +1,118 @@
+package com.wheatmall.order.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * 促销规则
+ *
+ * 文本格式（配置项 wheatmall.order.promotions 的每一项）为 "范围:类型:参数"，金额以元为单位：
+ * - sku:1:percent:15               商品1打85折（减15%，可以有小数，如12.5）
+ * - sku:1:unit-off:100.00          商品1每件立减100元（不超过单价）
+ * - sku:1:bundle:3:2               商品1买3件付2件
+ * - category:3:threshold:200:30    分类3的商品满200元减30元
+ * - category:3:every:100:10        分类3的商品每满100元减10元
+ * - all:threshold:300:50           全部商品满300元减50元
+ * - coupon:SAVE10:threshold:100:10 优惠券SAVE10：订单满100元减10元
+ * percent、unit-off、bundle是单品优惠，只能用于sku和category；threshold、every是满减，可以用于所有范围。
+ * @param scope 适用范围
+ * @param targetId 商品ID或分类ID，范围为ALL、COUPON时为0
+ * @param couponCode 优惠券码，范围为COUPON时有值
+ * @param type 优惠类型
+ * @param threshold BUNDLE为每组件数，THRESHOLD、EVERY为门槛（分），其他类型为0
+ * @param value PERCENT为减去的比例（万分之一），UNIT_OFF、THRESHOLD、EVERY为优惠金额（分），BUNDLE为每组付款件数
+ */
+public record PromotionRule(Scope scope, long targetId, String couponCode, Type type, long threshold, long value) {
+
+    public enum Scope {
+        /** 指定商品 */
+        SKU,
+        /** 指定分类的商品 */
+        CATEGORY,
+        /** 全部商品 */
+        ALL,
+        /** 出示优惠券码时，全部商品 */
+        COUPON
+    }
+
+    public enum Type {
+        /** 按比例减 */
+        PERCENT(true),
+        /** 每件立减 */
+        UNIT_OFF(true),
+        /** 买N件付M件 */
+        BUNDLE(true),
+        /** 满减 */
+        THRESHOLD(false),
+        /** 每满减 */
+        EVERY(false);
+
+        /** 是否按订单行计算的单品优惠，否则是按范围内合计金额计算的满减 */
+        final boolean perLine;
+
+        Type(boolean perLine) {
+            this.perLine = perLine;
+        }
+    }
+
+    public PromotionRule {
+        if (type.perLine && (scope == Scope.ALL || scope == Scope.COUPON)) {
+            throw new IllegalArgumentException("单品优惠只能用于sku或category: " + type);
+        }
+        if ((scope == Scope.SKU || scope == Scope.CATEGORY) && targetId <= 0) {
+            throw new IllegalArgumentException("商品ID或分类ID必须大于0: " + targetId);
+        }
+        if (scope == Scope.COUPON && (couponCode == null || couponCode.isEmpty())) {
+            throw new IllegalArgumentException("优惠券码不能为空");
+        }
+        boolean valid = switch (type) {
+            case PERCENT -> value > 0 && value <= Money.BASIS_POINTS;
+            case UNIT_OFF -> value > 0;
+            case BUNDLE -> threshold > 1 && value >= 0 && value < threshold;
+            case THRESHOLD -> threshold >= 0 && value > 0;
+            case EVERY -> threshold > 0 && value > 0;
+        };
+        if (!valid) {
+            throw new IllegalArgumentException("促销参数非法: " + type + " " + threshold + " " + value);
+        }
+    }
+
+    /**
+     * 解析规则文本，格式见类注释
+     * @throws IllegalArgumentException 格式非法时抛出
+     */
+    public static PromotionRule parse(String text) {
+        String[] parts = text.trim().split(":");
+        try {
+            Scope scope = Scope.valueOf(parts[0].trim().toUpperCase());
+            int next = 1;
+            long targetId = 0;
+            String couponCode = null;
+            if (scope == Scope.SKU || scope == Scope.CATEGORY) {
+                targetId = Long.parseLong(parts[next++].trim());
+            } else if (scope == Scope.COUPON) {
+                couponCode = parts[next++].trim();
+            }
+            Type type = Type.valueOf(parts[next++].trim().toUpperCase().replace('-', '_'));
+            int expected = next + (type == Type.PERCENT || type == Type.UNIT_OFF ? 1 : 2);
+            if (parts.length != expected) {
+                throw new IllegalArgumentException("促销规则格式非法: " + text);
+            }
+            return switch (type) {
+                case PERCENT -> new PromotionRule(scope, targetId, couponCode, type, 0,
+                        new BigDecimal(parts[next].trim()).movePointRight(2).longValueExact());
+                case UNIT_OFF -> new PromotionRule(scope, targetId, couponCode, type, 0, cents(parts[next]));
+                case BUNDLE -> new PromotionRule(scope, targetId, couponCode, type,
+                        Long.parseLong(parts[next].trim()), Long.parseLong(parts[next + 1].trim()));
+                case THRESHOLD, EVERY -> new PromotionRule(scope, targetId, couponCode, type,
+                        cents(parts[next]), cents(parts[next + 1]));
+            };
+        } catch (ArrayIndexOutOfBoundsException | ArithmeticException e) {
+            // 数字格式错误（NumberFormatException）本身是IllegalArgumentException
+            throw new IllegalArgumentException("促销规则格式非法: " + text, e);
+        }
+    }
+
+    private static long cents(String yuan) {
+        return Money.toCents(new BigDecimal(yuan.trim()));
+    }
+}
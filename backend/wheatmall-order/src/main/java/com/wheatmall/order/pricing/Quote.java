@@ -0,0 +1,131 @@
+package com.wheatmall.order.pricing;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 计价结果（金额单位：分），由 {@link PricingEngine#price} 填充，可以重复使用
+ *
+ * total = subtotal - lineDiscount - promotionDiscount - couponDiscount，不小于0。
+ * 同时记录计价过程用到的临时数组，重复使用时不再分配。非线程安全。
+ */
+public final class Quote {
+
+    long subtotal;
+
+    long lineDiscount;
+
+    long promotionDiscount;
+
+    long couponDiscount;
+
+    long total;
+
+    /** 每行的原价（单价 * 数量） */
+    long[] lineAmounts = new long[8];
+
+    /** 每行的单品优惠 */
+    long[] lineDiscounts = new long[8];
+
+    /** 每行采用的单品优惠规则编号，没有时为-1 */
+    int[] lineRules = new int[8];
+
+    /** 满减分组的合计金额，本次未涉及的分组为-1 */
+    long[] groupTotals = new long[0];
+
+    /** 本次计价涉及的满减分组 */
+    int[] touched = new int[8];
+
+    int touchedCount;
+
+    void reset(int lines, int groups) {
+        // 上次计价涉及的分组恢复为未涉及，未涉及的分组不需要清零
+        for (int i = 0; i < touchedCount; i++) {
+            groupTotals[touched[i]] = -1;
+        }
+        touchedCount = 0;
+        if (lineAmounts.length < lines) {
+            int capacity = Math.max(lines, lineAmounts.length * 2);
+            lineAmounts = new long[capacity];
+            lineDiscounts = new long[capacity];
+            lineRules = new int[capacity];
+        }
+        if (groupTotals.length < groups) {
+            groupTotals = new long[groups];
+            Arrays.fill(groupTotals, -1);
+        }
+        // 每行最多涉及商品、分类两个分组，另有全部商品一个分组
+        if (touched.length < lines * 2 + 1) {
+            touched = new int[Math.max(lines * 2 + 1, touched.length * 2)];
+        }
+        subtotal = 0;
+        lineDiscount = 0;
+        promotionDiscount = 0;
+        couponDiscount = 0;
+        total = 0;
+    }
+
+    /**
+     * 金额计入满减分组
+     */
+    void touch(int group, long amount) {
+        if (groupTotals[group] < 0) {
+            groupTotals[group] = amount;
+            touched[touchedCount++] = group;
+        } else {
+            groupTotals[group] += amount;
+        }
+    }
+
+    /** 原价合计 */
+    public long subtotal() {
+        return subtotal;
+    }
+
+    /** 单品优惠合计 */
+    public long lineDiscount() {
+        return lineDiscount;
+    }
+
+    /** 满减优惠合计 */
+    public long promotionDiscount() {
+        return promotionDiscount;
+    }
+
+    /** 优惠券优惠 */
+    public long couponDiscount() {
+        return couponDiscount;
+    }
+
+    /** 优惠合计 */
+    public long discount() {
+        return subtotal - total;
+    }
+
+    /** 应付金额 */
+    public long total() {
+        return total;
+    }
+
+    public long lineAmount(int line) {
+        return lineAmounts[line];
+    }
+
+    public long lineDiscount(int line) {
+        return lineDiscounts[line];
+    }
+
+    /**
+     * 该行采用的单品优惠规则编号（见 {@link PricingEngine#getRule}），没有时为-1
+     */
+    public int lineRule(int line) {
+        return lineRules[line];
+    }
+
+    /**
+     * 应付金额（BigDecimal，两位小数），用于接口返回和保存订单
+     */
+    public BigDecimal totalAmount() {
+        return Money.toBigDecimal(total);
+    }
+}
@@ -0,0 +1,471 @@
+package com.wheatmall.order.repository;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.outbox.OutboxStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 基于JDBC（内嵌H2）的订单存储，按月分区，组提交
+ *
+ * 分区：每个自然月（UTC，按订单ID中的时间戳）一张表 ORDERS_Pyyyymm，写入时按需创建。
+ * 订单ID按时间递增，主键同时是时间索引；(USER_ID, ID DESC) 索引使"我的订单"在每个分区内都是一次索引范围扫描，
+ * 与表的总行数无关，过期的月份可以整表删除。
+ *
+ * 写入：保存只把订单放入待写队列，由单独的写线程每次取走全部订单，按不超过 {@value #MAX_BATCH_SIZE} 个一个事务批量插入，
+ * 提交后完成这一批的future。并发下单共用事务，吞吐量取决于批次大小而不是每秒能提交的事务数。
+ * 状态修改走同一个队列，与插入在同一个事务中按调用顺序执行（先插入后修改）。
+ * 某一批写入失败（如主键冲突）时逐个重试，只有出错的订单失败。
+ *
+ * 发件箱：随订单发出的事件在同一个事务中插入 {@value #OUTBOX_TABLE} 表，与订单一起提交或回滚，
+ * 序号由数据库生成；只有写线程插入，序号按提交顺序递增。
+ */
+@Slf4j
+@Repository
+public class JdbcOrderRepository implements OrderRepository, OutboxStore {
+
+    /** 每个事务最多插入的订单数 */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private static final String TABLE_PREFIX = "ORDERS_P";
+
+    static final String OUTBOX_TABLE = "OUTBOX_EVENTS";
+
+    /** 金额列的精度：以分计算的金额不超过long的范围（19位），与商品服务的价格上限一致 */
+    private static final int AMOUNT_PRECISION = 19;
+
+    private static final String AMOUNT_TYPE = "DECIMAL(" + AMOUNT_PRECISION + ", 2)";
+
+    private static final String COLUMNS =
+            "ID, USER_ID, PRODUCT_ID, PRODUCT_NAME, PRICE, QUANTITY, TOTAL_AMOUNT, STATUS, CREATE_TIME";
+
+    private static final RowMapper<Order> ROW_MAPPER = (rs, rowNum) -> new Order(rs.getLong(1), rs.getLong(2),
+            rs.getLong(3), rs.getString(4), rs.getBigDecimal(5), rs.getInt(6), rs.getBigDecimal(7), rs.getString(8),
+            rs.getTimestamp(9).toLocalDateTime());
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** 已创建的分区（yyyymm），升序 */
+    private final ConcurrentSkipListSet<Integer> partitions = new ConcurrentSkipListSet<>();
+
+    /** 保护pending、closed和writer */
+    private final Object queueLock = new Object();
+
+    private List<PendingOrder> pending = new ArrayList<>();
+
+    private boolean closed;
+
+    private Thread writer;
+
+    private volatile long commitCount;
+
+    private volatile long orderCount;
+
+    public JdbcOrderRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : jdbcTemplate.queryForList("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES "
+                + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME LIKE 'ORDERS\\_P%'", String.class)) {
+            String suffix = table.substring(TABLE_PREFIX.length());
+            if (suffix.matches("\\d{6}")) {
+                partitions.add(Integer.parseInt(suffix));
+                // 早于状态索引创建的分区补建索引，早于金额列加宽创建的分区加宽金额列
+                createStatusIndex(table);
+                widenAmountColumns(table);
+            }
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + OUTBOX_TABLE + " ("
+                + "ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "EVENT_ID BIGINT NOT NULL, "
+                + "TOPIC VARCHAR(64) NOT NULL, "
+                + "TYPE VARCHAR(64) NOT NULL, "
+                + "PAYLOAD VARBINARY NOT NULL, "
+                + "CREATE_TIME TIMESTAMP NOT NULL)");
+        log.info("订单存储就绪, 分区: {}", partitions);
+    }
+
+    @Override
+    public CompletableFuture<Void> save(Order order) {
+        return save(order, List.of());
+    }
+
+    @Override
+    public CompletableFuture<Void> save(Order order, List<OutboxEvent> events) {
+        return enqueue(new PendingOrder(order, order.getId(), null, events, new CompletableFuture<>()));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateStatus(long orderId, String status) {
+        return updateStatus(orderId, status, List.of());
+    }
+
+    @Override
+    public CompletableFuture<Void> updateStatus(long orderId, String status, List<OutboxEvent> events) {
+        return enqueue(new PendingOrder(null, orderId, status, events, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingOrder pendingOrder) {
+        synchronized (queueLock) {
+            if (closed) {
+                throw new IllegalStateException("订单存储已关闭");
+            }
+            if (writer == null) {
+                writer = new Thread(this::writeLoop, "order-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+            pending.add(pendingOrder);
+            queueLock.notifyAll();
+        }
+        return pendingOrder.committed;
+    }
+
+    @Override
+    public Order findById(long orderId) {
+        int partition = partitionOf(orderId);
+        if (!partitions.contains(partition)) {
+            return null;
+        }
+        List<Order> orders = jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table(partition) + " WHERE ID = ?",
+                ROW_MAPPER, orderId);
+        return orders.isEmpty() ? null : orders.get(0);
+    }
+
+    @Override
+    public List<Order> findByUser(long userId, Long beforeId, int limit) {
+        List<Order> result = new ArrayList<>(Math.min(limit, 1024));
+        // 从游标所在的分区开始往前，凑满一页为止；每个分区一次索引范围扫描
+        NavigableSet<Integer> candidates = beforeId == null ? partitions.descendingSet()
+                : partitions.headSet(partitionOf(beforeId), true).descendingSet();
+        for (int partition : candidates) {
+            int remaining = limit - result.size();
+            if (remaining <= 0) {
+                break;
+            }
+            if (beforeId == null) {
+                result.addAll(jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table(partition)
+                        + " WHERE USER_ID = ? ORDER BY ID DESC LIMIT ?", ROW_MAPPER, userId, remaining));
+            } else {
+                result.addAll(jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table(partition)
+                        + " WHERE USER_ID = ? AND ID < ? ORDER BY ID DESC LIMIT ?", ROW_MAPPER, userId, beforeId,
+                        remaining));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Order> findByStatus(String status, Long afterId, int limit) {
+        List<Order> result = new ArrayList<>(Math.min(limit, 1024));
+        // 从游标所在的分区开始往后，凑满一页为止；每个分区一次 (STATUS, ID) 索引范围扫描
+        NavigableSet<Integer> candidates = afterId == null ? partitions
+                : partitions.tailSet(partitionOf(afterId), true);
+        for (int partition : candidates) {
+            int remaining = limit - result.size();
+            if (remaining <= 0) {
+                break;
+            }
+            if (afterId == null) {
+                result.addAll(jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table(partition)
+                        + " WHERE STATUS = ? ORDER BY ID LIMIT ?", ROW_MAPPER, status, remaining));
+            } else {
+                result.addAll(jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table(partition)
+                        + " WHERE STATUS = ? AND ID > ? ORDER BY ID LIMIT ?", ROW_MAPPER, status, afterId, remaining));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<OutboxEvent> findOutboxEvents(int limit) {
+        return jdbcTemplate.query("SELECT ID, EVENT_ID, TOPIC, TYPE, PAYLOAD FROM " + OUTBOX_TABLE
+                        + " ORDER BY ID LIMIT ?",
+                (rs, rowNum) -> new OutboxEvent(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4),
+                        rs.getBytes(5)), limit);
+    }
+
+    @Override
+    public int deleteOutboxEvents(long upToId) {
+        return jdbcTemplate.update("DELETE FROM " + OUTBOX_TABLE + " WHERE ID <= ?", upToId);
+    }
+
+    @Override
+    public long countOutboxEvents() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + OUTBOX_TABLE, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 已提交的事务数
+     */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * 已写入的订单数
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * 已创建的分区（yyyymm），升序
+     */
+    public List<Integer> getPartitions() {
+        return List.copyOf(partitions);
+    }
+
+    /**
+     * 写完已保存的订单后停止写线程
+     */
+    @PreDestroy
+    public void close() {
+        Thread writerThread;
+        synchronized (queueLock) {
+            closed = true;
+            writerThread = writer;
+            queueLock.notifyAll();
+        }
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 订单所在的分区：订单ID中时间戳的UTC年月，如202610
+     */
+    static int partitionOf(long orderId) {
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(SnowflakeIdGenerator.timestampOf(orderId))
+                .atZone(ZoneOffset.UTC));
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static String table(int partition) {
+        return TABLE_PREFIX + partition;
+    }
+
+    /**
+     * 写线程：每次取走队列中的全部订单，分批写入
+     */
+    private void writeLoop() {
+        while (true) {
+            List<PendingOrder> batch;
+            synchronized (queueLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            for (int from = 0; from < batch.size(); from += MAX_BATCH_SIZE) {
+                writeBatch(batch.subList(from, Math.min(batch.size(), from + MAX_BATCH_SIZE)));
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingOrder> batch) {
+        try {
+            boolean[] updated = write(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                PendingOrder pendingOrder = batch.get(i);
+                if (pendingOrder.order == null && !updated[i]) {
+                    pendingOrder.committed.completeExceptionally(
+                            new IllegalStateException("订单不存在: " + pendingOrder.orderId));
+                } else {
+                    pendingOrder.committed.complete(null);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("写入订单失败, id: {}", batch.get(0).orderId, e);
+                batch.get(0).committed.completeExceptionally(e);
+                return;
+            }
+            log.warn("批量写入订单失败, 逐个重试, 数量: {}", batch.size(), e);
+            for (PendingOrder pendingOrder : batch) {
+                writeBatch(List.of(pendingOrder));
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批订单：先按分区批量插入，再按调用顺序修改状态，最后插入发件箱事件
+     * @return 每项是否修改成功（只对状态修改有意义）
+     */
+    private boolean[] write(List<PendingOrder> batch) throws SQLException {
+        Map<Integer, List<Order>> byPartition = new TreeMap<>();
+        List<Integer> updates = new ArrayList<>();
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingOrder pendingOrder = batch.get(i);
+            if (pendingOrder.order == null) {
+                updates.add(i);
+            } else {
+                byPartition.computeIfAbsent(partitionOf(pendingOrder.orderId), key -> new ArrayList<>())
+                        .add(pendingOrder.order);
+                events.addAll(pendingOrder.events);
+            }
+        }
+        boolean[] updated = new boolean[batch.size()];
+        // 建表语句会隐式提交，在事务开始前执行
+        byPartition.keySet().forEach(this::ensurePartition);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<Integer, List<Order>> entry : byPartition.entrySet()) {
+                    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO "
+                            + table(entry.getKey()) + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                        for (Order order : entry.getValue()) {
+                            statement.setLong(1, order.getId());
+                            statement.setLong(2, order.getUserId());
+                            statement.setLong(3, order.getProductId());
+                            statement.setString(4, order.getProductName());
+                            statement.setBigDecimal(5, order.getPrice());
+                            statement.setInt(6, order.getQuantity());
+                            statement.setBigDecimal(7, order.getTotalAmount());
+                            statement.setString(8, order.getStatus());
+                            statement.setTimestamp(9, Timestamp.valueOf(order.getCreateTime()));
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                }
+                // 同一个订单的修改在同一个分区，分区内保持调用顺序
+                Map<Integer, List<Integer>> updatesByPartition = new TreeMap<>();
+                for (int index : updates) {
+                    int partition = partitionOf(batch.get(index).orderId);
+                    if (partitions.contains(partition)) {
+                        updatesByPartition.computeIfAbsent(partition, key -> new ArrayList<>()).add(index);
+                    }
+                }
+                for (Map.Entry<Integer, List<Integer>> entry : updatesByPartition.entrySet()) {
+                    try (PreparedStatement statement = connection.prepareStatement("UPDATE " + table(entry.getKey())
+                            + " SET STATUS = ? WHERE ID = ?")) {
+                        for (int index : entry.getValue()) {
+                            statement.setString(1, batch.get(index).status);
+                            statement.setLong(2, batch.get(index).orderId);
+                            statement.addBatch();
+                        }
+                        int[] counts = statement.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            updated[entry.getValue().get(i)] = counts[i] > 0;
+                        }
+                    }
+                }
+                // 修改成功的订单的事件排在新订单的事件之后
+                for (int index : updates) {
+                    if (updated[index]) {
+                        events.addAll(batch.get(index).events);
+                    }
+                }
+                if (!events.isEmpty()) {
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + OUTBOX_TABLE
+                            + " (EVENT_ID, TOPIC, TYPE, PAYLOAD, CREATE_TIME) VALUES (?, ?, ?, ?, ?)")) {
+                        for (OutboxEvent event : events) {
+                            statement.setLong(1, event.eventId());
+                            statement.setString(2, event.topic());
+                            statement.setString(3, event.type());
+                            statement.setBytes(4, event.payload());
+                            statement.setTimestamp(5, now);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        commitCount++;
+        orderCount += batch.size() - updates.size();
+        return updated;
+    }
+
+    private void ensurePartition(int partition) {
+        if (partitions.contains(partition)) {
+            return;
+        }
+        String table = table(partition);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                + "ID BIGINT PRIMARY KEY, "
+                + "USER_ID BIGINT NOT NULL, "
+                + "PRODUCT_ID BIGINT NOT NULL, "
+                + "PRODUCT_NAME VARCHAR(200), "
+                + "PRICE " + AMOUNT_TYPE + " NOT NULL, "
+                + "QUANTITY INT NOT NULL, "
+                + "TOTAL_AMOUNT " + AMOUNT_TYPE + " NOT NULL, "
+                + "STATUS VARCHAR(16) NOT NULL, "
+                + "CREATE_TIME TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS IDX_" + table + "_USER ON " + table + " (USER_ID, ID DESC)");
+        createStatusIndex(table);
+        partitions.add(partition);
+        log.info("已创建订单分区: {}", table);
+    }
+
+    /**
+     * (STATUS, ID) 索引：启动时按状态扫描待支付订单（见 {@link #findByStatus}）
+     */
+    private void createStatusIndex(String table) {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS IDX_" + table + "_STATUS ON " + table + " (STATUS, ID)");
+    }
+
+    /**
+     * 金额列改为 {@link #AMOUNT_TYPE}：原来的DECIMAL(12, 2)/DECIMAL(14, 2)存不下商品服务允许的价格
+     */
+    private void widenAmountColumns(String table) {
+        for (String column : jdbcTemplate.queryForList("SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? "
+                + "AND COLUMN_NAME IN ('PRICE', 'TOTAL_AMOUNT') AND NUMERIC_PRECISION < ?",
+                String.class, table, AMOUNT_PRECISION)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " SET DATA TYPE " + AMOUNT_TYPE);
+            log.info("已加宽订单分区金额列: {}.{}", table, column);
+        }
+    }
+
+    /**
+     * 待写入的一项：order不为null时插入订单，否则把orderId的状态改为status；events随之写入发件箱
+     */
+    private record PendingOrder(Order order, long orderId, String status, List<OutboxEvent> events,
+                                CompletableFuture<Void> committed) {
+    }
+}
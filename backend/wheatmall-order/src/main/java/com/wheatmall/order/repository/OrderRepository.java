@@ -0,0 +1,81 @@
+package com.wheatmall.order.repository;
+
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 订单存储
+ */
+public interface OrderRepository {
+
+    /**
+     * 保存新订单
+     * @param order 订单，ID由调用方用雪花算法生成
+     * @return 订单所在事务提交后完成的future；写入失败时以异常完成
+     */
+    CompletableFuture<Void> save(Order order);
+
+    /**
+     * 保存新订单，事件与订单在同一个事务中写入发件箱（订单写入失败时事件也不写入）
+     * @param order 订单
+     * @param events 随订单发出的事件
+     * @return 订单和事件所在事务提交后完成的future；写入失败时以异常完成
+     */
+    default CompletableFuture<Void> save(Order order, List<OutboxEvent> events) {
+        if (!events.isEmpty()) {
+            throw new UnsupportedOperationException("订单存储不支持发件箱");
+        }
+        return save(order);
+    }
+
+    /**
+     * 修改订单状态
+     * 与save按调用顺序写入，保存后立即修改同一个订单也不会丢失
+     * @param orderId 订单ID
+     * @param status 新状态
+     * @return 修改提交后完成的future；订单不存在时以 {@link IllegalStateException} 异常完成
+     */
+    CompletableFuture<Void> updateStatus(long orderId, String status);
+
+    /**
+     * 修改订单状态，事件与新状态在同一个事务中写入发件箱（订单不存在时事件也不写入）
+     * @param orderId 订单ID
+     * @param status 新状态
+     * @param events 随状态变更发出的事件
+     * @return 修改提交后完成的future；订单不存在时以 {@link IllegalStateException} 异常完成
+     */
+    default CompletableFuture<Void> updateStatus(long orderId, String status, List<OutboxEvent> events) {
+        if (!events.isEmpty()) {
+            throw new UnsupportedOperationException("订单存储不支持发件箱");
+        }
+        return updateStatus(orderId, status);
+    }
+
+    /**
+     * 根据ID查询订单
+     * @param orderId 订单ID
+     * @return 订单，不存在时为null
+     */
+    Order findById(long orderId);
+
+    /**
+     * 查询用户的订单，按订单ID（即创建时间）倒序，键集分页
+     * @param userId 用户ID
+     * @param beforeId 上一页最后一个订单ID，只返回比它早的订单；null表示从最新的开始
+     * @param limit 最多返回的数量
+     * @return 订单列表
+     */
+    List<Order> findByUser(long userId, Long beforeId, int limit);
+
+    /**
+     * 按订单ID升序查询某个状态的订单（所有分区），键集分页；用于启动时重建待支付订单的超时登记
+     * @param status 状态
+     * @param afterId 上一页最后一个订单ID，只返回比它大的订单；null表示从头开始
+     * @param limit 最多返回的数量
+     * @return 订单列表
+     */
+    List<Order> findByStatus(String status, Long afterId, int limit);
+}
@@ -1,25 +1,68 @@
 package com.wheatmall.order.service;
 
 import com.wheatmall.common.constant.ServiceUris;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.order.cache.ConditionalCache;
+import com.wheatmall.order.dto.CachedResponse;
 import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.dto.StockDeductionDTO;
+import com.wheatmall.order.dto.StockDeductionResultDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 /**
  * 订单服务 - 使用WebClient调用Product模块
+ * 商品查询使用条件请求（If-None-Match），Product服务返回304时复用本地已解码的数据
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    /** Product服务统一返回R包装，按完整类型解码（二进制编码要求类型与服务端一致） */
+    private static final ParameterizedTypeReference<R<ProductDTO>> PRODUCT_TYPE =
+            new ParameterizedTypeReference<R<ProductDTO>>() {};
+
+    private static final ParameterizedTypeReference<R<List<ProductDTO>>> PRODUCT_LIST_TYPE =
+            new ParameterizedTypeReference<R<List<ProductDTO>>>() {};
+
+    private static final ParameterizedTypeReference<R<List<StockDeductionResultDTO>>> DEDUCTION_RESULT_TYPE =
+            new ParameterizedTypeReference<R<List<StockDeductionResultDTO>>>() {};
+
+    /** 流式读取商品时每次向上游请求的数量，控制在途数据量 */
+    private static final int STREAM_PREFETCH = 64;
+
+    /** 下单只需要的商品字段，通过Product服务的字段投影减少传输和序列化开销 */
+    private static final String ORDER_PRODUCT_FIELDS = "id,name,price,stock";
+
+    private static final String GET_BY_ID_FOR_ORDER = ServiceUris.Product.GET_BY_ID_INTERNAL + "?fields={fields}";
+
+    private static final String GET_BATCH_FOR_ORDER = ServiceUris.Product.GET_BATCH + "?fields={fields}";
+
+    private static final String LIST_FIRST_PAGE = ServiceUris.Product.LIST + "?size={size}";
+
+    private static final String LIST_PAGE = ServiceUris.Product.LIST + "?cursor={cursor}&size={size}";
+
+    /** 条件请求缓存的商品数量上限 */
+    private static final int PRODUCT_CACHE_SIZE = 10000;
+
     private final WebClient productWebClient;
 
+    private final ConditionalCache<Long, ProductDTO> productCache = new ConditionalCache<>(PRODUCT_CACHE_SIZE);
+
+    private final ConditionalCache<Long, ProductDTO> orderProductCache = new ConditionalCache<>(PRODUCT_CACHE_SIZE);
+
     /**
      * 根据ID获取商品信息
      * @param productId 商品ID
@@ -27,26 +70,81 @@ public class OrderService {
      */
     public ProductDTO getProductById(Long productId) {
         log.info("使用WebClient调用Product模块获取商品信息, productId: {}", productId);
-        
-        return productWebClient.get()
-                .uri(ServiceUris.Product.GET_BY_ID_INTERNAL, productId)
+
+        return conditionalGet(productCache, productId, PRODUCT_TYPE, ServiceUris.Product.GET_BY_ID_INTERNAL, productId)
+                .mapNotNull(CachedResponse::getData)
+                .block();
+    }
+
+    /**
+     * 获取下单所需的商品信息（只包含id、name、price、stock）
+     * @param productId 商品ID
+     * @return 投影后的商品信息
+     */
+    public ProductDTO getProductForOrder(Long productId) {
+        log.info("使用WebClient调用Product模块获取下单商品信息, productId: {}", productId);
+
+        return conditionalGet(orderProductCache, productId, PRODUCT_TYPE, GET_BY_ID_FOR_ORDER, productId, ORDER_PRODUCT_FIELDS)
+                .mapNotNull(CachedResponse::getData)
+                .block();
+    }
+
+    /**
+     * 批量获取下单所需的商品信息（一次调用，只包含id、name、price、stock）
+     * @param productIds 商品ID，最多1000个
+     * @return 存在的商品，不存在的不返回
+     * @throws IllegalStateException Product服务拒绝请求时抛出
+     */
+    public List<ProductDTO> getProductsForOrder(List<Long> productIds) {
+        log.debug("使用WebClient调用Product模块批量获取下单商品信息, 数量: {}", productIds.size());
+
+        R<List<ProductDTO>> result = productWebClient.post()
+                .uri(GET_BATCH_FOR_ORDER, ORDER_PRODUCT_FIELDS)
+                .bodyValue(productIds)
                 .retrieve()
-                .bodyToMono(ProductDTO.class)
+                .bodyToMono(PRODUCT_LIST_TYPE)
+                .block();
+        if (result == null || result.getData() == null) {
+            throw new IllegalStateException("批量获取商品失败: " + (result == null ? null : result.getMsg()));
+        }
+        return result.getData();
+    }
+
+    /**
+     * 分页获取商品列表，透传客户端的If-None-Match（不在本地缓存列表）
+     * @param cursor 上一页返回的nextCursor，首页为null
+     * @param size 每页数量，由Product服务校验
+     * @param ifNoneMatch 客户端的If-None-Match，可以为null
+     * @return Product服务的响应，未修改时为304且没有响应体
+     */
+    public ResponseEntity<R<List<ProductDTO>>> getProductPage(Long cursor, int size, String ifNoneMatch) {
+        log.info("使用WebClient调用Product模块分页获取商品列表, cursor: {}, size: {}", cursor, size);
+
+        WebClient.RequestHeadersSpec<?> spec = cursor == null
+                ? productWebClient.get().uri(LIST_FIRST_PAGE, size)
+                : productWebClient.get().uri(LIST_PAGE, cursor, size);
+        if (ifNoneMatch != null) {
+            spec = spec.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return spec.retrieve()
+                .toEntity(PRODUCT_LIST_TYPE)
                 .block();
     }
 
     /**
-     * 获取所有商品列表
-     * @return 商品列表
+     * 流式获取所有商品（NDJSON）
+     * 按下游需求逐批从Product服务读取，不在内存中缓冲整个商品列表
+     * @return 商品流
      */
-    public List<ProductDTO> getProductList() {
-        log.info("使用WebClient调用Product模块获取商品列表");
-        
+    public Flux<ProductDTO> streamProducts() {
+        log.info("使用WebClient流式调用Product模块获取商品列表");
+
         return productWebClient.get()
-                .uri(ServiceUris.Product.LIST)
+                .uri(ServiceUris.Product.STREAM)
+                .accept(MediaType.APPLICATION_NDJSON)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<ProductDTO>>() {})
-                .block();
+                .bodyToFlux(ProductDTO.class)
+                .limitRate(STREAM_PREFETCH);
     }
 
     /**
@@ -54,12 +152,56 @@ public class OrderService {
      * @param productId 商品ID
      * @return 商品信息的Mono对象
      */
-    public reactor.core.publisher.Mono<ProductDTO> getProductByIdAsync(Long productId) {
+    public Mono<ProductDTO> getProductByIdAsync(Long productId) {
         log.info("使用WebClient异步调用Product模块获取商品信息, productId: {}", productId);
-        
-        return productWebClient.get()
-                .uri(ServiceUris.Product.GET_BY_ID_INTERNAL, productId)
+
+        return conditionalGet(productCache, productId, PRODUCT_TYPE, ServiceUris.Product.GET_BY_ID_INTERNAL, productId)
+                .mapNotNull(CachedResponse::getData);
+    }
+
+    /**
+     * 批量扣减库存（一次调用，Product服务在一次写锁内逐项扣减）
+     * @param deductions 扣减项
+     * @return 与deductions一一对应的结果
+     * @throws IllegalStateException Product服务拒绝请求时抛出
+     */
+    public List<StockDeductionResultDTO> deductStockBatch(List<StockDeductionDTO> deductions) {
+        log.debug("使用WebClient调用Product模块批量扣减库存, 项数: {}", deductions.size());
+
+        R<List<StockDeductionResultDTO>> result = productWebClient.post()
+                .uri(ServiceUris.Product.DEDUCT_STOCK_BATCH)
+                .bodyValue(deductions)
                 .retrieve()
-                .bodyToMono(ProductDTO.class);
+                .bodyToMono(DEDUCTION_RESULT_TYPE)
+                .block();
+        if (result == null || result.getData() == null || result.getData().size() != deductions.size()) {
+            throw new IllegalStateException("批量扣减库存失败: " + (result == null ? null : result.getMsg()));
+        }
+        return result.getData();
+    }
+
+    /**
+     * 条件GET：携带上次响应的ETag，304时返回缓存数据，否则解码新数据并更新缓存
+     */
+    private <K, T> Mono<CachedResponse<T>> conditionalGet(ConditionalCache<K, T> cache, K key,
+                                                          ParameterizedTypeReference<R<T>> type,
+                                                          String uri, Object... uriVariables) {
+        CachedResponse<T> cached = cache.get(key);
+        WebClient.RequestHeadersSpec<?> spec = productWebClient.get().uri(uri, uriVariables);
+        if (cached != null) {
+            spec = spec.ifNoneMatch(cached.getEtag());
+        }
+        return spec.retrieve()
+                .toEntity(type)
+                .map(entity -> {
+                    if (entity.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached != null) {
+                        return cached;
+                    }
+                    R<T> body = entity.getBody();
+                    CachedResponse<T> fresh = new CachedResponse<>(entity.getHeaders().getETag(),
+                            body == null ? null : body.getData());
+                    cache.put(key, fresh);
+                    return fresh;
+                });
     }
 }
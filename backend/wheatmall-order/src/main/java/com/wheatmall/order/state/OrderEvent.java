@@ -0,0 +1,22 @@
+package com.wheatmall.order.state;
+
+/**
+ * 触发订单状态变更的事件
+ */
+public enum OrderEvent {
+
+    /** 支付成功（用户支付或支付回调） */
+    PAY,
+
+    /** 发货 */
+    SHIP,
+
+    /** 用户取消 */
+    CANCEL,
+
+    /** 支付超时 */
+    EXPIRE,
+
+    /** 商品服务拒绝扣减库存 */
+    STOCK_REJECTED
+}
@@ -0,0 +1,31 @@
+package com.wheatmall.order.state;
+
+/**
+ * 订单状态，名称即订单表中的状态字符串
+ */
+public enum OrderState {
+
+    /** 待支付 */
+    CREATED,
+
+    /** 已支付 */
+    PAID,
+
+    /** 已发货 */
+    SHIPPED,
+
+    /** 已取消 */
+    CANCELLED,
+
+    /** 超时未支付，已关闭 */
+    EXPIRED,
+
+    /** 商品服务扣减库存失败（库存不足或商品不存在），下单失败 */
+    FAILED;
+
+    private static final OrderState[] VALUES = values();
+
+    static OrderState of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,67 @@
+package com.wheatmall.order.state;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个订单的当前状态：状态和版本号打包在一个long中，只通过 {@link OrderStateMachine#fire} 用CAS修改
+ *
+ * 结构（从高到低）：56位版本号 | 8位状态序号。每次状态变更版本号加1，
+ * 读到的值可以整体作为乐观锁的期望值，不会出现状态相同但中间已经变更过的ABA问题。
+ */
+public final class OrderStateCell {
+
+    private static final int STATE_BITS = 8;
+
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+
+    private final AtomicLong word;
+
+    public OrderStateCell(OrderState state) {
+        this(state, 0);
+    }
+
+    /**
+     * @param state 初始状态
+     * @param version 初始版本号，如从数据库读取的订单可以沿用库中的版本
+     */
+    public OrderStateCell(OrderState state, long version) {
+        this.word = new AtomicLong(pack(state, version));
+    }
+
+    /**
+     * 打包后的 (版本号, 状态)，用 {@link #stateOf}、{@link #versionOf} 解析
+     */
+    public long get() {
+        return word.get();
+    }
+
+    public OrderState state() {
+        return stateOf(word.get());
+    }
+
+    public long version() {
+        return versionOf(word.get());
+    }
+
+    public static OrderState stateOf(long word) {
+        return OrderState.of((int) (word & STATE_MASK));
+    }
+
+    public static long versionOf(long word) {
+        return word >>> STATE_BITS;
+    }
+
+    static long pack(OrderState state, long version) {
+        return version << STATE_BITS | state.ordinal();
+    }
+
+    boolean compareAndSet(long expected, long next) {
+        return word.compareAndSet(expected, next);
+    }
+
+    @Override
+    public String toString() {
+        long current = word.get();
+        return stateOf(current) + "@" + versionOf(current);
+    }
+}
@@ -0,0 +1,162 @@
+package com.wheatmall.order.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 订单状态机：声明的状态转移编译成一张 (状态, 事件) -> 目标状态 的数组表，状态变更用CAS完成，不加锁
+ *
+ * {@link #fire} 读一次 {@link OrderStateCell}，查表得到目标状态，再以读到的值为期望值CAS写入 (版本号+1, 目标状态)：
+ * - 查表为非法转移时直接返回，不做CAS
+ * - 同一订单的并发事件（如支付回调和超时关闭同时到达）只有一个CAS成功，失败方重新读到胜者写入的状态后查表，
+ *   转移变为非法即返回 {@link #REJECTED}，即一次失败的CAS；结果只取决于谁先完成CAS，不会两个都成功
+ * 副作用钩子在CAS成功后、由成功的线程同步执行，每次状态变更恰好执行一次。
+ * 状态机构建后不可变，可以在多个线程间共享。
+ * @param <T> 状态所属的对象，传给钩子
+ */
+public final class OrderStateMachine<T> {
+
+    /** 非法转移时 {@link #fire} 的返回值 */
+    public static final long REJECTED = -1;
+
+    private static final int EVENT_COUNT = OrderEvent.values().length;
+
+    private static final byte INVALID = -1;
+
+    /** 下标为 状态序号 * 事件数 + 事件序号，值为目标状态序号，非法转移为-1 */
+    private final byte[] targets;
+
+    /** 与targets下标对应的钩子，没有钩子时为空数组 */
+    private final TransitionHook<T>[][] hooks;
+
+    private OrderStateMachine(byte[] targets, TransitionHook<T>[][] hooks) {
+        this.targets = targets;
+        this.hooks = hooks;
+    }
+
+    /**
+     * 订单的标准生命周期：待支付 -> 已支付 -> 已发货；待支付时可以取消、超时关闭，或因扣减库存被拒绝而失败
+     */
+    public static <T> Builder<T> standard() {
+        return new Builder<T>()
+                .transition(OrderState.CREATED, OrderEvent.PAY, OrderState.PAID)
+                .transition(OrderState.CREATED, OrderEvent.CANCEL, OrderState.CANCELLED)
+                .transition(OrderState.CREATED, OrderEvent.EXPIRE, OrderState.EXPIRED)
+                .transition(OrderState.CREATED, OrderEvent.STOCK_REJECTED, OrderState.FAILED)
+                .transition(OrderState.PAID, OrderEvent.SHIP, OrderState.SHIPPED);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 按事件变更状态，成功后执行钩子
+     * @param cell 订单的当前状态
+     * @param event 事件
+     * @param subject 传给钩子的对象
+     * @return 变更后打包的 (版本号, 状态)，当前状态不允许该事件时返回 {@link #REJECTED}
+     */
+    public long fire(OrderStateCell cell, OrderEvent event, T subject) {
+        while (true) {
+            long current = cell.get();
+            int slot = OrderStateCell.stateOf(current).ordinal() * EVENT_COUNT + event.ordinal();
+            byte target = targets[slot];
+            if (target == INVALID) {
+                return REJECTED;
+            }
+            OrderState to = OrderState.of(target);
+            long version = OrderStateCell.versionOf(current) + 1;
+            long next = OrderStateCell.pack(to, version);
+            if (cell.compareAndSet(current, next)) {
+                OrderState from = OrderStateCell.stateOf(current);
+                for (TransitionHook<T> hook : hooks[slot]) {
+                    hook.afterTransition(subject, from, to, version);
+                }
+                return next;
+            }
+            // 其他线程先完成了变更，按新状态重新查表
+        }
+    }
+
+    /**
+     * 查表得到目标状态，不修改任何状态
+     * @return 目标状态，非法转移时返回null
+     */
+    public OrderState next(OrderState from, OrderEvent event) {
+        byte target = targets[from.ordinal() * EVENT_COUNT + event.ordinal()];
+        return target == INVALID ? null : OrderState.of(target);
+    }
+
+    /**
+     * 构建器：声明状态转移和钩子，{@link #build} 时编译成数组表
+     */
+    public static final class Builder<T> {
+
+        private final byte[] targets = new byte[OrderState.values().length * EVENT_COUNT];
+
+        private final List<List<TransitionHook<T>>> hooks = new ArrayList<>();
+
+        private final List<TransitionHook<T>> globalHooks = new ArrayList<>();
+
+        private Builder() {
+            Arrays.fill(targets, INVALID);
+            for (int i = 0; i < targets.length; i++) {
+                hooks.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * 声明状态from在事件event下转移到to
+         * @throws IllegalArgumentException (from, event) 已声明过
+         */
+        public Builder<T> transition(OrderState from, OrderEvent event, OrderState to) {
+            int slot = slot(from, event);
+            if (targets[slot] != INVALID) {
+                throw new IllegalArgumentException("状态转移重复声明: " + from + " + " + event);
+            }
+            targets[slot] = (byte) to.ordinal();
+            return this;
+        }
+
+        /**
+         * 指定转移成功后执行的钩子，按加入顺序执行
+         * @throws IllegalArgumentException 转移未声明
+         */
+        public Builder<T> onTransition(OrderState from, OrderEvent event, TransitionHook<T> hook) {
+            int slot = slot(from, event);
+            if (targets[slot] == INVALID) {
+                throw new IllegalArgumentException("状态转移未声明: " + from + " + " + event);
+            }
+            hooks.get(slot).add(hook);
+            return this;
+        }
+
+        /**
+         * 任意转移成功后执行的钩子，在指定转移的钩子之前执行
+         */
+        public Builder<T> onAnyTransition(TransitionHook<T> hook) {
+            globalHooks.add(hook);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public OrderStateMachine<T> build() {
+            TransitionHook<T>[][] compiled = new TransitionHook[targets.length][];
+            for (int slot = 0; slot < targets.length; slot++) {
+                List<TransitionHook<T>> slotHooks = new ArrayList<>();
+                if (targets[slot] != INVALID) {
+                    slotHooks.addAll(globalHooks);
+                    slotHooks.addAll(hooks.get(slot));
+                }
+                compiled[slot] = slotHooks.toArray(new TransitionHook[0]);
+            }
+            return new OrderStateMachine<>(targets.clone(), compiled);
+        }
+
+        private static int slot(OrderState from, OrderEvent event) {
+            return from.ordinal() * EVENT_COUNT + event.ordinal();
+        }
+    }
+}
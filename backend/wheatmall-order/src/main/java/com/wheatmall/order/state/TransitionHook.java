@@ -0,0 +1,17 @@
+package com.wheatmall.order.state;
+
+/**
+ * 状态变更成功后执行的副作用（如落库、通知），在完成CAS的线程上同步执行
+ * @param <T> 状态所属的对象，如订单
+ */
+@FunctionalInterface
+public interface TransitionHook<T> {
+
+    /**
+     * @param subject 状态所属的对象
+     * @param from 变更前的状态
+     * @param to 变更后的状态
+     * @param version 变更后的版本号
+     */
+    void afterTransition(T subject, OrderState from, OrderState to, long version);
+}
@@ -0,0 +1,175 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.order.cart.CartService;
+import com.wheatmall.order.cart.JdbcCartStore;
+import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.service.OrderService;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 购物车基准（存储为内存H2，Product服务为模拟实现）
+ * - active：N个用户的购物车都在内存中，随机查看，统计延迟分位数和每个购物车的堆内存
+ * - evicted：内存只容纳N/10个购物车，随机查看N个用户，大部分需要从存储加载（同时淘汰并写回其他购物车）
+ * - open：打开购物车，对比一次批量刷新与逐个商品调用Product服务（每次调用固定往返延迟）
+ *
+ * 运行方式（堆内存按GC后的已用内存估算，建议固定堆大小）：
+ * java -Xms3g -Xmx3g -cp ... com.wheatmall.order.benchmark.CartBenchmark 100000 10
+ * （参数：用户数、每个购物车的商品种类）
+ */
+public class CartBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        try (HikariDataSource dataSource = dataSource()) {
+            JdbcCartStore store = new JdbcCartStore(dataSource);
+            SimulatedProductService products = new SimulatedProductService(0);
+            // 预热
+            active(products, store, users / 10, lines);
+            active(products, store, users, lines);
+            evicted(products, store, users, lines);
+            evicted(products, store, users, lines);
+        }
+        try (HikariDataSource dataSource = dataSource()) {
+            open(new SimulatedProductService(ROUND_TRIP_MILLIS), new JdbcCartStore(dataSource), lines);
+        }
+    }
+
+    private static void active(SimulatedProductService products, JdbcCartStore store, int users, int lines) {
+        long before = usedHeap();
+        CartService carts = new CartService(products, store, users, lines);
+        fill(carts, users, lines);
+        long heap = usedHeap() - before;
+        long[] nanos = lookups(carts, users, LOOKUPS);
+        System.out.printf("active  users=%,d lines=%d cached=%,d loads=%,d heap/cart=%d B get %s%n", users, lines,
+                carts.getCachedCount(), carts.getLoadCount(), heap / users, percentiles(nanos));
+    }
+
+    private static void evicted(SimulatedProductService products, JdbcCartStore store, int users, int lines) {
+        CartService carts = new CartService(products, store, users / 10, lines);
+        fill(carts, users, lines);
+        long loads = carts.getLoadCount();
+        long[] nanos = lookups(carts, users, users);
+        System.out.printf("evicted users=%,d lines=%d cached=%,d loads=%,d evictions=%,d stored=%,d get %s%n", users,
+                lines, carts.getCachedCount(), carts.getLoadCount() - loads, carts.getEvictionCount(), store.count(),
+                percentiles(nanos));
+        // 清空，下一轮从空存储开始
+        for (int user = 0; user < users; user++) {
+            carts.clear(user);
+        }
+        carts.flush();
+    }
+
+    private static void open(SimulatedProductService products, JdbcCartStore store, int lines) {
+        CartService carts = new CartService(products, store, 1000, lines);
+        fill(carts, 100, lines);
+        int rounds = 200;
+        long[] batched = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long began = System.nanoTime();
+            carts.open(i % 100);
+            batched[i] = System.nanoTime() - began;
+        }
+        long batchedCalls = products.calls.getAndSet(0);
+        // 对照：每个商品调用一次Product服务
+        long[] perLine = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long began = System.nanoTime();
+            for (int line = 0; line < lines; line++) {
+                products.getProductsForOrder(List.of((long) line));
+            }
+            perLine[i] = System.nanoTime() - began;
+        }
+        System.out.printf("open    lines=%d rtt=%dms batched calls/open=%.1f %s | per-line calls/open=%.1f %s%n",
+                lines, ROUND_TRIP_MILLIS, (double) batchedCalls / rounds, percentiles(batched),
+                (double) products.calls.get() / rounds, percentiles(perLine));
+    }
+
+    private static void fill(CartService carts, int users, int lines) {
+        for (int user = 0; user < users; user++) {
+            for (int line = 0; line < lines; line++) {
+                carts.setQuantity(user, 1_000_000L + line * 7919L + user % 1000, 1 + line % 3);
+            }
+        }
+    }
+
+    private static long[] lookups(CartService carts, int users, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] nanos = new long[count];
+        for (int i = 0; i < count; i++) {
+            long userId = random.nextInt(users);
+            long began = System.nanoTime();
+            carts.get(userId);
+            nanos[i] = System.nanoTime() - began;
+        }
+        return nanos;
+    }
+
+    private static String percentiles(long[] nanos) {
+        Arrays.sort(nanos);
+        return String.format("p50=%.1fus p99=%.1fus p999=%.1fus", nanos[nanos.length / 2] / 1000.0,
+                nanos[(int) (nanos.length * 0.99)] / 1000.0, nanos[(int) (nanos.length * 0.999)] / 1000.0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static HikariDataSource dataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        return dataSource;
+    }
+
+    /**
+     * 模拟Product服务：每次调用固定往返延迟，所有商品存在且库存充足
+     */
+    private static final class SimulatedProductService extends OrderService {
+
+        private static final BigDecimal PRICE = new BigDecimal("99.00");
+
+        private final long roundTripMillis;
+
+        private final AtomicLong calls = new AtomicLong();
+
+        private SimulatedProductService(long roundTripMillis) {
+            super(null);
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        @Override
+        public List<ProductDTO> getProductsForOrder(List<Long> productIds) {
+            calls.incrementAndGet();
+            if (roundTripMillis > 0) {
+                try {
+                    Thread.sleep(roundTripMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<ProductDTO> results = new ArrayList<>(productIds.size());
+            for (Long productId : productIds) {
+                results.add(new ProductDTO(productId, "测试商品" + productId, PRICE, Integer.MAX_VALUE, null, null, null));
+            }
+            return results;
+        }
+    }
+}
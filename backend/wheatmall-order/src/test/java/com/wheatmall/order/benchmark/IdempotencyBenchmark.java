@@ -0,0 +1,60 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.order.idempotency.IdempotencyService;
+import com.wheatmall.order.idempotency.InMemoryIdempotencyStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下单幂等键开销基准测试（进程内存储，键数上限10万）
+ * - newKey：每次一个新键（占用 + 保存结果，键满后每次还要淘汰一个最早的键）
+ * - duplicateKey：重复请求命中已完成的键
+ * 两者都与下单本身（远程查询商品 + 写库）的毫秒级耗时相比可以忽略
+ *
+ * 运行方式：在IDE中直接运行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wheatmall.order.benchmark.IdempotencyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotencyBenchmark {
+
+    private static final int MAX_KEYS = 100_000;
+
+    private final IdempotencyService service = new IdempotencyService(
+            new InMemoryIdempotencyStore(Duration.ofHours(24), MAX_KEYS), Duration.ofSeconds(10));
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        service.execute("duplicate", () -> "订单创建成功");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String newKey() {
+        long id = sequence.incrementAndGet();
+        return service.execute("42:" + id, () -> "订单创建成功");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String duplicateKey() {
+        return service.execute("duplicate", () -> "订单创建成功");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(IdempotencyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,148 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 待支付订单超时登记基准：大量待支付订单时的登记、取消开销和内存占用（存储为内存空实现）
+ * - live：下单N个订单（每个登记一个超时），再全部支付（取消登记），统计吞吐量和每个待支付订单的堆内存
+ * - rebuild：启动时从存储分页读取N个待支付订单重建超时登记，统计耗时和每个登记的堆内存
+ *
+ * 运行方式（堆内存按GC后的已用内存估算，建议固定堆大小）：
+ * java -Xms4g -Xmx4g -cp ... com.wheatmall.order.benchmark.OrderExpiryBenchmark 1000000
+ * （参数：订单数）
+ */
+public class OrderExpiryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+
+        // 预热
+        live(idGenerator, 200_000);
+        live(idGenerator, orders);
+        rebuild(idGenerator, 200_000);
+        rebuild(idGenerator, orders);
+    }
+
+    private static void live(SnowflakeIdGenerator idGenerator, int orders) throws Exception {
+        PendingOrderRepository repository = new PendingOrderRepository(List.of());
+        long before = usedHeap();
+        OrderPartitions partitions = new OrderPartitions(repository, 0, 4096, Duration.ofMinutes(30));
+        long[] ids = new long[orders];
+        long began = System.nanoTime();
+        CompletableFuture<Order> last = null;
+        for (int i = 0; i < orders; i++) {
+            ids[i] = idGenerator.nextId();
+            last = partitions.create(order(ids[i], i));
+        }
+        last.join();
+        long createNanos = System.nanoTime() - began;
+        long heap = usedHeap() - before;
+        int pending = partitions.getPendingExpiryCount();
+
+        began = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            last = partitions.pay(i, ids[i]);
+        }
+        last.join();
+        long payNanos = System.nanoTime() - began;
+        System.out.printf("live    orders=%,d pending=%,d create/s=%,d pay/s=%,d heap/pending order=%d B%n", orders,
+                pending, orders * 1_000_000_000L / createNanos, orders * 1_000_000_000L / payNanos,
+                (heap - ids.length * 8L) / orders);
+        partitions.close();
+    }
+
+    private static void rebuild(SnowflakeIdGenerator idGenerator, int orders) {
+        List<Order> stored = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            stored.add(order(idGenerator.nextId(), i));
+        }
+        PendingOrderRepository repository = new PendingOrderRepository(stored);
+        long before = usedHeap();
+        long began = System.nanoTime();
+        OrderPartitions partitions = new OrderPartitions(repository, 0, 4096, Duration.ofMinutes(30));
+        long nanos = System.nanoTime() - began;
+        long heap = usedHeap() - before;
+        System.out.printf("rebuild orders=%,d pending=%,d time=%dms heap/entry=%d B%n", orders,
+                partitions.getPendingExpiryCount(), nanos / 1_000_000, heap / orders);
+        partitions.close();
+    }
+
+    private static Order order(long id, long userId) {
+        return new Order(id, userId, 1L, "测试商品", new BigDecimal("99.00"), 1, new BigDecimal("99.00"),
+                OrderController.STATUS_CREATED, LocalDateTime.now());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 写入为空操作；待支付订单查询返回构造时给定的订单（按ID升序）
+     */
+    private static final class PendingOrderRepository implements OrderRepository {
+
+        private final List<Order> pending;
+
+        private PendingOrderRepository(List<Order> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public CompletableFuture<Void> save(Order order) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateStatus(long orderId, String status) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateStatus(long orderId, String status,
+                                                    List<OutboxEvent> events) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Order findById(long orderId) {
+            return null;
+        }
+
+        @Override
+        public List<Order> findByUser(long userId, Long beforeId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<Order> findByStatus(String status, Long afterId, int limit) {
+            int from = 0;
+            int to = pending.size();
+            while (afterId != null && from < to) {
+                int middle = (from + to) >>> 1;
+                if (pending.get(middle).getId() <= afterId) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return pending.subList(from, Math.min(pending.size(), from + limit));
+        }
+    }
+}
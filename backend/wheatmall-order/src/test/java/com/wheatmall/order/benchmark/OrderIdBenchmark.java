@@ -0,0 +1,57 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单ID生成基准测试：雪花算法（CAS） vs UUID（随机，128位，不按时间有序）
+ * 分别以1个和4个线程测量吞吐量；雪花算法的持续速率上限为每毫秒4096个（每微秒约4.1个）
+ *
+ * 运行方式：在IDE中直接运行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wheatmall.order.benchmark.OrderIdBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIdBenchmark {
+
+    private final SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1);
+
+    @Benchmark
+    @Threads(1)
+    public long snowflake() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long snowflake4Threads() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UUID uuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID uuid4Threads() {
+        return UUID.randomUUID();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderIdBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
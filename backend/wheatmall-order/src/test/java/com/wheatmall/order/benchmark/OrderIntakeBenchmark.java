@@ -0,0 +1,157 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.dto.StockDeductionDTO;
+import com.wheatmall.order.dto.StockDeductionResultDTO;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.intake.OrderIntakeService;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import com.wheatmall.order.service.OrderService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步下单基准：逐个下单（每个订单一次扣减库存调用 + 保存） vs 环形缓冲区批处理（每批一次调用 + 组提交保存）
+ * Product服务用固定往返延迟模拟（sleep），订单写入内存H2；订单均匀分布在若干个商品上
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.order.benchmark.OrderIntakeBenchmark 200000 64 1 100
+ * （参数：订单数、请求线程数、扣减调用往返毫秒数、商品数）
+ */
+public class OrderIntakeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long roundTripMillis = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int products = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        SimulatedProductService productService = new SimulatedProductService(roundTripMillis);
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+
+        // 逐个下单
+        try (HikariDataSource dataSource = dataSource()) {
+            JdbcOrderRepository repository = new JdbcOrderRepository(dataSource);
+            AtomicLong next = new AtomicLong();
+            long callsBefore = productService.calls.get();
+            long began = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    while (next.getAndIncrement() < orders) {
+                        long productId = ThreadLocalRandom.current().nextInt(products) + 1;
+                        StockDeductionResultDTO product = productService.deductStockBatch(
+                                List.of(new StockDeductionDTO(productId, 1))).get(0);
+                        repository.save(new Order(idGenerator.nextId(), 1L, productId, product.getName(),
+                                product.getPrice(), 1, product.getPrice(), "CREATED", LocalDateTime.now())).join();
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long nanos = System.nanoTime() - began;
+            System.out.printf("per-order: orders=%,d orders/s=%,d remote calls=%,d commits=%,d%n", orders,
+                    orders * 1_000_000_000L / nanos, productService.calls.get() - callsBefore,
+                    repository.getCommitCount());
+            repository.close();
+        }
+
+        // 异步受理 + 批处理
+        try (HikariDataSource dataSource = dataSource()) {
+            JdbcOrderRepository repository = new JdbcOrderRepository(dataSource);
+            OrderPartitions partitions = new OrderPartitions(repository, 0, 4096, Duration.ofMinutes(30));
+            OrderIntakeService intake = new OrderIntakeService(productService, repository, partitions, idGenerator,
+                    PricingEngine.compile(List.of()), WebClient.create(), (topic, events) -> { }, List.of(),
+                    8192, 512);
+            AtomicLong next = new AtomicLong();
+            AtomicLong rejected = new AtomicLong();
+            long callsBefore = productService.calls.get();
+            long began = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    while (next.getAndIncrement() < orders) {
+                        long productId = ThreadLocalRandom.current().nextInt(products) + 1;
+                        while (intake.submit(1L, productId, 1, null) == null) {
+                            // 排队已满，客户端稍后重试
+                            rejected.incrementAndGet();
+                            Thread.yield();
+                        }
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long acceptedNanos = System.nanoTime() - began;
+            while (intake.getProcessedCount() < orders) {
+                Thread.sleep(1);
+            }
+            long nanos = System.nanoTime() - began;
+            System.out.printf("ring-buffer: orders=%,d orders/s=%,d accept/s=%,d remote calls=%,d batches=%,d "
+                            + "avg batch=%.1f commits=%,d rejected submits=%,d%n", orders,
+                    orders * 1_000_000_000L / nanos, orders * 1_000_000_000L / acceptedNanos,
+                    productService.calls.get() - callsBefore, intake.getBatchCount(),
+                    (double) orders / intake.getBatchCount(), repository.getCommitCount(), rejected.get());
+            intake.close();
+            partitions.close();
+            repository.close();
+        }
+    }
+
+    private static HikariDataSource dataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        return dataSource;
+    }
+
+    /**
+     * 模拟Product服务：每次调用固定往返延迟，库存充足
+     */
+    private static final class SimulatedProductService extends OrderService {
+
+        private static final BigDecimal PRICE = new BigDecimal("99.00");
+
+        private final long roundTripMillis;
+
+        private final AtomicLong calls = new AtomicLong();
+
+        private SimulatedProductService(long roundTripMillis) {
+            super(null);
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        @Override
+        public List<StockDeductionResultDTO> deductStockBatch(List<StockDeductionDTO> deductions) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(roundTripMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<StockDeductionResultDTO> results = new ArrayList<>(deductions.size());
+            for (StockDeductionDTO deduction : deductions) {
+                results.add(new StockDeductionResultDTO(deduction.getProductId(), 0, "测试商品", PRICE,
+                        Integer.MAX_VALUE));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.partition.PartitionStats;
+import com.wheatmall.order.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单状态处理基准：单写者分区（OrderPartitions） vs 每个订单一把锁
+ * 每个请求线程循环"下单 → 支付或取消"，等待每个命令完成；存储为内存空实现，只比较协调开销
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.order.benchmark.OrderPartitionBenchmark 200000 100000
+ * （参数：每种线程数下的订单数、用户数）
+ */
+public class OrderPartitionBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+        NoopOrderRepository repository = new NoopOrderRepository();
+
+        for (int threads : THREADS) {
+            OrderPartitions partitions = new OrderPartitions(repository, 0, 4096, Duration.ofMinutes(30));
+            long opsPerSecond = run(orders, threads, users, idGenerator, partitions::create, partitions::pay,
+                    partitions::cancel);
+            long maxP99 = partitions.getStats().stream().mapToLong(PartitionStats::p99LatencyMicros).max().orElse(0);
+            partitions.close();
+
+            LockPerOrderProcessor locking = new LockPerOrderProcessor(repository);
+            long lockingOpsPerSecond = run(orders, threads, users, idGenerator, locking::create, locking::pay,
+                    locking::cancel);
+            System.out.printf("threads=%d partitioned=%,d cmd/s (queue p99<=%dus) lock-per-order=%,d cmd/s%n",
+                    threads, opsPerSecond, maxP99, lockingOpsPerSecond);
+        }
+    }
+
+    private static long run(int orders, int threads, int users, SnowflakeIdGenerator idGenerator,
+                            Create create, Transition pay, Transition cancel) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        long began = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (next.getAndIncrement() < orders) {
+                    long userId = random.nextInt(users);
+                    Order order = create.apply(new Order(idGenerator.nextId(), userId, 1L, "测试商品",
+                            new BigDecimal("99.00"), 1, new BigDecimal("99.00"), OrderController.STATUS_CREATED,
+                            LocalDateTime.now())).join();
+                    (random.nextBoolean() ? pay : cancel).apply(userId, order.getId()).join();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return orders * 2L * 1_000_000_000L / (System.nanoTime() - began);
+    }
+
+    private interface Create {
+        CompletableFuture<Order> apply(Order order);
+    }
+
+    private interface Transition {
+        CompletableFuture<Order> apply(long userId, long orderId);
+    }
+
+    /**
+     * 对照：订单放在ConcurrentHashMap中，状态变更时锁住订单对象
+     */
+    private static final class LockPerOrderProcessor {
+
+        private final OrderRepository repository;
+
+        private final Map<Long, Order> live = new ConcurrentHashMap<>();
+
+        private LockPerOrderProcessor(OrderRepository repository) {
+            this.repository = repository;
+        }
+
+        CompletableFuture<Order> create(Order order) {
+            live.put(order.getId(), order);
+            return repository.save(order).thenApply(ignored -> order);
+        }
+
+        CompletableFuture<Order> pay(long userId, long orderId) {
+            return transition(userId, orderId, OrderController.STATUS_PAID);
+        }
+
+        CompletableFuture<Order> cancel(long userId, long orderId) {
+            return transition(userId, orderId, OrderController.STATUS_CANCELLED);
+        }
+
+        private CompletableFuture<Order> transition(long userId, long orderId, String status) {
+            Order order = live.get(orderId);
+            if (order == null || order.getUserId() != userId) {
+                return CompletableFuture.completedFuture(null);
+            }
+            synchronized (order) {
+                if (!OrderController.STATUS_CREATED.equals(order.getStatus())) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("订单状态为" + order.getStatus()));
+                }
+                order.setStatus(status);
+            }
+            live.remove(orderId);
+            return repository.updateStatus(orderId, status).thenApply(ignored -> order);
+        }
+    }
+
+    /**
+     * 空存储：写入立即完成
+     */
+    private static final class NoopOrderRepository implements OrderRepository {
+
+        @Override
+        public CompletableFuture<Void> save(Order order) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateStatus(long orderId, String status) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Order findById(long orderId) {
+            return null;
+        }
+
+        @Override
+        public List<Order> findByUser(long userId, Long beforeId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<Order> findByStatus(String status, Long afterId, int limit) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.state.OrderEvent;
+import com.wheatmall.order.state.OrderState;
+import com.wheatmall.order.state.OrderStateCell;
+import com.wheatmall.order.state.OrderStateMachine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单状态变更开销基准测试：CAS状态机与加锁 + 状态字符串比较对比
+ * - transition：一次支付 + 一次撤销（基准专用的转移，使状态循环），即两次合法的状态变更
+ * - rejected：非法转移（待支付订单发货）
+ * - contended：4个线程同时变更同一个订单
+ *
+ * 运行方式：在IDE中直接运行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wheatmall.order.benchmark.OrderStateMachineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderStateMachineBenchmark {
+
+    private final OrderStateMachine<Object> machine = OrderStateMachine.standard()
+            .transition(OrderState.PAID, OrderEvent.CANCEL, OrderState.CREATED)
+            .build();
+
+    private final OrderStateCell cell = new OrderStateCell(OrderState.CREATED);
+
+    private final OrderStateCell shared = new OrderStateCell(OrderState.CREATED);
+
+    private final LockedOrder locked = new LockedOrder();
+
+    private final LockedOrder sharedLocked = new LockedOrder();
+
+    @Benchmark
+    public long casTransition() {
+        machine.fire(cell, OrderEvent.PAY, null);
+        return machine.fire(cell, OrderEvent.CANCEL, null);
+    }
+
+    @Benchmark
+    public boolean lockedTransition() {
+        return locked.transition(OrderEvent.PAY) & locked.transition(OrderEvent.CANCEL);
+    }
+
+    @Benchmark
+    public long casRejected() {
+        return machine.fire(cell, OrderEvent.SHIP, null);
+    }
+
+    @Benchmark
+    public boolean lockedRejected() {
+        return locked.transition(OrderEvent.SHIP);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long casContended() {
+        machine.fire(shared, OrderEvent.PAY, null);
+        return machine.fire(shared, OrderEvent.CANCEL, null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean lockedContended() {
+        return sharedLocked.transition(OrderEvent.PAY) & sharedLocked.transition(OrderEvent.CANCEL);
+    }
+
+    /**
+     * 对照：加锁后按状态字符串判断
+     */
+    private static final class LockedOrder {
+
+        private String status = OrderController.STATUS_CREATED;
+
+        private long version;
+
+        synchronized boolean transition(OrderEvent event) {
+            String next = switch (event) {
+                case PAY -> OrderController.STATUS_CREATED.equals(status) ? OrderController.STATUS_PAID : null;
+                case CANCEL -> OrderController.STATUS_PAID.equals(status) ? OrderController.STATUS_CREATED : null;
+                case SHIP -> OrderController.STATUS_PAID.equals(status) ? OrderController.STATUS_SHIPPED : null;
+                case EXPIRE -> OrderController.STATUS_CREATED.equals(status) ? OrderController.STATUS_EXPIRED : null;
+                case STOCK_REJECTED -> OrderController.STATUS_CREATED.equals(status)
+                        ? OrderController.STATUS_FAILED : null;
+            };
+            if (next == null) {
+                return false;
+            }
+            status = next;
+            version++;
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderStateMachineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
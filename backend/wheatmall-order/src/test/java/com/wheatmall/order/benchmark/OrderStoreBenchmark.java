@@ -0,0 +1,102 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单存储基准（文件H2）：并发下单的写入吞吐量和事务数，以及随订单总数增长的"我的订单"查询延迟
+ * 订单均匀分布在12个月中，每写入一轮后测一次查询，观察延迟是否随表增长而变化
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.order.benchmark.OrderStoreBenchmark /tmp/order-bench 1000000 5 64
+ * （参数：数据目录、每轮订单数、轮数、下单线程数）
+ */
+public class OrderStoreBenchmark {
+
+    private static final int USERS = 100_000;
+
+    private static final int QUERIES = 5_000;
+
+    private static final long YEAR_MILLIS = 365L * 24 * 3600 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Files.createTempDirectory(Files.createDirectories(Path.of(args.length > 0 ? args[0] : "/tmp/order-bench")), "run");
+        int perRound = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:" + dataDir.resolve("orders") + ";DB_CLOSE_ON_EXIT=FALSE");
+        dataSource.setUsername("sa");
+        JdbcOrderRepository repository = new JdbcOrderRepository(dataSource);
+        long start = LocalDateTime.of(2026, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        AtomicLong nextOrder = new AtomicLong();
+        for (int round = 1; round <= rounds; round++) {
+            long commitsBefore = repository.getCommitCount();
+            long target = (long) perRound * round;
+            long began = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    Random random = new Random();
+                    long n;
+                    while ((n = nextOrder.getAndIncrement()) < target) {
+                        // 第n个订单的时间：在一年内均匀分布，每轮覆盖全年
+                        long millis = start + (n % perRound) * (YEAR_MILLIS / perRound);
+                        long id = (millis - SnowflakeIdGenerator.EPOCH_MILLIS)
+                                << (SnowflakeIdGenerator.WORKER_ID_BITS + SnowflakeIdGenerator.SEQUENCE_BITS)
+                                | (n / perRound) << SnowflakeIdGenerator.SEQUENCE_BITS | (n & 0xFFF);
+                        repository.save(new Order(id, (long) random.nextInt(USERS), 1L, "测试商品",
+                                new BigDecimal("99.00"), 1, new BigDecimal("99.00"), "CREATED",
+                                LocalDateTime.now())).join();
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            nextOrder.set(target);
+            long nanos = System.nanoTime() - began;
+            long commits = repository.getCommitCount() - commitsBefore;
+            System.out.printf("round %d: total=%,d inserts/s=%,d commits=%,d avg batch=%.1f%n", round, target,
+                    perRound * 1_000_000_000L / nanos, commits, (double) perRound / commits);
+
+            Random random = new Random(round);
+            long[] firstPage = new long[QUERIES];
+            long[] nextPage = new long[QUERIES];
+            int rows = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                long userId = random.nextInt(USERS);
+                long queryStart = System.nanoTime();
+                List<Order> page = repository.findByUser(userId, null, 10);
+                firstPage[q] = System.nanoTime() - queryStart;
+                rows += page.size();
+                queryStart = System.nanoTime();
+                repository.findByUser(userId, page.isEmpty() ? null : page.get(page.size() - 1).getId(), 10);
+                nextPage[q] = System.nanoTime() - queryStart;
+            }
+            Arrays.sort(firstPage);
+            Arrays.sort(nextPage);
+            System.out.printf("  my orders: avg rows=%.1f first page p50=%dus p99=%dus, next page p50=%dus p99=%dus%n",
+                    (double) rows / QUERIES, firstPage[QUERIES / 2] / 1000, firstPage[QUERIES * 99 / 100] / 1000,
+                    nextPage[QUERIES / 2] / 1000, nextPage[QUERIES * 99 / 100] / 1000);
+        }
+        repository.close();
+        dataSource.close();
+    }
+}
@@ -0,0 +1,127 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.FileEventTransport;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.outbox.OutboxRelay;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 发件箱基准（文件H2 + 文件事件日志）
+ * - 并发下单：只保存订单 与 订单和扣减库存事件同一事务保存，比较吞吐量和单次保存延迟
+ * - 转发：后台转发线程把发件箱中的事件写入事件日志，统计转发速率、fsync次数，以及提交到可读取的延迟
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.order.benchmark.OutboxBenchmark /tmp/outbox-bench 200000 64
+ * （参数：数据目录、每种方式的订单数、下单线程数）
+ */
+public class OutboxBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Files.createTempDirectory(Files.createDirectories(Path.of(args.length > 0 ? args[0] : "/tmp/outbox-bench")), "run");
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:" + dataDir.resolve("orders") + ";DB_CLOSE_ON_EXIT=FALSE");
+        dataSource.setUsername("sa");
+        JdbcOrderRepository repository = new JdbcOrderRepository(dataSource);
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+
+        // 预热
+        save(repository, idGenerator, 20_000, threads, true);
+        repository.deleteOutboxEvents(Long.MAX_VALUE);
+        for (boolean withEvents : new boolean[]{false, true}) {
+            long commitsBefore = repository.getCommitCount();
+            long began = System.nanoTime();
+            long[] latencies = save(repository, idGenerator, orders, threads, withEvents);
+            long nanos = System.nanoTime() - began;
+            System.out.printf("%-16s orders/s=%,d commits=%,d save p50=%dus p99=%dus%n",
+                    withEvents ? "order + event" : "order only", orders * 1_000_000_000L / nanos,
+                    repository.getCommitCount() - commitsBefore, latencies[latencies.length / 2] / 1000,
+                    latencies[latencies.length * 99 / 100] / 1000);
+        }
+
+        // 转发已积压的事件
+        long backlog = repository.countOutboxEvents();
+        FileEventTransport transport = new FileEventTransport(dataDir.resolve("events").toString(),
+                FileEventLog.DEFAULT_SEGMENT_BYTES, FileEventLog.DEFAULT_RETENTION);
+        long began = System.nanoTime();
+        OutboxRelay relay = new OutboxRelay(repository, transport, 500, Duration.ofMillis(20));
+        while (relay.getRelayedCount() < backlog) {
+            Thread.sleep(1);
+        }
+        long nanos = System.nanoTime() - began;
+        System.out.printf("relay backlog: events=%,d events/s=%,d%n", backlog, backlog * 1_000_000_000L / nanos);
+
+        // 逐个下单时从提交到消费方读到的延迟
+        FileEventLog.Reader reader = new FileEventLog(dataDir.resolve("events").resolve(StockDeductionEvent.TOPIC))
+                .reader(backlog);
+        int samples = 500;
+        long[] lag = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            save(repository, idGenerator, 1, 1, true);
+            long committed = System.nanoTime();
+            List<EventMessage> read;
+            while ((read = reader.poll(10)).isEmpty()) {
+                Thread.onSpinWait();
+            }
+            lag[i] = System.nanoTime() - committed;
+        }
+        Arrays.sort(lag);
+        System.out.printf("commit -> readable: p50=%dms p99=%dms%n", lag[samples / 2] / 1_000_000,
+                lag[samples * 99 / 100] / 1_000_000);
+        reader.close();
+        relay.close();
+        transport.close();
+        repository.close();
+        dataSource.close();
+    }
+
+    private static long[] save(JdbcOrderRepository repository, SnowflakeIdGenerator idGenerator, int orders,
+                               int threads, boolean withEvents) throws InterruptedException {
+        long[] latencies = new long[orders];
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                int n;
+                while ((n = next.getAndIncrement()) < orders) {
+                    long id = idGenerator.nextId();
+                    Order order = new Order(id, n % 1000L, 1L, "测试商品", new BigDecimal("99.00"), 1,
+                            new BigDecimal("99.00"), "CREATED", LocalDateTime.now());
+                    long start = System.nanoTime();
+                    if (withEvents) {
+                        repository.save(order, List.of(OutboxEvent.of(StockDeductionEvent.TOPIC, id,
+                                StockDeductionEvent.TYPE, new StockDeductionEvent(id, 1L, 1).encode()))).join();
+                    } else {
+                        repository.save(order).join();
+                    }
+                    latencies[n] = System.nanoTime() - start;
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+}
@@ -0,0 +1,169 @@
+package com.wheatmall.order.benchmark;
+
+import com.wheatmall.order.pricing.Cart;
+import com.wheatmall.order.pricing.Money;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.pricing.PromotionRule;
+import com.wheatmall.order.pricing.Quote;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计价基准测试
+ * - 下单结果：一行商品的总价和结果文本，BigDecimal + String.format（原实现）与分 + StringBuilder对比
+ * - 50行购物车、2000条促销规则（1000个商品、100个分类）：编译后的引擎与逐行扫描全部规则 + BigDecimal对比
+ * 分配量用 -prof gc 查看
+ *
+ * 运行方式：在IDE中直接运行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wheatmall.order.benchmark.PricingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    private static final int LINES = 50;
+
+    private final BigDecimal price = new BigDecimal("5999.00");
+
+    private final long priceCents = Money.toCents(price);
+
+    private List<PromotionRule> rules;
+
+    private PricingEngine engine;
+
+    private final Cart cart = new Cart();
+
+    private final Quote quote = new Quote();
+
+    private final long[] productIds = new long[LINES];
+
+    private final long[] categoryIds = new long[LINES];
+
+    private final BigDecimal[] prices = new BigDecimal[LINES];
+
+    private final int[] quantities = new int[LINES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<String> texts = new ArrayList<>();
+        for (int sku = 1; sku <= 1000; sku++) {
+            texts.add("sku:" + sku + (sku % 2 == 0 ? ":percent:" + (5 + sku % 20) : ":bundle:3:2"));
+        }
+        for (int category = 1; category <= 100; category++) {
+            texts.add("category:" + category + ":unit-off:" + (category % 9 + 1));
+            for (int tier = 1; tier <= 8; tier++) {
+                texts.add("category:" + category + ":threshold:" + tier * 100 + ":" + tier * 12);
+            }
+        }
+        texts.add("all:every:300:20");
+        engine = PricingEngine.parse(texts);
+        rules = engine.getRules();
+        for (int i = 0; i < LINES; i++) {
+            productIds[i] = 1 + random.nextInt(1000);
+            categoryIds[i] = 1 + random.nextInt(100);
+            prices[i] = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+            quantities[i] = 1 + random.nextInt(5);
+            cart.add(productIds[i], categoryIds[i], Money.toCents(prices[i]), quantities[i]);
+        }
+    }
+
+    @Benchmark
+    public String orderResultBigDecimal() {
+        BigDecimal totalAmount = price.multiply(new BigDecimal(10));
+        return String.format("订单创建成功！订单号：%d，商品：%s，单价：%s，数量：%d，总价：%s",
+                123456789L, "iPhone 15", price, 10, totalAmount);
+    }
+
+    @Benchmark
+    public String orderResultCents() {
+        long total = Money.multiply(priceCents, 10);
+        StringBuilder result = new StringBuilder(96).append("订单创建成功！订单号：").append(123456789L)
+                .append("，商品：").append("iPhone 15").append("，单价：");
+        Money.append(result, priceCents).append("，数量：").append(10);
+        return Money.append(result.append("，总价："), total).toString();
+    }
+
+    @Benchmark
+    public long cartEngine() {
+        return engine.price(cart, quote).total();
+    }
+
+    /**
+     * 对照：每行扫描全部规则，金额用BigDecimal
+     */
+    @Benchmark
+    public BigDecimal cartScan() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal lineDiscount = BigDecimal.ZERO;
+        BigDecimal[] categoryTotals = new BigDecimal[101];
+        BigDecimal all = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal amount = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal best = BigDecimal.ZERO;
+            for (PromotionRule rule : rules) {
+                boolean matches = rule.scope() == PromotionRule.Scope.SKU ? rule.targetId() == productIds[i]
+                        : rule.scope() == PromotionRule.Scope.CATEGORY && rule.targetId() == categoryIds[i];
+                if (!matches) {
+                    continue;
+                }
+                BigDecimal discount = switch (rule.type()) {
+                    case PERCENT -> amount.multiply(BigDecimal.valueOf(rule.value(), 4))
+                            .setScale(2, RoundingMode.HALF_UP);
+                    case UNIT_OFF -> prices[i].min(BigDecimal.valueOf(rule.value(), 2))
+                            .multiply(BigDecimal.valueOf(quantities[i]));
+                    case BUNDLE -> prices[i].multiply(BigDecimal.valueOf(
+                            quantities[i] / rule.threshold() * (rule.threshold() - rule.value())));
+                    default -> BigDecimal.ZERO;
+                };
+                best = best.max(discount);
+            }
+            subtotal = subtotal.add(amount);
+            lineDiscount = lineDiscount.add(best);
+            BigDecimal net = amount.subtract(best);
+            int category = (int) categoryIds[i];
+            categoryTotals[category] = categoryTotals[category] == null ? net : categoryTotals[category].add(net);
+            all = all.add(net);
+        }
+        // 满减：每个分类取达到门槛的最优档位
+        BigDecimal[] categoryBest = new BigDecimal[101];
+        for (PromotionRule rule : rules) {
+            if (rule.type() == PromotionRule.Type.THRESHOLD && rule.scope() == PromotionRule.Scope.CATEGORY) {
+                int category = (int) rule.targetId();
+                BigDecimal total = categoryTotals[category];
+                if (total != null && total.compareTo(BigDecimal.valueOf(rule.threshold(), 2)) >= 0) {
+                    BigDecimal value = BigDecimal.valueOf(rule.value(), 2);
+                    categoryBest[category] = categoryBest[category] == null ? value : categoryBest[category].max(value);
+                }
+            }
+        }
+        BigDecimal promotion = BigDecimal.ZERO;
+        for (BigDecimal best : categoryBest) {
+            if (best != null) {
+                promotion = promotion.add(best);
+            }
+        }
+        BigDecimal every = BigDecimal.valueOf(all.divideToIntegralValue(new BigDecimal(300)).longValue() * 20);
+        promotion = promotion.add(every);
+        return subtotal.subtract(lineDiscount).subtract(promotion);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PricingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.wheatmall.order.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.codec.BinaryCodec;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.order.dto.ProductDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务间编码基准测试：JSON vs Smile
+ * 分别统计单个商品和商品列表的传输字节数、编码吞吐量、解码吞吐量
+ *
+ * 运行方式：在IDE中直接运行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wheatmall.order.benchmark.ProductCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCodecBenchmark {
+
+    @Param({"json", "smile"})
+    public String codec;
+
+    @Param({"1", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private JavaType responseType;
+    private Object response;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = "smile".equals(codec)
+                ? BinaryCodec.smileObjectMapper()
+                : Jackson2ObjectMapperBuilder.json().build();
+        if (size == 1) {
+            response = R.ok(product(1L));
+            responseType = objectMapper.getTypeFactory().constructParametricType(R.class, ProductDTO.class);
+        } else {
+            response = R.ok(products(size));
+            responseType = objectMapper.getTypeFactory().constructParametricType(R.class,
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, ProductDTO.class));
+        }
+        encoded = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return objectMapper.readValue(encoded, responseType);
+    }
+
+    static ProductDTO product(long id) {
+        LocalDateTime now = LocalDateTime.now();
+        return new ProductDTO(id, "测试商品-" + id, new BigDecimal("5999.00").add(BigDecimal.valueOf(id)),
+                100, "这是一个测试商品", now, now);
+    }
+
+    static List<ProductDTO> products(int size) {
+        List<ProductDTO> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            list.add(product(i));
+        }
+        return list;
+    }
+
+    /**
+     * 先输出传输字节数，再运行吞吐量基准
+     */
+    public static void main(String[] args) throws Exception {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper smile = BinaryCodec.smileObjectMapper();
+        for (int size : new int[]{1, 1000}) {
+            Object response = size == 1 ? R.ok(product(1L)) : R.ok(products(size));
+            int jsonBytes = json.writeValueAsBytes(response).length;
+            int smileBytes = smile.writeValueAsBytes(response).length;
+            System.out.printf("size=%d json=%dB smile=%dB (%.1f%%)%n",
+                    size, jsonBytes, smileBytes, smileBytes * 100.0 / jsonBytes);
+        }
+        new Runner(new OptionsBuilder()
+                .include(ProductCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,176 @@
+package com.wheatmall.order.cart;
+
+import com.wheatmall.order.dto.CartLineView;
+import com.wheatmall.order.dto.CartView;
+import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * CartService单元测试（内存H2作为购物车存储，Product服务由OrderService的mock代替）
+ */
+class CartServiceTest {
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcCartStore cartStore;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        cartStore = new JdbcCartStore(dataSource);
+        orderService = mock(OrderService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    @Test
+    void testSetRemoveAndClear() {
+        CartService carts = new CartService(orderService, cartStore, 1000, 3);
+
+        carts.setQuantity(42L, 1L, 2);
+        carts.setQuantity(42L, 2L, 1);
+        CartView cart = carts.setQuantity(42L, 1L, 5);
+        assertEquals(List.of(1L, 2L), cart.getLines().stream().map(CartLineView::getProductId).toList());
+        assertEquals(5, cart.getLines().get(0).getQuantity());
+        // 未刷新：价格未知，不可购买，不计入总金额
+        assertNull(cart.getLines().get(0).getPrice());
+        assertFalse(cart.getLines().get(0).getAvailable());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cart.getTotalAmount()));
+        assertNull(cart.getRefreshTime());
+
+        carts.setQuantity(42L, 3L, 1);
+        assertThrows(IllegalStateException.class, () -> carts.setQuantity(42L, 4L, 1));
+        assertThrows(IllegalArgumentException.class, () -> carts.setQuantity(42L, 1L, 0));
+
+        cart = carts.remove(42L, 1L);
+        assertEquals(List.of(2L, 3L), cart.getLines().stream().map(CartLineView::getProductId).toList());
+        assertEquals(2, carts.remove(42L, 99L).getLines().size());
+        assertTrue(carts.clear(42L).getLines().isEmpty());
+        // 其他用户的购物车不受影响
+        assertTrue(carts.get(7L).getLines().isEmpty());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testOpenRefreshesInOneBatchCall() {
+        CartService carts = new CartService(orderService, cartStore, 1000, 100);
+        carts.setQuantity(42L, 1L, 2);
+        carts.setQuantity(42L, 2L, 3);
+        carts.setQuantity(42L, 3L, 1);
+        when(orderService.getProductsForOrder(List.of(1L, 2L, 3L))).thenReturn(List.of(
+                new ProductDTO(1L, "iPhone 15", new BigDecimal("5999.00"), 10, null, null, null),
+                new ProductDTO(2L, "AirPods", new BigDecimal("1299.50"), 2, null, null, null)));
+
+        CartView cart = carts.open(42L);
+        verify(orderService, times(1)).getProductsForOrder(anyList());
+        assertNotNull(cart.getRefreshTime());
+        CartLineView iphone = cart.getLines().get(0);
+        assertEquals("iPhone 15", iphone.getProductName());
+        assertEquals(new BigDecimal("5999.00"), iphone.getPrice());
+        assertTrue(iphone.getAvailable());
+        // 库存不足
+        CartLineView airPods = cart.getLines().get(1);
+        assertEquals(2, airPods.getStock());
+        assertFalse(airPods.getAvailable());
+        // 商品不存在
+        CartLineView missing = cart.getLines().get(2);
+        assertNull(missing.getPrice());
+        assertNull(missing.getStock());
+        assertFalse(missing.getAvailable());
+        assertEquals(new BigDecimal("11998.00"), cart.getTotalAmount());
+
+        // 查看不再调用Product服务，结果与上次刷新一致
+        assertEquals(cart, carts.get(42L));
+        verifyNoMoreInteractions(orderService);
+    }
+
+    @Test
+    void testOpenFallsBackWhenProductServiceFails() {
+        CartService carts = new CartService(orderService, cartStore, 1000, 100);
+        carts.setQuantity(42L, 1L, 1);
+        when(orderService.getProductsForOrder(anyList()))
+                .thenReturn(List.of(new ProductDTO(1L, "iPhone 15", new BigDecimal("5999.00"), 10, null, null, null)))
+                .thenThrow(new IllegalStateException("Product服务不可用"));
+        CartView refreshed = carts.open(42L);
+
+        assertEquals(refreshed, carts.open(42L));
+        // 空购物车不调用Product服务
+        assertTrue(carts.open(7L).getLines().isEmpty());
+        verify(orderService, times(2)).getProductsForOrder(anyList());
+    }
+
+    @Test
+    void testEvictedCartsWrittenToStoreAndReloaded() {
+        CartService carts = new CartService(orderService, cartStore, 16, 100);
+        int users = 200;
+        for (long userId = 1; userId <= users; userId++) {
+            carts.setQuantity(userId, 1000 + userId, (int) userId);
+        }
+        assertTrue(carts.getCachedCount() <= 16);
+        assertEquals(users - carts.getCachedCount(), carts.getEvictionCount());
+        assertEquals(carts.getEvictionCount(), cartStore.count());
+
+        for (long userId = 1; userId <= users; userId++) {
+            CartLineView line = carts.get(userId).getLines().get(0);
+            assertEquals(1000 + userId, line.getProductId());
+            assertEquals((int) userId, line.getQuantity());
+        }
+        // 清空后被淘汰的购物车从存储中删除
+        for (long userId = 1; userId <= users; userId++) {
+            carts.clear(userId);
+        }
+        carts.flush();
+        assertEquals(0, cartStore.count());
+    }
+
+    @Test
+    void testFlushSavesCartsForNextStart() {
+        CartService carts = new CartService(orderService, cartStore, 1000, 100);
+        carts.setQuantity(42L, 1L, 2);
+        carts.setQuantity(42L, 2L, 1);
+        carts.get(7L);
+        carts.flush();
+        // 只保存非空的购物车
+        assertEquals(1, cartStore.count());
+
+        CartService restarted = new CartService(orderService, cartStore, 1000, 100);
+        CartView cart = restarted.get(42L);
+        assertEquals(List.of(1L, 2L), cart.getLines().stream().map(CartLineView::getProductId).toList());
+        assertEquals(2, cart.getLines().get(0).getQuantity());
+        assertEquals(1, restarted.getLoadCount());
+    }
+
+    @Test
+    void testEncodeRoundTrip() {
+        UserCart cart = new UserCart(42L);
+        for (int i = 0; i < 10; i++) {
+            cart.set(100L + i, i + 1, 100);
+        }
+        cart.remove(103L);
+        UserCart decoded = UserCart.decode(42L, cart.encode());
+        assertEquals(9, decoded.size());
+        assertEquals(104L, decoded.productId(3));
+        assertEquals(5, decoded.quantity(3));
+        assertEquals(UserCart.UNKNOWN, decoded.unitPrice(3));
+        assertFalse(decoded.dirty);
+        assertThrows(IllegalArgumentException.class, () -> UserCart.decode(42L, new byte[] {1, 0, 0, 0, 2}));
+    }
+}
@@ -1,20 +1,50 @@
 package com.wheatmall.order.controller;
 
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.order.cart.CartService;
+import com.wheatmall.order.dto.CartView;
 import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.idempotency.IdempotencyService;
+import com.wheatmall.order.idempotency.InMemoryIdempotencyStore;
+import com.wheatmall.order.intake.IntakeStatus;
+import com.wheatmall.order.intake.OrderIntakeService;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.repository.OrderRepository;
 import com.wheatmall.order.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -26,6 +56,28 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderIntakeService orderIntakeService;
+
+    @Mock
+    private OrderPartitions orderPartitions;
+
+    @Mock
+    private CartService cartService;
+
+    @Spy
+    private SnowflakeIdGenerator orderIdGenerator = new SnowflakeIdGenerator(7);
+
+    @Spy
+    private IdempotencyService idempotencyService = new IdempotencyService(
+            new InMemoryIdempotencyStore(Duration.ofHours(1), 100), Duration.ofSeconds(1));
+
+    @Spy
+    private PricingEngine pricingEngine = PricingEngine.parse(List.of("coupon:SAVE100:threshold:1000:100"));
+
     @InjectMocks
     private OrderController orderController;
 
@@ -74,39 +126,94 @@ class OrderControllerTest {
         List<ProductDTO> productList = Arrays.asList(mockProduct, product2);
 
         // 模拟service调用
-        when(orderService.getProductList()).thenReturn(productList);
+        when(orderService.getProductPage(null, 100, null)).thenReturn(
+                ResponseEntity.ok().eTag("\"L1\"").body(R.ok(productList).put(OrderController.NEXT_CURSOR, 2L)));
 
         // 执行测试
-        List<ProductDTO> result = orderController.getProductList();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        R<List<ProductDTO>> result = orderController.getProductList(null, null,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/order/products"), response));
 
         // 验证结果
         assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("iPhone 15", result.get(0).getName());
-        assertEquals("MacBook Pro", result.get(1).getName());
+        assertEquals(2, result.getData().size());
+        assertEquals("iPhone 15", result.getData().get(0).getName());
+        assertEquals("MacBook Pro", result.getData().get(1).getName());
+        assertEquals(2L, result.get(OrderController.NEXT_CURSOR));
+        assertEquals("\"L1\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testGetProductListNotModified() {
+        // Product服务按透传的If-None-Match返回304，没有响应体
+        when(orderService.getProductPage(2L, 10, "\"L1\"")).thenReturn(
+                ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"L1\"").build());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/order/products");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"L1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        R<List<ProductDTO>> result = orderController.getProductList(2L, 10, new ServletWebRequest(request, response));
+
+        assertNull(result);
+        assertEquals(304, response.getStatus());
     }
 
     @Test
     void testCreateOrderSuccess() {
         // 模拟service调用
-        when(orderService.getProductById(1L)).thenReturn(mockProduct);
+        when(orderService.getProductForOrder(1L)).thenReturn(mockProduct);
+        when(orderPartitions.create(any(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                invocation.getArgument(0)));
 
         // 执行测试 - 库存充足
-        String result = orderController.createOrder(1L, 10);
+        String result = orderController.createOrder(1L, 10, 42L, null, null);
 
         // 验证结果
         assertNotNull(result);
         assertTrue(result.contains("订单创建成功"));
         assertTrue(result.contains("iPhone 15"));
+        assertTrue(result.endsWith("单价：5999.00，数量：10，总价：59990.00"), result);
+        // 订单号由本实例的机器ID生成
+        long orderId = Long.parseLong(result.replaceAll(".*订单号：(\\d+).*", "$1"));
+        assertEquals(7, SnowflakeIdGenerator.workerIdOf(orderId));
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderPartitions).create(saved.capture(), events.capture());
+        assertEquals(orderId, saved.getValue().getId());
+        assertEquals(42L, saved.getValue().getUserId());
+        assertEquals(new BigDecimal("59990.00"), saved.getValue().getTotalAmount());
+        // 扣减库存事件随订单写入发件箱，事件ID为订单号
+        assertEquals(1, events.getValue().size());
+        OutboxEvent event = events.getValue().get(0);
+        assertEquals(StockDeductionEvent.TOPIC, event.topic());
+        assertEquals(orderId, event.eventId());
+        assertEquals(new StockDeductionEvent(orderId, 1L, 10, 42L), StockDeductionEvent.decode(event.payload()));
+    }
+
+    @Test
+    void testCreateOrderWithCoupon() {
+        when(orderService.getProductForOrder(1L)).thenReturn(mockProduct);
+        when(orderPartitions.create(any(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                invocation.getArgument(0)));
+
+        String result = orderController.createOrder(1L, 10, 42L, "SAVE100", null);
+
+        assertTrue(result.endsWith("单价：5999.00，数量：10，优惠：100.00，总价：59890.00"), result);
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderPartitions).create(saved.capture(), any());
+        assertEquals(new BigDecimal("59890.00"), saved.getValue().getTotalAmount());
+        assertEquals(new BigDecimal("5999.00"), saved.getValue().getPrice());
     }
 
     @Test
     void testCreateOrderProductNotFound() {
         // 模拟service调用 - 商品不存在
-        when(orderService.getProductById(999L)).thenReturn(null);
+        when(orderService.getProductForOrder(999L)).thenReturn(null);
 
         // 执行测试
-        String result = orderController.createOrder(999L, 1);
+        String result = orderController.createOrder(999L, 1, 42L, null, null);
 
         // 验证结果
         assertEquals("商品不存在", result);
@@ -115,12 +222,148 @@ class OrderControllerTest {
     @Test
     void testCreateOrderStockNotEnough() {
         // 模拟service调用
-        when(orderService.getProductById(1L)).thenReturn(mockProduct);
+        when(orderService.getProductForOrder(1L)).thenReturn(mockProduct);
 
         // 执行测试 - 库存不足（库存50，请求100）
-        String result = orderController.createOrder(1L, 100);
+        String result = orderController.createOrder(1L, 100, 42L, null, null);
 
         // 验证结果
         assertEquals("库存不足", result);
     }
+
+    @Test
+    void testCreateOrderInvalidQuantity() {
+        // 数量不合法时不查询商品，也不占用幂等键
+        assertEquals(BizCodeEnum.PARAM_ERROR.getMessage(), orderController.createOrder(1L, 0, 42L, null, "key-1"));
+        assertEquals(BizCodeEnum.PARAM_ERROR.getMessage(), orderController.createOrder(1L, -1, 42L, null, null));
+        assertEquals(BizCodeEnum.PARAM_ERROR.getMessage(), orderController.createOrder(1L, null, 42L, null, null));
+        assertEquals(BizCodeEnum.PARAM_ERROR.getMessage(),
+                orderController.createOrder(1L, OrderIntakeService.MAX_QUANTITY + 1, 42L, null, null));
+        verifyNoInteractions(orderService, orderPartitions, idempotencyService);
+    }
+
+    @Test
+    void testCreateOrderIdempotent() {
+        when(orderService.getProductForOrder(1L)).thenReturn(mockProduct);
+        when(orderPartitions.create(any(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                invocation.getArgument(0)));
+
+        // 同一用户重复提交同一个幂等键，只下单一次，返回第一次的结果
+        String first = orderController.createOrder(1L, 10, 42L, null, "key-1");
+        String retried = orderController.createOrder(1L, 10, 42L, null, "key-1");
+        assertTrue(first.contains("订单创建成功"));
+        assertEquals(first, retried);
+        verify(orderPartitions, times(1)).create(any(), any());
+
+        // 不同的键、不同的用户各自下单
+        assertNotEquals(first, orderController.createOrder(1L, 10, 42L, null, "key-2"));
+        assertNotEquals(first, orderController.createOrder(1L, 10, 43L, null, "key-1"));
+        verify(orderPartitions, times(3)).create(any(), any());
+
+        assertEquals("幂等键过长", orderController.createOrder(1L, 10, 42L, null, "k".repeat(129)));
+        // 加上用户前缀"42:"后超过128字符
+        assertEquals("幂等键过长", orderController.createOrder(1L, 10, 42L, null, "k".repeat(128)));
+        assertEquals("幂等键过长", orderController.createOrder(1L, 10, 42L, null, "k".repeat(126)));
+        assertTrue(orderController.createOrder(1L, 10, 42L, null, "k".repeat(125)).contains("订单创建成功"));
+
+        // 幂等服务拒绝的键返回参数错误，不抛到容器
+        doThrow(new IllegalArgumentException("幂等键超过128字符")).when(idempotencyService).execute(any(), any());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getMessage(), orderController.createOrder(1L, 10, 42L, null, "key-3"));
+    }
+
+    @Test
+    void testSubmitOrder() {
+        when(orderIntakeService.submit(42L, 1L, 2, null)).thenReturn(123L);
+        when(orderIntakeService.getStatus(123L)).thenReturn(
+                new IntakeStatus(123L, IntakeStatus.State.PENDING, null));
+
+        R<Long> accepted = orderController.submitOrder(1L, 2, 42L, null);
+        assertEquals(0, accepted.getCode());
+        assertEquals(123L, accepted.getData());
+        assertEquals(IntakeStatus.State.PENDING, orderController.getSubmitStatus(123L).getData().state());
+        assertEquals(BizCodeEnum.ORDER_NOT_FOUND.getCode(), orderController.getSubmitStatus(124L).getCode());
+
+        // 排队已满
+        when(orderIntakeService.submit(42L, 1L, 3, null)).thenReturn(null);
+        assertEquals(BizCodeEnum.ORDER_QUEUE_FULL.getCode(), orderController.submitOrder(1L, 3, 42L, null).getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), orderController.submitOrder(1L, 0, 42L, null).getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(),
+                orderController.submitOrder(1L, OrderIntakeService.MAX_QUANTITY + 1, 42L, null).getCode());
+
+        // 回调地址不在允许的范围内
+        when(orderIntakeService.submit(42L, 1L, 4, "http://127.0.0.1:8090/"))
+                .thenThrow(new IllegalArgumentException("回调地址不在允许的范围内: http://127.0.0.1:8090/"));
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(),
+                orderController.submitOrder(1L, 4, 42L, "http://127.0.0.1:8090/").getCode());
+    }
+
+    @Test
+    void testPayAndCancelOrder() {
+        Order paid = new Order(100L, 42L, 1L, "iPhone 15", new BigDecimal("5999.00"), 1, new BigDecimal("5999.00"),
+                OrderController.STATUS_PAID, LocalDateTime.now());
+        when(orderPartitions.pay(42L, 100L)).thenReturn(CompletableFuture.completedFuture(paid));
+        when(orderPartitions.pay(43L, 100L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderPartitions.cancel(42L, 100L)).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("订单状态为PAID")));
+
+        assertEquals(paid, orderController.payOrder(100L, 42L).join().getData());
+        assertEquals(BizCodeEnum.ORDER_NOT_FOUND.getCode(), orderController.payOrder(100L, 43L).join().getCode());
+        assertEquals(BizCodeEnum.ORDER_STATUS_INVALID.getCode(),
+                orderController.cancelOrder(100L, 42L).join().getCode());
+    }
+
+    @Test
+    void testShipOrder() {
+        Order shipped = new Order(100L, 42L, 1L, "iPhone 15", new BigDecimal("5999.00"), 1, new BigDecimal("5999.00"),
+                OrderController.STATUS_SHIPPED, LocalDateTime.now());
+        when(orderPartitions.ship(42L, 100L)).thenReturn(CompletableFuture.completedFuture(shipped));
+        when(orderPartitions.ship(42L, 101L)).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("订单状态为CREATED")));
+
+        assertEquals(shipped, orderController.shipOrder(100L, 42L).join().getData());
+        assertEquals(BizCodeEnum.ORDER_STATUS_INVALID.getCode(), orderController.shipOrder(101L, 42L).join().getCode());
+    }
+
+    @Test
+    void testGetOrder() {
+        Order order = new Order(100L, 42L, 1L, "iPhone 15", new BigDecimal("5999.00"), 1, new BigDecimal("5999.00"),
+                OrderController.STATUS_CREATED, LocalDateTime.now());
+        when(orderRepository.findById(100L)).thenReturn(order);
+
+        assertEquals(order, orderController.getOrder(100L).getData());
+        assertEquals(BizCodeEnum.ORDER_NOT_FOUND.getCode(), orderController.getOrder(101L).getCode());
+    }
+
+    @Test
+    void testGetUserOrders() {
+        List<Order> page = List.of(new Order(200L, 42L, 1L, "iPhone 15", new BigDecimal("5999.00"), 1,
+                new BigDecimal("5999.00"), OrderController.STATUS_CREATED, LocalDateTime.now()),
+                new Order(100L, 42L, 1L, "iPhone 15", new BigDecimal("5999.00"), 1,
+                        new BigDecimal("5999.00"), OrderController.STATUS_CREATED, LocalDateTime.now()));
+        when(orderRepository.findByUser(42L, null, 2)).thenReturn(page);
+        when(orderRepository.findByUser(42L, 100L, 2)).thenReturn(List.of());
+
+        R<List<Order>> first = orderController.getUserOrders(42L, null, 2);
+        assertEquals(page, first.getData());
+        assertEquals(100L, first.get(OrderController.NEXT_CURSOR));
+        R<List<Order>> second = orderController.getUserOrders(42L, 100L, 2);
+        assertTrue(second.getData().isEmpty());
+        assertNull(second.get(OrderController.NEXT_CURSOR));
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), orderController.getUserOrders(42L, null, 101).getCode());
+    }
+
+    @Test
+    void testCart() {
+        CartView cart = new CartView(42L, List.of(), BigDecimal.ZERO, null);
+        when(cartService.open(42L)).thenReturn(cart);
+        when(cartService.setQuantity(42L, 1L, 2)).thenReturn(cart);
+        when(cartService.setQuantity(42L, 2L, 1)).thenThrow(new IllegalStateException("购物车最多100种商品"));
+
+        assertEquals(cart, orderController.getCart(42L, true).getData());
+        assertEquals(cart, orderController.setCartItem(42L, 1L, 2).getData());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), orderController.setCartItem(42L, 1L, 0).getCode());
+        R<CartView> full = orderController.setCartItem(42L, 2L, 1);
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), full.getCode());
+        assertEquals("购物车最多100种商品", full.getMsg());
+    }
 }
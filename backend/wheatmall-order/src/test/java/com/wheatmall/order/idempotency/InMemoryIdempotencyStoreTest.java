@@ -0,0 +1,176 @@
+package com.wheatmall.order.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InMemoryIdempotencyStore及IdempotencyService单元测试
+ */
+class InMemoryIdempotencyStoreTest {
+
+    @Test
+    void testCompletedKeyReturnsResult() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 100);
+
+        assertNull(store.begin("a"));
+        store.complete("a", "order-1");
+
+        CompletableFuture<String> existing = store.begin("a");
+        assertNotNull(existing);
+        assertEquals("order-1", existing.join());
+    }
+
+    @Test
+    void testExpiredKeyCanBeClaimedAgain() {
+        AtomicLong now = new AtomicLong(1_000);
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofSeconds(10), 100, now::get);
+
+        assertNull(store.begin("a"));
+        store.complete("a", "order-1");
+        now.addAndGet(9_999);
+        assertEquals("order-1", store.begin("a").join());
+
+        now.addAndGet(1);
+        assertNull(store.begin("a"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testMaxKeysEvictsOldest() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 3);
+        for (int i = 0; i < 10; i++) {
+            assertNull(store.begin("key-" + i));
+            store.complete("key-" + i, "order-" + i);
+            assertTrue(store.size() <= 3);
+        }
+        // 最早的键已淘汰，最近的键仍然有效
+        assertNull(store.begin("key-0"));
+        assertEquals("order-9", store.begin("key-9").join());
+    }
+
+    @Test
+    void testMaxKeysKeepsInFlightKeys() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 2);
+        assertNull(store.begin("running"));
+        assertNull(store.begin("done-1"));
+        store.complete("done-1", "order-1");
+
+        // 超过上限时跳过执行中的键，淘汰最早的已完成的键
+        assertNull(store.begin("done-2"));
+        store.complete("done-2", "order-2");
+        CompletableFuture<String> duplicate = store.begin("running");
+        assertNotNull(duplicate);
+        assertFalse(duplicate.isDone());
+        assertNull(store.begin("done-1"));
+        assertEquals(2, store.size());
+
+        // 只剩执行中的键时暂时超过上限，重复请求仍然等待第一次的结果
+        assertNull(store.begin("other"));
+        assertEquals(3, store.size());
+        assertNotNull(store.begin("running"));
+        store.complete("running", "order-0");
+        assertEquals("order-0", duplicate.join());
+    }
+
+    @Test
+    void testAbortReleasesKey() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 100);
+
+        assertNull(store.begin("a"));
+        CompletableFuture<String> waiting = store.begin("a");
+        store.abort("a");
+        assertTrue(waiting.isCompletedExceptionally());
+        assertNull(store.begin("a"));
+
+        // 释放的键移出队列，反复失败重试不占用容量
+        for (int i = 0; i < 10; i++) {
+            store.abort("a");
+            assertNull(store.begin("a"));
+        }
+        assertEquals(1, store.size());
+        assertEquals(1, store.queued());
+    }
+
+    @Test
+    void testConcurrentDuplicatesExecuteOnce() throws Exception {
+        IdempotencyService service = new IdempotencyService(
+                new InMemoryIdempotencyStore(Duration.ofHours(1), 100), Duration.ofSeconds(10));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // 第一个请求执行中时到达的重复请求都等待它的结果
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> service.execute("k", () -> {
+            executions.incrementAndGet();
+            running.countDown();
+            await(release);
+            return "order-1";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<String>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            duplicates.add(CompletableFuture.supplyAsync(() -> service.execute("k", () -> {
+                executions.incrementAndGet();
+                return "order-dup";
+            })));
+        }
+        release.countDown();
+
+        assertEquals("order-1", first.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<String> duplicate : duplicates) {
+            assertEquals("order-1", duplicate.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testFailedExecutionCanBeRetried() {
+        IdempotencyService service = new IdempotencyService(
+                new InMemoryIdempotencyStore(Duration.ofHours(1), 100), Duration.ofSeconds(1));
+
+        assertThrows(IllegalArgumentException.class, () -> service.execute("k", () -> {
+            throw new IllegalArgumentException("商品服务不可用");
+        }));
+        assertEquals("order-2", service.execute("k", () -> "order-2"));
+        assertEquals("order-2", service.execute("k", () -> "order-3"));
+    }
+
+    @Test
+    void testWaitTimeout() throws Exception {
+        IdempotencyService service = new IdempotencyService(
+                new InMemoryIdempotencyStore(Duration.ofHours(1), 100), Duration.ofMillis(50));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> service.execute("k", () -> {
+            running.countDown();
+            await(release);
+            return "order-1";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> service.execute("k", () -> "order-dup"));
+
+        // 超时的请求不影响第一个请求，之后的重复请求仍得到它的结果
+        release.countDown();
+        assertEquals("order-1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("order-1", service.execute("k", () -> "order-dup"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
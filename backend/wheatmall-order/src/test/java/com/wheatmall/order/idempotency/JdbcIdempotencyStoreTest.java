@@ -0,0 +1,102 @@
+package com.wheatmall.order.idempotency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcIdempotencyStore单元测试（内存H2，两个存储实例模拟两个订单服务实例）
+ */
+class JdbcIdempotencyStoreTest {
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcIdempotencyStore first;
+
+    private JdbcIdempotencyStore second;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        first = new JdbcIdempotencyStore(dataSource, Duration.ofHours(1));
+        second = new JdbcIdempotencyStore(dataSource, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    @Test
+    void testSharedBetweenInstances() throws Exception {
+        assertNull(first.begin("a"));
+        // 另一个实例的重复请求等待执行中的结果
+        CompletableFuture<String> waiting = second.begin("a");
+        assertNotNull(waiting);
+        assertFalse(waiting.isDone());
+
+        first.complete("a", "order-1");
+        assertEquals("order-1", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals("order-1", second.begin("a").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAbortReleasesKey() {
+        assertNull(first.begin("a"));
+        CompletableFuture<String> waiting = second.begin("a");
+        first.abort("a");
+
+        assertThrows(CancellationException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertNull(second.begin("a"));
+    }
+
+    @Test
+    void testExpiredKeyCanBeClaimedAgain() {
+        JdbcIdempotencyStore shortLived = new JdbcIdempotencyStore(dataSource, Duration.ZERO);
+        try {
+            assertNull(shortLived.begin("a"));
+            shortLived.complete("a", "order-1");
+            assertNull(shortLived.begin("a"));
+        } finally {
+            shortLived.close();
+        }
+    }
+
+    @Test
+    void testServiceExecutesOnceAcrossInstances() throws Exception {
+        IdempotencyService firstService = new IdempotencyService(first, Duration.ofSeconds(10));
+        IdempotencyService secondService = new IdempotencyService(second, Duration.ofSeconds(10));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> original = CompletableFuture.supplyAsync(() -> firstService.execute("k", () -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "order-1";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(
+                () -> secondService.execute("k", () -> "order-dup"));
+        release.countDown();
+
+        assertEquals("order-1", original.get(5, TimeUnit.SECONDS));
+        assertEquals("order-1", duplicate.get(5, TimeUnit.SECONDS));
+    }
+}
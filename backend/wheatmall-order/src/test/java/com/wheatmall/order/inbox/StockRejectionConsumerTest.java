@@ -0,0 +1,137 @@
+package com.wheatmall.order.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StockRejectionConsumer单元测试（文件事件日志 + 内存H2）
+ */
+class StockRejectionConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(5);
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcOrderRepository repository;
+
+    private OrderPartitions partitions;
+
+    private FileEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        repository = new JdbcOrderRepository(dataSource);
+        partitions = new OrderPartitions(repository, 2, 64, Duration.ofMinutes(30));
+        eventLog = new FileEventLog(dir.resolve("events"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+        partitions.close();
+        repository.close();
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    private StockRejectionConsumer consumer() {
+        return new StockRejectionConsumer(partitions, dir.resolve("events"),
+                dir.resolve("consumers").resolve("stock-deduction-rejected.offset"), 100, Duration.ofMillis(5), false);
+    }
+
+    private Order newOrder(long userId) {
+        Order order = new Order(idGenerator.nextId(), userId, 1L, "iPhone 15", new BigDecimal("5999.00"), 1,
+                new BigDecimal("5999.00"), OrderController.STATUS_CREATED, LocalDateTime.now());
+        return partitions.create(order).join();
+    }
+
+    private void publishRejected(Order... orders) throws IOException {
+        List<EventMessage> events = new ArrayList<>();
+        for (Order order : orders) {
+            StockDeductionEvent event = new StockDeductionEvent(order.getId(), order.getProductId(),
+                    order.getQuantity(), order.getUserId());
+            events.add(EventMessage.of(order.getId(), StockDeductionEvent.REJECTED_TYPE, event.encode()));
+        }
+        eventLog.append(events);
+    }
+
+    @Test
+    void testRejectedOrdersFailAndCannotBePaid() throws IOException {
+        Order rejected = newOrder(42L);
+        Order paid = newOrder(43L);
+        Order untouched = newOrder(44L);
+        partitions.pay(43L, paid.getId()).join();
+
+        StockRejectionConsumer consumer = consumer();
+        try {
+            assertEquals(0, consumer.consumeOnce());
+            publishRejected(rejected, paid);
+            assertEquals(2, consumer.consumeOnce());
+            assertEquals(1, consumer.getFailedCount());
+            // 支付先于拒绝到达的订单不变，需人工退款
+            assertEquals(1, consumer.getConflictCount());
+            assertEquals(2, consumer.getPosition());
+        } finally {
+            consumer.close();
+        }
+        assertEquals(OrderController.STATUS_FAILED, repository.findById(rejected.getId()).getStatus());
+        assertEquals(OrderController.STATUS_PAID, repository.findById(paid.getId()).getStatus());
+        assertEquals(OrderController.STATUS_CREATED, repository.findById(untouched.getId()).getStatus());
+
+        // 下单失败的订单不能支付或取消
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> partitions.pay(42L, rejected.getId()).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(CompletionException.class, () -> partitions.cancel(42L, rejected.getId()).join());
+    }
+
+    @Test
+    void testRestartResumesFromCheckpoint() throws IOException {
+        Order first = newOrder(42L);
+        Order second = newOrder(42L);
+        publishRejected(first);
+        StockRejectionConsumer consumer = consumer();
+        assertEquals(1, consumer.consumeOnce());
+        consumer.close();
+
+        // 重启后从消费位置继续；重复的事件不改变已失败的订单
+        publishRejected(first, second);
+        StockRejectionConsumer restarted = consumer();
+        try {
+            assertEquals(2, restarted.consumeOnce());
+            assertEquals(1, restarted.getFailedCount());
+            assertEquals(0, restarted.getConflictCount());
+            assertEquals(3, restarted.getPosition());
+        } finally {
+            restarted.close();
+        }
+        assertEquals(OrderController.STATUS_FAILED, repository.findById(second.getId()).getStatus());
+    }
+}
@@ -0,0 +1,385 @@
+package com.wheatmall.order.intake;
+
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.dto.StockDeductionDTO;
+import com.wheatmall.order.dto.StockDeductionResultDTO;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.EventTransport;
+import com.wheatmall.order.partition.OrderPartitions;
+import com.wheatmall.order.pricing.PricingEngine;
+import com.wheatmall.order.repository.OrderRepository;
+import com.wheatmall.order.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderIntakeService单元测试（Product服务和订单存储使用内存模拟）
+ */
+class OrderIntakeServiceTest {
+
+    private final StubProductService productService = new StubProductService();
+
+    private final MemoryOrderRepository orderRepository = new MemoryOrderRepository();
+
+    private final RecordingTransport transport = new RecordingTransport();
+
+    private final OrderPartitions orderPartitions = new OrderPartitions(orderRepository, 2, 64,
+            Duration.ofMinutes(30));
+
+    private OrderIntakeService intake;
+
+    @AfterEach
+    void tearDown() {
+        productService.release.countDown();
+        if (intake != null) {
+            intake.close();
+        }
+        orderPartitions.close();
+    }
+
+    private OrderIntakeService create(int bufferSize) {
+        // 商品1打9折
+        intake = new OrderIntakeService(productService, orderRepository, orderPartitions, new SnowflakeIdGenerator(3),
+                PricingEngine.parse(List.of("sku:1:percent:10")), WebClient.create(), transport,
+                List.of("Hooks.Example.com"), bufferSize, 512);
+        return intake;
+    }
+
+    /**
+     * 等待写入指定数量的释放库存事件
+     */
+    private List<StockDeductionEvent> awaitReleases(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (transport.releases.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return List.copyOf(transport.releases);
+    }
+
+    private IntakeStatus awaitDone(long orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            IntakeStatus status = intake.getStatus(orderId);
+            if (status.state() != IntakeStatus.State.PENDING) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        fail("订单未处理完: " + orderId);
+        return null;
+    }
+
+    @Test
+    void testOrdersAreBatchedByProduct() throws Exception {
+        create(64);
+        productService.stock.put(1L, 100);
+        productService.stock.put(2L, 100);
+        productService.blockFirstCall = true;
+
+        // 第一个订单处理期间到达的订单在下一批中一起处理
+        long first = intake.submit(42L, 1L, 1, null);
+        assertTrue(productService.firstCall.await(5, TimeUnit.SECONDS));
+        List<Long> orderIds = new ArrayList<>();
+        long[] products = {1, 2, 1, 2, 1, 1};
+        for (long productId : products) {
+            orderIds.add(intake.submit(42L, productId, 2, null));
+        }
+        assertEquals(IntakeStatus.State.PENDING, intake.getStatus(orderIds.get(0)).state());
+        productService.release.countDown();
+
+        assertEquals(IntakeStatus.State.CREATED, awaitDone(first).state());
+        for (long orderId : orderIds) {
+            assertEquals(IntakeStatus.State.CREATED, awaitDone(orderId).state());
+        }
+        assertEquals(2, productService.calls.size());
+        assertEquals(List.of(new StockDeductionDTO(1L, 8), new StockDeductionDTO(2L, 4)), productService.calls.get(1));
+        assertEquals(91, productService.stock.get(1L));
+        assertEquals(96, productService.stock.get(2L));
+
+        Order saved = orderRepository.orders.get(orderIds.get(1));
+        assertEquals(42L, saved.getUserId());
+        assertEquals("商品2", saved.getProductName());
+        assertEquals(new BigDecimal("20.00"), saved.getTotalAmount());
+        assertEquals(new BigDecimal("9.00"), orderRepository.orders.get(orderIds.get(0)).getTotalAmount());
+        assertEquals(2, intake.getBatchCount());
+        assertEquals(7, intake.getProcessedCount());
+        assertEquals(0, intake.getQueueDepth());
+    }
+
+    @Test
+    void testInsufficientStockFitsOrdersInArrivalOrder() throws Exception {
+        create(64);
+        productService.stock.put(1L, 5);
+        productService.blockFirstCall = true;
+
+        long blocker = intake.submit(1L, 2L, 1, null);
+        assertTrue(productService.firstCall.await(5, TimeUnit.SECONDS));
+        long a = intake.submit(1L, 1L, 3, null);
+        long b = intake.submit(2L, 1L, 3, null);
+        long c = intake.submit(3L, 1L, 2, null);
+        productService.release.countDown();
+
+        assertEquals(IntakeStatus.State.FAILED, awaitDone(blocker).state());
+        assertEquals(BizCodeEnum.PRODUCT_NOT_FOUND.getMessage(), intake.getStatus(blocker).message());
+        assertEquals(IntakeStatus.State.CREATED, awaitDone(a).state());
+        IntakeStatus rejected = awaitDone(b);
+        assertEquals(IntakeStatus.State.FAILED, rejected.state());
+        assertEquals(BizCodeEnum.STOCK_NOT_ENOUGH.getMessage(), rejected.message());
+        assertEquals(IntakeStatus.State.CREATED, awaitDone(c).state());
+        assertEquals(0, productService.stock.get(1L));
+        // 第一次按合计8扣减失败，第二次只扣减放得下的5
+        assertEquals(List.of(new StockDeductionDTO(1L, 5)), productService.calls.get(2));
+        assertFalse(orderRepository.orders.containsKey(b));
+    }
+
+    @Test
+    void testRemoteFailureFailsBatch() throws Exception {
+        create(64);
+        productService.failing = true;
+
+        long orderId = intake.submit(1L, 1L, 1, null);
+
+        IntakeStatus status = awaitDone(orderId);
+        assertEquals(IntakeStatus.State.FAILED, status.state());
+        assertEquals("库存服务暂不可用", status.message());
+        assertTrue(orderRepository.orders.isEmpty());
+    }
+
+    @Test
+    void testFullBufferRejects() throws Exception {
+        create(2);
+        productService.stock.put(1L, 100);
+        productService.blockFirstCall = true;
+
+        assertNotNull(intake.submit(1L, 1L, 1, null));
+        assertTrue(productService.firstCall.await(5, TimeUnit.SECONDS));
+        // 处理中的订单仍占用槽位
+        assertNotNull(intake.submit(1L, 1L, 1, null));
+        assertNull(intake.submit(1L, 1L, 1, null));
+        assertEquals(2, intake.getQueueDepth());
+
+        productService.release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (intake.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNotNull(intake.submit(1L, 1L, 1, null));
+    }
+
+    @Test
+    void testCloseDrainsAcceptedOrders() {
+        create(64);
+        productService.stock.put(1L, 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orderIds.add(intake.submit(1L, 1L, 1, null));
+        }
+
+        intake.close();
+
+        for (long orderId : orderIds) {
+            assertEquals(IntakeStatus.State.CREATED, intake.getStatus(orderId).state());
+        }
+        assertNull(intake.submit(1L, 1L, 1, null));
+        assertNull(intake.getStatus(1L));
+    }
+
+    @Test
+    void testReleasesStockWhenOrderCannotBeBuilt() throws Exception {
+        create(64);
+        productService.stock.put(1L, 100);
+        productService.stock.put(9L, 100);
+        productService.blockFirstCall = true;
+
+        long blocker = intake.submit(1L, 1L, 1, null);
+        assertTrue(productService.firstCall.await(5, TimeUnit.SECONDS));
+        long broken = intake.submit(1L, 9L, 4, null);
+        long ok = intake.submit(2L, 1L, 2, null);
+        productService.release.countDown();
+
+        assertEquals(IntakeStatus.State.CREATED, awaitDone(blocker).state());
+        // 商品9的单价无法换算为分，计价失败：只有该订单失败，按订单写入释放库存事件
+        IntakeStatus failed = awaitDone(broken);
+        assertEquals(IntakeStatus.State.FAILED, failed.state());
+        assertEquals(BizCodeEnum.ORDER_CREATE_FAILED.getMessage(), failed.message());
+        assertEquals(IntakeStatus.State.CREATED, awaitDone(ok).state());
+        assertEquals(List.of(new StockDeductionEvent(broken, 9L, 4, 1L)), awaitReleases(1));
+        assertEquals(97, productService.stock.get(1L));
+        assertFalse(orderRepository.orders.containsKey(broken));
+    }
+
+    @Test
+    void testReleasesStockWhenOrderSaveFails() throws Exception {
+        create(64);
+        productService.stock.put(1L, 100);
+        productService.stock.put(2L, 100);
+        orderRepository.failing = true;
+
+        long a = intake.submit(1L, 1L, 3, null);
+        long b = intake.submit(2L, 2L, 5, null);
+
+        // 订单存储写入失败：订单标记为失败，扣减的库存按订单释放
+        for (long orderId : List.of(a, b)) {
+            IntakeStatus status = awaitDone(orderId);
+            assertEquals(IntakeStatus.State.FAILED, status.state());
+            assertEquals("订单保存失败", status.message());
+        }
+        assertEquals(Set.of(new StockDeductionEvent(a, 1L, 3, 1L), new StockDeductionEvent(b, 2L, 5, 2L)),
+                Set.copyOf(awaitReleases(2)));
+        assertTrue(orderRepository.orders.isEmpty());
+    }
+
+    @Test
+    void testSubmitRejectsInvalidQuantityAndCallback() {
+        create(64);
+        assertThrows(IllegalArgumentException.class, () -> intake.submit(1L, 1L, 0, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> intake.submit(1L, 1L, OrderIntakeService.MAX_QUANTITY + 1, null));
+
+        // 回调只能是http(s)且主机在允许的范围内
+        assertThrows(IllegalArgumentException.class,
+                () -> intake.submit(1L, 1L, 1, "http://169.254.169.254/latest/meta-data"));
+        assertThrows(IllegalArgumentException.class, () -> intake.submit(1L, 1L, 1, "http://localhost:8090/"));
+        assertThrows(IllegalArgumentException.class, () -> intake.submit(1L, 1L, 1, "file:///etc/passwd"));
+        assertThrows(IllegalArgumentException.class,
+                () -> intake.submit(1L, 1L, 1, "http://hooks.example.com@10.0.0.1/"));
+        assertThrows(IllegalArgumentException.class,
+                () -> intake.submit(1L, 1L, 1, "http://user@hooks.example.com/notify"));
+        assertThrows(IllegalArgumentException.class, () -> intake.submit(1L, 1L, 1, "http://hooks example.com/"));
+        assertEquals(0, intake.getQueueDepth());
+        assertNotNull(intake.submit(1L, 1L, OrderIntakeService.MAX_QUANTITY, "https://HOOKS.example.com/notify"));
+    }
+
+    /**
+     * 模拟Product服务的批量扣减（商品n的名称为"商品n"，单价n*5元；商品9的单价为三位小数，无法换算为分）
+     */
+    private static final class StubProductService extends OrderService {
+
+        private final Map<Long, Integer> stock = new ConcurrentHashMap<>();
+
+        private final List<List<StockDeductionDTO>> calls = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch firstCall = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile boolean blockFirstCall;
+
+        private volatile boolean failing;
+
+        private StubProductService() {
+            super(null);
+        }
+
+        @Override
+        public List<StockDeductionResultDTO> deductStockBatch(List<StockDeductionDTO> deductions) {
+            calls.add(List.copyOf(deductions));
+            if (calls.size() == 1 && blockFirstCall) {
+                firstCall.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing) {
+                throw new IllegalStateException("连接超时");
+            }
+            List<StockDeductionResultDTO> results = new ArrayList<>();
+            for (StockDeductionDTO deduction : deductions) {
+                long id = deduction.getProductId();
+                Integer current = stock.get(id);
+                BigDecimal price = id == 9 ? new BigDecimal("45.005") : BigDecimal.valueOf(id * 500, 2);
+                if (current == null) {
+                    results.add(new StockDeductionResultDTO(id, BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), null, null,
+                            null));
+                } else if (current < deduction.getQuantity()) {
+                    results.add(new StockDeductionResultDTO(id, BizCodeEnum.STOCK_NOT_ENOUGH.getCode(), "商品" + id,
+                            price, current));
+                } else {
+                    stock.put(id, current - deduction.getQuantity());
+                    results.add(new StockDeductionResultDTO(id, 0, "商品" + id, price,
+                            current - deduction.getQuantity()));
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * 记录写入的释放库存事件
+     */
+    private static final class RecordingTransport implements EventTransport {
+
+        private final List<StockDeductionEvent> releases = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(String topic, List<EventMessage> events) {
+            assertEquals(StockDeductionEvent.TOPIC, topic);
+            for (EventMessage event : events) {
+                assertEquals(StockDeductionEvent.RELEASE_TYPE, event.type());
+                releases.add(StockDeductionEvent.decode(event.payload()));
+            }
+        }
+    }
+
+    private static final class MemoryOrderRepository implements OrderRepository {
+
+        private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+
+        private volatile boolean failing;
+
+        @Override
+        public CompletableFuture<Void> save(Order order) {
+            if (failing) {
+                return CompletableFuture.failedFuture(new IllegalStateException("写入订单失败"));
+            }
+            orders.put(order.getId(), order);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateStatus(long orderId, String status) {
+            orders.get(orderId).setStatus(status);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Order findById(long orderId) {
+            return orders.get(orderId);
+        }
+
+        @Override
+        public List<Order> findByUser(long userId, Long beforeId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Order> findByStatus(String status, Long afterId, int limit) {
+            return orders.values().stream()
+                    .filter(order -> order.getStatus().equals(status) && (afterId == null || order.getId() > afterId))
+                    .sorted(Comparator.comparing(Order::getId))
+                    .limit(limit)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.wheatmall.order.intake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RingBuffer单元测试
+ */
+class RingBufferTest {
+
+    @Test
+    void testRejectsNonPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(100, () -> new long[1]));
+    }
+
+    @Test
+    void testFullBufferRejectsUntilReleased() {
+        RingBuffer<long[]> ring = new RingBuffer<>(4, () -> new long[1]);
+        for (int i = 0; i < 4; i++) {
+            long sequence = ring.tryClaim();
+            assertEquals(i, sequence);
+            ring.get(sequence)[0] = i * 10;
+            ring.publish(sequence);
+        }
+        assertEquals(-1, ring.tryClaim());
+        assertEquals(4, ring.size());
+
+        assertEquals(2, ring.availableUpTo(0, 3));
+        assertEquals(20, ring.get(2)[0]);
+        ring.release(2);
+        assertEquals(4, ring.tryClaim());
+        // 槽位循环使用
+        assertSame(ring.get(0), ring.get(4));
+    }
+
+    @Test
+    void testConsumerStopsAtUnpublishedSlot() {
+        RingBuffer<long[]> ring = new RingBuffer<>(8, () -> new long[1]);
+        long first = ring.tryClaim();
+        long second = ring.tryClaim();
+        // 后申请的先发布，消费者只能读到连续发布的部分
+        ring.publish(second);
+        assertEquals(-1, ring.availableUpTo(0, 8));
+        ring.publish(first);
+        assertEquals(1, ring.availableUpTo(0, 8));
+    }
+
+    @Test
+    void testMultipleProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<long[]> ring = new RingBuffer<>(1024, () -> new long[1]);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p << 32;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence;
+                    while ((sequence = ring.tryClaim()) < 0) {
+                        Thread.onSpinWait();
+                    }
+                    ring.get(sequence)[0] = base | i;
+                    ring.publish(sequence);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // 每个生产者的数据都按发送顺序到达，且不丢不重
+        long[] expected = new long[producers];
+        long next = 0;
+        long total = (long) producers * perProducer;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (next < total) {
+            assertTrue(System.nanoTime() < deadline, "消费超时");
+            long upTo = ring.availableUpTo(next, 100);
+            if (upTo < next) {
+                ring.await(next, TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            for (long sequence = next; sequence <= upTo; sequence++) {
+                long value = ring.get(sequence)[0];
+                int producer = (int) (value >>> 32);
+                assertEquals(expected[producer]++, value & 0xFFFFFFFFL);
+            }
+            ring.release(upTo);
+            next = upTo + 1;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (long count : expected) {
+            assertEquals(perProducer, count);
+        }
+        assertEquals(0, ring.size());
+    }
+}
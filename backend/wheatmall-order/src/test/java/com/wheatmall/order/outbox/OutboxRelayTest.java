@@ -0,0 +1,141 @@
+package com.wheatmall.order.outbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OutboxRelay单元测试（内存H2 + 文件事件日志）
+ */
+class OutboxRelayTest {
+
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(5);
+
+    @TempDir
+    Path eventsDir;
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcOrderRepository repository;
+
+    private FileEventTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        repository = new JdbcOrderRepository(dataSource);
+        transport = new FileEventTransport(eventsDir.toString(), FileEventLog.DEFAULT_SEGMENT_BYTES,
+                FileEventLog.DEFAULT_RETENTION);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        repository.close();
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    private long saveOrder(long productId, int quantity) {
+        long orderId = idGenerator.nextId();
+        Order order = new Order(orderId, 42L, productId, "iPhone 15", new BigDecimal("5999.00"), quantity,
+                new BigDecimal("5999.00").multiply(BigDecimal.valueOf(quantity)), OrderController.STATUS_CREATED,
+                LocalDateTime.now());
+        repository.save(order, List.of(OutboxEvent.of(StockDeductionEvent.TOPIC, orderId, StockDeductionEvent.TYPE,
+                new StockDeductionEvent(orderId, productId, quantity).encode()))).join();
+        return orderId;
+    }
+
+    private List<EventMessage> readAll() throws IOException {
+        try (FileEventLog.Reader reader = new FileEventLog(eventsDir.resolve(StockDeductionEvent.TOPIC)).reader(0)) {
+            return reader.poll(1000);
+        }
+    }
+
+    @Test
+    void testRelayPublishesInOrderAndDeletes() throws IOException {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(saveOrder(1L + i, i + 1));
+        }
+        OutboxRelay relay = new OutboxRelay(repository, transport, 3, Duration.ofMillis(10), false);
+        assertEquals(3, relay.relayOnce());
+        assertEquals(2, repository.countOutboxEvents());
+        assertEquals(2, relay.relayOnce());
+        assertEquals(0, relay.relayOnce());
+        assertEquals(0, repository.countOutboxEvents());
+
+        List<EventMessage> events = readAll();
+        assertEquals(5, events.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, events.get(i).offset());
+            assertEquals(orderIds.get(i), events.get(i).id());
+            assertEquals(new StockDeductionEvent(orderIds.get(i), 1L + i, i + 1),
+                    StockDeductionEvent.decode(events.get(i).payload()));
+        }
+    }
+
+    @Test
+    void testFailedPublishIsRetried() throws IOException {
+        long orderId = saveOrder(1L, 2);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        EventTransport flaky = (topic, events) -> {
+            transport.publish(topic, events);
+            if (failing.get()) {
+                // 已发送但未确认
+                throw new IOException("模拟发送超时");
+            }
+        };
+        OutboxRelay relay = new OutboxRelay(repository, flaky, 10, Duration.ofMillis(10), false);
+        assertThrows(IOException.class, relay::relayOnce);
+        assertEquals(1, repository.countOutboxEvents());
+
+        failing.set(false);
+        assertEquals(1, relay.relayOnce());
+        assertEquals(0, repository.countOutboxEvents());
+        // 至少一次：重发后同一个事件出现两次，由消费方按事件ID去重
+        List<EventMessage> events = readAll();
+        assertEquals(2, events.size());
+        assertEquals(orderId, events.get(0).id());
+        assertEquals(orderId, events.get(1).id());
+    }
+
+    @Test
+    void testBackgroundRelay() throws Exception {
+        OutboxRelay relay = new OutboxRelay(repository, transport, 10, Duration.ofMillis(5), true);
+        try {
+            long orderId = saveOrder(3L, 1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (relay.getRelayedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, relay.getRelayedCount());
+            assertEquals(0, repository.countOutboxEvents());
+            assertEquals(orderId, readAll().get(0).id());
+        } finally {
+            relay.close();
+        }
+    }
+}
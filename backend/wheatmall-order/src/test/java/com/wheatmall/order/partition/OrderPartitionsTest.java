@@ -0,0 +1,364 @@
+package com.wheatmall.order.partition;
+
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.controller.OrderController;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import com.wheatmall.order.repository.JdbcOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderPartitions单元测试（内存H2）
+ */
+class OrderPartitionsTest {
+
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(5);
+
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcOrderRepository repository;
+
+    private OrderPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        repository = new JdbcOrderRepository(dataSource);
+        partitions = new OrderPartitions(repository, 4, 64, Duration.ofMinutes(30), now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        partitions.close();
+        repository.close();
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    private Order newOrder(long userId) {
+        return new Order(idGenerator.nextId(), userId, 1L, "iPhone 15", new BigDecimal("5999.00"), 1,
+                new BigDecimal("5999.00"), OrderController.STATUS_CREATED, LocalDateTime.now());
+    }
+
+    @Test
+    void testPayAndCancel() {
+        Order order = partitions.create(newOrder(42L)).join();
+        assertEquals(OrderController.STATUS_CREATED, repository.findById(order.getId()).getStatus());
+
+        // 其他用户看不到该订单
+        assertNull(partitions.pay(43L, order.getId()).join());
+        assertEquals(OrderController.STATUS_PAID, partitions.pay(42L, order.getId()).join().getStatus());
+        assertEquals(OrderController.STATUS_PAID, repository.findById(order.getId()).getStatus());
+
+        // 已支付的订单不能再支付或取消
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> partitions.cancel(42L, order.getId()).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(CompletionException.class, () -> partitions.pay(42L, order.getId()).join());
+        assertNull(partitions.pay(42L, order.getId() + 1).join());
+    }
+
+    @Test
+    void testCreateWithOutboxEvents() {
+        Order draft = newOrder(42L);
+        partitions.create(draft, List.of(OutboxEvent.of("stock-deduction", draft.getId(), "StockDeduction",
+                new byte[]{1}))).join();
+        // 订单和事件在同一个事务中提交
+        assertNotNull(repository.findById(draft.getId()));
+        assertEquals(draft.getId(), repository.findOutboxEvents(10).get(0).eventId());
+    }
+
+    @Test
+    void testConcurrentPayAndCancelOnlyOneWins() throws Exception {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            orders.add(partitions.create(newOrder(i % 10)).join());
+        }
+        // 同一订单的支付和取消同时到达，只有一个成功
+        List<CompletableFuture<Order>> pays = new ArrayList<>();
+        List<CompletableFuture<Order>> cancels = new ArrayList<>();
+        Thread payer = new Thread(() -> orders.forEach(o -> pays.add(partitions.pay(o.getUserId(), o.getId()))));
+        Thread canceller = new Thread(() -> orders.forEach(o -> cancels.add(partitions.cancel(o.getUserId(), o.getId()))));
+        payer.start();
+        canceller.start();
+        payer.join();
+        canceller.join();
+        for (int i = 0; i < orders.size(); i++) {
+            boolean paid = !pays.get(i).handle((o, e) -> e != null).get(5, TimeUnit.SECONDS);
+            boolean cancelled = !cancels.get(i).handle((o, e) -> e != null).get(5, TimeUnit.SECONDS);
+            assertTrue(paid ^ cancelled);
+            assertEquals(paid ? OrderController.STATUS_PAID : OrderController.STATUS_CANCELLED,
+                    repository.findById(orders.get(i).getId()).getStatus());
+        }
+    }
+
+    @Test
+    void testShip() {
+        Order order = partitions.create(newOrder(42L)).join();
+        // 未支付的订单不能发货
+        assertThrows(CompletionException.class, () -> partitions.ship(42L, order.getId()).join());
+        partitions.pay(42L, order.getId()).join();
+        assertEquals(OrderController.STATUS_SHIPPED, partitions.ship(42L, order.getId()).join().getStatus());
+        assertEquals(OrderController.STATUS_SHIPPED, repository.findById(order.getId()).getStatus());
+        assertThrows(CompletionException.class, () -> partitions.ship(42L, order.getId()).join());
+
+        // 已落库的已支付订单从数据库读取后发货
+        Order stored = newOrder(42L);
+        stored.setStatus(OrderController.STATUS_PAID);
+        repository.save(stored).join();
+        assertNull(partitions.ship(43L, stored.getId()).join());
+        assertEquals(OrderController.STATUS_SHIPPED, partitions.ship(42L, stored.getId()).join().getStatus());
+        assertThrows(CompletionException.class, () -> partitions.ship(42L, stored.getId()).join());
+    }
+
+    @Test
+    void testPaymentRacingExpiryOnlyOneWins() throws Exception {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            orders.add(partitions.create(newOrder(i % 10)).join());
+        }
+        // 支付与超时关闭同时进行
+        // 超时关闭不早于超时时间，最多晚一个刻度
+        now.addAndGet(Duration.ofMinutes(30).toMillis() + OrderExpirer.TICK_MILLIS);
+        List<CompletableFuture<Order>> pays = new ArrayList<>();
+        orders.forEach(o -> pays.add(partitions.pay(o.getUserId(), o.getId())));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (partitions.getPendingExpiryCount() > 0) {
+            assertTrue(System.nanoTime() < deadline, "订单未超时关闭");
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            boolean paid = !pays.get(i).handle((o, e) -> e != null).get(5, TimeUnit.SECONDS);
+            String expected = paid ? OrderController.STATUS_PAID : OrderController.STATUS_EXPIRED;
+            long orderId = orders.get(i).getId();
+            while (!expected.equals(repository.findById(orderId).getStatus())) {
+                assertTrue(System.nanoTime() < deadline, "订单状态未落库");
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void testUnpaidOrderExpires() throws Exception {
+        Order order = partitions.create(newOrder(42L)).join();
+        Order paid = partitions.create(newOrder(42L)).join();
+        partitions.pay(42L, paid.getId()).join();
+
+        // 超时关闭不早于超时时间，最多晚一个刻度
+        now.addAndGet(Duration.ofMinutes(30).toMillis() + OrderExpirer.TICK_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!OrderController.STATUS_EXPIRED.equals(repository.findById(order.getId()).getStatus())) {
+            assertTrue(System.nanoTime() < deadline, "订单未超时关闭");
+            Thread.sleep(10);
+        }
+        assertEquals(OrderController.STATUS_PAID, repository.findById(paid.getId()).getStatus());
+        assertThrows(CompletionException.class, () -> partitions.pay(42L, order.getId()).join());
+    }
+
+    @Test
+    void testCancelAndExpiryReleaseStock() throws Exception {
+        Order cancelled = partitions.create(newOrder(42L)).join();
+        Order expired = partitions.create(newOrder(42L)).join();
+        Order paid = partitions.create(newOrder(42L)).join();
+        partitions.cancel(42L, cancelled.getId()).join();
+        partitions.pay(42L, paid.getId()).join();
+        now.addAndGet(Duration.ofMinutes(30).toMillis() + OrderExpirer.TICK_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!OrderController.STATUS_EXPIRED.equals(repository.findById(expired.getId()).getStatus())) {
+            assertTrue(System.nanoTime() < deadline, "订单未超时关闭");
+            Thread.sleep(10);
+        }
+        // 取消和超时关闭与状态变更在同一事务中写入释放库存事件，支付不写入
+        List<OutboxEvent> events = repository.findOutboxEvents(10);
+        assertEquals(List.of(cancelled.getId(), expired.getId()), events.stream().map(OutboxEvent::eventId).toList());
+        for (OutboxEvent event : events) {
+            assertEquals(StockDeductionEvent.TOPIC, event.topic());
+            assertEquals(StockDeductionEvent.RELEASE_TYPE, event.type());
+            assertEquals(new StockDeductionEvent(event.eventId(), 1L, 1, 42L), StockDeductionEvent.decode(event.payload()));
+        }
+    }
+
+    @Test
+    void testExpiriesRebuiltOnStartup() throws Exception {
+        // 重启前创建的待支付订单，重启后不需要访问也会超时关闭
+        List<Order> pending = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order order = newOrder(i);
+            order.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(now.get()), ZoneId.systemDefault()));
+            repository.save(order).join();
+            pending.add(order);
+        }
+        Order paid = newOrder(42L);
+        paid.setStatus(OrderController.STATUS_PAID);
+        repository.save(paid).join();
+        partitions.close();
+        partitions = new OrderPartitions(repository, 4, 64, Duration.ofMinutes(30), now::get);
+        assertEquals(3, partitions.getPendingExpiryCount());
+
+        // 重建后先支付的订单按支付处理，到期时不关闭
+        partitions.pay(0L, pending.get(0).getId()).join();
+        now.addAndGet(Duration.ofMinutes(30).toMillis() + OrderExpirer.TICK_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Order order : pending.subList(1, 3)) {
+            while (!OrderController.STATUS_EXPIRED.equals(repository.findById(order.getId()).getStatus())) {
+                assertTrue(System.nanoTime() < deadline, "订单未超时关闭");
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(OrderController.STATUS_PAID, repository.findById(pending.get(0).getId()).getStatus());
+        assertEquals(0, partitions.getPendingExpiryCount());
+        assertEquals(List.of(pending.get(1).getId(), pending.get(2).getId()),
+                repository.findOutboxEvents(10).stream().map(OutboxEvent::eventId).toList());
+    }
+
+    @Test
+    void testStoredExpiryRetriesWhenQueueIsFull() throws Exception {
+        List<Order> pending = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Order order = newOrder(42L);
+            order.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(now.get()), ZoneId.systemDefault()));
+            repository.save(order).join();
+            pending.add(order);
+        }
+        partitions.close();
+        // 分区线程读取订单时阻塞，队列（4个槽位）被占满
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcOrderRepository blocking = new JdbcOrderRepository(dataSource) {
+            @Override
+            public Order findById(long orderId) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findById(orderId);
+            }
+        };
+        try {
+            partitions = new OrderPartitions(blocking, 1, 4, Duration.ofMinutes(30), now::get);
+            List<CompletableFuture<Order>> stuck = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                stuck.add(partitions.pay(43L, i));
+            }
+
+            // 到期时队列已满：超时线程不等待，推迟到下一个刻度重新登记
+            now.addAndGet(Duration.ofMinutes(30).toMillis() + OrderExpirer.TICK_MILLIS);
+            Thread.sleep(3 * OrderExpirer.TICK_MILLIS);
+            assertEquals(2, partitions.getPendingExpiryCount());
+
+            release.countDown();
+            stuck.forEach(CompletableFuture::join);
+            now.addAndGet(OrderExpirer.TICK_MILLIS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (Order order : pending) {
+                while (!OrderController.STATUS_EXPIRED.equals(repository.findById(order.getId()).getStatus())) {
+                    assertTrue(System.nanoTime() < deadline, "订单未超时关闭");
+                    Thread.sleep(10);
+                }
+            }
+            assertEquals(0, partitions.getPendingExpiryCount());
+        } finally {
+            release.countDown();
+            partitions.close();
+            blocking.close();
+        }
+    }
+
+    @Test
+    void testFailedStatusWriteKeepsOrderInMemory() {
+        partitions.close();
+        AtomicBoolean failing = new AtomicBoolean();
+        JdbcOrderRepository flaky = new JdbcOrderRepository(dataSource) {
+            @Override
+            public CompletableFuture<Void> updateStatus(long orderId, String status, List<OutboxEvent> events) {
+                if (failing.get()) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("数据库不可用"));
+                }
+                return super.updateStatus(orderId, status, events);
+            }
+        };
+        try {
+            partitions = new OrderPartitions(flaky, 1, 64, Duration.ofMinutes(30), now::get);
+            Order order = partitions.create(newOrder(42L)).join();
+
+            failing.set(true);
+            assertThrows(CompletionException.class, () -> partitions.cancel(42L, order.getId()).join());
+            failing.set(false);
+            assertEquals(OrderController.STATUS_CREATED, flaky.findById(order.getId()).getStatus());
+
+            // 写库失败的订单留在内存中，不会从数据库读到待支付的旧状态后再次支付
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> partitions.pay(42L, order.getId()).join());
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals(1, partitions.getStats().get(0).liveOrders());
+        } finally {
+            partitions.close();
+            flaky.close();
+        }
+    }
+
+    @Test
+    void testOrderCreatedBeforeRestart() {
+        // 直接写入存储的待支付订单（如重启前创建），首次访问时从数据库读取
+        Order stored = newOrder(42L);
+        repository.save(stored).join();
+        Order stale = newOrder(42L);
+        stale.setCreateTime(LocalDateTime.now().minusHours(1));
+        repository.save(stale).join();
+
+        assertEquals(OrderController.STATUS_CANCELLED, partitions.cancel(42L, stored.getId()).join().getStatus());
+        // 已超过支付时间的订单在访问时关闭
+        assertThrows(CompletionException.class, () -> partitions.pay(42L, stale.getId()).join());
+    }
+
+    @Test
+    void testRoutingAndStats() throws Exception {
+        int[] perPartition = new int[partitions.getPartitionCount()];
+        for (long userId = 0; userId < 10_000; userId++) {
+            int index = partitions.indexOf(userId);
+            assertEquals(index, partitions.indexOf(userId));
+            perPartition[index]++;
+        }
+        for (int count : perPartition) {
+            assertTrue(count > 2000 && count < 3000, "分区不均匀: " + count);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            partitions.create(newOrder(i)).join();
+        }
+        // 统计在分区线程处理完一轮后更新
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<PartitionStats> stats = partitions.getStats();
+        while (stats.stream().mapToInt(PartitionStats::liveOrders).sum() < 20 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stats = partitions.getStats();
+        }
+        assertEquals(4, stats.size());
+        assertEquals(20, stats.stream().mapToLong(PartitionStats::processed).sum());
+        assertEquals(20, stats.stream().mapToInt(PartitionStats::liveOrders).sum());
+        assertTrue(stats.stream().allMatch(s -> s.queueDepth() == 0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.wheatmall.order.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TimingWheel单元测试
+ */
+class TimingWheelTest {
+
+    private static final long START = 1_000_000_000L;
+
+    private static final class TestTimer extends TimingWheel.Timer {
+
+        private final String name;
+
+        private TestTimer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        void fire() {
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * 逐个刻度前进，记录每个定时器到期时的时间
+     */
+    private static List<String> runUntil(TimingWheel wheel, long from, long until) {
+        List<String> fired = new ArrayList<>();
+        List<TimingWheel.Timer> expired = new ArrayList<>();
+        for (long now = from; now <= until; now += 10) {
+            wheel.advance(now, expired);
+            for (TimingWheel.Timer timer : expired) {
+                fired.add(timer + "@" + (now - START));
+            }
+            expired.clear();
+        }
+        return fired;
+    }
+
+    @Test
+    void testFiresAtDeadlineAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(10, START);
+        // 分别落在第0、1、2、3层，到期时间不是刻度的整数倍时向上取整
+        wheel.schedule(new TestTimer("a"), START + 25);
+        wheel.schedule(new TestTimer("b"), START + 640 * 3 + 10);
+        wheel.schedule(new TestTimer("c"), START + 40_960 * 2 + 70);
+        wheel.schedule(new TestTimer("d"), START + 2_621_440 + 10);
+        assertEquals(4, wheel.size());
+
+        List<String> fired = runUntil(wheel, START, START + 2_700_000);
+        assertEquals(List.of("a@30", "b@1930", "c@81990", "d@2621450"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        TimingWheel wheel = new TimingWheel(10, START);
+        TestTimer cancelled = new TestTimer("cancelled");
+        TestTimer moved = new TestTimer("moved");
+        wheel.schedule(cancelled, START + 5_000);
+        wheel.schedule(moved, START + 5_000);
+        assertTrue(cancelled.isScheduled());
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(cancelled.isScheduled());
+        assertFalse(wheel.cancel(cancelled));
+        // 已登记的重新登记时移到新的到期时间
+        wheel.schedule(moved, START + 100);
+        assertEquals(1, wheel.size());
+
+        assertEquals(List.of("moved@100"), runUntil(wheel, START, START + 10_000));
+        assertFalse(moved.isScheduled());
+        assertFalse(wheel.cancel(moved));
+    }
+
+    @Test
+    void testPastAndFarDeadlines() {
+        TimingWheel wheel = new TimingWheel(10, START);
+        // 已过期的在下一个刻度触发
+        wheel.schedule(new TestTimer("past"), START - 1000);
+        // 超出最上层范围的先放在最远的槽，进位时按实际到期时间重新放置
+        long far = (1L << 30) * 10 + 12_345;
+        wheel.schedule(new TestTimer("far"), START + far);
+        List<TimingWheel.Timer> expired = new ArrayList<>();
+        wheel.advance(START + 10, expired);
+        assertEquals("[past]", expired.toString());
+        expired.clear();
+
+        wheel.advance(START + far - 10, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + far + 4, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + far + 5, expired);
+        assertEquals("[far]", expired.toString());
+    }
+
+    @Test
+    void testIdleWheelJumpsAhead() {
+        TimingWheel wheel = new TimingWheel(10, START);
+        List<TimingWheel.Timer> expired = new ArrayList<>();
+        // 没有定时器时直接跳到当前时间，之后登记的按新的当前时间计算
+        wheel.advance(START + 1_000_000_000L, expired);
+        wheel.schedule(new TestTimer("late"), START + 1_000_000_000L + 50);
+        wheel.advance(START + 1_000_000_000L + 40, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + 1_000_000_000L + 50, expired);
+        assertEquals("[late]", expired.toString());
+    }
+}
@@ -0,0 +1,138 @@
+package com.wheatmall.order.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PricingEngine单元测试（金额单位：分）
+ */
+class PricingEngineTest {
+
+    @Test
+    void testMoney() {
+        assertEquals(599900, Money.toCents(new BigDecimal("5999")));
+        assertEquals(new BigDecimal("5999.00"), Money.toBigDecimal(599900));
+        assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("0.001")));
+        assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE / 2, 3));
+        // 四舍五入到分
+        assertEquals(150, Money.fraction(999, 1500));
+        assertEquals(149, Money.fraction(996, 1500));
+        assertEquals("-0.05", Money.append(new StringBuilder(), -5).toString());
+        assertEquals("5999.10", Money.append(new StringBuilder(), 599910).toString());
+    }
+
+    @Test
+    void testParseRules() {
+        assertEquals(new PromotionRule(PromotionRule.Scope.SKU, 1, null, PromotionRule.Type.PERCENT, 0, 1250),
+                PromotionRule.parse("sku:1:percent:12.5"));
+        assertEquals(new PromotionRule(PromotionRule.Scope.COUPON, 0, "SAVE10", PromotionRule.Type.THRESHOLD,
+                10000, 1000), PromotionRule.parse(" coupon:SAVE10:threshold:100:10 "));
+        assertEquals(new PromotionRule(PromotionRule.Scope.CATEGORY, 3, null, PromotionRule.Type.UNIT_OFF, 0, 550),
+                PromotionRule.parse("category:3:unit-off:5.50"));
+        assertThrows(IllegalArgumentException.class, () -> PromotionRule.parse("all:percent:10"));
+        assertThrows(IllegalArgumentException.class, () -> PromotionRule.parse("sku:1:bundle:2:2"));
+        assertThrows(IllegalArgumentException.class, () -> PromotionRule.parse("sku:1:threshold:100"));
+        assertThrows(IllegalArgumentException.class, () -> PromotionRule.parse("sku:x:percent:10"));
+        assertThrows(IllegalArgumentException.class, () -> PromotionRule.parse("brand:1:percent:10"));
+        assertTrue(PricingEngine.parse(List.of("", " ")).getRules().isEmpty());
+    }
+
+    @Test
+    void testNoPromotions() {
+        PricingEngine engine = PricingEngine.compile(List.of());
+        Quote quote = engine.price(new Cart().add(1, 0, 599900, 10), new Quote());
+        assertEquals(5999000, quote.subtotal());
+        assertEquals(5999000, quote.total());
+        assertEquals(new BigDecimal("59990.00"), quote.totalAmount());
+        assertEquals(-1, quote.lineRule(0));
+    }
+
+    @Test
+    void testBestLineRuleWins() {
+        PricingEngine engine = PricingEngine.parse(List.of(
+                "sku:1:percent:10",
+                "sku:1:bundle:3:2",
+                "category:5:unit-off:3.00",
+                "sku:2:unit-off:50.00"));
+        Cart cart = new Cart()
+                // 10% = 6.00，买3付2 = 20.00（6件两组），每件减3 = 18.00 -> 买3付2
+                .add(1, 5, 1000, 6)
+                // 10% = 2.00，每件减3 = 6.00 -> 立减
+                .add(1, 5, 1000, 2)
+                // 立减不超过单价
+                .add(2, 0, 2000, 2)
+                // 没有规则
+                .add(3, 0, 100, 1);
+        Quote quote = engine.price(cart, new Quote());
+        assertEquals(2000, quote.lineDiscount(0));
+        assertEquals("BUNDLE", engine.getRule(quote.lineRule(0)).type().name());
+        assertEquals(600, quote.lineDiscount(1));
+        assertEquals(4000, quote.lineDiscount(2));
+        assertEquals(0, quote.lineDiscount(3));
+        assertEquals(6000 + 2000 + 4000 + 100, quote.subtotal());
+        assertEquals(2000 + 600 + 4000, quote.lineDiscount());
+        assertEquals(quote.subtotal() - quote.lineDiscount(), quote.total());
+    }
+
+    @Test
+    void testThresholdTiersAndStacking() {
+        PricingEngine engine = PricingEngine.parse(List.of(
+                "category:3:threshold:100:10",
+                "category:3:threshold:200:30",
+                "category:3:every:150:12",
+                "all:threshold:300:50",
+                "sku:9:percent:50",
+                "coupon:SAVE5:threshold:0:5"));
+        Cart cart = new Cart()
+                .add(1, 3, 12000, 1)
+                .add(2, 3, 10000, 1)
+                // 单品优惠后计入满减：200 -> 100，不计入分类3
+                .add(9, 0, 20000, 1);
+        Quote quote = engine.price(cart, new Quote());
+        // 分类3合计220：满200减30优于每满150减12，同组不叠加；全部合计320：满300减50，与分类3叠加
+        assertEquals(10000, quote.lineDiscount());
+        assertEquals(3000 + 5000, quote.promotionDiscount());
+        assertEquals(0, quote.couponDiscount());
+        assertEquals(42000 - 10000 - 8000, quote.total());
+
+        // 优惠券按满减后的金额计算；未知券码不生效
+        Quote withCoupon = engine.price(cart.coupon("SAVE5"), new Quote());
+        assertEquals(500, withCoupon.couponDiscount());
+        assertEquals(quote.total() - 500, withCoupon.total());
+        assertEquals(quote.total(), engine.price(cart.coupon("NOPE"), new Quote()).total());
+    }
+
+    @Test
+    void testDiscountNeverExceedsAmount() {
+        PricingEngine engine = PricingEngine.parse(List.of(
+                "sku:1:threshold:0:80",
+                "all:threshold:0:80",
+                "coupon:BIG:threshold:0:1000"));
+        Quote quote = engine.price(new Cart().add(1, 0, 10000, 1).coupon("BIG"), new Quote());
+        assertEquals(10000, quote.promotionDiscount());
+        assertEquals(0, quote.couponDiscount());
+        assertEquals(0, quote.total());
+        assertEquals(10000, quote.discount());
+    }
+
+    @Test
+    void testQuoteAndCartReuse() {
+        PricingEngine engine = PricingEngine.parse(List.of("category:3:threshold:100:10", "sku:4:threshold:50:5"));
+        Cart cart = new Cart();
+        Quote quote = new Quote();
+        for (int i = 0; i < 60; i++) {
+            cart.add(i + 1, i % 2 == 0 ? 3 : 0, 1000, 1);
+        }
+        assertEquals(60000 - 1000, engine.price(cart, quote).total());
+        // 上一次涉及的满减分组不影响下一次
+        cart.clear().add(4, 0, 5000, 1);
+        assertEquals(4500, engine.price(cart, quote).total());
+        cart.clear().add(7, 3, 5000, 1);
+        assertEquals(5000, engine.price(cart, quote).total());
+        assertEquals(1, cart.size());
+    }
+}
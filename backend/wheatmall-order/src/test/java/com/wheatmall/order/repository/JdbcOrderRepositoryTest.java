@@ -0,0 +1,256 @@
+package com.wheatmall.order.repository;
+
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.order.entity.Order;
+import com.wheatmall.order.outbox.OutboxEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcOrderRepository单元测试（内存H2）
+ */
+class JdbcOrderRepositoryTest {
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcOrderRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        repository = new JdbcOrderRepository(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    /**
+     * 指定创建时间的订单ID（与雪花算法的ID结构相同）
+     */
+    private static long idAt(LocalDateTime time, int sequence) {
+        long millis = time.toInstant(ZoneOffset.UTC).toEpochMilli() - SnowflakeIdGenerator.EPOCH_MILLIS;
+        return millis << (SnowflakeIdGenerator.WORKER_ID_BITS + SnowflakeIdGenerator.SEQUENCE_BITS) | sequence;
+    }
+
+    private static Order order(long id, long userId) {
+        return new Order(id, userId, 1L, "iPhone 15", new BigDecimal("5999.00"), 2, new BigDecimal("11998.00"),
+                "CREATED", LocalDateTime.of(2026, 10, 19, 12, 0));
+    }
+
+    @Test
+    void testSaveAndFindById() {
+        long id = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 1);
+        repository.save(order(id, 7L)).join();
+
+        assertEquals(order(id, 7L), repository.findById(id));
+        assertNull(repository.findById(id + 1));
+        // 没有分区的月份直接返回
+        assertNull(repository.findById(idAt(LocalDateTime.of(2027, 1, 1, 0, 0), 1)));
+        assertEquals(List.of(202610), repository.getPartitions());
+    }
+
+    @Test
+    void testUserOrdersAcrossPartitions() {
+        List<Long> expected = new ArrayList<>();
+        for (int month = 1; month <= 3; month++) {
+            for (int i = 0; i < 2; i++) {
+                long id = idAt(LocalDateTime.of(2026, month, 10 + i, 8, 0), i);
+                repository.save(order(id, 7L));
+                expected.add(0, id);
+                repository.save(order(id + 100, 8L));
+            }
+        }
+        repository.save(order(idAt(LocalDateTime.of(2026, 4, 1, 0, 0), 0), 8L)).join();
+
+        // 每页4个，第一页跨3月和2月两个分区
+        List<Order> first = repository.findByUser(7L, null, 4);
+        assertEquals(expected.subList(0, 4), first.stream().map(Order::getId).toList());
+        List<Order> second = repository.findByUser(7L, first.get(3).getId(), 4);
+        assertEquals(expected.subList(4, 6), second.stream().map(Order::getId).toList());
+        assertTrue(repository.findByUser(7L, expected.get(5), 4).isEmpty());
+        assertEquals(List.of(202601, 202602, 202603, 202604), repository.getPartitions());
+
+        // 重启后从数据库恢复分区列表
+        assertEquals(repository.getPartitions(), new JdbcOrderRepository(dataSource).getPartitions());
+    }
+
+    @Test
+    void testUserOrdersUseIndex() {
+        long id = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 1);
+        repository.save(order(id, 7L)).join();
+        String plan = new JdbcTemplate(dataSource).queryForObject(
+                "EXPLAIN SELECT ID FROM ORDERS_P202610 WHERE USER_ID = 7 AND ID < 100 ORDER BY ID DESC LIMIT 20",
+                String.class);
+        assertTrue(plan.contains("IDX_ORDERS_P202610_USER"), plan);
+    }
+
+    @Test
+    void testConcurrentSavesShareTransactions() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        int threads = 8;
+        int perThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long userId = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    repository.save(order(generator.nextId(), userId)).join();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, repository.getOrderCount());
+        assertTrue(repository.getCommitCount() < threads * perThread,
+                "事务数应少于订单数: " + repository.getCommitCount());
+        assertEquals(perThread, repository.findByUser(3L, null, 1000).size());
+    }
+
+    @Test
+    void testDuplicateOnlyFailsItself() {
+        long id = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 1);
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        saves.add(repository.save(order(id, 7L)));
+        saves.add(repository.save(order(id + 1, 7L)));
+        saves.add(repository.save(order(id, 8L)));
+        saves.add(repository.save(order(id + 2, 7L)));
+
+        saves.get(0).join();
+        saves.get(1).join();
+        assertThrows(CompletionException.class, () -> saves.get(2).join());
+        saves.get(3).join();
+        assertEquals(3, repository.findByUser(7L, null, 10).size());
+    }
+
+    @Test
+    void testUpdateStatusAfterSave() {
+        long id = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 1);
+        // 保存后立即修改，两者按调用顺序写入
+        CompletableFuture<Void> saved = repository.save(order(id, 7L));
+        CompletableFuture<Void> paid = repository.updateStatus(id, "PAID");
+        saved.join();
+        paid.join();
+        assertEquals("PAID", repository.findById(id).getStatus());
+        assertEquals(1, repository.getOrderCount());
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> repository.updateStatus(id + 1, "PAID").join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(CompletionException.class, () -> repository.updateStatus(
+                idAt(LocalDateTime.of(2026, 3, 1, 0, 0), 1), "PAID").join());
+    }
+
+    @Test
+    void testOutboxEventsCommitWithOrder() {
+        long id = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 1);
+        repository.save(order(id, 7L), List.of(OutboxEvent.of("stock-deduction", id, "StockDeduction",
+                new byte[]{1, 2}))).join();
+        // 主键冲突的订单回滚，事件也不写入
+        assertThrows(CompletionException.class, () -> repository.save(order(id, 7L),
+                List.of(OutboxEvent.of("stock-deduction", id, "StockDeduction", new byte[]{3}))).join());
+
+        List<OutboxEvent> events = repository.findOutboxEvents(10);
+        assertEquals(1, events.size());
+        assertEquals(id, events.get(0).eventId());
+        assertArrayEquals(new byte[]{1, 2}, events.get(0).payload());
+        assertEquals(1, repository.countOutboxEvents());
+
+        long second = idAt(LocalDateTime.of(2026, 10, 19, 12, 0), 2);
+        repository.save(order(second, 7L), List.of(OutboxEvent.of("stock-deduction", second, "StockDeduction",
+                new byte[]{4}))).join();
+        events = repository.findOutboxEvents(10);
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).id() < events.get(1).id());
+        assertEquals(1, repository.deleteOutboxEvents(events.get(0).id()));
+        assertEquals(second, repository.findOutboxEvents(10).get(0).eventId());
+    }
+
+    @Test
+    void testStatusUpdateWithEventsAndFindByStatus() {
+        List<Long> created = new ArrayList<>();
+        for (int month = 8; month <= 10; month++) {
+            for (int i = 0; i < 2; i++) {
+                long id = idAt(LocalDateTime.of(2026, month, 1 + i, 8, 0), i);
+                repository.save(order(id, 7L)).join();
+                created.add(id);
+            }
+        }
+        long cancelled = created.remove(1);
+        repository.updateStatus(cancelled, "CANCELLED", List.of(OutboxEvent.of("stock-deduction", cancelled,
+                "StockRelease", new byte[]{5}))).join();
+        // 订单不存在时事件不写入
+        assertThrows(CompletionException.class, () -> repository.updateStatus(cancelled + 1, "CANCELLED",
+                List.of(OutboxEvent.of("stock-deduction", cancelled + 1, "StockRelease", new byte[]{6}))).join());
+        List<OutboxEvent> events = repository.findOutboxEvents(10);
+        assertEquals(1, events.size());
+        assertEquals(cancelled, events.get(0).eventId());
+        assertEquals("StockRelease", events.get(0).type());
+
+        // 按订单ID升序跨分区分页
+        List<Long> pending = new ArrayList<>();
+        Long afterId = null;
+        List<Order> page;
+        while (!(page = repository.findByStatus("CREATED", afterId, 2)).isEmpty()) {
+            page.forEach(order -> pending.add(order.getId()));
+            afterId = page.get(page.size() - 1).getId();
+        }
+        assertEquals(created, pending);
+        assertEquals(List.of(cancelled), repository.findByStatus("CANCELLED", null, 10).stream()
+                .map(Order::getId).toList());
+    }
+
+    @Test
+    void testAmountsUpToLongCents() {
+        // 商品服务允许的最高价格（以分计不超过long），旧的分区启动时加宽金额列
+        repository.close();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE ORDERS_P202609 (ID BIGINT PRIMARY KEY, USER_ID BIGINT NOT NULL, "
+                + "PRODUCT_ID BIGINT NOT NULL, PRODUCT_NAME VARCHAR(200), PRICE DECIMAL(12, 2) NOT NULL, "
+                + "QUANTITY INT NOT NULL, TOTAL_AMOUNT DECIMAL(14, 2) NOT NULL, STATUS VARCHAR(16) NOT NULL, "
+                + "CREATE_TIME TIMESTAMP NOT NULL)");
+        repository = new JdbcOrderRepository(dataSource);
+
+        BigDecimal maxPrice = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+        List<Long> ids = List.of(idAt(LocalDateTime.of(2026, 9, 1, 8, 0), 1),
+                idAt(LocalDateTime.of(2026, 10, 1, 8, 0), 1));
+        for (long id : ids) {
+            Order order = new Order(id, 7L, 1L, "iPhone 15", maxPrice, 1, maxPrice, "CREATED",
+                    LocalDateTime.of(2026, 10, 19, 12, 0));
+            repository.save(order).join();
+            assertEquals(order, repository.findById(id));
+        }
+        // 加宽后仍不允许为空
+        assertThrows(CompletionException.class, () -> repository.save(new Order(ids.get(0) + 1, 7L, 1L,
+                "iPhone 15", null, 1, maxPrice, "CREATED", LocalDateTime.of(2026, 10, 19, 12, 0))).join());
+    }
+}
@@ -1,26 +1,42 @@
 package com.wheatmall.order.service;
 
+import com.wheatmall.common.constant.ServiceUris;
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.utils.R;
 import com.wheatmall.order.dto.ProductDTO;
+import com.wheatmall.order.dto.StockDeductionDTO;
+import com.wheatmall.order.dto.StockDeductionResultDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
  * OrderService单元测试
+ * WebClient的请求链接口带自引用泛型，mock只能声明为原始类型，对其打桩的unchecked警告在类上统一抑制
  */
+@SuppressWarnings("unchecked")
 @ExtendWith(MockitoExtension.class)
 class OrderServiceTest {
 
@@ -36,6 +52,9 @@ class OrderServiceTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
+    @Mock
+    private WebClient.RequestBodyUriSpec requestBodyUriSpec;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -60,7 +79,8 @@ class OrderServiceTest {
         when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(anyString(), any(Long.class))).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(ProductDTO.class)).thenReturn(Mono.just(mockProduct));
+        when(responseSpec.toEntity(ArgumentMatchers.<ParameterizedTypeReference<R<ProductDTO>>>any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().eTag("\"1-1\"").body(R.ok(mockProduct))));
 
         // 执行测试
         ProductDTO result = orderService.getProductById(1L);
@@ -72,13 +92,29 @@ class OrderServiceTest {
         assertEquals(new BigDecimal("99.99"), result.getPrice());
     }
 
+    @Test
+    void testGetProductForOrderRequestsProjection() {
+        when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(anyString(), any(Long.class), anyString())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntity(ArgumentMatchers.<ParameterizedTypeReference<R<ProductDTO>>>any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().eTag("\"1-1-fd\"").body(R.ok(mockProduct))));
+
+        ProductDTO result = orderService.getProductForOrder(1L);
+
+        assertEquals(new BigDecimal("99.99"), result.getPrice());
+        verify(requestHeadersUriSpec).uri(ServiceUris.Product.GET_BY_ID_INTERNAL + "?fields={fields}",
+                1L, "id,name,price,stock");
+    }
+
     @Test
     void testGetProductByIdAsync() {
         // 模拟WebClient调用链
         when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(anyString(), any(Long.class))).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(ProductDTO.class)).thenReturn(Mono.just(mockProduct));
+        when(responseSpec.toEntity(ArgumentMatchers.<ParameterizedTypeReference<R<ProductDTO>>>any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().eTag("\"1-1\"").body(R.ok(mockProduct))));
 
         // 执行测试
         Mono<ProductDTO> resultMono = orderService.getProductByIdAsync(1L);
@@ -89,4 +125,96 @@ class OrderServiceTest {
         assertEquals(1L, result.getId());
         assertEquals("测试商品", result.getName());
     }
+
+    @Test
+    void testGetProductByIdNotModified() {
+        // 第一次返回200和ETag，第二次携带If-None-Match并收到304
+        when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(anyString(), any(Long.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.ifNoneMatch("\"1-1\"")).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntity(ArgumentMatchers.<ParameterizedTypeReference<R<ProductDTO>>>any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().eTag("\"1-1\"").body(R.ok(mockProduct))))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build()));
+
+        ProductDTO first = orderService.getProductById(1L);
+        ProductDTO second = orderService.getProductById(1L);
+
+        // 304时复用第一次解码的对象
+        assertSame(first, second);
+        verify(requestHeadersSpec).ifNoneMatch("\"1-1\"");
+    }
+
+    @Test
+    void testGetProductPage() {
+        when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(anyString(), any(Object[].class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header(HttpHeaders.IF_NONE_MATCH, "\"L1\"")).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntity(ArgumentMatchers.<ParameterizedTypeReference<R<List<ProductDTO>>>>any()))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"L1\"").build()));
+
+        ResponseEntity<R<List<ProductDTO>>> page = orderService.getProductPage(5L, 10, "\"L1\"");
+
+        // 客户端的If-None-Match原样透传，304时没有响应体
+        assertEquals(HttpStatus.NOT_MODIFIED, page.getStatusCode());
+        assertNull(page.getBody());
+        verify(requestHeadersUriSpec).uri(ServiceUris.Product.LIST + "?cursor={cursor}&size={size}", 5L, 10);
+    }
+
+    @Test
+    void testStreamProducts() {
+        when(productWebClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.accept(MediaType.APPLICATION_NDJSON)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(ProductDTO.class)).thenReturn(Flux.just(mockProduct, mockProduct));
+
+        List<ProductDTO> result = orderService.streamProducts().collectList().block();
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void testDeductStockBatch() {
+        List<StockDeductionDTO> deductions = List.of(new StockDeductionDTO(1L, 3), new StockDeductionDTO(2L, 1));
+        List<StockDeductionResultDTO> results = List.of(
+                new StockDeductionResultDTO(1L, 0, "测试商品", new BigDecimal("99.99"), 97),
+                new StockDeductionResultDTO(2L, BizCodeEnum.STOCK_NOT_ENOUGH.getCode(), "测试商品2",
+                        new BigDecimal("9.99"), 0));
+        when(productWebClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(ServiceUris.Product.DEDUCT_STOCK_BATCH)).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.bodyValue(deductions)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(
+                ArgumentMatchers.<ParameterizedTypeReference<R<List<StockDeductionResultDTO>>>>any()))
+                .thenReturn(Mono.just(R.ok(results)));
+
+        assertEquals(results, orderService.deductStockBatch(deductions));
+
+        // 结果与请求项数不一致时视为失败
+        when(responseSpec.bodyToMono(
+                ArgumentMatchers.<ParameterizedTypeReference<R<List<StockDeductionResultDTO>>>>any()))
+                .thenReturn(Mono.just(R.fail(BizCodeEnum.PARAM_ERROR)));
+        assertThrows(IllegalStateException.class, () -> orderService.deductStockBatch(deductions));
+    }
+
+    @Test
+    void testGetProductsForOrder() {
+        List<Long> productIds = List.of(1L, 999L);
+        when(productWebClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(ServiceUris.Product.GET_BATCH + "?fields={fields}", "id,name,price,stock"))
+                .thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.bodyValue(productIds)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(ArgumentMatchers.<ParameterizedTypeReference<R<List<ProductDTO>>>>any()))
+                .thenReturn(Mono.just(R.ok(List.of(mockProduct))));
+
+        assertEquals(List.of(mockProduct), orderService.getProductsForOrder(productIds));
+
+        when(responseSpec.bodyToMono(ArgumentMatchers.<ParameterizedTypeReference<R<List<ProductDTO>>>>any()))
+                .thenReturn(Mono.just(R.fail(BizCodeEnum.PARAM_ERROR)));
+        assertThrows(IllegalStateException.class, () -> orderService.getProductsForOrder(productIds));
+    }
 }
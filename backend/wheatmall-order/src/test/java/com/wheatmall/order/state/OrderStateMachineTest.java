@@ -0,0 +1,118 @@
+package com.wheatmall.order.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderStateMachine单元测试
+ */
+class OrderStateMachineTest {
+
+    @Test
+    void testStandardLifecycle() {
+        List<String> transitions = new ArrayList<>();
+        OrderStateMachine<String> machine = OrderStateMachine.<String>standard()
+                .onAnyTransition((subject, from, to, version) -> transitions.add(subject + ":" + from + "->" + to))
+                .onTransition(OrderState.PAID, OrderEvent.SHIP, (subject, from, to, version) -> transitions.add("shipped"))
+                .build();
+        OrderStateCell cell = new OrderStateCell(OrderState.CREATED);
+
+        long paid = machine.fire(cell, OrderEvent.PAY, "o1");
+        assertEquals(OrderState.PAID, OrderStateCell.stateOf(paid));
+        assertEquals(1, OrderStateCell.versionOf(paid));
+        assertEquals(paid, cell.get());
+        long shipped = machine.fire(cell, OrderEvent.SHIP, "o1");
+        assertEquals(OrderState.SHIPPED, cell.state());
+        assertEquals(2, OrderStateCell.versionOf(shipped));
+        assertEquals(List.of("o1:CREATED->PAID", "o1:PAID->SHIPPED", "shipped"), transitions);
+    }
+
+    @Test
+    void testInvalidTransitionLeavesStateUnchanged() {
+        AtomicInteger hookCalls = new AtomicInteger();
+        OrderStateMachine<String> machine = OrderStateMachine.<String>standard()
+                .onAnyTransition((subject, from, to, version) -> hookCalls.incrementAndGet())
+                .build();
+        OrderStateCell cell = new OrderStateCell(OrderState.CREATED, 7);
+
+        assertEquals(OrderStateMachine.REJECTED, machine.fire(cell, OrderEvent.SHIP, "o1"));
+        assertEquals(OrderState.CREATED, cell.state());
+        assertEquals(7, cell.version());
+        machine.fire(cell, OrderEvent.CANCEL, "o1");
+        for (OrderEvent event : OrderEvent.values()) {
+            assertEquals(OrderStateMachine.REJECTED, machine.fire(cell, event, "o1"));
+        }
+        assertEquals(OrderState.CANCELLED, cell.state());
+        assertEquals(8, cell.version());
+        assertEquals(1, hookCalls.get());
+
+        assertEquals(OrderState.EXPIRED, machine.next(OrderState.CREATED, OrderEvent.EXPIRE));
+        assertNull(machine.next(OrderState.EXPIRED, OrderEvent.PAY));
+        assertEquals(OrderState.FAILED, machine.next(OrderState.CREATED, OrderEvent.STOCK_REJECTED));
+        assertNull(machine.next(OrderState.PAID, OrderEvent.STOCK_REJECTED));
+        assertNull(machine.next(OrderState.FAILED, OrderEvent.PAY));
+    }
+
+    @Test
+    void testBuilderRejectsDuplicateAndUndeclaredTransitions() {
+        assertThrows(IllegalArgumentException.class, () -> OrderStateMachine.standard()
+                .transition(OrderState.CREATED, OrderEvent.PAY, OrderState.SHIPPED));
+        assertThrows(IllegalArgumentException.class, () -> OrderStateMachine.<String>builder()
+                .onTransition(OrderState.CREATED, OrderEvent.PAY, (subject, from, to, version) -> {
+                }));
+    }
+
+    @Test
+    void testConcurrentPaymentAndExpiryOnlyOneWins() throws Exception {
+        int orders = 2000;
+        OrderStateCell[] cells = new OrderStateCell[orders];
+        for (int i = 0; i < orders; i++) {
+            cells[i] = new OrderStateCell(OrderState.CREATED);
+        }
+        AtomicInteger paidHooks = new AtomicInteger();
+        AtomicInteger expiredHooks = new AtomicInteger();
+        OrderStateMachine<Integer> machine = OrderStateMachine.<Integer>standard()
+                .onTransition(OrderState.CREATED, OrderEvent.PAY, (i, from, to, version) -> paidHooks.incrementAndGet())
+                .onTransition(OrderState.CREATED, OrderEvent.EXPIRE,
+                        (i, from, to, version) -> expiredHooks.incrementAndGet())
+                .build();
+        boolean[] paid = new boolean[orders];
+        boolean[] expired = new boolean[orders];
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        // 支付回调和超时关闭同时处理同一批订单
+        Thread payer = new Thread(() -> fireAll(machine, cells, OrderEvent.PAY, paid, barrier));
+        Thread expirer = new Thread(() -> fireAll(machine, cells, OrderEvent.EXPIRE, expired, barrier));
+        payer.start();
+        expirer.start();
+        payer.join();
+        expirer.join();
+
+        int paidCount = 0;
+        for (int i = 0; i < orders; i++) {
+            assertTrue(paid[i] ^ expired[i]);
+            assertEquals(paid[i] ? OrderState.PAID : OrderState.EXPIRED, cells[i].state());
+            assertEquals(1, cells[i].version());
+            paidCount += paid[i] ? 1 : 0;
+        }
+        assertEquals(paidCount, paidHooks.get());
+        assertEquals(orders - paidCount, expiredHooks.get());
+    }
+
+    private static void fireAll(OrderStateMachine<Integer> machine, OrderStateCell[] cells, OrderEvent event,
+                                boolean[] won, CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < cells.length; i++) {
+            won[i] = machine.fire(cells[i], event, i) != OrderStateMachine.REJECTED;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.wheatmall.product.cache;
+
+import com.wheatmall.product.projection.ProductProjection;
+
+/**
+ * 商品强ETag生成与If-None-Match匹配
+ *
+ * ETag只由商品版本（列表为目录摘要）决定，不需要序列化或哈希响应体；
+ * 同一版本的不同编码、不同字段投影使用不同后缀，保证强ETag在表示层面唯一。
+ */
+public final class ProductEtags {
+
+    private ProductEtags() {
+        // 私有构造器，防止实例化
+    }
+
+    /**
+     * 单个商品的ETag
+     */
+    public static String ofProduct(long productId, long version, ResponseVariant variant) {
+        return ofProduct(productId, version, variant, ProductProjection.ALL);
+    }
+
+    /**
+     * 单个商品按字段投影后的ETag
+     * @param fieldMask 字段投影掩码，全部字段时不加后缀
+     */
+    public static String ofProduct(long productId, long version, ResponseVariant variant, int fieldMask) {
+        return "\"" + productId + "-" + version + variant.getEtagSuffix() + fieldSuffix(fieldMask) + "\"";
+    }
+
+    /**
+     * 商品列表的ETag
+     * @param catalogDigest 商品目录摘要，由各成员版本增量计算
+     */
+    public static String ofList(long catalogDigest, ResponseVariant variant) {
+        return ofList(catalogDigest, variant, ProductProjection.ALL);
+    }
+
+    /**
+     * 商品列表按字段投影后的ETag
+     */
+    public static String ofList(long catalogDigest, ResponseVariant variant, int fieldMask) {
+        return "\"L" + Long.toHexString(catalogDigest) + variant.getEtagSuffix() + fieldSuffix(fieldMask) + "\"";
+    }
+
+    private static String fieldSuffix(int fieldMask) {
+        return fieldMask == ProductProjection.ALL ? "" : "-f" + Integer.toHexString(fieldMask);
+    }
+
+    /**
+     * 判断If-None-Match请求头是否匹配当前ETag
+     * 按RFC 9110对If-None-Match使用弱比较：忽略W/前缀，支持逗号分隔的多个值和*
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        int length = ifNoneMatch.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && (ifNoneMatch.charAt(i) == ' ' || ifNoneMatch.charAt(i) == ',')) {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+            if (ifNoneMatch.charAt(i) == '*') {
+                return true;
+            }
+            if (ifNoneMatch.startsWith("W/", i)) {
+                i += 2;
+            }
+            int end = ifNoneMatch.indexOf(',', i);
+            if (end < 0) {
+                end = length;
+            }
+            int tokenEnd = end;
+            while (tokenEnd > i && ifNoneMatch.charAt(tokenEnd - 1) == ' ') {
+                tokenEnd--;
+            }
+            if (tokenEnd - i == etag.length() && ifNoneMatch.startsWith(etag, i)) {
+                return true;
+            }
+            i = end + 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,140 @@
+package com.wheatmall.product.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.sketch.HotKeyDetector;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.product.dto.HotProduct;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.projection.ProductProjection;
+import com.wheatmall.product.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品详情热点：{@link ProductResponseCacheFilter} 抽样记录被访问的商品ID，按窗口（默认10秒）判定热点商品
+ *
+ * 热点商品在 {@link ProductResponseCache} 中固定（不被淘汰），新成为热点时预热JSON完整响应；
+ * 热点商品变更（包括每次扣减库存）失效缓存后，立即按新版本重新写入，避免失效后的并发请求都去编码同一个响应。
+ * 重新写入在商品写锁内执行，只针对热点商品，每次约几微秒。
+ */
+@Slf4j
+@Component
+public class ProductHotKeys implements HotKeyDetector.Listener {
+
+    private final HotKeyDetector detector;
+
+    private final ProductService productService;
+
+    private final ProductResponseCache responseCache;
+
+    private final ObjectMapper objectMapper;
+
+    public ProductHotKeys(ProductService productService, ProductResponseCache responseCache, ObjectMapper objectMapper,
+                          @Value("${wheatmall.product.hot-keys.stripes:64}") int stripes,
+                          @Value("${wheatmall.product.hot-keys.sample-rate:16}") int sampleRate,
+                          @Value("${wheatmall.product.hot-keys.buffer-size:1024}") int bufferSize,
+                          @Value("${wheatmall.product.hot-keys.capacity:256}") int capacity,
+                          @Value("${wheatmall.product.hot-keys.hot-share:0.01}") double hotShare,
+                          @Value("${wheatmall.product.hot-keys.cool-share:0.005}") double coolShare,
+                          @Value("${wheatmall.product.hot-keys.min-samples:100}") long minSamples) {
+        this.productService = productService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.detector = new HotKeyDetector(stripes, sampleRate, bufferSize, capacity, hotShare, coolShare, minSamples);
+        detector.addListener(this);
+    }
+
+    /**
+     * 记录一次商品详情访问（请求线程调用，只做抽样）
+     */
+    public void record(long productId) {
+        detector.record(productId);
+    }
+
+    public boolean isHot(long productId) {
+        return detector.isHot(productId);
+    }
+
+    /**
+     * 当前热点商品，按访问量降序
+     */
+    public List<HotProduct> hotProducts() {
+        List<HotKeyDetector.HotKey> keys = detector.hotSet().keys();
+        List<HotProduct> result = new ArrayList<>(keys.size());
+        for (HotKeyDetector.HotKey key : keys) {
+            Product product = productService.getById(key.key());
+            result.add(new HotProduct(key.key(), product == null ? null : product.getName(), key.share(),
+                    key.samples() * detector.getSampleRate()));
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${wheatmall.product.hot-keys.drain-interval:PT0.1S}")
+    public void drain() {
+        detector.drain();
+    }
+
+    @Scheduled(fixedRateString = "${wheatmall.product.hot-keys.window:PT10S}",
+            initialDelayString = "${wheatmall.product.hot-keys.window:PT10S}")
+    public void endWindow() {
+        detector.endWindow();
+    }
+
+    @Override
+    public void onWindowEnd(HotKeyDetector.HotSet hotSet, List<HotKeyDetector.HotKey> added,
+                            List<HotKeyDetector.HotKey> removed) {
+        long[] productIds = new long[hotSet.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = hotSet.keys().get(i).key();
+        }
+        responseCache.pin(productIds);
+        for (HotKeyDetector.HotKey key : added) {
+            Product product = productService.getById(key.key());
+            if (product != null) {
+                prewarm(product);
+            }
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            log.info("热点商品变化, 新增: {}, 移出: {}, 当前: {}", ids(added), ids(removed), hotSet.size());
+        }
+    }
+
+    /**
+     * 热点商品变更后按新版本重新写入缓存（在缓存失效之后执行）
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Product after = event.getAfter();
+        if (after != null && detector.isHot(after.getId())) {
+            prewarm(after);
+        }
+    }
+
+    /**
+     * 写入JSON完整响应（与未带fields参数的 GET /api/product/{id} 相同），已缓存当前版本时跳过
+     */
+    private void prewarm(Product product) {
+        long version = product.getVersion();
+        if (responseCache.get(product.getId(), ResponseVariant.JSON, ProductProjection.ALL, version) != null) {
+            return;
+        }
+        try {
+            responseCache.put(product.getId(), ResponseVariant.JSON, ProductProjection.ALL, version,
+                    objectMapper.writeValueAsBytes(R.ok(product)));
+        } catch (JsonProcessingException e) {
+            log.warn("预热商品响应失败, productId: {}", product.getId(), e);
+        }
+    }
+
+    private static List<Long> ids(List<HotKeyDetector.HotKey> keys) {
+        return keys.stream().map(HotKeyDetector.HotKey::key).toList();
+    }
+}
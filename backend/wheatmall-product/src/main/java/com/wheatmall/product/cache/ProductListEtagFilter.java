@@ -0,0 +1,55 @@
+package com.wheatmall.product.cache;
+
+import com.wheatmall.common.constant.ServiceUris;
+import com.wheatmall.product.projection.ProductProjection;
+import com.wheatmall.product.service.ProductService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 商品列表条件请求过滤器
+ *
+ * 列表ETag由商品目录摘要生成（各成员版本增量维护），不需要序列化或哈希响应体；
+ * If-None-Match匹配时直接返回304，不进入Controller。字段投影（?fields=）计入ETag。
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductListEtagFilter extends OncePerRequestFilter {
+
+    private final ProductService productService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !ServiceUris.Product.LIST.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ResponseVariant variant = ResponseVariant.fromAccept(request.getHeader(HttpHeaders.ACCEPT));
+        int fieldMask = ProductProjection.parseMask(request.getParameter(ProductProjection.PARAM_NAME));
+        if (variant == null || fieldMask < 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // 必须在构建响应体之前读取摘要，见ProductCatalog各实现的put
+        String etag = ProductEtags.ofList(productService.getCatalogDigest(), variant, fieldMask);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (ProductEtags.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
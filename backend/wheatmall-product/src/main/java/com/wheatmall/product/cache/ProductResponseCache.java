@@ -0,0 +1,225 @@
+package com.wheatmall.product.cache;
+
+import com.wheatmall.product.event.ProductChangedEvent;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品响应字节缓存
+ *
+ * 缓存完整编码后的 R&lt;Product&gt; 响应字节及其ETag，命中时直接写回，跳过对象映射。
+ * - 同一商品的所有表示（编码 × 字段投影）归在一个槽位下，失效时整体移除
+ * - 条目带商品version，读取时与当前version比对，版本不一致即视为未命中
+ * - 商品变更事件在写锁内同步触发失效
+ * - 按总字节数限制容量，超限时按CLOCK算法淘汰（最近访问过的商品获得一次豁免，固定的热点商品不淘汰）
+ */
+@Component
+public class ProductResponseCache {
+
+    /**
+     * 单个条目最多占用总容量的比例（1/8），避免单个大响应冲掉整个缓存
+     */
+    private static final int MAX_ENTRY_FRACTION = 8;
+
+    private final long maxBytes;
+
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    /** 固定的商品ID（热点），升序，整体替换 */
+    private volatile long[] pinned = new long[0];
+
+    public ProductResponseCache(@Value("${wheatmall.product.response-cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 查询缓存
+     * @param productId 商品ID
+     * @param variant 编码变体
+     * @param fieldMask 字段投影掩码
+     * @param version 商品当前版本
+     * @return 命中的条目，未命中返回null
+     */
+    public Entry get(long productId, ResponseVariant variant, int fieldMask, long version) {
+        Slot slot = slots.get(productId);
+        if (slot == null) {
+            return null;
+        }
+        for (Entry entry : slot.entries) {
+            if (entry.variant == variant && entry.fieldMask == fieldMask && entry.version == version) {
+                slot.referenced = true;
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入缓存，同一表示已存在更新版本的条目时忽略；旧版本的其他表示一并丢弃
+     * @return 写入的条目
+     */
+    public Entry put(long productId, ResponseVariant variant, int fieldMask, long version, byte[] body) {
+        Entry entry = new Entry(variant, fieldMask, version,
+                ProductEtags.ofProduct(productId, version, variant, fieldMask), body);
+        if (body.length > maxBytes / MAX_ENTRY_FRACTION) {
+            return entry;
+        }
+        slots.compute(productId, (id, old) -> {
+            Slot slot = old == null ? new Slot(new Entry[0]) : old;
+            if (slot.version() > version) {
+                return slot;
+            }
+            Entry[] kept = Arrays.stream(slot.entries)
+                    .filter(e -> e.version == version && (e.variant != variant || e.fieldMask != fieldMask))
+                    .toArray(Entry[]::new);
+            Entry[] entries = Arrays.copyOf(kept, kept.length + 1);
+            entries[kept.length] = entry;
+            Slot updated = new Slot(entries);
+            totalBytes.addAndGet(updated.bytes() - (old == null ? 0 : old.bytes()));
+            return updated;
+        });
+        if (totalBytes.get() > maxBytes) {
+            evict();
+        }
+        return entry;
+    }
+
+    /**
+     * 失效指定商品的所有表示
+     */
+    public void invalidate(long productId) {
+        Slot removed = slots.remove(productId);
+        if (removed != null) {
+            totalBytes.addAndGet(-removed.bytes());
+        }
+    }
+
+    /**
+     * 替换固定的商品：淘汰时跳过，失效不受影响
+     * @param productIds 商品ID，数量应远小于缓存能容纳的商品数
+     */
+    public void pin(long[] productIds) {
+        long[] sorted = productIds.clone();
+        Arrays.sort(sorted);
+        pinned = sorted;
+    }
+
+    public boolean isPinned(long productId) {
+        return Arrays.binarySearch(pinned, productId) >= 0;
+    }
+
+    /**
+     * 商品变更时同步失效，先于其他监听器执行（热点预热在失效之后写入新版本）
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    /**
+     * 当前缓存占用的字节数
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * CLOCK淘汰：清除访问标记，淘汰未被访问的商品，直到降到容量的90%以下
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxBytes - maxBytes / 10;
+            Iterator<Map.Entry<Long, Slot>> it = slots.entrySet().iterator();
+            int sweeps = 0;
+            while (totalBytes.get() > target && sweeps < 2) {
+                if (!it.hasNext()) {
+                    it = slots.entrySet().iterator();
+                    sweeps++;
+                    continue;
+                }
+                Map.Entry<Long, Slot> e = it.next();
+                Slot slot = e.getValue();
+                if (Arrays.binarySearch(pinned, e.getKey()) >= 0) {
+                    continue;
+                }
+                if (slot.referenced) {
+                    slot.referenced = false;
+                } else if (slots.remove(e.getKey(), slot)) {
+                    totalBytes.addAndGet(-slot.bytes());
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * 单个商品的缓存槽位，条目数组不可变，写入时整体替换
+     */
+    private static final class Slot {
+
+        private final Entry[] entries;
+
+        private volatile boolean referenced;
+
+        Slot(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        long version() {
+            return entries.length == 0 ? Long.MIN_VALUE : entries[0].version;
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (Entry entry : entries) {
+                bytes += entry.body.length;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    @Getter
+    public static final class Entry {
+
+        private final ResponseVariant variant;
+
+        private final int fieldMask;
+
+        private final long version;
+
+        private final String etag;
+
+        private final byte[] body;
+
+        Entry(ResponseVariant variant, int fieldMask, long version, String etag, byte[] body) {
+            this.variant = variant;
+            this.fieldMask = fieldMask;
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+}
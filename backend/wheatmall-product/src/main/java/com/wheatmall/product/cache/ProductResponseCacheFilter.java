@@ -0,0 +1,136 @@
+package com.wheatmall.product.cache;
+
+import com.wheatmall.common.constant.ServiceUris;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.projection.ProductProjection;
+import com.wheatmall.product.service.ProductService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * 商品详情响应缓存过滤器
+ *
+ * 拦截 GET /api/product/{id} 和 GET /api/product/get/{id}：
+ * - If-None-Match与当前版本ETag匹配：直接返回304，不构建响应体
+ * - 命中：直接写回缓存的字节，不进入Controller
+ * - 未命中：缓冲Controller输出的字节，商品版本在处理期间未变化时写入缓存
+ * 字段投影（?fields=）是缓存键和ETag的一部分；参数非法时不处理，由Controller返回参数错误
+ * 每次请求的商品ID交给 {@link ProductHotKeys} 抽样，用于判定热点
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String PATH_PREFIX = ServiceUris.PRODUCT_SERVICE + "/";
+
+    private static final String INTERNAL_PREFIX = "get/";
+
+    /** request attribute：解析出的商品ID */
+    private static final String PRODUCT_ID_ATTRIBUTE = ProductResponseCacheFilter.class.getName() + ".productId";
+
+    private final ProductService productService;
+
+    private final ProductResponseCache responseCache;
+
+    private final ProductHotKeys hotKeys;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        long productId = parseProductId(request.getRequestURI().substring(request.getContextPath().length()));
+        if (productId < 0) {
+            return true;
+        }
+        request.setAttribute(PRODUCT_ID_ATTRIBUTE, productId);
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long productId = (Long) request.getAttribute(PRODUCT_ID_ATTRIBUTE);
+        hotKeys.record(productId);
+        ResponseVariant variant = ResponseVariant.fromAccept(request.getHeader(HttpHeaders.ACCEPT));
+        int fieldMask = ProductProjection.parseMask(request.getParameter(ProductProjection.PARAM_NAME));
+        Product product = productService.getById(productId);
+        if (variant == null || fieldMask < 0 || product == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long version = product.getVersion();
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = ProductEtags.ofProduct(productId, version, variant, fieldMask);
+        if (ProductEtags.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        ProductResponseCache.Entry entry = responseCache.get(productId, variant, fieldMask, version);
+        if (entry != null) {
+            writeEntry(response, variant, entry);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        Product current = productService.getById(productId);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK
+                && variant.matches(wrapper.getContentType())
+                && current != null && current.getVersion() == version) {
+            entry = responseCache.put(productId, variant, fieldMask, version, wrapper.getContentAsByteArray());
+            wrapper.setHeader(HttpHeaders.ETAG, entry.getEtag());
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void writeEntry(HttpServletResponse response, ResponseVariant variant,
+                            ProductResponseCache.Entry entry) throws IOException {
+        byte[] body = entry.getBody();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(variant.getMediaType().toString());
+        response.setContentLength(body.length);
+        response.setHeader(HttpHeaders.ETAG, entry.getEtag());
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 解析 /api/product/{id} 或 /api/product/get/{id} 中的商品ID
+     * @return 商品ID，路径不匹配时返回-1
+     */
+    static long parseProductId(String path) {
+        if (!path.startsWith(PATH_PREFIX)) {
+            return -1;
+        }
+        int start = PATH_PREFIX.length();
+        if (path.startsWith(INTERNAL_PREFIX, start)) {
+            start += INTERNAL_PREFIX.length();
+        }
+        int end = path.length();
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
@@ -0,0 +1,82 @@
+package com.wheatmall.product.cache;
+
+import com.wheatmall.common.codec.BinaryCodec;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 响应编码变体，同一商品的不同编码分别缓存
+ */
+@Getter
+public enum ResponseVariant {
+
+    /**
+     * JSON（外部客户端默认）
+     */
+    JSON(MediaType.APPLICATION_JSON, ""),
+
+    /**
+     * Smile（服务间内部调用）
+     */
+    SMILE(BinaryCodec.APPLICATION_SMILE, "-s");
+
+    private final MediaType mediaType;
+
+    /**
+     * ETag后缀，强ETag需要区分不同编码
+     */
+    private final String etagSuffix;
+
+    ResponseVariant(MediaType mediaType, String etagSuffix) {
+        this.mediaType = mediaType;
+        this.etagSuffix = etagSuffix;
+    }
+
+    /**
+     * 根据Accept请求头选择编码，与Spring MVC选择消息转换器的方式一致：
+     * 可接受的类型按q值和具体程度排序后与各编码两两匹配，匹配结果带上可接受类型的q值，按q值和具体程度排序后取第一个；
+     * q值和具体程度都相同时按转换器的注册顺序（JSON在前，见WebMvcConfig）
+     * @param accept Accept请求头
+     * @return 编码变体，无法确定时返回null（不走缓存）
+     */
+    public static ResponseVariant fromAccept(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return JSON;
+        }
+        List<MediaType> candidates = new ArrayList<>();
+        try {
+            List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(acceptedTypes);
+            for (MediaType accepted : acceptedTypes) {
+                if (accepted.getQualityValue() <= 0) {
+                    continue;
+                }
+                for (ResponseVariant variant : values()) {
+                    if (accepted.isCompatibleWith(variant.mediaType)) {
+                        candidates.add(variant.mediaType.copyQualityValue(accepted));
+                    }
+                }
+            }
+            MimeTypeUtils.sortBySpecificity(candidates);
+        } catch (IllegalArgumentException e) {
+            // 无法解析的Accept交给Spring处理
+            return null;
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        MediaType selected = candidates.get(0);
+        return SMILE.mediaType.equalsTypeAndSubtype(selected) ? SMILE : JSON;
+    }
+
+    /**
+     * 判断响应Content-Type是否属于该编码
+     */
+    public boolean matches(String contentType) {
+        return contentType != null && contentType.startsWith(mediaType.toString());
+    }
+}
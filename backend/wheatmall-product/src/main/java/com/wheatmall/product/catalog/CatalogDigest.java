@@ -0,0 +1,22 @@
+package com.wheatmall.product.catalog;
+
+/**
+ * 商品目录摘要：所有商品 mix(id, version) 之和
+ * 新增、删除或版本变化都会改变摘要，可以增量维护，用于生成列表ETag
+ */
+public final class CatalogDigest {
+
+    private CatalogDigest() {
+        // 私有构造器，防止实例化
+    }
+
+    /**
+     * 商品(id, version)的64位散列（SplitMix64终结函数）
+     */
+    public static long mix(long id, long version) {
+        long z = id * 0x9E3779B97F4A7C15L + version;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,168 @@
+package com.wheatmall.product.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 商品目录快照文件格式（小端）
+ *
+ * <pre>
+ * 文件头：magic(int) formatVersion(int) sequence(long) rowCount(int) garbageBytes(long) segmentCount(int)
+ *        段表 segmentCount × [kind(int) index(int) offset(long) length(long) crc32c(int)]
+ *        headerCrc(int)：以上所有字节的CRC32C
+ * 数据段：每段按4KB对齐，依次为各列（kind=1）和字符串块（kind=2）
+ * </pre>
+ * 每段单独校验CRC32C，任一段损坏时整个快照不可用。
+ */
+final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x57_4D_43_53;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int KIND_COLUMN = 1;
+
+    private static final int KIND_STRINGS = 2;
+
+    private static final int FIXED_HEADER_BYTES = 32;
+
+    private static final int SEGMENT_ENTRY_BYTES = 28;
+
+    private static final int ALIGNMENT = 4096;
+
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private CatalogSnapshotFile() {
+        // 私有构造器，防止实例化
+    }
+
+    /**
+     * 快照内容
+     * @param columns 各列数据，读出时为写时复制映射
+     * @param strings 字符串块，读出时为只读映射
+     */
+    record Contents(long sequence, int rowCount, long garbageBytes, ByteBuffer[] columns, ByteBuffer[] strings) {
+    }
+
+    /**
+     * 写入快照文件并刷盘，文件已存在时覆盖
+     */
+    static void write(Path file, Contents contents) throws IOException {
+        int segmentCount = contents.columns.length + contents.strings.length;
+        int headerBytes = FIXED_HEADER_BYTES + segmentCount * SEGMENT_ENTRY_BYTES + Integer.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(contents.sequence)
+                .putInt(contents.rowCount)
+                .putLong(contents.garbageBytes)
+                .putInt(segmentCount);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = align(headerBytes);
+            for (int i = 0; i < segmentCount; i++) {
+                boolean column = i < contents.columns.length;
+                ByteBuffer data = column ? contents.columns[i] : contents.strings[i - contents.columns.length];
+                header.putInt(column ? KIND_COLUMN : KIND_STRINGS)
+                        .putInt(column ? i : i - contents.columns.length)
+                        .putLong(position)
+                        .putLong(data.remaining())
+                        .putInt(crc(data));
+                writeFully(channel, data.duplicate(), position);
+                position = align(position + data.remaining());
+            }
+            header.putInt(crc(header.duplicate().flip()));
+            writeFully(channel, header.flip(), 0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 读取并映射快照文件，校验文件头和每个数据段
+     */
+    static Contents read(Path file) throws IOException {
+        // 写时复制映射要求通道可读写，文件本身不会被修改
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER_BYTES);
+            if (fixed.getInt() != MAGIC || fixed.getInt() != FORMAT_VERSION) {
+                throw new IOException("不是可识别的快照文件: " + file);
+            }
+            long sequence = fixed.getLong();
+            int rowCount = fixed.getInt();
+            long garbageBytes = fixed.getLong();
+            int segmentCount = fixed.getInt();
+            if (rowCount < 0 || segmentCount < 0 || segmentCount > MAX_SEGMENTS) {
+                throw new IOException("快照文件头非法: " + file);
+            }
+            int headerBytes = FIXED_HEADER_BYTES + segmentCount * SEGMENT_ENTRY_BYTES + Integer.BYTES;
+            ByteBuffer header = readFully(channel, 0, headerBytes);
+            int expectedCrc = header.getInt(headerBytes - Integer.BYTES);
+            if (crc(header.slice(0, headerBytes - Integer.BYTES)) != expectedCrc) {
+                throw new IOException("快照文件头校验失败: " + file);
+            }
+            header.position(FIXED_HEADER_BYTES);
+            int columnCount = 0;
+            Segment[] segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment(header.getInt(), header.getInt(), header.getLong(), header.getLong(),
+                        header.getInt());
+                if (segments[i].kind == KIND_COLUMN) {
+                    columnCount++;
+                }
+            }
+            ByteBuffer[] columns = new ByteBuffer[columnCount];
+            ByteBuffer[] strings = new ByteBuffer[segmentCount - columnCount];
+            for (Segment segment : segments) {
+                boolean column = segment.kind == KIND_COLUMN;
+                ByteBuffer[] target = column ? columns : strings;
+                if (segment.index < 0 || segment.index >= target.length || target[segment.index] != null
+                        || segment.offset < 0 || segment.length < 0 || segment.length > Integer.MAX_VALUE
+                        || segment.offset + segment.length > channel.size()) {
+                    throw new IOException("快照段表非法: " + file);
+                }
+                MappedByteBuffer data = channel.map(column ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY,
+                        segment.offset, segment.length);
+                if (crc(data) != segment.crc) {
+                    throw new IOException("快照数据段校验失败: " + file + ", kind=" + segment.kind + ", index=" + segment.index);
+                }
+                target[segment.index] = data;
+            }
+            return new Contents(sequence, rowCount, garbageBytes, columns, strings);
+        }
+    }
+
+    private record Segment(int kind, int index, long offset, long length, int crc) {
+    }
+
+    private static int crc(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("快照文件不完整");
+            }
+        }
+        return buffer.flip();
+    }
+}
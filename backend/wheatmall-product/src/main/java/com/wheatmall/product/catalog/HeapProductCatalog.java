@@ -0,0 +1,71 @@
+package com.wheatmall.product.catalog;
+
+import com.wheatmall.product.entity.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 堆内商品目录：直接保存Product对象（跳表按ID排序）
+ * 商品对象视为不可变，每次修改替换为新对象
+ */
+public class HeapProductCatalog implements ProductCatalog {
+
+    private final ConcurrentSkipListMap<Long, Product> products = new ConcurrentSkipListMap<>();
+
+    private volatile long sequence;
+
+    private volatile long digest;
+
+    @Override
+    public Product get(long id) {
+        return products.get(id);
+    }
+
+    @Override
+    public synchronized void put(Product product, long sequence) {
+        // 先替换商品再更新摘要：读方先读摘要后读商品，最多拿到旧ETag配新数据，不会反过来
+        Product before = products.put(product.getId(), product);
+        digest += mix(product) - (before == null ? 0 : mix(before));
+        this.sequence = Math.max(this.sequence, sequence);
+    }
+
+    @Override
+    public List<Product> listAfter(long cursor, int limit) {
+        List<Product> page = new ArrayList<>(Math.min(limit, 256));
+        for (Product product : products.tailMap(cursor, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(product);
+        }
+        return page;
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+
+    @Override
+    public long maxId() {
+        Map.Entry<Long, Product> last = products.lastEntry();
+        return last == null ? 0 : last.getKey();
+    }
+
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public long getDigest() {
+        return digest;
+    }
+
+    private static long mix(Product product) {
+        return CatalogDigest.mix(product.getId(), product.getVersion());
+    }
+}
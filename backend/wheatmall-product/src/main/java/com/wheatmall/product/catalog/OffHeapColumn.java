@@ -0,0 +1,83 @@
+package com.wheatmall.product.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 定长堆外列：每行width字节，按行号寻址，固定小端字节序（与快照文件格式一致）
+ * 非线程安全，由OffHeapProductCatalog的锁保护
+ */
+final class OffHeapColumn {
+
+    private final int width;
+
+    private ByteBuffer buffer;
+
+    OffHeapColumn(int width, int capacity) {
+        this.width = width;
+        this.buffer = allocate(width, capacity);
+    }
+
+    /**
+     * 基于已有缓冲区（如快照文件的写时复制映射）创建列，容量为缓冲区能容纳的行数
+     */
+    OffHeapColumn(int width, ByteBuffer buffer) {
+        this.width = width;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int capacity() {
+        return buffer.capacity() / width;
+    }
+
+    long getLong(int row) {
+        return buffer.getLong(row * width);
+    }
+
+    void putLong(int row, long value) {
+        buffer.putLong(row * width, value);
+    }
+
+    int getInt(int row) {
+        return buffer.getInt(row * width);
+    }
+
+    void putInt(int row, int value) {
+        buffer.putInt(row * width, value);
+    }
+
+    /**
+     * 扩容到capacity行，保留前size行
+     */
+    void grow(int capacity, int size) {
+        ByteBuffer grown = allocate(width, capacity);
+        grown.put(0, buffer, 0, size * width);
+        buffer = grown;
+    }
+
+    /**
+     * 把[from, size)整体后移一行，为插入腾出位置
+     */
+    void shiftRight(int from, int size) {
+        if (width == Long.BYTES) {
+            for (int row = size - 1; row >= from; row--) {
+                putLong(row + 1, getLong(row));
+            }
+        } else {
+            for (int row = size - 1; row >= from; row--) {
+                putInt(row + 1, getInt(row));
+            }
+        }
+    }
+
+    /**
+     * 前size行的视图，用于写快照
+     */
+    ByteBuffer slice(int size) {
+        return buffer.slice(0, size * width);
+    }
+
+    private static ByteBuffer allocate(int width, int capacity) {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(width, capacity)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,390 @@
+package com.wheatmall.product.catalog;
+
+import com.wheatmall.product.entity.Product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 堆外列式商品目录
+ *
+ * 每个字段一列，保存在堆外内存（DirectByteBuffer）中，行按商品ID升序排列：
+ * - id、version：long
+ * - price：long，以分为单位（scale=2）
+ * - stock：int
+ * - createTime、updateTime：long，UTC纪元纳秒（LocalDateTime按UTC换算，往返无损）
+ * - name、description：long，指向 {@link StringArena} 中的UTF-8字节
+ * 堆上只保留几个列对象，GC扫描量与商品数量无关；Product对象在读取时按需构建，用完即弃。
+ *
+ * 读操作先尝试乐观读（StampedLock），校验失败再加读锁；写操作加写锁。
+ * ID递增追加为O(1)，插入中间位置需要整体后移（O(n)），适合ID单调生成的场景。
+ *
+ * 列和字符串区可以原样写成快照文件（见 {@link CatalogSnapshotFile}），
+ * 恢复时直接映射文件，不逐条解析：列使用写时复制映射，字符串块使用只读映射。
+ */
+public class OffHeapProductCatalog implements ProductCatalog {
+
+    /** 价格小数位数 */
+    public static final int PRICE_SCALE = 2;
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** long列单个DirectByteBuffer能容纳的最大行数 */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / Long.BYTES;
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** 各列宽度，顺序即快照中的列顺序：id、price、stock、createTime、updateTime、version、name、description */
+    private static final int[] COLUMN_WIDTHS = {Long.BYTES, Long.BYTES, Integer.BYTES, Long.BYTES, Long.BYTES,
+            Long.BYTES, Long.BYTES, Long.BYTES};
+
+    private final StampedLock lock = new StampedLock();
+
+    private final OffHeapColumn ids;
+
+    private final OffHeapColumn prices;
+
+    private final OffHeapColumn stocks;
+
+    private final OffHeapColumn createTimes;
+
+    private final OffHeapColumn updateTimes;
+
+    private final OffHeapColumn versions;
+
+    private final OffHeapColumn names;
+
+    private final OffHeapColumn descriptions;
+
+    private final OffHeapColumn[] columns;
+
+    private final StringArena strings;
+
+    private int size;
+
+    private int capacity;
+
+    private volatile long sequence;
+
+    private volatile long digest;
+
+    public OffHeapProductCatalog(int initialCapacity) {
+        this(allocateColumns(Math.max(initialCapacity, MIN_CAPACITY)), new StringArena(), 0, 0L);
+    }
+
+    private OffHeapProductCatalog(OffHeapColumn[] columns, StringArena strings, int size, long sequence) {
+        this.columns = columns;
+        this.ids = columns[0];
+        this.prices = columns[1];
+        this.stocks = columns[2];
+        this.createTimes = columns[3];
+        this.updateTimes = columns[4];
+        this.versions = columns[5];
+        this.names = columns[6];
+        this.descriptions = columns[7];
+        this.strings = strings;
+        this.size = size;
+        this.capacity = ids.capacity();
+        this.sequence = sequence;
+        long sum = 0;
+        for (int row = 0; row < size; row++) {
+            sum += CatalogDigest.mix(ids.getLong(row), versions.getLong(row));
+        }
+        this.digest = sum;
+    }
+
+    /**
+     * 映射快照文件，校验失败时抛出IOException
+     */
+    public static OffHeapProductCatalog mapSnapshot(Path file) throws IOException {
+        CatalogSnapshotFile.Contents contents = CatalogSnapshotFile.read(file);
+        ByteBuffer[] data = contents.columns();
+        if (data.length != COLUMN_WIDTHS.length) {
+            throw new IOException("快照列数不匹配: " + file);
+        }
+        OffHeapColumn[] columns = new OffHeapColumn[data.length];
+        for (int i = 0; i < data.length; i++) {
+            if (data[i].capacity() != contents.rowCount() * COLUMN_WIDTHS[i]) {
+                throw new IOException("快照列长度不匹配: " + file);
+            }
+            columns[i] = new OffHeapColumn(COLUMN_WIDTHS[i], data[i]);
+        }
+        return new OffHeapProductCatalog(columns, new StringArena(contents.strings(), contents.garbageBytes()),
+                contents.rowCount(), contents.sequence());
+    }
+
+    /**
+     * 把当前目录写成快照文件
+     * 写入期间持有读锁（阻塞写操作，不阻塞读操作），保证快照与其变更序号一致
+     * @return 快照对应的变更序号
+     */
+    public long writeSnapshot(Path file) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            ByteBuffer[] data = new ByteBuffer[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                data[i] = columns[i].slice(size);
+            }
+            CatalogSnapshotFile.write(file, new CatalogSnapshotFile.Contents(sequence, size,
+                    strings.getGarbageBytes(), data, strings.usedChunks()));
+            return sequence;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Product get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Row row = readRow(id);
+                if (lock.validate(stamp)) {
+                    return toProduct(row);
+                }
+            } catch (IndexOutOfBoundsException e) {
+                // 与扩容并发时可能读到不一致的size和列，加读锁重试
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return toProduct(readRow(id));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void put(Product product, long sequence) {
+        // 先完成可能失败的转换，避免写入半行
+        long price = toMinorUnits(product.getPrice());
+        long createTime = toEpochNanos(product.getCreateTime());
+        long updateTime = toEpochNanos(product.getUpdateTime());
+        long stamp = lock.writeLock();
+        try {
+            int row = search(product.getId());
+            long oldMix = 0;
+            if (row >= 0) {
+                oldMix = CatalogDigest.mix(ids.getLong(row), versions.getLong(row));
+                strings.release(replaceString(names, row, product.getName()));
+                strings.release(replaceString(descriptions, row, product.getDescription()));
+            } else {
+                row = -row - 1;
+                insertRow(row);
+                ids.putLong(row, product.getId());
+                names.putLong(row, strings.append(product.getName()));
+                descriptions.putLong(row, strings.append(product.getDescription()));
+            }
+            prices.putLong(row, price);
+            stocks.putInt(row, product.getStock() == null ? NULL_INT : product.getStock());
+            createTimes.putLong(row, createTime);
+            updateTimes.putLong(row, updateTime);
+            versions.putLong(row, product.getVersion() == null ? NULL_LONG : product.getVersion());
+            // 先写行再更新摘要：读方先读摘要后读商品，最多拿到旧ETag配新数据，不会反过来
+            digest += CatalogDigest.mix(product.getId(), versions.getLong(row)) - oldMix;
+            this.sequence = Math.max(this.sequence, sequence);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<Product> listAfter(long cursor, int limit) {
+        long stamp = lock.readLock();
+        try {
+            int from = search(cursor);
+            from = from >= 0 ? from + 1 : -from - 1;
+            int to = (int) Math.min(size, (long) from + limit);
+            List<Product> page = new ArrayList<>(Math.max(0, Math.min(to - from, 256)));
+            for (int row = from; row < to; row++) {
+                page.add(toProduct(readRow(row)));
+            }
+            return page;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long maxId() {
+        long stamp = lock.readLock();
+        try {
+            return size == 0 ? 0 : ids.getLong(size - 1);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public long getDigest() {
+        return digest;
+    }
+
+    /**
+     * 字符串区已使用的字节数（含已被替换的旧字符串）
+     */
+    public long getStringBytes() {
+        long stamp = lock.readLock();
+        try {
+            return strings.getUsedBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 字符串区中已被替换、不再引用的字节数
+     */
+    public long getGarbageStringBytes() {
+        long stamp = lock.readLock();
+        try {
+            return strings.getGarbageBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 二分查找ID所在行
+     * @return 行号；不存在时返回 -(插入位置) - 1
+     */
+    private int search(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = ids.getLong(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Row readRow(long id) {
+        int row = search(id);
+        return row < 0 ? null : readRow(row);
+    }
+
+    /**
+     * 读取一行的原始列值；字符串只取引用，校验通过后再解码
+     */
+    private Row readRow(int row) {
+        return new Row(ids.getLong(row), prices.getLong(row), stocks.getInt(row), createTimes.getLong(row),
+                updateTimes.getLong(row), versions.getLong(row), names.getLong(row), descriptions.getLong(row));
+    }
+
+    private Product toProduct(Row row) {
+        if (row == null) {
+            return null;
+        }
+        return new Product(
+                row.id,
+                strings.get(row.name),
+                row.price == NULL_LONG ? null : BigDecimal.valueOf(row.price, PRICE_SCALE),
+                row.stock == NULL_INT ? null : row.stock,
+                strings.get(row.description),
+                fromEpochNanos(row.createTime),
+                fromEpochNanos(row.updateTime),
+                row.version == NULL_LONG ? null : row.version
+        );
+    }
+
+    /**
+     * 替换字符串列的值，内容相同时复用原引用
+     * @return 被替换的旧引用，未替换时返回NULL_REF
+     */
+    private long replaceString(OffHeapColumn column, int row, String value) {
+        long old = column.getLong(row);
+        if (strings.contentEquals(old, value)) {
+            return StringArena.NULL_REF;
+        }
+        column.putLong(row, strings.append(value));
+        return old;
+    }
+
+    private void insertRow(int row) {
+        if (size == capacity) {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("商品目录已满: " + capacity);
+            }
+            int grown = (int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, capacity + (capacity >> 1)));
+            for (OffHeapColumn column : columns) {
+                column.grow(grown, size);
+            }
+            capacity = grown;
+        }
+        if (row < size) {
+            for (OffHeapColumn column : columns) {
+                column.shiftRight(row, size);
+            }
+        }
+        size++;
+    }
+
+    private static OffHeapColumn[] allocateColumns(int capacity) {
+        OffHeapColumn[] columns = new OffHeapColumn[COLUMN_WIDTHS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new OffHeapColumn(COLUMN_WIDTHS[i], capacity);
+        }
+        return columns;
+    }
+
+    /**
+     * 价格转换为分，超过2位小数时抛出ArithmeticException
+     */
+    static long toMinorUnits(BigDecimal price) {
+        return price == null ? NULL_LONG
+                : price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    static long toEpochNanos(LocalDateTime time) {
+        if (time == null) {
+            return NULL_LONG;
+        }
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), time.getNano());
+    }
+
+    static LocalDateTime fromEpochNanos(long nanos) {
+        if (nanos == NULL_LONG) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private record Row(long id, long price, int stock, long createTime, long updateTime, long version,
+                       long name, long description) {
+    }
+}
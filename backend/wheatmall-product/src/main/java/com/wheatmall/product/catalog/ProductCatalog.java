@@ -0,0 +1,54 @@
+package com.wheatmall.product.catalog;
+
+import com.wheatmall.product.entity.Product;
+
+import java.util.List;
+
+/**
+ * 商品目录存储
+ *
+ * 按商品ID有序存储，写操作由调用方（ProductService）串行化，读操作可并发。
+ * 返回的Product视为只读，修改商品通过put整体替换。
+ * 目录记录已应用的最大变更序号（用于快照后重放变更日志），并增量维护 {@link CatalogDigest}。
+ */
+public interface ProductCatalog {
+
+    /**
+     * 根据ID查询商品
+     * @return 商品，不存在时返回null
+     */
+    Product get(long id);
+
+    /**
+     * 新增或替换商品
+     * @param sequence 该变更的序号，初始数据为0
+     */
+    void put(Product product, long sequence);
+
+    /**
+     * 返回ID大于cursor的前limit个商品（按ID升序）
+     * @param cursor 起始游标（不包含），Long.MIN_VALUE表示从头开始
+     * @param limit 最多返回的数量
+     */
+    List<Product> listAfter(long cursor, int limit);
+
+    /**
+     * 商品数量
+     */
+    int size();
+
+    /**
+     * 最大商品ID，目录为空时返回0
+     */
+    long maxId();
+
+    /**
+     * 已应用的最大变更序号
+     */
+    long getSequence();
+
+    /**
+     * 商品目录摘要，O(1)读取
+     */
+    long getDigest();
+}
@@ -0,0 +1,145 @@
+package com.wheatmall.product.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 堆外字符串区：UTF-8字节按块追加存储，写入后不再移动或修改
+ *
+ * 引用为long：高32位块号，低32位块内偏移；每个字符串前4字节为字节长度。
+ * 追加由调用方串行化；读取无锁（已写入的字节不可变，块数组整体替换发布）。
+ * 被替换的旧字符串不回收，记入garbageBytes。
+ * 从快照恢复时，已有块直接使用文件的只读映射，新字符串写入新块。
+ */
+final class StringArena {
+
+    /** 空引用，表示null */
+    static final long NULL_REF = -1L;
+
+    private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private volatile ByteBuffer[] chunks;
+
+    /** 各块已写入的字节数 */
+    private int[] chunkUsed;
+
+    /** 当前写入块的写指针 */
+    private int position = CHUNK_SIZE;
+
+    private long usedBytes;
+
+    private long garbageBytes;
+
+    StringArena() {
+        this(new ByteBuffer[0], 0);
+    }
+
+    /**
+     * 从快照恢复：每个块写满到其容量，之后的追加写入新块
+     */
+    StringArena(ByteBuffer[] chunks, long garbageBytes) {
+        this.chunks = chunks;
+        this.chunkUsed = new int[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            chunkUsed[i] = chunks[i].capacity();
+            usedBytes += chunkUsed[i];
+        }
+        this.garbageBytes = garbageBytes;
+    }
+
+    /**
+     * 追加字符串
+     * @return 字符串引用，value为null时返回NULL_REF
+     */
+    long append(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int required = LENGTH_BYTES + bytes.length;
+        if (position + required > CHUNK_SIZE || chunks.length == 0) {
+            // 超过块大小的字符串单独占一个块
+            addChunk(Math.max(CHUNK_SIZE, required));
+        }
+        int chunk = chunks.length - 1;
+        ByteBuffer buffer = chunks[chunk];
+        buffer.putInt(position, bytes.length);
+        buffer.put(position + LENGTH_BYTES, bytes);
+        long ref = ((long) chunk << 32) | position;
+        position += required;
+        chunkUsed[chunk] = position;
+        usedBytes += required;
+        return ref;
+    }
+
+    /**
+     * 读取字符串
+     */
+    String get(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer buffer = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + LENGTH_BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 判断引用处的字符串是否等于value，不解码
+     */
+    boolean contentEquals(long ref, String value) {
+        if (ref == NULL_REF || value == null) {
+            return ref == NULL_REF && value == null;
+        }
+        ByteBuffer buffer = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (buffer.getInt(offset) != bytes.length) {
+            return false;
+        }
+        return buffer.slice(offset + LENGTH_BYTES, bytes.length).equals(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 标记引用处的字符串已不再使用
+     */
+    void release(long ref) {
+        if (ref != NULL_REF) {
+            garbageBytes += LENGTH_BYTES + chunks[(int) (ref >>> 32)].getInt((int) ref);
+        }
+    }
+
+    /**
+     * 各块已写入部分的视图，用于写快照
+     */
+    ByteBuffer[] usedChunks() {
+        ByteBuffer[] used = new ByteBuffer[chunks.length];
+        for (int i = 0; i < used.length; i++) {
+            used[i] = chunks[i].slice(0, chunkUsed[i]);
+        }
+        return used;
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    private void addChunk(int size) {
+        ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+        grown[chunks.length] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        chunkUsed = Arrays.copyOf(chunkUsed, grown.length);
+        chunks = grown;
+        position = 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.wheatmall.product.config;
+
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.catalog.ProductCatalog;
+import com.wheatmall.product.snapshot.CatalogSnapshotStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 商品目录存储配置
+ * wheatmall.product.catalog.store：off-heap（默认，堆外列式存储，启动时映射最新快照）或 heap（堆内对象）
+ */
+@Configuration
+@EnableScheduling
+public class ProductCatalogConfig {
+
+    private static final String STORE_PROPERTY = "wheatmall.product.catalog.store";
+
+    @Bean
+    @ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "off-heap", matchIfMissing = true)
+    public ProductCatalog offHeapProductCatalog(
+            CatalogSnapshotStore snapshotStore,
+            @Value("${wheatmall.product.catalog.initial-capacity:1024}") int initialCapacity) {
+        return snapshotStore.loadLatest().orElseGet(() -> new OffHeapProductCatalog(initialCapacity));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "heap")
+    public ProductCatalog heapProductCatalog() {
+        return new HeapProductCatalog();
+    }
+}
@@ -0,0 +1,27 @@
+package com.wheatmall.product.config;
+
+import com.wheatmall.common.codec.BinaryCodec;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Spring MVC配置
+ * 注册服务间内部调用使用的Smile二进制消息转换器
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * 替换默认的Smile转换器，使其与调用方（wheatmall-order）使用相同的编码配置
+     * 转换器放在JSON之后，未声明Accept的外部客户端仍然得到JSON
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(MappingJackson2SmileHttpMessageConverter.class::isInstance);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(BinaryCodec.smileObjectMapper()));
+    }
+}
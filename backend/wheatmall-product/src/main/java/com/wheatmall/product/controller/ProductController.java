@@ -1,81 +1,328 @@
 package com.wheatmall.product.controller;
 
 import com.wheatmall.common.constant.ServiceUris;
+import com.wheatmall.common.enums.BizCodeEnum;
 import com.wheatmall.common.utils.R;
+import com.wheatmall.product.cache.ProductHotKeys;
+import com.wheatmall.product.dto.HotProduct;
+import com.wheatmall.product.dto.RelatedProduct;
+import com.wheatmall.product.dto.SalesRank;
+import com.wheatmall.product.dto.StockDeduction;
+import com.wheatmall.product.dto.StockDeductionResult;
+import com.wheatmall.product.dto.TrendingProduct;
 import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.exception.StockNotEnoughException;
+import com.wheatmall.product.imports.ImportFormat;
+import com.wheatmall.product.imports.ImportJob;
+import com.wheatmall.product.projection.ProductProjection;
+import com.wheatmall.product.projection.Projectable;
+import com.wheatmall.product.projection.ProjectedProduct;
+import com.wheatmall.product.search.ProductSuggester;
+import com.wheatmall.product.service.CoPurchaseService;
+import com.wheatmall.product.service.ProductFilterService;
+import com.wheatmall.product.service.ProductImportService;
+import com.wheatmall.product.service.ProductSearchService;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.service.ProductSuggestService;
+import com.wheatmall.product.service.SalesTrendService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 商品控制器 - 提供商品相关的REST接口
  */
 @RestController
 @RequestMapping(ServiceUris.PRODUCT_SERVICE)
+@RequiredArgsConstructor
 public class ProductController {
 
+    /** 分页查询单页最大数量 */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /** 商品列表不传size时的每页数量 */
+    private static final int DEFAULT_LIST_SIZE = 100;
+
+    /** 流式查询每批读取的数量 */
+    private static final int STREAM_BATCH_SIZE = 256;
+
+    /** 搜索默认返回的数量 */
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+
+    /** 名称补全默认返回的数量 */
+    private static final int DEFAULT_SUGGEST_SIZE = 10;
+
+    /** 筛选默认每页数量 */
+    private static final int DEFAULT_FILTER_SIZE = 20;
+
+    /** 批量查询单次最多的商品数 */
+    public static final int MAX_BATCH_GET = 1000;
+
+    /** 批量扣减库存单次最多的项数 */
+    public static final int MAX_DEDUCTION_BATCH = 1000;
+
+    /** 畅销榜、近期热销、经常一起购买默认返回的数量 */
+    private static final int DEFAULT_RANKING_SIZE = 10;
+
+    /** 分页结果中下一页游标的扩展字段名 */
+    public static final String NEXT_CURSOR = "nextCursor";
+
+    /** 畅销榜结果中统计窗口总销量的扩展字段名 */
+    public static final String WINDOW_TOTAL = "windowTotal";
+
+    /** 畅销榜结果中估计销量误差上限的扩展字段名 */
+    public static final String MAX_ERROR = "maxError";
+
+    private final ProductService productService;
+
+    private final ProductSearchService productSearchService;
+
+    private final ProductSuggestService productSuggestService;
+
+    private final ProductFilterService productFilterService;
+
+    private final ProductImportService productImportService;
+
+    private final SalesTrendService salesTrendService;
+
+    private final CoPurchaseService coPurchaseService;
+
+    private final ProductHotKeys hotKeys;
+
     /**
      * 根据ID查询商品
+     * 标记了@Projectable的商品查询接口支持 ?fields=id,price,stock 字段投影，见ProductProjectionAdvice
      * @param id 商品ID
      * @return 商品信息
      */
     @GetMapping("/{id}")
+    @Projectable
     public R<Product> getProductById(@PathVariable Long id) {
-        // 模拟返回商品数据
-        Product product = new Product(
-                id,
-                "测试商品-" + id,
-                new BigDecimal("99.99"),
-                100,
-                "这是一个测试商品",
-                LocalDateTime.now(),
-                LocalDateTime.now()
-        );
+        Product product = productService.getById(id);
+        if (product == null) {
+            return R.fail(BizCodeEnum.PRODUCT_NOT_FOUND);
+        }
         return R.ok(product);
     }
 
     /**
-     * 查询所有商品
+     * 查询商品列表
+     * 按ID键集分页，下一页游标放在extra.nextCursor，没有下一页时为null；需要全部商品时用/stream
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param size 每页数量，默认100
      * @return 商品列表
      */
     @GetMapping("/list")
-    public R<List<Product>> getProductList() {
-        List<Product> productList = new ArrayList<>();
-        
-        productList.add(new Product(
-                1L,
-                "iPhone 15",
-                new BigDecimal("5999.00"),
-                50,
-                "Apple iPhone 15",
-                LocalDateTime.now(),
-                LocalDateTime.now()
-        ));
-        
-        productList.add(new Product(
-                2L,
-                "MacBook Pro",
-                new BigDecimal("12999.00"),
-                30,
-                "Apple MacBook Pro",
-                LocalDateTime.now(),
-                LocalDateTime.now()
-        ));
-        
-        productList.add(new Product(
-                3L,
-                "AirPods Pro",
-                new BigDecimal("1999.00"),
-                100,
-                "Apple AirPods Pro",
-                LocalDateTime.now(),
-                LocalDateTime.now()
-        ));
-        
-        return R.ok(productList);
+    @Projectable
+    public R<List<Product>> getProductList(@RequestParam(required = false) Long cursor,
+                                           @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_LIST_SIZE : size;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        List<Product> page = productService.listAfter(cursor, limit);
+        Long nextCursor = page.size() < limit ? null : page.get(page.size() - 1).getId();
+        return R.ok(page).put(NEXT_CURSOR, nextCursor);
+    }
+
+    /**
+     * 搜索商品（名称和描述，中文按二元组、英文数字按单词匹配），按相关度降序
+     * @param q 查询文本，切词后所有词都必须命中
+     * @param size 最多返回的数量，默认20
+     * @return 商品列表
+     */
+    @GetMapping("/search")
+    @Projectable
+    public R<List<Product>> searchProducts(@RequestParam String q, @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_SEARCH_SIZE : size;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(productSearchService.search(q, limit));
+    }
+
+    /**
+     * 畅销榜：统计窗口（默认最近1小时）内销量最多的商品，按下单事件流式统计
+     * 销量为估计值，不小于真实销量，超出部分以很高的概率不超过extra.maxError；extra.windowTotal为窗口内总销量
+     * @param size 最多返回的数量，默认10，不超过wheatmall.product.sales-trends.top-k
+     * @return 商品及估计销量，按销量降序
+     */
+    @GetMapping("/best-sellers")
+    public R<List<SalesRank>> getBestSellers(@RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_RANKING_SIZE : size;
+        if (limit <= 0 || limit > salesTrendService.getMaxSize()) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(salesTrendService.bestSellers(limit))
+                .put(WINDOW_TOTAL, salesTrendService.getWindowTotal())
+                .put(MAX_ERROR, salesTrendService.getMaxError());
+    }
+
+    /**
+     * 近期热销：近期窗口（默认最近5分钟）每分段平均销量与统计窗口内之前相比增长最快的商品
+     * @param size 最多返回的数量，默认10，不超过wheatmall.product.sales-trends.top-k
+     * @return 商品及近期、之前的估计销量，按增长比值降序
+     */
+    @GetMapping("/trending")
+    public R<List<TrendingProduct>> getTrending(@RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_RANKING_SIZE : size;
+        if (limit <= 0 || limit > salesTrendService.getMaxSize()) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(salesTrendService.trending(limit));
+    }
+
+    /**
+     * 经常一起购买：同一用户短时间内连续下单的商品视为同一购物篮，按同现次数排序
+     * 结果来自定时生成的快照，相对下单最多延迟wheatmall.product.co-purchase.rebuild-interval
+     * @param id 商品ID
+     * @param size 最多返回的数量，默认10，不超过wheatmall.product.co-purchase.top-k
+     * @return 相关商品及同现次数，按次数降序；没有数据时为空列表
+     */
+    @GetMapping("/{id}/related")
+    public R<List<RelatedProduct>> getRelatedProducts(@PathVariable Long id,
+                                                      @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_RANKING_SIZE : size;
+        if (limit <= 0 || limit > coPurchaseService.getMaxSize()) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(coPurchaseService.related(id, limit));
+    }
+
+    /**
+     * 热点商品：上一个窗口（默认10秒）内商品详情访问量占比不低于wheatmall.product.hot-keys.hot-share的商品
+     * 热点商品的详情响应固定在缓存中，变更后立即重新写入
+     * @return 热点商品及估计访问量，按访问量降序；访问量太小时为空列表
+     */
+    @GetMapping("/hot")
+    public R<List<HotProduct>> getHotProducts() {
+        return R.ok(hotKeys.hotProducts());
+    }
+
+    /**
+     * 商品名称前缀补全（搜索框输入提示），忽略大小写和全半角，按热度（销量）降序
+     * @param prefix 已输入的前缀
+     * @param size 最多返回的数量，默认10，最大20
+     * @return 商品名称列表
+     */
+    @GetMapping("/suggest")
+    public R<List<String>> suggestProducts(@RequestParam String prefix, @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_SUGGEST_SIZE : size;
+        if (limit <= 0 || limit > ProductSuggester.MAX_SUGGESTIONS) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(productSuggestService.suggest(prefix, limit));
+    }
+
+    /**
+     * 按价格区间和库存筛选商品，按价格排序（同价按ID），键集分页
+     * 下一页游标放在extra.nextCursor（格式"价格,商品ID"），没有下一页时为null
+     * @param minPrice 最低价格（含），不传表示不限
+     * @param maxPrice 最高价格（含），不传表示不限
+     * @param inStock 是否只返回有库存的商品
+     * @param desc 是否按价格降序
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param size 每页数量，默认20
+     * @return 商品列表
+     */
+    @GetMapping("/filter")
+    @Projectable
+    public R<List<Product>> filterProducts(@RequestParam(required = false) BigDecimal minPrice,
+                                           @RequestParam(required = false) BigDecimal maxPrice,
+                                           @RequestParam(defaultValue = "false") boolean inStock,
+                                           @RequestParam(defaultValue = "false") boolean desc,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size) {
+        int limit = size == null ? DEFAULT_FILTER_SIZE : size;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        ProductFilterService.Page page;
+        try {
+            page = productFilterService.filter(minPrice, maxPrice, inStock, desc, cursor, limit);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(page.products()).put(NEXT_CURSOR, page.nextCursor());
+    }
+
+    /**
+     * 批量导入商品，请求体为整个文件（UTF-8），边上传边解析，导入结束后返回报告
+     * 校验失败的行不影响其他行，行错误在报告的errors中；导入中止（如表头错误）时返回失败和报告。
+     * 导入期间可用返回的任务ID在其他请求中查询进度，见 {@link #getImportReport}
+     * @param format 文件格式：csv（第一行为表头，需有name、price、stock列，description可选）或ndjson
+     * @param body 文件内容
+     * @return 导入报告
+     */
+    @PostMapping("/import")
+    public R<ImportJob.Report> importProducts(@RequestParam(defaultValue = "csv") String format,
+                                              InputStream body) {
+        ImportFormat importFormat;
+        try {
+            importFormat = ImportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        ImportJob.Report report = productImportService.importProducts(body, importFormat);
+        if (report.status() == ImportJob.Status.FAILED) {
+            return R.<ImportJob.Report>fail(BizCodeEnum.OPERATION_FAILED).setData(report);
+        }
+        return R.ok(report);
+    }
+
+    /**
+     * 查询导入进度和错误报告
+     * @param jobId 任务ID
+     * @return 导入报告
+     */
+    @GetMapping("/import/{jobId}")
+    public R<ImportJob.Report> getImportReport(@PathVariable long jobId) {
+        ImportJob.Report report = productImportService.getReport(jobId);
+        if (report == null) {
+            return R.fail(BizCodeEnum.DATA_NOT_FOUND);
+        }
+        return R.ok(report);
+    }
+
+    /**
+     * 最近的导入任务（最多20个），按创建时间倒序
+     * @return 导入报告列表
+     */
+    @GetMapping("/import")
+    public R<List<ImportJob.Report>> listImportReports() {
+        return R.ok(productImportService.listReports());
+    }
+
+    /**
+     * 流式查询所有商品（NDJSON，每行一个商品）
+     * 按下游消费速度逐批读取，内存占用与商品总数无关
+     * @param fields 字段投影，逗号分隔，不传返回全部字段
+     * @return 商品流
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<?> streamProducts(@RequestParam(required = false) String fields) {
+        ProductProjection projection;
+        try {
+            projection = ProductProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            // 流式接口没有R包装，参数错误直接返回400
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        Flux<Product> products = productService.stream(STREAM_BATCH_SIZE);
+        if (projection == null) {
+            return products;
+        }
+        return products.map(product -> new ProjectedProduct(product, projection));
     }
 
     /**
@@ -84,7 +331,87 @@ public class ProductController {
      * @return 商品信息
      */
     @GetMapping("/get/{id}")
+    @Projectable
     public R<Product> getProduct(@PathVariable Long id) {
         return getProductById(id);
     }
+
+    /**
+     * 批量查询商品（订单模块打开购物车时一次刷新所有商品的价格和库存）
+     * 使用POST以便在请求体中传递ID列表，同样支持 ?fields= 字段投影
+     * @param ids 商品ID，最多{@value #MAX_BATCH_GET}个
+     * @return 存在的商品，按请求的顺序，不存在的跳过
+     */
+    @PostMapping("/batch")
+    @Projectable
+    public R<List<Product>> getProducts(@RequestBody List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_GET
+                || ids.stream().anyMatch(Objects::isNull)) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        return R.ok(productService.getByIds(ids));
+    }
+
+    /**
+     * 更新商品（只更新非空字段）
+     * @param id 商品ID
+     * @param product 待更新的字段
+     * @return 更新后的商品信息
+     */
+    @PutMapping("/{id}")
+    public R<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
+        if (!ProductService.isValidPrice(product.getPrice())) {
+            return R.fail(BizCodeEnum.PARAM_ERROR);
+        }
+        Product updated = productService.update(id, product);
+        if (updated == null) {
+            return R.fail(BizCodeEnum.PRODUCT_NOT_FOUND);
+        }
+        return R.ok(updated);
+    }
+
+    /**
+     * 扣减库存
+     * 变更日志落盘后才返回（异步请求，等待期间不占用请求线程），并发扣减共用一次fsync
+     * @param id 商品ID
+     * @param quantity 扣减数量，必须大于0
+     * @return 扣减后的商品信息；库存不足时返回STOCK_NOT_ENOUGH，变更日志已关闭或写入失败时返回SYSTEM_ERROR
+     */
+    @PostMapping("/{id}/deduct-stock")
+    public CompletableFuture<R<Product>> deductStock(@PathVariable Long id, @RequestParam int quantity) {
+        if (quantity <= 0) {
+            return CompletableFuture.completedFuture(R.fail(BizCodeEnum.PARAM_ERROR));
+        }
+        CompletableFuture<Product> deducted;
+        try {
+            deducted = productService.deductStock(id, quantity);
+        } catch (StockNotEnoughException e) {
+            return CompletableFuture.completedFuture(R.fail(BizCodeEnum.STOCK_NOT_ENOUGH));
+        } catch (IllegalStateException | UncheckedIOException e) {
+            return CompletableFuture.completedFuture(R.fail(BizCodeEnum.SYSTEM_ERROR));
+        }
+        return deducted.handle((product, e) -> {
+            if (e != null) {
+                return R.<Product>fail(BizCodeEnum.SYSTEM_ERROR);
+            }
+            return product == null ? R.fail(BizCodeEnum.PRODUCT_NOT_FOUND) : R.ok(product);
+        });
+    }
+
+    /**
+     * 批量扣减库存（订单模块异步下单按商品合并后调用）
+     * 各项独立扣减，结果与请求一一对应；变更日志落盘后才返回
+     * @param deductions 扣减项，最多{@value #MAX_DEDUCTION_BATCH}项，数量必须大于0
+     * @return 每项的结果
+     */
+    @PostMapping("/deduct-stock/batch")
+    public CompletableFuture<R<List<StockDeductionResult>>> deductStockBatch(
+            @RequestBody List<StockDeduction> deductions) {
+        if (deductions == null || deductions.isEmpty() || deductions.size() > MAX_DEDUCTION_BATCH
+                || deductions.stream().anyMatch(d -> d.getProductId() == null || d.getQuantity() == null
+                || d.getQuantity() <= 0)) {
+            return CompletableFuture.completedFuture(R.fail(BizCodeEnum.PARAM_ERROR));
+        }
+        return productService.deductStockBatch(deductions).thenApply(R::ok);
+    }
 }
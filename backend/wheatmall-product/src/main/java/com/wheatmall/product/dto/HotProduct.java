@@ -0,0 +1,34 @@
+package com.wheatmall.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 热点商品（商品详情访问量占比高的商品）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotProduct {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称，商品已删除时为null
+     */
+    private String name;
+
+    /**
+     * 上一个窗口内占商品详情访问量的估计比例
+     */
+    private Double share;
+
+    /**
+     * 上一个窗口内的估计访问次数（样本数 × 抽样间隔）
+     */
+    private Long requests;
+}
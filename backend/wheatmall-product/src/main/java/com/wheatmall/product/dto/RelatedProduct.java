@@ -0,0 +1,29 @@
+package com.wheatmall.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 经常一起购买的商品
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelatedProduct {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称，商品已删除时为null
+     */
+    private String name;
+
+    /**
+     * 与查询的商品出现在同一购物篮中的次数（较早的次数会衰减，只用于排序）
+     */
+    private Integer count;
+}
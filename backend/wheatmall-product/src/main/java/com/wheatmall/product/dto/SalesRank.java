@@ -0,0 +1,29 @@
+package com.wheatmall.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 畅销榜中的一个商品
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRank {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称，商品已删除时为null
+     */
+    private String name;
+
+    /**
+     * 统计窗口内的估计销量（不小于真实销量，误差上限见响应的extra.maxError）
+     */
+    private Long quantity;
+}
@@ -0,0 +1,24 @@
+package com.wheatmall.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量扣减库存中的一项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDeduction {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 扣减数量，必须大于0
+     */
+    private Integer quantity;
+}
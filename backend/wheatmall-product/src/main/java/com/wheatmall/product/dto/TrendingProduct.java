@@ -0,0 +1,39 @@
+package com.wheatmall.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 近期销量增长的商品
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingProduct {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称，商品已删除时为null
+     */
+    private String name;
+
+    /**
+     * 近期窗口内的估计销量
+     */
+    private Long recentQuantity;
+
+    /**
+     * 统计窗口内、近期之前的估计销量
+     */
+    private Long earlierQuantity;
+
+    /**
+     * 近期与之前每分段平均销量之比
+     */
+    private Double score;
+}
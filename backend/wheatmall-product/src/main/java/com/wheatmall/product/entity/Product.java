@@ -49,4 +49,9 @@ public class Product {
      * 更新时间
      */
     private LocalDateTime updateTime;
+
+    /**
+     * 版本号，每次修改递增（用于响应缓存和ETag）
+     */
+    private Long version;
 }
@@ -0,0 +1,31 @@
+package com.wheatmall.product.event;
+
+import com.wheatmall.product.entity.Product;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 商品变更事件
+ * 在商品写锁内同步发布，监听器（缓存、索引等）与写操作保持原子
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+
+    /**
+     * 变更前的商品，新增时为null
+     */
+    private final Product before;
+
+    /**
+     * 变更后的商品，删除时为null
+     */
+    private final Product after;
+
+    /**
+     * 获取商品ID
+     */
+    public Long getProductId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
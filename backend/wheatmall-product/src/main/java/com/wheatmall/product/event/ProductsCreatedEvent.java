@@ -0,0 +1,21 @@
+package com.wheatmall.product.event;
+
+import com.wheatmall.product.entity.Product;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量新增商品事件（导入）
+ * 每批发布一次，在商品写锁内同步发布，监听器按批更新索引；同一批商品不再逐个发布 {@link ProductChangedEvent}
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductsCreatedEvent {
+
+    /**
+     * 新增的商品，按ID升序
+     */
+    private final List<Product> products;
+}
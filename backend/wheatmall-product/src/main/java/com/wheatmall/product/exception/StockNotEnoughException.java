@@ -0,0 +1,28 @@
+package com.wheatmall.product.exception;
+
+/**
+ * 库存不足异常（扣减数量超过当前库存，库存不变）
+ */
+public class StockNotEnoughException extends RuntimeException {
+
+    private final long productId;
+
+    private final int stock;
+
+    public StockNotEnoughException(long productId, int stock, int quantity) {
+        super("库存不足, id: " + productId + ", 库存: " + stock + ", 扣减: " + quantity);
+        this.productId = productId;
+        this.stock = stock;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    /**
+     * 扣减时的库存
+     */
+    public int getStock() {
+        return stock;
+    }
+}
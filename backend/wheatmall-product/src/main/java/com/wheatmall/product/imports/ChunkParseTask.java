@@ -0,0 +1,73 @@
+package com.wheatmall.product.imports;
+
+import com.wheatmall.product.entity.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 解析一段连续的行：行数较多时对半拆分成两个子任务（fork/join），结果按行号顺序合并
+ */
+final class ChunkParseTask extends RecursiveTask<ChunkParseTask.ParsedChunk> {
+
+    /** 行数不超过该值时直接解析 */
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private final ProductRowParser parser;
+
+    private final List<String> lines;
+
+    /** lines[0]在文件中的行号（从1开始） */
+    private final long firstLine;
+
+    ChunkParseTask(ProductRowParser parser, List<String> lines, long firstLine) {
+        this.parser = parser;
+        this.lines = lines;
+        this.firstLine = firstLine;
+    }
+
+    @Override
+    protected ParsedChunk compute() {
+        if (lines.size() <= SPLIT_THRESHOLD) {
+            return parse();
+        }
+        int middle = lines.size() / 2;
+        ChunkParseTask right = new ChunkParseTask(parser, lines.subList(middle, lines.size()), firstLine + middle);
+        right.fork();
+        ParsedChunk left = new ChunkParseTask(parser, lines.subList(0, middle), firstLine).compute();
+        return left.append(right.join());
+    }
+
+    private ParsedChunk parse() {
+        ParsedChunk chunk = new ParsedChunk(new ArrayList<>(lines.size()), new ArrayList<>());
+        for (int i = 0; i < lines.size(); i++) {
+            ProductRowParser.Row row = parser.parse(lines.get(i));
+            if (row == null) {
+                continue;
+            }
+            if (row.error() != null) {
+                chunk.errors.add(new ImportJob.RowError(firstLine + i, row.error()));
+            } else {
+                chunk.products.add(row.product());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * 一段行的解析结果
+     * @param products 校验通过的商品，按行号顺序
+     * @param errors 校验失败的行，按行号顺序
+     */
+    record ParsedChunk(List<Product> products, List<ImportJob.RowError> errors) {
+
+        /**
+         * 把后一段的结果追加到本段之后
+         */
+        ParsedChunk append(ParsedChunk next) {
+            products.addAll(next.products);
+            errors.addAll(next.errors);
+            return this;
+        }
+    }}
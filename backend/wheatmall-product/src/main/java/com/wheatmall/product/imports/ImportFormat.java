@@ -0,0 +1,32 @@
+package com.wheatmall.product.imports;
+
+import java.util.Locale;
+
+/**
+ * 商品导入文件格式
+ */
+public enum ImportFormat {
+
+    /**
+     * CSV，UTF-8，第一行为表头：name、price、stock为必填列，description可选，列顺序不限；
+     * 字段可用双引号包围（内部的双引号写两次），字段内不支持换行
+     */
+    CSV,
+
+    /**
+     * NDJSON，UTF-8，每行一个JSON对象：{"name": ..., "price": ..., "stock": ..., "description": ...}，其他字段忽略
+     */
+    NDJSON;
+
+    /**
+     * 按名称解析（不区分大小写）
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static ImportFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的导入格式: " + name, e);
+        }
+    }
+}
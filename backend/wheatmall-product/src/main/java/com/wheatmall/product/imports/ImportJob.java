@@ -0,0 +1,142 @@
+package com.wheatmall.product.imports;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次商品导入的进度和错误报告
+ *
+ * 计数只由执行导入的线程修改，其他线程（查询进度）通过 {@link #report()} 读取快照。
+ * 行错误最多保留前 {@value #MAX_ERRORS} 条，之后只计数，错误再多报告大小也有上限。
+ */
+public final class ImportJob {
+
+    /** 保留的行错误数上限 */
+    public static final int MAX_ERRORS = 1000;
+
+    private final long id;
+
+    private final ImportFormat format;
+
+    private final LocalDateTime startTime = LocalDateTime.now();
+
+    private volatile Status status = Status.RUNNING;
+
+    /** 已读取的行数（CSV包含表头行） */
+    private volatile long linesRead;
+
+    private volatile long imported;
+
+    private volatile long failed;
+
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile LocalDateTime endTime;
+
+    private volatile String message;
+
+    public ImportJob(long id, ImportFormat format) {
+        this.id = id;
+        this.format = format;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void addLinesRead(int lines) {
+        linesRead += lines;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    /**
+     * 记录失败的行
+     */
+    public void addErrors(List<RowError> rowErrors) {
+        if (rowErrors.isEmpty()) {
+            return;
+        }
+        failed += rowErrors.size();
+        synchronized (errors) {
+            for (int i = 0; i < rowErrors.size() && errors.size() < MAX_ERRORS; i++) {
+                errors.add(rowErrors.get(i));
+            }
+        }
+    }
+
+    public void complete() {
+        endTime = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    /**
+     * 导入中止（文件无法读取、表头错误、写入失败等），已写入的批次保留
+     */
+    public void fail(String reason) {
+        message = reason;
+        endTime = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    /**
+     * 当前进度的快照
+     */
+    public Report report() {
+        // 先读状态，保证状态为完成时计数已是最终值
+        Status currentStatus = status;
+        List<RowError> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = List.copyOf(errors);
+        }
+        long failedCount = failed;
+        return new Report(id, format, currentStatus, linesRead, imported, failedCount, errorsCopy,
+                failedCount > errorsCopy.size(), startTime, endTime, message);
+    }
+
+    /**
+     * 导入状态
+     */
+    public enum Status {
+        /** 导入中 */
+        RUNNING,
+        /** 已完成（可能有部分行校验失败） */
+        COMPLETED,
+        /** 已中止 */
+        FAILED
+    }
+
+    /**
+     * 行错误
+     * @param line 行号（从1开始，CSV包含表头行）
+     * @param message 错误原因
+     */
+    public record RowError(long line, String message) {
+    }
+
+    /**
+     * 导入报告
+     * @param id 导入任务ID
+     * @param format 文件格式
+     * @param status 状态
+     * @param linesRead 已读取的行数
+     * @param imported 已写入的商品数
+     * @param failed 校验失败的行数
+     * @param errors 行错误，最多MAX_ERRORS条
+     * @param errorsTruncated 行错误是否超过上限未全部保留
+     * @param startTime 开始时间
+     * @param endTime 结束时间，导入中为null
+     * @param message 中止原因
+     */
+    public record Report(long id, ImportFormat format, Status status, long linesRead, long imported, long failed,
+                         List<RowError> errors, boolean errorsTruncated, LocalDateTime startTime,
+                         LocalDateTime endTime, String message) {
+    }
+}
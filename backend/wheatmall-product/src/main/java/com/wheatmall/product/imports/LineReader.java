@@ -0,0 +1,96 @@
+package com.wheatmall.product.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 按行读取文本，限制单行长度
+ * 超长的行不整行保存：读到行尾后返回null表示该行被丢弃，避免一行异常数据占满内存。
+ * 支持\n和\r\n换行，不加锁（只由导入线程使用）。
+ */
+final class LineReader {
+
+    private final Reader reader;
+
+    private final int maxLineChars;
+
+    private final char[] buffer = new char[64 * 1024];
+
+    private int position;
+
+    private int limit;
+
+    private final StringBuilder line = new StringBuilder();
+
+    private boolean eof;
+
+    LineReader(Reader reader, int maxLineChars) {
+        this.reader = reader;
+        this.maxLineChars = maxLineChars;
+    }
+
+    /**
+     * 是否还有未读的行
+     */
+    boolean hasNext() throws IOException {
+        return fill();
+    }
+
+    /**
+     * 读取下一行（不含换行符）
+     * @return 行内容；超长时返回null
+     * @throws IllegalStateException 已读完时调用
+     */
+    String next() throws IOException {
+        if (!fill()) {
+            throw new IllegalStateException("已没有更多的行");
+        }
+        line.setLength(0);
+        boolean oversized = false;
+        while (fill()) {
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            if (!oversized) {
+                if (line.length() + (end - position) > maxLineChars) {
+                    oversized = true;
+                    line.setLength(0);
+                } else {
+                    line.append(buffer, position, end - position);
+                }
+            }
+            position = end;
+            if (end < limit) {
+                // 跳过换行符
+                position++;
+                break;
+            }
+        }
+        if (oversized) {
+            return null;
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            eof = true;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.wheatmall.product.imports;
+
+import com.wheatmall.product.entity.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * 流式导入：导入线程按块读取行，交给fork/join线程池并行解析校验，按块的顺序收集结果，凑满一批后写入
+ *
+ * 内存占用与文件大小无关：同时在解析中的块不超过线程池并行度的2倍，待写入的商品不超过一批，
+ * 单行超过 {@value #MAX_LINE_CHARS} 字符时整行丢弃并记为行错误。
+ * 商品按文件中的顺序写入，行错误不影响其他行。
+ */
+public final class ProductImporter {
+
+    /** 单行最大字符数 */
+    public static final int MAX_LINE_CHARS = 16 * 1024;
+
+    /** 每块的行数 */
+    private static final int CHUNK_LINES = 2048;
+
+    private final ForkJoinPool pool;
+
+    private final int batchSize;
+
+    private final Consumer<List<Product>> batchWriter;
+
+    /**
+     * @param pool 解析用的线程池
+     * @param batchSize 每批写入的商品数
+     * @param batchWriter 写入一批商品，抛出异常时导入中止
+     */
+    public ProductImporter(ForkJoinPool pool, int batchSize, Consumer<List<Product>> batchWriter) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.batchWriter = batchWriter;
+    }
+
+    /**
+     * 导入整个输入流（UTF-8），进度和错误记录在job中，返回时job已完成或中止
+     */
+    public void run(InputStream input, ImportFormat format, ImportJob job) {
+        try {
+            LineReader reader = new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), MAX_LINE_CHARS);
+            long lineNumber = 0;
+            ProductRowParser parser;
+            if (format == ImportFormat.CSV) {
+                if (!reader.hasNext()) {
+                    throw new IllegalArgumentException("CSV缺少表头");
+                }
+                String header = reader.next();
+                lineNumber++;
+                job.addLinesRead(1);
+                parser = ProductRowParser.csv(header);
+            } else {
+                parser = ProductRowParser.ndjson();
+            }
+            int maxInFlight = 2 * pool.getParallelism();
+            Deque<ForkJoinTask<ChunkParseTask.ParsedChunk>> inFlight = new ArrayDeque<>(maxInFlight);
+            List<Product> batch = new ArrayList<>(batchSize);
+            while (reader.hasNext()) {
+                List<String> lines = new ArrayList<>(CHUNK_LINES);
+                while (lines.size() < CHUNK_LINES && reader.hasNext()) {
+                    lines.add(reader.next());
+                }
+                inFlight.addLast(pool.submit(new ChunkParseTask(parser, lines, lineNumber + 1)));
+                lineNumber += lines.size();
+                job.addLinesRead(lines.size());
+                if (inFlight.size() >= maxInFlight) {
+                    batch = collect(inFlight.removeFirst().join(), batch, job);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                batch = collect(inFlight.removeFirst().join(), batch, job);
+            }
+            if (!batch.isEmpty()) {
+                write(batch, job);
+            }
+            job.complete();
+        } catch (IOException | RuntimeException e) {
+            job.fail(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        }
+    }
+
+    /**
+     * 收集一块的解析结果，凑满一批就写入
+     * @return 未写入的商品
+     */
+    private List<Product> collect(ChunkParseTask.ParsedChunk chunk, List<Product> batch, ImportJob job) {
+        job.addErrors(chunk.errors());
+        for (Product product : chunk.products()) {
+            batch.add(product);
+            if (batch.size() == batchSize) {
+                write(batch, job);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        return batch;
+    }
+
+    private void write(List<Product> batch, ImportJob job) {
+        batchWriter.accept(batch);
+        job.addImported(batch.size());
+    }
+}
@@ -0,0 +1,225 @@
+package com.wheatmall.product.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.service.ProductService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 导入行解析与校验，线程安全（无可变状态），由多个解析任务并行调用
+ *
+ * 校验规则：名称必填、去掉首尾空白后不超过200字符；价格必填、不为负、最多两位小数；
+ * 库存必填、为不小于0的整数；描述可选，不超过2000字符。
+ */
+public final class ProductRowParser {
+
+    private static final int MAX_NAME_LENGTH = 200;
+
+    private static final int MAX_DESCRIPTION_LENGTH = 2000;
+
+    private static final String[] CSV_COLUMNS = {"name", "price", "stock", "description"};
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .build();
+
+    private final ImportFormat format;
+
+    /** CSV各字段（name、price、stock、description）在行中的列号，可选列不存在时为-1 */
+    private final int[] columns;
+
+    private ProductRowParser(ImportFormat format, int[] columns) {
+        this.format = format;
+        this.columns = columns;
+    }
+
+    /**
+     * NDJSON解析器
+     */
+    public static ProductRowParser ndjson() {
+        return new ProductRowParser(ImportFormat.NDJSON, null);
+    }
+
+    /**
+     * 按表头创建CSV解析器
+     * @param header 表头行（可带UTF-8 BOM）
+     * @throws IllegalArgumentException 表头缺少必填列或有重复列时抛出
+     */
+    public static ProductRowParser csv(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV缺少表头");
+        }
+        if (header.startsWith("﻿")) {
+            header = header.substring(1);
+        }
+        List<String> names = splitCsv(header);
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (CSV_COLUMNS[i].equals(names.get(j).trim().toLowerCase(Locale.ROOT))) {
+                    if (columns[i] >= 0) {
+                        throw new IllegalArgumentException("CSV表头有重复的列: " + CSV_COLUMNS[i]);
+                    }
+                    columns[i] = j;
+                }
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (columns[i] < 0) {
+                throw new IllegalArgumentException("CSV表头缺少必填列: " + CSV_COLUMNS[i]);
+            }
+        }
+        return new ProductRowParser(ImportFormat.CSV, columns);
+    }
+
+    /**
+     * 解析一行
+     * @param line 行内容，null表示该行超过最大长度已被丢弃
+     * @return 解析结果；空白行返回null
+     */
+    public Row parse(String line) {
+        if (line == null) {
+            return Row.error("行超过最大长度");
+        }
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return format == ImportFormat.CSV ? parseCsv(line) : parseJson(line);
+        } catch (IllegalArgumentException e) {
+            return Row.error(e.getMessage());
+        }
+    }
+
+    private Row parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return validate(field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]),
+                field(fields, columns[3]));
+    }
+
+    private Row parseJson(String line) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(line);
+        } catch (JsonProcessingException e) {
+            return Row.error("JSON格式错误: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            return Row.error("每行必须是一个JSON对象");
+        }
+        return validate(text(node, "name"), text(node, "price"), text(node, "stock"), text(node, "description"));
+    }
+
+    private static Row validate(String name, String price, String stock, String description) {
+        name = name == null ? null : name.trim();
+        if (name == null || name.isEmpty()) {
+            return Row.error("名称不能为空");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            return Row.error("名称超过" + MAX_NAME_LENGTH + "字符");
+        }
+        BigDecimal priceValue;
+        try {
+            priceValue = price == null || price.isBlank() ? null : new BigDecimal(price.trim());
+        } catch (NumberFormatException e) {
+            return Row.error("价格格式错误: " + price);
+        }
+        if (priceValue == null) {
+            return Row.error("价格不能为空");
+        }
+        if (priceValue.compareTo(ProductService.MAX_PRICE) > 0) {
+            return Row.error("价格超出范围: " + price);
+        }
+        if (!ProductService.isValidPrice(priceValue)) {
+            return Row.error("价格不能为负且最多两位小数: " + price);
+        }
+        int stockValue;
+        try {
+            stockValue = Integer.parseInt(stock == null ? "" : stock.trim());
+        } catch (NumberFormatException e) {
+            return Row.error("库存必须是整数: " + stock);
+        }
+        if (stockValue < 0) {
+            return Row.error("库存不能为负: " + stock);
+        }
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            return Row.error("描述超过" + MAX_DESCRIPTION_LENGTH + "字符");
+        }
+        return new Row(new Product(null, name, priceValue, stockValue,
+                description == null || description.isEmpty() ? null : description, null, null, null), null);
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    /**
+     * JSON字段的文本值（数字按原文），缺失或为null时返回null
+     */
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isContainerNode()) {
+            throw new IllegalArgumentException("字段" + field + "必须是字符串或数字");
+        }
+        return value.isBigDecimal() ? value.decimalValue().toPlainString() : value.asText();
+    }
+
+    /**
+     * 拆分一行CSV：逗号分隔，双引号包围的字段内可以有逗号，双引号写两次表示一个双引号
+     * @throws IllegalArgumentException 引号不匹配时抛出
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("引号不匹配（字段内不支持换行）");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * 一行的解析结果，product与error二选一
+     * @param product 待新增的商品（不含ID、时间和版本）
+     * @param error 校验失败原因
+     */
+    public record Row(Product product, String error) {
+
+        static Row error(String message) {
+            return new Row(null, message);
+        }
+    }
+}
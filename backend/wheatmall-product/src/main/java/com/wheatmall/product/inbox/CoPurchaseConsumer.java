@@ -0,0 +1,150 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.product.service.CoPurchaseService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * "经常一起购买"的消费者：从订单服务写入的文件事件日志读取下单时的扣减库存事件，计入 {@link CoPurchaseService}
+ *
+ * 与 {@link StockDeductionConsumer} 读同一个主题。消费位置不单独保存，而是与同现矩阵一起保存在同一个文件中，
+ * 启动时从矩阵已计入的位置开始，矩阵和位置始终一致。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.product.co-purchase.enabled", havingValue = "true", matchIfMissing = true)
+public class CoPurchaseConsumer {
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final CoPurchaseService coPurchaseService;
+
+    private final FileEventLog eventLog;
+
+    private final int batchSize;
+
+    private final long pollIntervalNanos;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private FileEventLog.Reader reader;
+
+    @Autowired
+    public CoPurchaseConsumer(CoPurchaseService coPurchaseService,
+                              @Value("${wheatmall.events.dir:/tmp/wheatmall-events}") String eventsDir,
+                              @Value("${wheatmall.product.co-purchase.batch-size:500}") int batchSize,
+                              @Value("${wheatmall.product.co-purchase.poll-interval:PT0.1S}") Duration pollInterval) {
+        this(coPurchaseService, Paths.get(eventsDir, StockDeductionEvent.TOPIC), batchSize, pollInterval, true);
+    }
+
+    CoPurchaseConsumer(CoPurchaseService coPurchaseService, Path topicDir, int batchSize, Duration pollInterval,
+                       boolean start) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批次大小必须大于0");
+        }
+        this.coPurchaseService = coPurchaseService;
+        this.eventLog = new FileEventLog(topicDir);
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.thread = new Thread(this::run, "co-purchase-consumer");
+        thread.setDaemon(true);
+        if (start) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 消费一批事件
+     * @return 读到的事件数，没有新事件时为0
+     * @throws IOException 读取事件日志失败
+     */
+    int consumeOnce() throws IOException {
+        if (reader == null) {
+            reader = eventLog.reader(coPurchaseService.getPosition());
+        }
+        List<EventMessage> events = reader.poll(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<StockDeductionEvent> orders = new ArrayList<>(events.size());
+        for (EventMessage event : events) {
+            // 释放库存事件不计入：取消的订单仍按下单统计
+            if (!StockDeductionEvent.TYPE.equals(event.type())) {
+                continue;
+            }
+            try {
+                orders.add(StockDeductionEvent.decode(event.payload()));
+            } catch (IllegalArgumentException e) {
+                log.warn("跳过无法解析的事件, offset: {}", event.offset(), e);
+            }
+        }
+        coPurchaseService.record(orders, reader.position());
+        return events.size();
+    }
+
+    /**
+     * 处理完当前一批后停止
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeReader();
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            int consumed;
+            try {
+                consumed = consumeOnce();
+                backoffMillis = 0;
+            } catch (IOException | RuntimeException e) {
+                closeReader();
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(pollIntervalNanos / 1_000_000, backoffMillis * 2));
+                log.warn("消费下单事件失败, {} 毫秒后重试", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, backoffMillis)));
+                continue;
+            }
+            if (consumed < batchSize) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("关闭下单事件读取方失败", e);
+            }
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.OffsetCheckpoint;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.product.service.SalesTrendService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 销量统计的消费者：从订单服务写入的文件事件日志读取下单时的扣减库存事件，计入 {@link SalesTrendService}
+ *
+ * 与 {@link StockDeductionConsumer} 读同一个主题，各自保存消费位置（{data-dir}/consumers/sales-trends.offset），互不影响。
+ * 统计只在内存中，启动时从消费位置之前的replay-events条事件开始重放，重建统计窗口（早于窗口的事件不计入）；
+ * 窗口内的事件多于replay-events时，重启后窗口内较早的销量缺失，直到它们移出窗口。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.product.sales-trends.enabled", havingValue = "true", matchIfMissing = true)
+public class SalesTrendConsumer {
+
+    /** 消费位置文件名（不含扩展名） */
+    static final String CONSUMER_NAME = "sales-trends";
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final SalesTrendService salesTrendService;
+
+    private final FileEventLog eventLog;
+
+    private final OffsetCheckpoint checkpoint;
+
+    private final int batchSize;
+
+    private final long pollIntervalNanos;
+
+    private final long replayEvents;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile long position;
+
+    private volatile long recordedCount;
+
+    private FileEventLog.Reader reader;
+
+    /** 是否已从重放位置打开过，只由消费线程访问 */
+    private boolean replayed;
+
+    @Autowired
+    public SalesTrendConsumer(SalesTrendService salesTrendService,
+                              @Value("${wheatmall.events.dir:/tmp/wheatmall-events}") String eventsDir,
+                              @Value("${wheatmall.product.data-dir:/tmp/wheatmall-product}") String dataDir,
+                              @Value("${wheatmall.product.sales-trends.batch-size:500}") int batchSize,
+                              @Value("${wheatmall.product.sales-trends.poll-interval:PT0.1S}") Duration pollInterval,
+                              @Value("${wheatmall.product.sales-trends.replay-events:1000000}") long replayEvents) {
+        this(salesTrendService, Paths.get(eventsDir, StockDeductionEvent.TOPIC),
+                Paths.get(dataDir, "consumers", CONSUMER_NAME + ".offset"), batchSize, pollInterval, replayEvents,
+                true);
+    }
+
+    SalesTrendConsumer(SalesTrendService salesTrendService, Path topicDir, Path checkpointFile, int batchSize,
+                       Duration pollInterval, long replayEvents, boolean start) {
+        if (batchSize <= 0 || replayEvents < 0) {
+            throw new IllegalArgumentException("批次大小必须大于0，重放事件数不能为负");
+        }
+        this.salesTrendService = salesTrendService;
+        this.eventLog = new FileEventLog(topicDir);
+        this.checkpoint = new OffsetCheckpoint(checkpointFile);
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.replayEvents = replayEvents;
+        this.thread = new Thread(this::run, "sales-trend-consumer");
+        thread.setDaemon(true);
+        if (start) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 消费一批事件（首次调用时从消费位置之前的replay-events条事件开始）
+     * @return 读到的事件数，没有新事件时为0
+     * @throws IOException 读取事件日志或保存消费位置失败
+     */
+    int consumeOnce() throws IOException {
+        if (reader == null) {
+            if (replayed) {
+                // 读取失败后重新打开：从已计入的位置继续，不再重放
+                reader = eventLog.reader(position);
+            } else {
+                long from = checkpoint.load();
+                reader = eventLog.reader(Math.max(0, from - replayEvents));
+                replayed = true;
+                position = reader.position();
+                log.info("销量统计消费位置: {}, 从 {} 开始重放", from, reader.position());
+            }
+        }
+        List<EventMessage> events = reader.poll(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<StockDeductionEvent> orders = new ArrayList<>(events.size());
+        for (EventMessage event : events) {
+            // 释放库存事件不计入：取消的订单仍按下单统计
+            if (!StockDeductionEvent.TYPE.equals(event.type())) {
+                continue;
+            }
+            try {
+                orders.add(StockDeductionEvent.decode(event.payload()));
+            } catch (IllegalArgumentException e) {
+                log.warn("跳过无法解析的事件, offset: {}", event.offset(), e);
+            }
+        }
+        recordedCount += salesTrendService.record(orders);
+        position = reader.position();
+        checkpoint.save(position);
+        return events.size();
+    }
+
+    /**
+     * 下一条要消费的事件的offset
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 计入统计的事件数（含启动时重放的）
+     */
+    public long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * 处理完当前一批后停止
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeReader();
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            int consumed;
+            try {
+                consumed = consumeOnce();
+                backoffMillis = 0;
+            } catch (IOException | RuntimeException e) {
+                closeReader();
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(pollIntervalNanos / 1_000_000, backoffMillis * 2));
+                log.warn("消费下单事件失败, {} 毫秒后重试", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, backoffMillis)));
+                continue;
+            }
+            if (consumed < batchSize) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("关闭下单事件读取方失败", e);
+            }
+            reader = null;
+        }
+    }
+}
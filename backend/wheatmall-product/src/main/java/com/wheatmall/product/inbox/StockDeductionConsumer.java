@@ -0,0 +1,381 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.OffsetCheckpoint;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.product.dto.StockDeduction;
+import com.wheatmall.product.dto.StockDeductionResult;
+import com.wheatmall.product.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 扣减库存事件的消费者：从订单服务写入的文件事件日志读取扣减、释放库存事件，按订单号去重后批量扣减或归还
+ *
+ * 单线程顺序消费：每次读一批，连续的同类型事件去掉已处理过的订单号后一次 {@link ProductService#deductStockBatch}
+ * 或 {@link ProductService#releaseStockBatch}，变更日志落盘后保存消费位置（{data-dir}/consumers/stock-deduction.offset）。
+ * 同一订单的扣减和释放事件在同一个主题中，释放总在扣减之后。
+ * 订单服务的转发是至少一次，同一个订单的事件可能出现多次；最近处理过的dedup-window个事件保存在内存中，
+ * 启动时从消费位置之前的dedup-window条事件重建。
+ * 商品不存在或库存不足的扣减不重试，原样写入被拒绝事件的主题（{events-dir}/stock-deduction-rejected，fsync后才保存消费位置）。
+ * 被拒绝的订单号常驻内存，启动时从该主题重建（与事件日志相同的保留期），之后这些订单的释放事件一律跳过，
+ * 不受去重窗口大小和重启影响；其余订单（包括经异步下单同步扣减、没有扣减事件的订单）的释放事件照常归还。
+ * 扣减落盘后、保存消费位置前崩溃时，重启后这一批会再扣减一次。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.product.stock-consumer.enabled", havingValue = "true", matchIfMissing = true)
+public class StockDeductionConsumer {
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final ProductService productService;
+
+    private final FileEventLog eventLog;
+
+    private final OffsetCheckpoint checkpoint;
+
+    /** 被拒绝的扣减事件，只由消费线程写入 */
+    private final FileEventLog rejectionLog;
+
+    /** 扣减被拒绝的订单号，只由消费线程访问 */
+    private final Set<Long> rejectedOrders = new HashSet<>();
+
+    private final int batchSize;
+
+    private final long pollIntervalNanos;
+
+    private final int dedupWindow;
+
+    /**
+     * 最近处理过的事件，按处理顺序，只由消费线程访问：扣减事件的键是订单号，释放事件的键是订单号取负，
+     * 值为是否成功
+     */
+    private final Map<Long, Boolean> processed;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile long position;
+
+    private volatile long appliedCount;
+
+    private volatile long releasedCount;
+
+    private volatile long skippedReleaseCount;
+
+    private volatile long duplicateCount;
+
+    private volatile long rejectedCount;
+
+    private FileEventLog.Reader reader;
+
+    @Autowired
+    public StockDeductionConsumer(ProductService productService,
+                                  @Value("${wheatmall.events.dir:/tmp/wheatmall-events}") String eventsDir,
+                                  @Value("${wheatmall.product.data-dir:/tmp/wheatmall-product}") String dataDir,
+                                  @Value("${wheatmall.product.stock-consumer.batch-size:500}") int batchSize,
+                                  @Value("${wheatmall.product.stock-consumer.poll-interval:PT0.02S}") Duration pollInterval,
+                                  @Value("${wheatmall.product.stock-consumer.dedup-window:100000}") int dedupWindow) {
+        this(productService, Paths.get(eventsDir, StockDeductionEvent.TOPIC),
+                Paths.get(eventsDir, StockDeductionEvent.REJECTED_TOPIC),
+                Paths.get(dataDir, "consumers", StockDeductionEvent.TOPIC + ".offset"), batchSize, pollInterval,
+                dedupWindow, true);
+    }
+
+    StockDeductionConsumer(ProductService productService, Path topicDir, Path rejectionDir, Path checkpointFile,
+                           int batchSize, Duration pollInterval, int dedupWindow, boolean start) {
+        if (batchSize <= 0 || dedupWindow <= 0) {
+            throw new IllegalArgumentException("批次大小和去重窗口必须大于0");
+        }
+        this.productService = productService;
+        this.eventLog = new FileEventLog(topicDir);
+        this.checkpoint = new OffsetCheckpoint(checkpointFile);
+        this.rejectionLog = new FileEventLog(rejectionDir);
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.dedupWindow = dedupWindow;
+        this.processed = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > StockDeductionConsumer.this.dedupWindow;
+            }
+        };
+        this.thread = new Thread(this::run, "stock-deduction-consumer");
+        thread.setDaemon(true);
+        if (start) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 消费一批事件（首次调用时加载消费位置，重建去重窗口和被拒绝的订单号）
+     * @return 读到的事件数，没有新事件时为0
+     * @throws IOException 读取事件日志或保存消费位置失败
+     */
+    int consumeOnce() throws IOException {
+        if (reader == null) {
+            open();
+        }
+        List<EventMessage> events = reader.poll(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // 连续的同类型事件一起处理，扣减与释放之间保持事件顺序
+        List<StockDeductionEvent> run = new ArrayList<>();
+        boolean runIsRelease = false;
+        for (EventMessage event : events) {
+            boolean release = StockDeductionEvent.RELEASE_TYPE.equals(event.type());
+            if (!release && !StockDeductionEvent.TYPE.equals(event.type())) {
+                log.warn("跳过未知类型的事件, offset: {}, type: {}", event.offset(), event.type());
+                continue;
+            }
+            StockDeductionEvent decoded;
+            try {
+                decoded = StockDeductionEvent.decode(event.payload());
+            } catch (IllegalArgumentException e) {
+                log.warn("跳过无法解析的事件, offset: {}", event.offset(), e);
+                continue;
+            }
+            if (release != runIsRelease && !run.isEmpty()) {
+                apply(run, runIsRelease);
+                run.clear();
+            }
+            runIsRelease = release;
+            run.add(decoded);
+        }
+        if (!run.isEmpty()) {
+            apply(run, runIsRelease);
+        }
+        checkpoint.save(reader.position());
+        position = reader.position();
+        return events.size();
+    }
+
+    /**
+     * 去重后一次批量扣减或释放，被拒绝的扣减写入被拒绝事件的主题；
+     * 失败时这一组中未完成的订单号移出去重窗口，从上次的消费位置重新读取
+     */
+    private void apply(List<StockDeductionEvent> run, boolean release) throws IOException {
+        List<StockDeduction> items = new ArrayList<>(run.size());
+        List<StockDeductionEvent> applied = new ArrayList<>(run.size());
+        List<Long> keys = new ArrayList<>(run.size());
+        for (StockDeductionEvent event : run) {
+            long key = release ? -event.orderId() : event.orderId();
+            if (processed.containsKey(key)) {
+                duplicateCount++;
+                continue;
+            }
+            if (release && rejectedOrders.contains(event.orderId())) {
+                // 扣减未成功的订单不释放
+                processed.put(key, Boolean.FALSE);
+                skippedReleaseCount++;
+                continue;
+            }
+            processed.put(key, Boolean.TRUE);
+            keys.add(key);
+            applied.add(event);
+            items.add(new StockDeduction(event.productId(), event.quantity()));
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        List<StockDeductionResult> results;
+        try {
+            results = (release ? productService.releaseStockBatch(items) : productService.deductStockBatch(items))
+                    .join();
+        } catch (RuntimeException e) {
+            keys.forEach(processed::remove);
+            closeReader();
+            throw e;
+        }
+        List<EventMessage> rejections = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            StockDeductionResult result = results.get(i);
+            if (result.getCode() != 0) {
+                rejectedCount++;
+                processed.put(keys.get(i), Boolean.FALSE);
+                log.warn("{}库存失败, 不重试, orderId: {}, productId: {}, code: {}", release ? "释放" : "扣减",
+                        Math.abs(keys.get(i)), result.getProductId(), result.getCode());
+                if (!release) {
+                    StockDeductionEvent event = applied.get(i);
+                    rejections.add(EventMessage.of(event.orderId(), StockDeductionEvent.REJECTED_TYPE,
+                            event.encode()));
+                }
+            } else if (release) {
+                releasedCount++;
+            } else {
+                appliedCount++;
+            }
+        }
+        if (rejections.isEmpty()) {
+            return;
+        }
+        try {
+            rejectionLog.append(rejections);
+        } catch (IOException e) {
+            // 被拒绝的订单重新读取后再扣减一次（库存不变，结果相同或已补货），成功的不会重复扣减
+            for (EventMessage rejection : rejections) {
+                processed.remove(rejection.id());
+            }
+            closeReader();
+            throw e;
+        }
+        for (EventMessage rejection : rejections) {
+            rejectedOrders.add(rejection.id());
+        }
+    }
+
+    /**
+     * 下一条要消费的事件的offset
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 已扣减的订单数
+     */
+    public long getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * 已释放库存的订单数
+     */
+    public long getReleasedCount() {
+        return releasedCount;
+    }
+
+    /**
+     * 扣减被拒绝而跳过释放的订单数
+     */
+    public long getSkippedReleaseCount() {
+        return skippedReleaseCount;
+    }
+
+    /**
+     * 跳过的重复事件数
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * 商品不存在或库存不足而未扣减（或商品不存在而未释放）的订单数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * 处理完当前一批后停止
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeReader();
+        try {
+            rejectionLog.close();
+        } catch (IOException e) {
+            log.warn("关闭被拒绝扣减事件日志失败", e);
+        }
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            int consumed;
+            try {
+                consumed = consumeOnce();
+                backoffMillis = 0;
+            } catch (IOException | RuntimeException e) {
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(pollIntervalNanos / 1_000_000, backoffMillis * 2));
+                log.warn("消费扣减库存事件失败, {} 毫秒后重试", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, backoffMillis)));
+                continue;
+            }
+            if (consumed < batchSize) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * 从保存的消费位置开始读取；首次打开时用之前的dedup-window条事件重建去重窗口，
+     * 并读取被拒绝事件的主题重建被拒绝的订单号
+     */
+    private void open() throws IOException {
+        long from = checkpoint.load();
+        if (rejectedOrders.isEmpty()) {
+            try (FileEventLog.Reader rejections = rejectionLog.reader(0)) {
+                List<EventMessage> events;
+                while (!(events = rejections.poll(batchSize)).isEmpty()) {
+                    for (EventMessage event : events) {
+                        rejectedOrders.add(event.id());
+                    }
+                }
+            }
+        }
+        if (processed.isEmpty() && from > 0) {
+            try (FileEventLog.Reader window = eventLog.reader(Math.max(0, from - dedupWindow))) {
+                List<EventMessage> events;
+                while (window.position() < from && !(events = window.poll(batchSize)).isEmpty()) {
+                    for (EventMessage event : events) {
+                        if (event.offset() >= from) {
+                            continue;
+                        }
+                        // 只用于去重；扣减是否被拒绝以被拒绝事件的主题为准
+                        if (StockDeductionEvent.TYPE.equals(event.type())) {
+                            processed.put(StockDeductionEvent.decode(event.payload()).orderId(), Boolean.TRUE);
+                        } else if (StockDeductionEvent.RELEASE_TYPE.equals(event.type())) {
+                            processed.put(-StockDeductionEvent.decode(event.payload()).orderId(), Boolean.TRUE);
+                        }
+                    }
+                }
+            }
+            log.info("扣减库存事件消费位置: {}, 重建去重窗口: {} 个订单号, 被拒绝的订单: {}", from, processed.size(),
+                    rejectedOrders.size());
+        }
+        reader = eventLog.reader(from);
+        position = from;
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("关闭扣减库存事件读取方失败", e);
+            }
+            reader = null;
+        }
+    }
+}
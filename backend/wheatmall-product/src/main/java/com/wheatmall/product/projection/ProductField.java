@@ -0,0 +1,82 @@
+package com.wheatmall.product.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.wheatmall.product.entity.Product;
+
+import java.io.IOException;
+
+/**
+ * 商品可投影字段
+ * 每个字段带一个预编译的写出函数，直接调用getter写入JsonGenerator，不走反射
+ */
+public enum ProductField {
+
+    ID("id", (gen, p, provider) -> writeNumber(gen, p.getId())),
+    NAME("name", (gen, p, provider) -> gen.writeString(p.getName())),
+    PRICE("price", (gen, p, provider) -> {
+        if (p.getPrice() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(p.getPrice());
+        }
+    }),
+    STOCK("stock", (gen, p, provider) -> {
+        if (p.getStock() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(p.getStock());
+        }
+    }),
+    DESCRIPTION("description", (gen, p, provider) -> gen.writeString(p.getDescription())),
+    // 时间字段交给ObjectMapper配置的序列化器，保证JSON与Smile的时间格式与完整响应一致
+    CREATE_TIME("createTime", (gen, p, provider) -> provider.defaultSerializeValue(p.getCreateTime(), gen)),
+    UPDATE_TIME("updateTime", (gen, p, provider) -> provider.defaultSerializeValue(p.getUpdateTime(), gen)),
+    VERSION("version", (gen, p, provider) -> writeNumber(gen, p.getVersion()));
+
+    private final String fieldName;
+
+    private final FieldWriter writer;
+
+    ProductField(String fieldName, FieldWriter writer) {
+        this.fieldName = fieldName;
+        this.writer = writer;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 写出字段名和字段值
+     */
+    void write(JsonGenerator gen, Product product, SerializerProvider provider) throws IOException {
+        gen.writeFieldName(fieldName);
+        writer.write(gen, product, provider);
+    }
+
+    /**
+     * 按字段名查找，不存在时返回null
+     */
+    static ProductField of(String fieldName) {
+        for (ProductField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    @FunctionalInterface
+    interface FieldWriter {
+        void write(JsonGenerator gen, Product product, SerializerProvider provider) throws IOException;
+    }
+}
@@ -0,0 +1,115 @@
+package com.wheatmall.product.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.wheatmall.product.entity.Product;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品字段投影（?fields=id,price,stock）
+ *
+ * 字段集合用位掩码表示，每种组合只编译一次写出器（字段数组）并缓存，
+ * 请求时只做一次字符串解析和一次Map查询，序列化时按数组顺序直接调用各字段的写出函数。
+ */
+public final class ProductProjection {
+
+    /** 请求参数名 */
+    public static final String PARAM_NAME = "fields";
+
+    /** 全部字段的掩码 */
+    public static final int ALL = (1 << ProductField.values().length) - 1;
+
+    private static final ConcurrentHashMap<String, ProductProjection> PARSED = new ConcurrentHashMap<>();
+
+    private static final ProductProjection[] COMPILED = new ProductProjection[ALL + 1];
+
+    /** 解析缓存上限，防止任意字符串撑大缓存 */
+    private static final int MAX_PARSED = 1024;
+
+    private final int mask;
+
+    private final ProductField[] fields;
+
+    private ProductProjection(int mask) {
+        this.mask = mask;
+        ProductField[] all = ProductField.values();
+        this.fields = new ProductField[Integer.bitCount(mask)];
+        int i = 0;
+        for (ProductField field : all) {
+            if ((mask & (1 << field.ordinal())) != 0) {
+                fields[i++] = field;
+            }
+        }
+    }
+
+    /**
+     * 解析fields参数
+     * @param fields 逗号分隔的字段名，为空表示不投影
+     * @return 投影，参数为空时返回null
+     * @throws IllegalArgumentException 包含未知字段时抛出
+     */
+    public static ProductProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        ProductProjection projection = PARSED.get(fields);
+        if (projection != null) {
+            return projection;
+        }
+        int mask = 0;
+        for (String name : fields.split(",")) {
+            ProductField field = ProductField.of(name.trim());
+            if (field == null) {
+                throw new IllegalArgumentException("未知字段: " + name);
+            }
+            mask |= 1 << field.ordinal();
+        }
+        projection = of(mask);
+        if (PARSED.size() < MAX_PARSED) {
+            PARSED.putIfAbsent(fields, projection);
+        }
+        return projection;
+    }
+
+    /**
+     * 解析fields参数为字段掩码，供过滤器构造缓存键和ETag
+     * @return 字段掩码，参数为空时返回ALL，包含未知字段时返回-1
+     */
+    public static int parseMask(String fields) {
+        try {
+            ProductProjection projection = parse(fields);
+            return projection == null ? ALL : projection.mask;
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 按掩码获取已编译的投影
+     */
+    public static ProductProjection of(int mask) {
+        ProductProjection projection = COMPILED[mask];
+        if (projection == null) {
+            projection = new ProductProjection(mask);
+            COMPILED[mask] = projection;
+        }
+        return projection;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * 写出投影后的商品对象
+     */
+    public void write(JsonGenerator gen, Product product, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(product);
+        for (ProductField field : fields) {
+            field.write(gen, product, provider);
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,82 @@
+package com.wheatmall.product.projection;
+
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.product.controller.ProductController;
+import com.wheatmall.product.entity.Product;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品字段投影响应增强
+ * 请求带 ?fields= 时，把 R 中的 Product / List&lt;Product&gt; 替换为 {@link ProjectedProduct}
+ * 只作用于标记了 {@link Projectable} 且返回商品的查询接口，其他接口的fields参数不影响响应
+ */
+@RestControllerAdvice(assignableTypes = ProductController.class)
+public class ProductProjectionAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!returnType.hasMethodAnnotation(Projectable.class)) {
+            return false;
+        }
+        ResolvableType type = ResolvableType.forMethodParameter(returnType);
+        if (!R.class.isAssignableFrom(type.toClass())) {
+            return false;
+        }
+        ResolvableType data = type.as(R.class).getGeneric(0);
+        return Product.class.isAssignableFrom(data.toClass())
+                || (List.class.isAssignableFrom(data.toClass())
+                && Product.class.isAssignableFrom(data.as(List.class).getGeneric(0).toClass()));
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof R<?> r) || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+        String fields = servletRequest.getServletRequest().getParameter(ProductProjection.PARAM_NAME);
+        ProductProjection projection;
+        try {
+            projection = ProductProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return R.fail(BizCodeEnum.PARAM_ERROR.getCode(), e.getMessage());
+        }
+        if (projection == null) {
+            return body;
+        }
+        return project(r, projection);
+    }
+
+    /**
+     * 复制R并替换其中的商品数据
+     */
+    static R<Object> project(R<?> r, ProductProjection projection) {
+        Object data = r.getData();
+        Object projected = data;
+        if (data instanceof Product product) {
+            projected = new ProjectedProduct(product, projection);
+        } else if (data instanceof List<?> list) {
+            List<Object> items = new ArrayList<>(list.size());
+            for (Object item : list) {
+                items.add(item instanceof Product product ? new ProjectedProduct(product, projection) : item);
+            }
+            projected = items;
+        }
+        R<Object> result = new R<>();
+        result.setCode(r.getCode()).setMsg(r.getMsg()).setExtra(r.getExtra());
+        return result.setData(projected);
+    }
+}
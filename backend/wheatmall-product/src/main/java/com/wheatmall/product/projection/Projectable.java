@@ -0,0 +1,17 @@
+package com.wheatmall.product.projection;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记支持 ?fields= 字段投影的商品查询接口（返回 R&lt;Product&gt; 或 R&lt;List&lt;Product&gt;&gt;），
+ * 见 {@link ProductProjectionAdvice}；未标记的接口忽略fields参数
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Projectable {
+}
@@ -0,0 +1,36 @@
+package com.wheatmall.product.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.wheatmall.product.entity.Product;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+
+/**
+ * 投影后的商品，序列化时只写出投影中的字段
+ */
+@Getter
+@RequiredArgsConstructor
+@JsonSerialize(using = ProjectedProduct.Serializer.class)
+public class ProjectedProduct {
+
+    private final Product product;
+
+    private final ProductProjection projection;
+
+    public static class Serializer extends StdSerializer<ProjectedProduct> {
+
+        public Serializer() {
+            super(ProjectedProduct.class);
+        }
+
+        @Override
+        public void serialize(ProjectedProduct value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            value.projection.write(gen, value.product, provider);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.wheatmall.product.recommend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 商品同现矩阵：同一购物篮中每对商品各记一次，稀疏存储，每个商品一行（{@link LongIntMap}：相关商品ID → 同现次数）
+ *
+ * 内存有界：
+ * - 每行最多maxNeighbors个相关商品，超出时只保留次数最多的一半，只出现过一两次的组合会被新的组合挤掉
+ * - 整个矩阵最多maxEntries个（商品, 相关商品）项，超出时所有次数减半、去掉减到0的项，直到不超过3/4，
+ *   同时使较早的同现次数逐渐衰减，推荐结果偏向近期
+ * 因此内存上限约为 maxEntries × 16 / 装载因子 字节加上每行约80字节，与商品总数无关（只有买过的商品才有行）。
+ *
+ * 查询不直接读矩阵，而是读 {@link #snapshot} 生成的不可变快照。非线程安全。
+ */
+public final class CoPurchaseMatrix {
+
+    private static final int MAGIC = 0x57_4D_43_50;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final int maxNeighbors;
+
+    private final long maxEntries;
+
+    /** 商品ID → 行号（从1开始，0表示没有行） */
+    private LongIntMap index = new LongIntMap();
+
+    /** 行号 → 商品ID，下标0不用 */
+    private long[] rowSkus = new long[16];
+
+    private LongIntMap[] rows = new LongIntMap[16];
+
+    private int rowCount;
+
+    private long entries;
+
+    /** 已计入矩阵的下一条事件的位置，与矩阵一起保存 */
+    private long position;
+
+    private long prunedCount;
+
+    private long decayCount;
+
+    /**
+     * @param maxNeighbors 每行最多保存的相关商品数，不小于2
+     * @param maxEntries 整个矩阵最多保存的项数
+     */
+    public CoPurchaseMatrix(int maxNeighbors, long maxEntries) {
+        if (maxNeighbors < 2 || maxEntries < maxNeighbors) {
+            throw new IllegalArgumentException("每行相关商品数须不小于2，总项数须不小于每行相关商品数");
+        }
+        this.maxNeighbors = maxNeighbors;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 两个商品同现count次：两行各加count
+     */
+    public void addPair(long a, long b, int count) {
+        if (a == b || count <= 0) {
+            return;
+        }
+        increment(a, b, count);
+        increment(b, a, count);
+        if (entries > maxEntries) {
+            decay();
+        }
+    }
+
+    /**
+     * @return 两个商品的同现次数（可能因剪枝或衰减而小于真实次数），没有时为0
+     */
+    public int count(long a, long b) {
+        int row = index.get(a);
+        return row == 0 ? 0 : rows[row].get(b);
+    }
+
+    /**
+     * 生成不可变快照：每个商品取同现次数最多的topK个相关商品（次数相同时按商品ID升序）
+     */
+    public CoPurchaseSnapshot snapshot(int topK) {
+        long[] skus = Arrays.copyOfRange(rowSkus, 1, rowCount + 1);
+        Arrays.sort(skus);
+        int total = 0;
+        for (long sku : skus) {
+            total += Math.min(topK, rows[index.get(sku)].size());
+        }
+        int[] offsets = new int[skus.length + 1];
+        long[] related = new long[total];
+        int[] counts = new int[total];
+        long[] topKeys = new long[topK];
+        int[] topValues = new int[topK];
+        int offset = 0;
+        for (int i = 0; i < skus.length; i++) {
+            int n = rows[index.get(skus[i])].top(topK, topKeys, topValues);
+            System.arraycopy(topKeys, 0, related, offset, n);
+            System.arraycopy(topValues, 0, counts, offset, n);
+            offset += n;
+            offsets[i + 1] = offset;
+        }
+        return new CoPurchaseSnapshot(skus, offsets, related, counts);
+    }
+
+    /**
+     * 保存到文件：先写临时文件并fsync，再原子改名覆盖，崩溃时文件要么是旧版本要么是新版本
+     * 格式：magic(int) + 版本(int) + position(long) + 行数(int) + 每行[商品ID(long) + 项数(int) + 每项[相关商品ID(long) + 次数(int)]]
+     *      + 以上所有字节的CRC32C(int)
+     */
+    public void save(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, 1 << 16),
+                    new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(position);
+            out.writeInt(rowCount);
+            for (int r = 1; r <= rowCount; r++) {
+                LongIntMap row = rows[r];
+                out.writeLong(rowSkus[r]);
+                out.writeInt(row.size());
+                for (int slot = 0; slot < row.capacity(); slot++) {
+                    if (row.valueAt(slot) != 0) {
+                        out.writeLong(row.keyAt(slot));
+                        out.writeInt(row.valueAt(slot));
+                    }
+                }
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            stream.getChannel().force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // 目录项也要落盘，否则掉电后重命名可能丢失
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    /**
+     * 从 {@link #save} 写入的文件加载；文件中每行的项数超过maxNeighbors时只保留次数最多的
+     * @throws IOException 读取失败、格式不对或校验和不一致
+     */
+    public static CoPurchaseMatrix load(Path file, int maxNeighbors, long maxEntries) throws IOException {
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix(maxNeighbors, maxEntries);
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32C())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("不是同现矩阵文件或版本不支持: " + file);
+            }
+            matrix.position = in.readLong();
+            int rowCount = in.readInt();
+            for (int r = 0; r < rowCount; r++) {
+                long sku = in.readLong();
+                int size = in.readInt();
+                if (size <= 0 || sku == 0) {
+                    throw new IOException("同现矩阵文件内容非法: " + file);
+                }
+                LongIntMap row = matrix.row(sku, Math.min(size, maxNeighbors));
+                for (int i = 0; i < size; i++) {
+                    row.put(in.readLong(), in.readInt());
+                }
+                row.retainTop(maxNeighbors);
+                matrix.entries += row.size();
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("同现矩阵文件校验和不一致: " + file);
+            }
+        }
+        if (matrix.entries > maxEntries) {
+            matrix.decay();
+        }
+        return matrix;
+    }
+
+    /**
+     * 已计入矩阵的下一条事件的位置
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * 有相关商品的商品数
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * （商品, 相关商品）项数，每对同现的商品占两项
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * 因超出每行上限而剪掉的项数
+     */
+    public long getPrunedCount() {
+        return prunedCount;
+    }
+
+    /**
+     * 因超出总项数上限而整体减半的次数
+     */
+    public long getDecayCount() {
+        return decayCount;
+    }
+
+    /**
+     * 估计占用的堆内存（字节），遍历所有行
+     */
+    public long estimateBytes() {
+        long bytes = index.estimateBytes() + 16 + 8L * rowSkus.length + 16 + 4L * rows.length;
+        for (int r = 1; r <= rowCount; r++) {
+            bytes += rows[r].estimateBytes();
+        }
+        return bytes;
+    }
+
+    private void increment(long sku, long related, int count) {
+        LongIntMap row = row(sku, 0);
+        if (!row.add(related, count)) {
+            return;
+        }
+        entries++;
+        if (row.size() > maxNeighbors) {
+            // 剪到一半而不是刚好到上限，摊薄剪枝的开销
+            int before = row.size();
+            row.retainTop(maxNeighbors / 2);
+            prunedCount += before - row.size();
+            entries -= before - row.size();
+        }
+    }
+
+    private LongIntMap row(long sku, int expectedSize) {
+        int r = index.get(sku);
+        if (r != 0) {
+            return rows[r];
+        }
+        r = ++rowCount;
+        if (r == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            rowSkus = Arrays.copyOf(rowSkus, rowSkus.length * 2);
+        }
+        rows[r] = new LongIntMap(expectedSize);
+        rowSkus[r] = sku;
+        index.put(sku, r);
+        return rows[r];
+    }
+
+    /**
+     * 所有次数减半直到项数不超过maxEntries的3/4，去掉空行并重建行号
+     */
+    private void decay() {
+        long target = maxEntries * 3 / 4;
+        while (entries > target) {
+            for (int r = 1; r <= rowCount; r++) {
+                entries -= rows[r].halve();
+            }
+            decayCount++;
+        }
+        LongIntMap[] oldRows = rows;
+        long[] oldSkus = rowSkus;
+        int oldCount = rowCount;
+        index = new LongIntMap();
+        rows = new LongIntMap[16];
+        rowSkus = new long[16];
+        rowCount = 0;
+        for (int r = 1; r <= oldCount; r++) {
+            if (oldRows[r].size() > 0) {
+                int newRow = ++rowCount;
+                if (newRow == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                    rowSkus = Arrays.copyOf(rowSkus, rowSkus.length * 2);
+                }
+                rows[newRow] = oldRows[r];
+                rowSkus[newRow] = oldSkus[r];
+                index.put(oldSkus[r], newRow);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.wheatmall.product.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 同现矩阵的不可变快照：每个商品的前topK个相关商品，按压缩稀疏行存放在四个基本类型数组中
+ * 商品ID升序排列，查询二分查找，不加锁；由 {@link CoPurchaseMatrix#snapshot} 生成，整体替换。
+ */
+public final class CoPurchaseSnapshot {
+
+    /** 没有数据的快照 */
+    public static final CoPurchaseSnapshot EMPTY = new CoPurchaseSnapshot(new long[0], new int[1], new long[0],
+            new int[0]);
+
+    /** 有相关商品的商品ID，升序 */
+    private final long[] skus;
+
+    /** 第i个商品的相关商品在 [offsets[i], offsets[i + 1]) */
+    private final int[] offsets;
+
+    /** 相关商品ID，每段内按同现次数降序 */
+    private final long[] related;
+
+    private final int[] counts;
+
+    CoPurchaseSnapshot(long[] skus, int[] offsets, long[] related, int[] counts) {
+        this.skus = skus;
+        this.offsets = offsets;
+        this.related = related;
+        this.counts = counts;
+    }
+
+    /**
+     * 与商品一起购买次数最多的商品
+     * @param limit 最多返回的数量
+     * @return 按同现次数降序，商品没有数据时为空列表
+     */
+    public List<Neighbor> related(long sku, int limit) {
+        int i = Arrays.binarySearch(skus, sku);
+        if (i < 0) {
+            return List.of();
+        }
+        int from = offsets[i];
+        int to = Math.min(offsets[i + 1], from + limit);
+        List<Neighbor> result = new ArrayList<>(Math.max(0, to - from));
+        for (int j = from; j < to; j++) {
+            result.add(new Neighbor(related[j], counts[j]));
+        }
+        return result;
+    }
+
+    /**
+     * 有相关商品的商品数
+     */
+    public int size() {
+        return skus.length;
+    }
+
+    /**
+     * 估计占用的堆内存（字节）
+     */
+    public long estimateBytes() {
+        return 16 + 8L * skus.length + 16 + 4L * offsets.length + 16 + 8L * related.length + 16 + 4L * counts.length;
+    }
+
+    /**
+     * 相关商品及同现次数
+     */
+    public record Neighbor(long productId, int count) {
+    }
+}
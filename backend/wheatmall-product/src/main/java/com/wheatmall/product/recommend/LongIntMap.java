@@ -0,0 +1,217 @@
+package com.wheatmall.product.recommend;
+
+/**
+ * long → 正整数计数的开放寻址哈希表（线性探测），键值存放在基本类型数组中
+ * 值为0表示空槽，计数减到0的键即被移除；容量为2的幂，装载因子不超过3/4。
+ * 同现矩阵每个商品一行，行数可达百万级，空表只占两个长度为4的数组。非线程安全。
+ */
+final class LongIntMap {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+
+    /** 0表示空槽 */
+    private int[] values;
+
+    private int size;
+
+    LongIntMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize 预计的键数，放入这么多键之前不扩容
+     */
+    LongIntMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return 键的计数，不存在时为0
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 计数加delta（大于0），达到int上限后不再增加
+     * @return 是否新增了键
+     */
+    boolean add(long key, int delta) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = (int) Math.min(Integer.MAX_VALUE, (long) values[slot] + delta);
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((size + 1) * 4L > keys.length * 3L) {
+            resize(keys.length * 2);
+            put(key, delta);
+            return true;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        size++;
+        return true;
+    }
+
+    /**
+     * 设置键的计数（大于0）
+     */
+    void put(long key, int value) {
+        if ((size + 1) * 4L > keys.length * 3L) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 槽位数，配合 {@link #keyAt}、{@link #valueAt} 遍历
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @return 槽位上的计数，空槽为0
+     */
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * 只保留计数最大的n个键（计数相同时保留键较小的），并按剩余键数缩小容量
+     */
+    void retainTop(int n) {
+        if (size <= n) {
+            return;
+        }
+        long[] topKeys = new long[n];
+        int[] topValues = new int[n];
+        int count = top(n, topKeys, topValues);
+        keys = new long[capacityFor(count)];
+        values = new int[keys.length];
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            put(topKeys[i], topValues[i]);
+        }
+    }
+
+    /**
+     * 所有计数减半（向下取整），减到0的键移除
+     * @return 移除的键数
+     */
+    int halve() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int remaining = 0;
+        for (int value : oldValues) {
+            if (value > 1) {
+                remaining++;
+            }
+        }
+        int removed = size - remaining;
+        keys = new long[capacityFor(remaining)];
+        values = new int[keys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] > 1) {
+                put(oldKeys[i], oldValues[i] >> 1);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 取计数最大的n个键，按计数降序、键升序写入outKeys和outValues
+     * @return 写入的个数
+     */
+    int top(int n, long[] outKeys, int[] outValues) {
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            int value = values[slot];
+            if (value == 0) {
+                continue;
+            }
+            long key = keys[slot];
+            // 插入排序：每行的键数不超过几十个，n通常为10左右
+            int i = count < n ? count++ : n;
+            while (i > 0 && (outValues[i - 1] < value || outValues[i - 1] == value && outKeys[i - 1] > key)) {
+                if (i < n) {
+                    outKeys[i] = outKeys[i - 1];
+                    outValues[i] = outValues[i - 1];
+                }
+                i--;
+            }
+            if (i < n) {
+                outKeys[i] = key;
+                outValues[i] = value;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 估计占用的堆内存（字节）：对象头和两个数组
+     */
+    long estimateBytes() {
+        return 24 + 16 + 8L * keys.length + 16 + 4L * values.length;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (expectedSize * 4L > capacity * 3L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
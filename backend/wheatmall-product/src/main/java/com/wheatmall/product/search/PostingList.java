@@ -0,0 +1,329 @@
+package com.wheatmall.product.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩倒排表：按文档号升序存放 (文档号差值, 词频)，均为变长整数（varint，每字节7位）
+ *
+ * 每128条为一块，块元数据 [块内最后文档号, 块起始字节偏移, 影响值偏移, 影响值个数] 连续存放在一个int数组中，
+ * 前两项用于跳块（advance），后两项指向块内的影响值：块内互不占优的 (词频, 文档长度) 组合
+ * （词频更高的文档长度也更长），BM25得分随词频增大、随长度减小，块内最高得分必然出自其中一组，
+ * 据此可以算出不依赖平均长度的严格上界。组合超过8个时合并词频最低的两组（取较大词频和较短长度，仍是上界）。
+ * 只追加，文档号必须递增；删除由索引的删除位图表示，压缩时整体重建。
+ * 非线程安全，由ProductSearchIndex的读写锁保护。
+ */
+final class PostingList {
+
+    static final int BLOCK_SIZE = 128;
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private static final int BLOCK_FIELDS = 4;
+
+    /** 每块最多保留的影响值组合数 */
+    private static final int MAX_IMPACTS = 8;
+
+    private byte[] data = new byte[8];
+
+    private int bytes;
+
+    private int count;
+
+    private int lastDoc = -1;
+
+    private int[] blocks = new int[BLOCK_FIELDS];
+
+    /** 各块的影响值 (词频, 文档长度)，按词频升序；最后一块的影响值在末尾，随追加更新 */
+    private int[] impacts = new int[2];
+
+    private int impactsLength;
+
+    /** 未删除的文档数（文档频率），由索引维护 */
+    int docFrequency;
+
+    /**
+     * 追加一条记录
+     * @param doc 文档号，大于已有的所有文档号
+     * @param tf 词频
+     * @param length 文档长度
+     */
+    void add(int doc, int tf, int length) {
+        int base = count / BLOCK_SIZE * BLOCK_FIELDS;
+        if (count % BLOCK_SIZE == 0) {
+            if (base == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            }
+            blocks[base + 1] = bytes;
+            blocks[base + 2] = impactsLength;
+            blocks[base + 3] = 0;
+        }
+        writeVarint(doc - lastDoc);
+        writeVarint(tf);
+        blocks[base] = doc;
+        blocks[base + 3] = addImpact(blocks[base + 2], blocks[base + 3], tf, length);
+        impactsLength = blocks[base + 2] + blocks[base + 3] * 2;
+        lastDoc = doc;
+        count++;
+    }
+
+    /**
+     * 把 (tf, length) 并入最后一块的影响值
+     * @return 并入后的组合数
+     */
+    private int addImpact(int offset, int size, int tf, int length) {
+        int kept = 0;
+        int insertAt = -1;
+        for (int i = 0; i < size; i++) {
+            int pairTf = impacts[offset + i * 2];
+            int pairLength = impacts[offset + i * 2 + 1];
+            if (pairTf >= tf && pairLength <= length) {
+                // 已有组合占优
+                return size;
+            }
+            if (tf >= pairTf && length <= pairLength) {
+                // 新组合占优，去掉旧组合
+                continue;
+            }
+            if (insertAt < 0 && pairTf > tf) {
+                insertAt = kept;
+            }
+            impacts[offset + kept * 2] = pairTf;
+            impacts[offset + kept * 2 + 1] = pairLength;
+            kept++;
+        }
+        if (offset + (kept + 1) * 2 > impacts.length) {
+            impacts = Arrays.copyOf(impacts, Math.max(impacts.length * 2, offset + (kept + 1) * 2));
+        }
+        insertAt = insertAt < 0 ? kept : insertAt;
+        System.arraycopy(impacts, offset + insertAt * 2, impacts, offset + insertAt * 2 + 2, (kept - insertAt) * 2);
+        impacts[offset + insertAt * 2] = tf;
+        impacts[offset + insertAt * 2 + 1] = length;
+        kept++;
+        if (kept > MAX_IMPACTS) {
+            // 合并词频最低的两组：词频取后者（较大），长度取前者（较短）
+            impacts[offset + 3] = impacts[offset + 1];
+            System.arraycopy(impacts, offset + 2, impacts, offset, (kept - 1) * 2);
+            kept--;
+        }
+        return kept;
+    }
+
+    /**
+     * 记录数（含已删除文档）
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * 压缩后的字节数
+     */
+    long sizeInBytes() {
+        return data.length + (long) (blocks.length + impacts.length) * Integer.BYTES;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private int blockCount() {
+        return (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private void writeVarint(int value) {
+        if (bytes + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, bytes + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[bytes++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[bytes++] = (byte) value;
+    }
+
+    /**
+     * 顺序读取游标，创建后位于第一条记录
+     * 进入一块时把整块解码到数组中，块内前进只是数组下标移动
+     */
+    final class Cursor {
+
+        private final int[] docs = new int[BLOCK_SIZE];
+
+        private final int[] tfs = new int[BLOCK_SIZE];
+
+        private int block = -1;
+
+        private int blockSize;
+
+        private int position;
+
+        private int doc = -1;
+
+        private int tf;
+
+        private Cursor() {
+            if (enterBlock(0)) {
+                load(0);
+            }
+        }
+
+        /**
+         * 当前文档号，读完后为NO_MORE_DOCS
+         */
+        int doc() {
+            return doc;
+        }
+
+        int tf() {
+            return tf;
+        }
+
+        /**
+         * 当前块号
+         */
+        int block() {
+            return block;
+        }
+
+        /**
+         * 从当前块起，找到最后一个文档号不小于target的块（只查块元数据，不解码、不移动游标）
+         * @return 块号，没有这样的块时返回-1
+         */
+        int findBlock(int target) {
+            if (doc == NO_MORE_DOCS) {
+                return -1;
+            }
+            if (blocks[block * BLOCK_FIELDS] >= target) {
+                return block;
+            }
+            // 目标通常就在后面几块，先按1、2、4…块的步长试探，再在最后一步内二分
+            int total = blockCount();
+            int low = block + 1;
+            int step = 1;
+            int high = low;
+            while (high < total && blocks[high * BLOCK_FIELDS] < target) {
+                low = high + 1;
+                high = low + step;
+                step <<= 1;
+            }
+            high = Math.min(high, total - 1);
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (blocks[mid * BLOCK_FIELDS] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low < total ? low : -1;
+        }
+
+        /**
+         * 块内最后一个文档号
+         */
+        int blockLastDoc(int block) {
+            return blocks[block * BLOCK_FIELDS];
+        }
+
+        /**
+         * 块内影响值组合数
+         */
+        int impactCount(int block) {
+            return blocks[block * BLOCK_FIELDS + 3];
+        }
+
+        /**
+         * 块内第i组影响值的词频
+         */
+        int impactTf(int block, int i) {
+            return impacts[blocks[block * BLOCK_FIELDS + 2] + i * 2];
+        }
+
+        /**
+         * 块内第i组影响值的文档长度
+         */
+        int impactLength(int block, int i) {
+            return impacts[blocks[block * BLOCK_FIELDS + 2] + i * 2 + 1];
+        }
+
+        void next() {
+            if (position + 1 < blockSize) {
+                load(position + 1);
+            } else if (enterBlock(block + 1)) {
+                load(0);
+            }
+        }
+
+        /**
+         * 前进到第一个不小于target的文档，先按块元数据跳过整块再在块内顺序查找
+         */
+        void advance(int target) {
+            if (doc >= target) {
+                return;
+            }
+            int next = findBlock(target);
+            int from = position + 1;
+            if (next != block) {
+                if (!enterBlock(next < 0 ? blockCount() : next)) {
+                    return;
+                }
+                from = 0;
+            }
+            // 块内最后一个文档号不小于target，一定能找到
+            while (docs[from] < target) {
+                from++;
+            }
+            load(from);
+        }
+
+        private void load(int index) {
+            position = index;
+            doc = docs[index];
+            tf = tfs[index];
+        }
+
+        /**
+         * 解码整块
+         */
+        private boolean enterBlock(int next) {
+            if (next >= blockCount()) {
+                doc = NO_MORE_DOCS;
+                blockSize = 0;
+                return false;
+            }
+            block = next;
+            blockSize = Math.min(BLOCK_SIZE, count - next * BLOCK_SIZE);
+            int offset = blocks[next * BLOCK_FIELDS + 1];
+            int current = next == 0 ? -1 : blocks[(next - 1) * BLOCK_FIELDS];
+            byte[] bytes = data;
+            for (int i = 0; i < blockSize; i++) {
+                int delta = bytes[offset++];
+                if (delta < 0) {
+                    delta &= 0x7F;
+                    int shift = 7;
+                    byte b;
+                    do {
+                        b = bytes[offset++];
+                        delta |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                }
+                int frequency = bytes[offset++];
+                if (frequency < 0) {
+                    frequency &= 0x7F;
+                    int shift = 7;
+                    byte b;
+                    do {
+                        b = bytes[offset++];
+                        frequency |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                }
+                current += delta;
+                docs[i] = current;
+                tfs[i] = frequency;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.wheatmall.product.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 按 (价格, 商品ID) 排序的集合：有序基本类型数组 + 增量跳表，增量过多时合并
+ *
+ * - 基础部分是两个按 (价格, 商品ID) 升序的long数组，不可变，二分定位
+ * - 之后的新增放在跳表中，删除基础部分的条目记为墓碑；增量超过基础部分的1/32（至少1024条）时合并成新的数组，
+ *   整体替换，合并的均摊开销为每次修改O(1)
+ * 读操作无锁：取当前版本后合并遍历数组和跳表，复杂度O(log n + k)，与并发的修改弱一致。
+ * 写操作由调用方串行。
+ */
+final class PriceEntrySet {
+
+    private static final int MIN_MERGE_THRESHOLD = 1024;
+
+    private static final int MERGE_RATIO = 32;
+
+    private volatile Version version = new Version(new long[0], new long[0]);
+
+    /**
+     * 加入条目，调用方保证条目不存在
+     */
+    void add(long price, long productId) {
+        Version current = version;
+        ProductPriceIndex.Entry entry = new ProductPriceIndex.Entry(price, productId);
+        if (!current.removed.remove(entry)) {
+            current.added.add(entry);
+        }
+        mergeIfNeeded(current);
+    }
+
+    /**
+     * 删除条目，调用方保证条目存在
+     */
+    void remove(long price, long productId) {
+        Version current = version;
+        ProductPriceIndex.Entry entry = new ProductPriceIndex.Entry(price, productId);
+        if (!current.added.remove(entry)) {
+            current.removed.add(entry);
+        }
+        mergeIfNeeded(current);
+    }
+
+    int size() {
+        Version current = version;
+        return current.prices.length - current.removed.size() + current.added.size();
+    }
+
+    /**
+     * 按顺序读取价格在 [minPrice, maxPrice] 内的条目
+     * @param after 从该条目之后开始（不含），null表示从头开始
+     * @param limit 最多返回的数量
+     */
+    List<ProductPriceIndex.Entry> range(long minPrice, long maxPrice, boolean descending,
+                                        ProductPriceIndex.Entry after, int limit) {
+        List<ProductPriceIndex.Entry> result = new ArrayList<>(Math.min(limit, 1024));
+        if (minPrice > maxPrice || limit <= 0) {
+            return result;
+        }
+        Version current = version;
+        ProductPriceIndex.Entry low = new ProductPriceIndex.Entry(minPrice, Long.MIN_VALUE);
+        ProductPriceIndex.Entry high = new ProductPriceIndex.Entry(maxPrice, Long.MAX_VALUE);
+        boolean lowInclusive = true;
+        boolean highInclusive = true;
+        if (after != null && !descending && after.compareTo(low) >= 0) {
+            low = after;
+            lowInclusive = false;
+        } else if (after != null && descending && after.compareTo(high) <= 0) {
+            high = after;
+            highInclusive = false;
+        }
+        if (low.compareTo(high) > 0) {
+            return result;
+        }
+        // 基础部分的下标范围 [from, to)
+        int from = lowInclusive ? current.lowerBound(low) : current.upperBound(low);
+        int to = highInclusive ? current.upperBound(high) : current.lowerBound(high);
+        NavigableSet<ProductPriceIndex.Entry> delta = current.added.subSet(low, lowInclusive, high, highInclusive);
+        Iterator<ProductPriceIndex.Entry> deltaIterator = descending ? delta.descendingIterator() : delta.iterator();
+        ProductPriceIndex.Entry nextDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+        int position = descending ? to - 1 : from;
+        while (result.size() < limit) {
+            ProductPriceIndex.Entry nextBase = null;
+            while (position >= from && position < to) {
+                ProductPriceIndex.Entry candidate = current.entry(position);
+                if (current.removed.isEmpty() || !current.removed.contains(candidate)) {
+                    nextBase = candidate;
+                    break;
+                }
+                position += descending ? -1 : 1;
+            }
+            if (nextBase == null && nextDelta == null) {
+                break;
+            }
+            boolean takeBase = nextDelta == null
+                    || (nextBase != null && (descending ? nextBase.compareTo(nextDelta) > 0
+                    : nextBase.compareTo(nextDelta) < 0));
+            if (takeBase) {
+                result.add(nextBase);
+                position += descending ? -1 : 1;
+            } else {
+                result.add(nextDelta);
+                nextDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+            }
+        }
+        return result;
+    }
+
+    private void mergeIfNeeded(Version current) {
+        int changes = current.added.size() + current.removed.size();
+        if (changes < Math.max(MIN_MERGE_THRESHOLD, current.prices.length / MERGE_RATIO)) {
+            return;
+        }
+        // 墓碑都在基础数组中，排序后与基础数组、新增条目三路归并
+        ProductPriceIndex.Entry[] removed = current.removed.toArray(new ProductPriceIndex.Entry[0]);
+        Arrays.sort(removed);
+        int size = current.prices.length - removed.length + current.added.size();
+        long[] prices = new long[size];
+        long[] productIds = new long[size];
+        Iterator<ProductPriceIndex.Entry> added = current.added.iterator();
+        ProductPriceIndex.Entry nextAdded = added.hasNext() ? added.next() : null;
+        int nextRemoved = 0;
+        int out = 0;
+        for (int i = 0; i < current.prices.length; i++) {
+            while (nextAdded != null && current.compare(i, nextAdded) > 0) {
+                prices[out] = nextAdded.price();
+                productIds[out++] = nextAdded.productId();
+                nextAdded = added.hasNext() ? added.next() : null;
+            }
+            if (nextRemoved < removed.length && current.compare(i, removed[nextRemoved]) == 0) {
+                nextRemoved++;
+                continue;
+            }
+            prices[out] = current.prices[i];
+            productIds[out++] = current.productIds[i];
+        }
+        while (nextAdded != null) {
+            prices[out] = nextAdded.price();
+            productIds[out++] = nextAdded.productId();
+            nextAdded = added.hasNext() ? added.next() : null;
+        }
+        // 读操作仍可使用旧版本，旧版本在替换后不再修改
+        version = new Version(prices, productIds);
+    }
+
+    /**
+     * 一个版本：基础数组 + 增量
+     */
+    private static final class Version {
+
+        private final long[] prices;
+
+        private final long[] productIds;
+
+        private final ConcurrentSkipListSet<ProductPriceIndex.Entry> added = new ConcurrentSkipListSet<>();
+
+        /** 基础数组中已删除的条目 */
+        private final Set<ProductPriceIndex.Entry> removed = ConcurrentHashMap.newKeySet();
+
+        private Version(long[] prices, long[] productIds) {
+            this.prices = prices;
+            this.productIds = productIds;
+        }
+
+        private ProductPriceIndex.Entry entry(int index) {
+            return new ProductPriceIndex.Entry(prices[index], productIds[index]);
+        }
+
+        /**
+         * 第一个不小于key的下标
+         */
+        private int lowerBound(ProductPriceIndex.Entry key) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 第一个大于key的下标
+         */
+        private int upperBound(ProductPriceIndex.Entry key) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int compare(int index, ProductPriceIndex.Entry key) {
+            int byPrice = Long.compare(prices[index], key.price());
+            return byPrice != 0 ? byPrice : Long.compare(productIds[index], key.productId());
+        }
+    }
+}
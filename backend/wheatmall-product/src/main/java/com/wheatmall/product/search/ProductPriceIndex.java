@@ -0,0 +1,137 @@
+package com.wheatmall.product.search;
+
+import com.wheatmall.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 商品价格二级索引：按 (价格, 商品ID) 排序，分为全部商品和有库存商品两份
+ *
+ * 价格以分为单位存储，区间查询和按价格排序的键集分页都是O(log n + k)。
+ * 修改由 {@link #update} 按商品变更顺序串行调用（商品写锁内），查询无锁。
+ * 价格为空的商品不进入索引。
+ */
+public final class ProductPriceIndex {
+
+    /** 价格小数位数（分） */
+    private static final int PRICE_SCALE = 2;
+
+    private final PriceEntrySet all = new PriceEntrySet();
+
+    private final PriceEntrySet inStock = new PriceEntrySet();
+
+    /**
+     * 按商品变更更新索引
+     * @param before 变更前的商品，新增时为null
+     * @param after 变更后的商品，删除时为null
+     */
+    public void update(Product before, Product after) {
+        Long beforePrice = before == null ? null : toCents(before.getPrice());
+        Long afterPrice = after == null ? null : toCents(after.getPrice());
+        boolean beforeInStock = beforePrice != null && isInStock(before);
+        boolean afterInStock = afterPrice != null && isInStock(after);
+        if (before != null && after != null && Objects.equals(beforePrice, afterPrice)
+                && beforeInStock == afterInStock) {
+            // 价格和是否有库存都没变（如扣减后仍有库存），索引不变
+            return;
+        }
+        if (beforePrice != null) {
+            all.remove(beforePrice, before.getId());
+            if (beforeInStock) {
+                inStock.remove(beforePrice, before.getId());
+            }
+        }
+        if (afterPrice != null) {
+            all.add(afterPrice, after.getId());
+            if (afterInStock) {
+                inStock.add(afterPrice, after.getId());
+            }
+        }
+    }
+
+    /**
+     * 按价格顺序读取价格区间内的商品
+     * @param minPrice 最低价格（含），null表示不限
+     * @param maxPrice 最高价格（含），null表示不限
+     * @param inStockOnly 是否只要有库存的商品
+     * @param descending 是否按价格降序（同价按商品ID降序），否则升序
+     * @param after 上一页最后一个条目，null表示从头开始
+     * @param limit 最多返回的数量
+     * @return 条目列表
+     */
+    public List<Entry> range(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, boolean descending,
+                             Entry after, int limit) {
+        long min = minPrice == null ? Long.MIN_VALUE : minPrice.setScale(PRICE_SCALE, RoundingMode.CEILING)
+                .unscaledValue().longValueExact();
+        long max = maxPrice == null ? Long.MAX_VALUE : maxPrice.setScale(PRICE_SCALE, RoundingMode.FLOOR)
+                .unscaledValue().longValueExact();
+        return (inStockOnly ? inStock : all).range(min, max, descending, after, limit);
+    }
+
+    /**
+     * 索引中的商品数
+     */
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * 有库存的商品数
+     */
+    public int inStockSize() {
+        return inStock.size();
+    }
+
+    /**
+     * 商品价格（分），价格为空时返回null
+     */
+    public static Long toCents(BigDecimal price) {
+        return price == null ? null : price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue()
+                .longValueExact();
+    }
+
+    private static boolean isInStock(Product product) {
+        return product.getStock() != null && product.getStock() > 0;
+    }
+
+    /**
+     * 索引条目，按 (价格, 商品ID) 排序
+     * @param price 价格（分）
+     * @param productId 商品ID
+     */
+    public record Entry(long price, long productId) implements Comparable<Entry> {
+
+        /**
+         * 解析分页游标，格式为"价格,商品ID"，如"5999.00,1"
+         * @throws IllegalArgumentException 格式非法时抛出
+         */
+        public static Entry parseCursor(String cursor) {
+            int comma = cursor.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("分页游标格式非法: " + cursor);
+            }
+            try {
+                Long price = toCents(new BigDecimal(cursor.substring(0, comma)));
+                return new Entry(price, Long.parseLong(cursor.substring(comma + 1)));
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("分页游标格式非法: " + cursor, e);
+            }
+        }
+
+        /**
+         * 作为分页游标，见 {@link #parseCursor}
+         */
+        public String toCursor() {
+            return BigDecimal.valueOf(price, PRICE_SCALE).toPlainString() + "," + productId;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byPrice = Long.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(productId, other.productId);
+        }
+    }
+}
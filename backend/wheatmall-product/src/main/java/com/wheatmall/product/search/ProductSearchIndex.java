@@ -0,0 +1,449 @@
+package com.wheatmall.product.search;
+
+import com.wheatmall.product.entity.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品倒排索引（内存，BM25排序）
+ *
+ * 商品名称和描述按 {@link ProductTokenizer} 切词，名称中的词按3倍词频计入；每个商品分配递增的文档号，
+ * 词 → {@link PostingList}（差值 + varint压缩，128条一块）。
+ * 查询时所有词都必须命中（与），从文档频率最低的词开始对齐其余倒排表，按BM25取前limit个；
+ * 前limit个已满时，用各词所在块的影响值（见 {@link PostingList}）算出块内得分上界，上界不超过第limit名时整段跳过。
+ * 同分按文档号先后排序。
+ *
+ * 增量更新：商品文本变化时把旧文档标记删除、追加新文档；删除的文档超过1/4时压缩，重新分配文档号。
+ * 查询加读锁，更新加写锁。
+ */
+public class ProductSearchIndex {
+
+    /** BM25参数 */
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /** 名称中的词按该倍数计入词频和文档长度 */
+    private static final int NAME_WEIGHT = 3;
+
+    /** 查询最多使用的词数 */
+    private static final int MAX_QUERY_TERMS = 32;
+
+    /** 已删除文档达到该数量且超过文档总数1/4时压缩 */
+    private static final int COMPACT_MIN_DELETED = 1024;
+
+    private static final int INITIAL_DOCS = 1024;
+
+    private static final Comparator<ScoredDoc> WORST_FIRST =
+            Comparator.comparingDouble(ScoredDoc::score).thenComparing(ScoredDoc::doc, Comparator.reverseOrder());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private final DocIdMap docIds = new DocIdMap();
+
+    /** 文档号 → 商品ID */
+    private long[] productIds = new long[INITIAL_DOCS];
+
+    /** 文档号 → 文档长度（加权后的词数） */
+    private int[] lengths = new int[INITIAL_DOCS];
+
+    /** 已删除文档的位图 */
+    private long[] deleted = new long[INITIAL_DOCS / Long.SIZE];
+
+    /** 已分配的文档号数量（含已删除） */
+    private int docCount;
+
+    private int liveCount;
+
+    private long totalLength;
+
+    /**
+     * 商品变更时增量更新
+     * @param before 变更前的商品，新增时为null；必须与上次索引时的内容一致（用于维护文档频率）
+     * @param after 变更后的商品，删除时为null
+     */
+    public void update(Product before, Product after) {
+        if (before != null && after != null && Objects.equals(before.getName(), after.getName())
+                && Objects.equals(before.getDescription(), after.getDescription())) {
+            // 名称和描述都没变（如扣减库存、改价），索引不变
+            return;
+        }
+        Map<String, Integer> beforeTerms = before == null ? null : termFrequencies(before);
+        Map<String, Integer> afterTerms = after == null ? null : termFrequencies(after);
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                removeDocument(before.getId(), beforeTerms);
+            }
+            if (after != null) {
+                addDocument(after.getId(), afterTerms);
+            }
+            if (docCount - liveCount >= COMPACT_MIN_DELETED && (docCount - liveCount) * 4L > docCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 批量加入新商品，切词在锁外完成，整批只加一次写锁
+     * @param products 新商品，之前未被索引
+     */
+    public void addAll(List<Product> products) {
+        List<Map<String, Integer>> terms = new ArrayList<>(products.size());
+        for (Product product : products) {
+            terms.add(termFrequencies(product));
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < products.size(); i++) {
+                addDocument(products.get(i).getId(), terms.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索商品
+     * @param query 查询文本，切词后所有词都必须命中
+     * @param limit 最多返回的数量
+     * @return 按得分降序排列的命中结果
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = ProductTokenizer.tokenize(query).stream().distinct().limit(MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null || lists[i].docFrequency == 0) {
+                    return List.of();
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.docFrequency));
+            return searchAll(lists, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的商品数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典中的词数
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 倒排表占用的字节数（不含词典）
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.sizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> searchAll(PostingList[] lists, int limit) {
+        double averageLength = liveCount == 0 ? 1 : Math.max(1.0, (double) totalLength / liveCount);
+        int terms = lists.length;
+        double[] idfs = new double[terms];
+        PostingList.Cursor[] cursors = new PostingList.Cursor[terms];
+        for (int i = 0; i < terms; i++) {
+            idfs[i] = idf(lists[i].docFrequency);
+            cursors[i] = lists[i].cursor();
+        }
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(limit, WORST_FIRST);
+        PostingList.Cursor lead = cursors[0];
+        // 各词在 [doc, checkedUpTo] 范围内的块级最高得分，只在前limit个已满时使用
+        double[] blockMax = new double[terms];
+        int checkedUpTo = -1;
+        int doc = lead.doc();
+        while (doc != PostingList.NO_MORE_DOCS) {
+            boolean full = top.size() == limit;
+            double threshold = full ? top.peek().score() : Double.NEGATIVE_INFINITY;
+            if (full && doc > checkedUpTo) {
+                // 同分时文档号小的在前，范围内的文档得分不超过第limit名就不可能进入结果；
+                // 只看块元数据逐段往后找，找到可能进入结果的范围后才移动游标（解码）
+                int target = doc;
+                checkedUpTo = blockBounds(cursors, idfs, target, averageLength, blockMax);
+                while (sum(blockMax, 0, 0) <= threshold && checkedUpTo != PostingList.NO_MORE_DOCS) {
+                    target = checkedUpTo + 1;
+                    checkedUpTo = blockBounds(cursors, idfs, target, averageLength, blockMax);
+                }
+                if (checkedUpTo == PostingList.NO_MORE_DOCS) {
+                    break;
+                }
+                if (target > doc) {
+                    lead.advance(target);
+                    doc = lead.doc();
+                    continue;
+                }
+            }
+            if (isDeleted(doc)) {
+                lead.next();
+                doc = lead.doc();
+                continue;
+            }
+            int length = lengths[doc];
+            double leadScore = termScore(idfs[0], lead.tf(), length, averageLength);
+            // 逐个对齐其余词；已对齐的词用精确得分、未对齐的用块级最高得分，上界不超过第limit名时放弃该文档
+            double others = 0;
+            int mismatch = -1;
+            boolean pruned = full && leadScore + sum(blockMax, 1, 0) <= threshold;
+            for (int i = 1; i < terms && !pruned; i++) {
+                cursors[i].advance(doc);
+                if (cursors[i].doc() != doc) {
+                    mismatch = cursors[i].doc();
+                    break;
+                }
+                others += termScore(idfs[i], cursors[i].tf(), length, averageLength);
+                pruned = full && leadScore + sum(blockMax, i + 1, others) <= threshold;
+            }
+            if (mismatch >= 0) {
+                lead.advance(mismatch);
+            } else {
+                if (!pruned) {
+                    collect(top, limit, doc, leadScore + others);
+                }
+                lead.next();
+            }
+            doc = lead.doc();
+        }
+        List<ScoredDoc> sorted = new ArrayList<>(top);
+        sorted.sort(WORST_FIRST.reversed());
+        List<Hit> hits = new ArrayList<>(sorted.size());
+        for (ScoredDoc scored : sorted) {
+            hits.add(new Hit(productIds[scored.doc()], scored.score()));
+        }
+        return hits;
+    }
+
+    /**
+     * 计算各词覆盖doc的块内最高得分，写入blockMax
+     * @return 这些块共同覆盖的范围 [doc, 返回值]；某个词已没有不小于doc的文档时返回NO_MORE_DOCS，blockMax全部为负无穷
+     */
+    private static int blockBounds(PostingList.Cursor[] cursors, double[] idfs, int doc, double averageLength,
+                                   double[] blockMax) {
+        int upTo = Integer.MAX_VALUE - 1;
+        for (int i = 0; i < cursors.length; i++) {
+            int block = cursors[i].findBlock(doc);
+            if (block < 0) {
+                Arrays.fill(blockMax, Double.NEGATIVE_INFINITY);
+                return PostingList.NO_MORE_DOCS;
+            }
+            blockMax[i] = maxScore(cursors[i], block, idfs[i], averageLength);
+            upTo = Math.min(upTo, cursors[i].blockLastDoc(block));
+        }
+        return upTo;
+    }
+
+    /**
+     * 得分上界：首个词（from为0时取blockMax[0]）+ 其余词之和，其余词中from之前的已算入exactOthers、之后的取块级最高得分
+     * 与精确得分按相同顺序累加（首个词 + 其余词按顺序求和），保证上界不小于实际得分
+     */
+    private static double sum(double[] blockMax, int from, double exactOthers) {
+        double others = exactOthers;
+        for (int i = Math.max(from, 1); i < blockMax.length; i++) {
+            others += blockMax[i];
+        }
+        return from == 0 ? blockMax[0] + others : others;
+    }
+
+    /**
+     * 块内单个词的最高得分（取块内各影响值组合得分的最大值）
+     */
+    private static double maxScore(PostingList.Cursor cursor, int block, double idf, double averageLength) {
+        double max = 0;
+        for (int i = 0; i < cursor.impactCount(block); i++) {
+            max = Math.max(max, termScore(idf, cursor.impactTf(block, i), cursor.impactLength(block, i),
+                    averageLength));
+        }
+        return max;
+    }
+
+    private static void collect(PriorityQueue<ScoredDoc> top, int limit, int doc, double score) {
+        if (top.size() < limit) {
+            top.add(new ScoredDoc(doc, score));
+        } else if (score > top.peek().score()) {
+            top.poll();
+            top.add(new ScoredDoc(doc, score));
+        }
+    }
+
+    /**
+     * 单个词的BM25得分，tf越大、文档越短得分越高
+     */
+    private static double termScore(double idf, int tf, int length, double averageLength) {
+        return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private double idf(int docFrequency) {
+        // 文档频率只在压缩时校正，限制在商品数以内，保证idf非负
+        int df = Math.min(docFrequency, liveCount);
+        return Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+    }
+
+    private void addDocument(long productId, Map<String, Integer> terms) {
+        int existing = docIds.get(productId);
+        if (existing != DocIdMap.MISSING) {
+            // 调用方没有提供旧内容，只能标记删除，旧词的文档频率在下次压缩时修正
+            markDeleted(existing);
+        }
+        int doc = docCount++;
+        if (doc == productIds.length) {
+            productIds = Arrays.copyOf(productIds, doc * 2);
+            lengths = Arrays.copyOf(lengths, doc * 2);
+            deleted = Arrays.copyOf(deleted, doc * 2 / Long.SIZE);
+        }
+        int length = 0;
+        for (int tf : terms.values()) {
+            length += tf;
+        }
+        productIds[doc] = productId;
+        lengths[doc] = length;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            PostingList list = postings.computeIfAbsent(term.getKey(), key -> new PostingList());
+            list.add(doc, term.getValue(), length);
+            list.docFrequency++;
+        }
+        docIds.put(productId, doc);
+        liveCount++;
+        totalLength += length;
+    }
+
+    private void removeDocument(long productId, Map<String, Integer> terms) {
+        int doc = docIds.get(productId);
+        if (doc == DocIdMap.MISSING) {
+            return;
+        }
+        markDeleted(doc);
+        docIds.remove(productId);
+        for (String term : terms.keySet()) {
+            PostingList list = postings.get(term);
+            if (list != null && list.docFrequency > 0) {
+                list.docFrequency--;
+            }
+        }
+    }
+
+    private void markDeleted(int doc) {
+        deleted[doc >>> 6] |= 1L << doc;
+        liveCount--;
+        totalLength -= lengths[doc];
+    }
+
+    private boolean isDeleted(int doc) {
+        return (deleted[doc >>> 6] & (1L << doc)) != 0;
+    }
+
+    /**
+     * 去掉已删除的文档，重新分配连续的文档号并重建倒排表
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int capacity = Math.max(INITIAL_DOCS, Integer.highestOneBit(Math.max(liveCount, 1)) << 1);
+        long[] compactedIds = new long[capacity];
+        int[] compactedLengths = new int[capacity];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (isDeleted(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = next;
+                compactedIds[next] = productIds[doc];
+                compactedLengths[next] = lengths[doc];
+                next++;
+            }
+        }
+        Iterator<Map.Entry<String, PostingList>> entries = postings.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, PostingList> entry = entries.next();
+            PostingList rebuilt = new PostingList();
+            for (PostingList.Cursor cursor = entry.getValue().cursor(); cursor.doc() != PostingList.NO_MORE_DOCS;
+                 cursor.next()) {
+                int doc = remap[cursor.doc()];
+                if (doc >= 0) {
+                    rebuilt.add(doc, cursor.tf(), compactedLengths[doc]);
+                }
+            }
+            if (rebuilt.count() == 0) {
+                entries.remove();
+            } else {
+                rebuilt.docFrequency = rebuilt.count();
+                entry.setValue(rebuilt);
+            }
+        }
+        for (int doc = 0; doc < next; doc++) {
+            docIds.put(compactedIds[doc], doc);
+        }
+        productIds = compactedIds;
+        lengths = compactedLengths;
+        deleted = new long[capacity / Long.SIZE];
+        docCount = next;
+    }
+
+    /**
+     * 名称和描述的词频，名称中的词按NAME_WEIGHT倍计入
+     */
+    private static Map<String, Integer> termFrequencies(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : ProductTokenizer.tokenize(product.getName())) {
+            terms.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : ProductTokenizer.tokenize(product.getDescription())) {
+            terms.merge(token, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    /**
+     * 命中结果
+     * @param productId 商品ID
+     * @param score BM25得分
+     */
+    public record Hit(long productId, double score) {
+    }
+
+    private record ScoredDoc(int doc, double score) {
+    }
+}
@@ -0,0 +1,329 @@
+package com.wheatmall.product.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品名称前缀补全（不可变，整体重建后替换）
+ *
+ * 名称按归一化后的字符（全角转半角、转小写）排序存放，同一前缀的名称在数组中连续，
+ * 两次二分查找即可定位前缀对应的区间，相当于一棵压缩在排序数组里的前缀树：
+ * - 区间内名称超过32个时，预先算好按热度排序的前20个（建树时自底向上合并子区间的结果），查询直接取用
+ * - 区间较小时，查询时在区间内逐轮选出下一个最热门的名称，不分配临时对象
+ * 查询只分配结果列表，名称字符串在建树时已创建。热度相同时按名称顺序。
+ */
+public final class ProductSuggester {
+
+    /** 单次最多返回的补全数，也是预计算的前K个 */
+    public static final int MAX_SUGGESTIONS = 20;
+
+    /** 区间内名称不超过该数量时查询时扫描，否则预计算 */
+    private static final int SCAN_LIMIT = 32;
+
+    /** 名称，按归一化后的字符排序，归一化后互不相同 */
+    private final String[] texts;
+
+    /** 归一化后的名称，与texts一一对应；与名称相同时（如中文、小写名称）共用同一个字符串 */
+    private final String[] keys;
+
+    private final long[] scores;
+
+    /** 预计算区间 (起点 << 32 | 终点)，升序 */
+    private final long[] ranges;
+
+    /** 每个预计算区间占MAX_SUGGESTIONS个槽位，存名称下标，不足时以-1结尾 */
+    private final int[] top;
+
+    private ProductSuggester(String[] texts, String[] keys, long[] scores) {
+        this.texts = texts;
+        this.keys = keys;
+        this.scores = scores;
+        List<long[]> computed = new ArrayList<>();
+        if (texts.length > SCAN_LIMIT) {
+            computeTop(0, texts.length, 0, computed);
+        }
+        computed.sort(Comparator.comparingLong(entry -> entry[0]));
+        this.ranges = new long[computed.size()];
+        this.top = new int[computed.size() * MAX_SUGGESTIONS];
+        for (int i = 0; i < computed.size(); i++) {
+            long[] entry = computed.get(i);
+            ranges[i] = entry[0];
+            for (int j = 0; j < MAX_SUGGESTIONS; j++) {
+                top[i * MAX_SUGGESTIONS + j] = (int) entry[j + 1];
+            }
+        }
+    }
+
+    /**
+     * 名称个数（按归一化后的名称去重）
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * 返回以prefix开头（忽略大小写和全半角）的名称，按热度降序
+     * @param prefix 前缀，null或空字符串匹配全部名称
+     * @param limit 最多返回的数量，超过MAX_SUGGESTIONS时按MAX_SUGGESTIONS
+     * @return 名称列表
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            prefix = "";
+        }
+        int from = lowerBound(prefix, 0, 0, texts.length);
+        int to = upperBound(prefix, from);
+        int count = Math.min(Math.min(limit, MAX_SUGGESTIONS), to - from);
+        if (count <= 0) {
+            return new ArrayList<>(0);
+        }
+        List<String> result = new ArrayList<>(count);
+        if (to - from > SCAN_LIMIT) {
+            int index = Arrays.binarySearch(ranges, (long) from << 32 | to);
+            if (index >= 0) {
+                int offset = index * MAX_SUGGESTIONS;
+                for (int i = 0; i < count && top[offset + i] >= 0; i++) {
+                    result.add(texts[top[offset + i]]);
+                }
+                return result;
+            }
+        }
+        // 逐轮选出排在上一轮结果之后的最热门名称
+        int previous = -1;
+        for (int round = 0; round < count; round++) {
+            int best = -1;
+            for (int i = from; i < to; i++) {
+                if ((previous < 0 || better(previous, i)) && (best < 0 || better(i, best))) {
+                    best = i;
+                }
+            }
+            result.add(texts[best]);
+            previous = best;
+        }
+        return result;
+    }
+
+    /**
+     * [low, high) 内第一个"前缀比较结果不小于bias"的名称下标：bias为0时是第一个以prefix开头的名称，为1时是其后第一个名称
+     */
+    private int lowerBound(String prefix, int bias, int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(keys[mid], prefix) < bias) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 从from起找以prefix开头的区间终点；前缀越长区间越短，先按1、2、4…的步长试探，只访问区间附近的名称
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int step = 1;
+        while (low < texts.length && comparePrefix(keys[low], prefix) == 0) {
+            from = low + 1;
+            low = from + step;
+            step <<= 1;
+        }
+        return lowerBound(prefix, 1, from, Math.min(low, texts.length));
+    }
+
+    /**
+     * 比较归一化名称的前prefix.length()个字符与归一化后的prefix，名称以prefix开头时返回0
+     */
+    private static int comparePrefix(String key, String prefix) {
+        int length = Math.min(key.length(), prefix.length());
+        for (int i = 0; i < length; i++) {
+            int diff = key.charAt(i) - fold(prefix.charAt(i));
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return key.length() >= prefix.length() ? 0 : -1;
+    }
+
+    /**
+     * a是否排在b之前：热度高的在前，相同时名称顺序在前的在前
+     */
+    private boolean better(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    /**
+     * 计算区间 [from, to) 的前K个并记录（区间内名称都以同一个长度为depth的前缀开头，数量超过SCAN_LIMIT）
+     * 先跳过区间内所有名称共同的前缀，再按下一个字符分成子区间，合并各子区间的前K个
+     * @return 区间的前K个，不足时以-1结尾
+     */
+    private int[] computeTop(int from, int to, int depth, List<long[]> computed) {
+        int split = Math.max(depth, commonPrefixLength(keys[from], keys[to - 1]));
+        int[] best = new int[MAX_SUGGESTIONS];
+        Arrays.fill(best, -1);
+        int start = from;
+        if (keys[from].length() == split) {
+            // 恰好等于公共前缀的名称排在最前面，最多一个
+            offer(best, from);
+            start++;
+        }
+        while (start < to) {
+            char next = keys[start].charAt(split);
+            int end = childEnd(start, to, split, next);
+            if (end - start > SCAN_LIMIT) {
+                for (int candidate : computeTop(start, end, split + 1, computed)) {
+                    if (candidate < 0) {
+                        break;
+                    }
+                    offer(best, candidate);
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    offer(best, i);
+                }
+            }
+            start = end;
+        }
+        long[] entry = new long[MAX_SUGGESTIONS + 1];
+        entry[0] = (long) from << 32 | to;
+        for (int i = 0; i < MAX_SUGGESTIONS; i++) {
+            entry[i + 1] = best[i];
+        }
+        computed.add(entry);
+        return best;
+    }
+
+    /**
+     * 区间 [start, to) 内第position个字符等于c的名称连续排在开头，返回其后的第一个下标
+     */
+    private int childEnd(int start, int to, int position, char c) {
+        int low = start + 1;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].charAt(position) == c) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 把candidate插入按热度有序的best，超出长度的丢弃
+     */
+    private void offer(int[] best, int candidate) {
+        int last = best.length - 1;
+        if (best[last] >= 0 && !better(candidate, best[last])) {
+            return;
+        }
+        int i = last;
+        while (i > 0 && (best[i - 1] < 0 || better(candidate, best[i - 1]))) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = candidate;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 字符归一化：全角转半角，转小写
+     */
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        if (c >= 0x4E00 && c <= 0x9FFF) {
+            // 常用汉字没有大小写
+            return c;
+        }
+        return (char) Character.toLowerCase(ProductTokenizer.normalize(c));
+    }
+
+    /**
+     * 归一化整个名称，没有变化时返回原字符串
+     */
+    private static String foldAll(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char folded = fold(text.charAt(i));
+            if (chars == null && folded != text.charAt(i)) {
+                chars = text.toCharArray();
+            }
+            if (chars != null) {
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    /**
+     * 构建器：归一化后相同的名称合并为一个，热度相加，保留先加入的写法
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        private final List<String> keys = new ArrayList<>();
+
+        private final List<String> texts = new ArrayList<>();
+
+        private long[] scores = new long[16];
+
+        /**
+         * 加入一个名称，null或空白名称忽略
+         * @param name 名称
+         * @param score 热度，越大越靠前
+         */
+        public Builder add(String name, long score) {
+            if (name == null || name.isBlank()) {
+                return this;
+            }
+            String key = foldAll(name);
+            Integer position = positions.get(key);
+            if (position != null) {
+                scores[position] += score;
+                return this;
+            }
+            positions.put(key, keys.size());
+            if (keys.size() == scores.length) {
+                scores = Arrays.copyOf(scores, scores.length * 2);
+            }
+            scores[keys.size()] = score;
+            keys.add(key);
+            texts.add(name);
+            return this;
+        }
+
+        public ProductSuggester build() {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keys::get));
+            String[] sortedTexts = new String[order.length];
+            String[] sortedKeys = new String[order.length];
+            long[] sortedScores = new long[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedTexts[i] = texts.get(order[i]);
+                sortedKeys[i] = keys.get(order[i]);
+                sortedScores[i] = scores[order[i]];
+            }
+            return new ProductSuggester(sortedTexts, sortedKeys, sortedScores);
+        }
+    }
+}
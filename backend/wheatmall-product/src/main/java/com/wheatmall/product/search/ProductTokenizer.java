@@ -0,0 +1,93 @@
+package com.wheatmall.product.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品文本分词
+ *
+ * - 中日韩文字按相邻两字切分（二元组），"测试商品" → 测试、试商、商品；孤立的单字保留为单字词
+ * - 字母和数字按连续片段切成一个词，转为小写，"iPhone 15" → iphone、15
+ * - 全角字母数字先转为半角；其余字符（空白、标点、符号）作为分隔符
+ * 建索引和查询使用同一套规则，查询词切出的二元组都命中才算匹配。
+ */
+public final class ProductTokenizer {
+
+    /** 全角ASCII字符与半角字符的码点差 */
+    private static final int FULL_WIDTH_OFFSET = 0xFEE0;
+
+    private ProductTokenizer() {
+    }
+
+    /**
+     * 切分文本，null或空文本返回空列表
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        boolean cjkRunEmitted = false;
+        for (int i = 0; i < text.length(); ) {
+            int raw = text.codePointAt(i);
+            i += Character.charCount(raw);
+            int codePoint = normalize(raw);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder(4).appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                    cjkRunEmitted = true;
+                }
+                previousCjk = codePoint;
+                continue;
+            }
+            flushSingleCjk(previousCjk, cjkRunEmitted, tokens);
+            previousCjk = -1;
+            cjkRunEmitted = false;
+            if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        flushSingleCjk(previousCjk, cjkRunEmitted, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    /**
+     * 中日韩文字片段只有一个字时，单字作为一个词
+     */
+    private static void flushSingleCjk(int previousCjk, boolean cjkRunEmitted, List<String> tokens) {
+        if (previousCjk >= 0 && !cjkRunEmitted) {
+            tokens.add(Character.toString(previousCjk));
+        }
+    }
+
+    /**
+     * 全角字母数字转半角，全角空格转为空格，其余字符不变
+     */
+    static int normalize(int codePoint) {
+        if (codePoint >= 0xFF01 && codePoint <= 0xFF5E) {
+            return codePoint - FULL_WIDTH_OFFSET;
+        }
+        return codePoint == 0x3000 ? ' ' : codePoint;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,271 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.product.dto.RelatedProduct;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.recommend.CoPurchaseMatrix;
+import com.wheatmall.product.recommend.CoPurchaseSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 经常一起购买（"买了还买"）：按下单事件增量维护商品同现矩阵 {@link CoPurchaseMatrix}
+ *
+ * 订单只有一个商品，购物篮取同一用户在session-window（默认30分钟）内连续下单的商品：
+ * 新订单的商品与篮中已有的每个商品同现一次。每个用户只保留最近的篮子，用户数超过max-sessions时淘汰最久没有下单的；
+ * 篮子不持久化，重启前后的订单不会配对。未登录（用户ID为0）的订单不计入。
+ *
+ * 查询读不可变的 {@link CoPurchaseSnapshot}，不加锁；矩阵有变化时由后台定时任务生成新快照后整体替换，
+ * 结果相对下单最多延迟一个rebuild-interval。写入（消费线程）、生成快照和保存以this为锁，只会阻塞消费线程。
+ * 矩阵连同已计入的事件位置定期保存到 {data-dir}/recommend/co-purchase.dat，启动时加载并从该位置继续消费，
+ * 保存前崩溃时从上次保存的位置重新计入，不会重复计数。
+ */
+@Slf4j
+@Service
+public class CoPurchaseService {
+
+    /** 矩阵文件名 */
+    static final String MATRIX_FILE = "co-purchase.dat";
+
+    private final ProductService productService;
+
+    private final Path matrixFile;
+
+    private final long sessionWindowMillis;
+
+    private final int maxBasketSize;
+
+    private final int topK;
+
+    /** 由this锁保护 */
+    private final CoPurchaseMatrix matrix;
+
+    /** 用户ID → 最近的购物篮，按访问顺序淘汰；由this锁保护 */
+    private final Map<Long, Basket> baskets;
+
+    /** 上次生成快照后矩阵是否有变化，由this锁保护 */
+    private boolean changedSinceRebuild;
+
+    /** 上次保存后矩阵是否有变化，由this锁保护 */
+    private boolean changedSinceSave;
+
+    private volatile CoPurchaseSnapshot snapshot;
+
+    @Autowired
+    public CoPurchaseService(ProductService productService,
+                             @Value("${wheatmall.product.data-dir:/tmp/wheatmall-product}") String dataDir,
+                             @Value("${wheatmall.product.co-purchase.session-window:PT30M}") Duration sessionWindow,
+                             @Value("${wheatmall.product.co-purchase.max-basket-size:20}") int maxBasketSize,
+                             @Value("${wheatmall.product.co-purchase.max-sessions:100000}") int maxSessions,
+                             @Value("${wheatmall.product.co-purchase.max-neighbors:32}") int maxNeighbors,
+                             @Value("${wheatmall.product.co-purchase.max-entries:10000000}") long maxEntries,
+                             @Value("${wheatmall.product.co-purchase.top-k:20}") int topK) {
+        this(productService, Paths.get(dataDir, "recommend", MATRIX_FILE), sessionWindow, maxBasketSize, maxSessions,
+                maxNeighbors, maxEntries, topK);
+    }
+
+    private CoPurchaseService(ProductService productService, Path matrixFile, Duration sessionWindow, int maxBasketSize,
+                              int maxSessions, int maxNeighbors, long maxEntries, int topK) {
+        if (maxBasketSize < 2 || maxSessions <= 0 || topK <= 0 || topK > maxNeighbors) {
+            throw new IllegalArgumentException("购物篮大小须不小于2，用户数须大于0，topK须在1到每行相关商品数之间");
+        }
+        this.productService = productService;
+        this.matrixFile = matrixFile;
+        this.sessionWindowMillis = sessionWindow.toMillis();
+        this.maxBasketSize = maxBasketSize;
+        this.topK = topK;
+        this.baskets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Basket> eldest) {
+                return size() > maxSessions;
+            }
+        };
+        this.matrix = load(matrixFile, maxNeighbors, maxEntries);
+        this.snapshot = matrix.snapshot(topK);
+    }
+
+    /**
+     * 计入一批下单事件（扣减库存事件）
+     * @param position 这批事件之后的位置，与矩阵一起保存
+     * @return 产生的同现商品对数
+     */
+    public synchronized int record(List<StockDeductionEvent> events, long position) {
+        int pairs = 0;
+        for (StockDeductionEvent event : events) {
+            if (event.userId() == 0 || event.productId() == 0) {
+                continue;
+            }
+            long time = SnowflakeIdGenerator.timestampOf(event.orderId());
+            Basket basket = baskets.get(event.userId());
+            if (basket == null || Math.abs(time - basket.lastMillis) > sessionWindowMillis) {
+                basket = new Basket(maxBasketSize);
+                baskets.put(event.userId(), basket);
+            }
+            pairs += basket.add(event.orderId(), event.productId(), time, matrix);
+        }
+        matrix.setPosition(position);
+        changedSinceRebuild |= pairs > 0;
+        changedSinceSave = true;
+        return pairs;
+    }
+
+    /**
+     * 经常与商品一起购买的商品
+     * @param limit 最多返回的数量，不超过 {@link #getMaxSize()}
+     * @return 按同现次数降序，没有数据时为空列表
+     */
+    public List<RelatedProduct> related(long productId, int limit) {
+        List<CoPurchaseSnapshot.Neighbor> neighbors = snapshot.related(productId, limit);
+        List<RelatedProduct> result = new ArrayList<>(neighbors.size());
+        for (CoPurchaseSnapshot.Neighbor neighbor : neighbors) {
+            Product product = productService.getById(neighbor.productId());
+            result.add(new RelatedProduct(neighbor.productId(), product == null ? null : product.getName(),
+                    neighbor.count()));
+        }
+        return result;
+    }
+
+    /**
+     * 矩阵有变化时生成新快照
+     * @return 是否生成
+     */
+    @Scheduled(fixedDelayString = "${wheatmall.product.co-purchase.rebuild-interval:PT1M}",
+            initialDelayString = "${wheatmall.product.co-purchase.rebuild-interval:PT1M}")
+    public synchronized boolean rebuildIfChanged() {
+        if (!changedSinceRebuild) {
+            return false;
+        }
+        long start = System.nanoTime();
+        snapshot = matrix.snapshot(topK);
+        changedSinceRebuild = false;
+        log.debug("已生成同现快照, 商品数: {}, 耗时: {}ms", snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * 有新计入的事件时保存矩阵和位置
+     * @return 是否保存
+     */
+    @Scheduled(fixedDelayString = "${wheatmall.product.co-purchase.save-interval:PT5M}",
+            initialDelayString = "${wheatmall.product.co-purchase.save-interval:PT5M}")
+    public synchronized boolean saveIfChanged() {
+        if (!changedSinceSave) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            matrix.save(matrixFile);
+            changedSinceSave = false;
+            log.info("已保存同现矩阵, position: {}, 商品数: {}, 项数: {}, 耗时: {}ms", matrix.getPosition(),
+                    matrix.size(), matrix.getEntries(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException e) {
+            log.error("保存同现矩阵失败: {}", matrixFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * 关闭时保存（消费者依赖本服务，先于本服务停止）
+     */
+    @PreDestroy
+    public void close() {
+        saveIfChanged();
+    }
+
+    /**
+     * 已计入矩阵的下一条事件的位置，消费者从这里开始
+     */
+    public synchronized long getPosition() {
+        return matrix.getPosition();
+    }
+
+    /**
+     * 查询返回数量的上限（快照中每个商品保存的相关商品数）
+     */
+    public int getMaxSize() {
+        return topK;
+    }
+
+    /**
+     * 当前快照中有相关商品的商品数
+     */
+    public int getSnapshotSize() {
+        return snapshot.size();
+    }
+
+    private static CoPurchaseMatrix load(Path file, int maxNeighbors, long maxEntries) {
+        if (!Files.exists(file)) {
+            return new CoPurchaseMatrix(maxNeighbors, maxEntries);
+        }
+        try {
+            CoPurchaseMatrix matrix = CoPurchaseMatrix.load(file, maxNeighbors, maxEntries);
+            log.info("已加载同现矩阵, position: {}, 商品数: {}, 项数: {}", matrix.getPosition(), matrix.size(),
+                    matrix.getEntries());
+            return matrix;
+        } catch (IOException e) {
+            // 矩阵从头重新计入（事件日志保留的部分）
+            log.error("加载同现矩阵失败，从头重新统计: {}", file, e);
+            return new CoPurchaseMatrix(maxNeighbors, maxEntries);
+        }
+    }
+
+    /**
+     * 一个用户最近的购物篮：最多maxSize个不同的商品，满了淘汰最早加入的
+     */
+    private static final class Basket {
+
+        private final long[] productIds;
+
+        private final long[] orderIds;
+
+        private int size;
+
+        private long lastMillis;
+
+        private Basket(int maxSize) {
+            this.productIds = new long[maxSize];
+            this.orderIds = new long[maxSize];
+        }
+
+        /**
+         * 加入一个订单的商品，与篮中已有的商品各同现一次；重复转发的订单和篮中已有的商品不再计数
+         * @return 产生的同现商品对数
+         */
+        private int add(long orderId, long productId, long timeMillis, CoPurchaseMatrix matrix) {
+            lastMillis = Math.max(lastMillis, timeMillis);
+            for (int i = 0; i < size; i++) {
+                if (orderIds[i] == orderId || productIds[i] == productId) {
+                    return 0;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                matrix.addPair(productId, productIds[i], 1);
+            }
+            int pairs = size;
+            if (size == productIds.length) {
+                System.arraycopy(productIds, 1, productIds, 0, size - 1);
+                System.arraycopy(orderIds, 1, orderIds, 0, size - 1);
+                size--;
+            }
+            productIds[size] = productId;
+            orderIds[size++] = orderId;
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.event.ProductsCreatedEvent;
+import com.wheatmall.product.search.ProductPriceIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 商品筛选服务：按价格区间、是否有库存筛选，按价格排序
+ *
+ * 启动时按ID分批读取商品目录建立 {@link ProductPriceIndex}，之后随 {@link ProductChangedEvent} 增量更新、
+ * 随 {@link ProductsCreatedEvent} 整批加入。
+ * 查询无锁，读到索引条目后再从目录取商品并复核价格和库存，不返回与当前商品不一致的条目。
+ */
+@Slf4j
+@Service
+public class ProductFilterService {
+
+    /** 建索引时每批读取的商品数 */
+    private static final int BUILD_BATCH_SIZE = 1024;
+
+    private final ProductService productService;
+
+    private final ProductPriceIndex index = new ProductPriceIndex();
+
+    public ProductFilterService(ProductService productService) {
+        this.productService = productService;
+        long start = System.nanoTime();
+        Long cursor = null;
+        List<Product> batch;
+        do {
+            batch = productService.listAfter(cursor, BUILD_BATCH_SIZE);
+            for (Product product : batch) {
+                index.update(null, product);
+            }
+            cursor = batch.isEmpty() ? cursor : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        log.info("商品价格索引就绪, 商品数: {}, 有库存: {}, 耗时: {}ms", index.size(), index.inStockSize(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 按价格顺序筛选商品
+     * @param minPrice 最低价格（含），null表示不限
+     * @param maxPrice 最高价格（含），null表示不限
+     * @param inStockOnly 是否只要有库存的商品
+     * @param descending 是否按价格降序
+     * @param cursor 上一页返回的nextCursor，首页为null
+     * @param limit 每页数量
+     * @return 一页商品和下一页游标
+     * @throws IllegalArgumentException 游标格式非法时抛出
+     */
+    public Page filter(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, boolean descending,
+                       String cursor, int limit) {
+        ProductPriceIndex.Entry after = cursor == null ? null : ProductPriceIndex.Entry.parseCursor(cursor);
+        List<ProductPriceIndex.Entry> entries = index.range(minPrice, maxPrice, inStockOnly, descending, after, limit);
+        List<Product> products = new ArrayList<>(entries.size());
+        for (ProductPriceIndex.Entry entry : entries) {
+            Product product = productService.getById(entry.productId());
+            // 查询期间商品可能被修改，以目录中的当前值为准
+            if (product != null && Objects.equals(ProductPriceIndex.toCents(product.getPrice()), entry.price())
+                    && (!inStockOnly || (product.getStock() != null && product.getStock() > 0))) {
+                products.add(product);
+            }
+        }
+        // 按读到的索引条目判断是否还有下一页，复核时丢弃的条目不影响翻页
+        String nextCursor = entries.size() < limit ? null : entries.get(entries.size() - 1).toCursor();
+        return new Page(products, nextCursor);
+    }
+
+    /**
+     * 商品变更时同步更新索引
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        index.update(event.getBefore(), event.getAfter());
+    }
+
+    /**
+     * 批量新增商品时整批加入索引
+     */
+    @EventListener
+    public void onProductsCreated(ProductsCreatedEvent event) {
+        for (Product product : event.getProducts()) {
+            index.update(null, product);
+        }
+    }
+
+    /**
+     * 一页筛选结果
+     * @param products 商品列表
+     * @param nextCursor 下一页游标，没有下一页时为null
+     */
+    public record Page(List<Product> products, String nextCursor) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.product.imports.ImportFormat;
+import com.wheatmall.product.imports.ImportJob;
+import com.wheatmall.product.imports.ProductImporter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品批量导入服务
+ *
+ * 导入在请求线程中执行（流式读取上传内容），解析校验在独立的fork/join线程池中并行进行，
+ * 每批 {@value #BATCH_SIZE} 个商品调用一次 {@link ProductService#createAll}：一次写锁、一次变更日志fsync、
+ * 一次索引更新事件。导入期间可通过任务ID查询进度，最近 {@value #MAX_JOBS} 个任务的报告保留在内存中。
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    /** 每批写入的商品数 */
+    static final int BATCH_SIZE = 1000;
+
+    /** 保留的任务报告数 */
+    static final int MAX_JOBS = 20;
+
+    private final ProductService productService;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLong nextJobId = new AtomicLong();
+
+    /** 任务ID → 任务，按创建顺序，超过上限时淘汰最早的 */
+    private final Map<Long, ImportJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ImportJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    public ProductImportService(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * 导入商品，读完输入流后返回
+     * @param input 上传内容（UTF-8）
+     * @param format 文件格式
+     * @return 导入报告
+     */
+    public ImportJob.Report importProducts(InputStream input, ImportFormat format) {
+        ImportJob job = new ImportJob(nextJobId.incrementAndGet(), format);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        log.info("开始导入商品, 任务ID: {}, 格式: {}", job.getId(), format);
+        new ProductImporter(pool, BATCH_SIZE, productService::createAll).run(input, format, job);
+        ImportJob.Report report = job.report();
+        log.info("导入商品结束, 任务ID: {}, 状态: {}, 读取行数: {}, 导入: {}, 失败: {}, 原因: {}", report.id(),
+                report.status(), report.linesRead(), report.imported(), report.failed(), report.message());
+        return report;
+    }
+
+    /**
+     * 查询导入进度
+     * @param jobId 任务ID
+     * @return 导入报告，任务不存在或已淘汰时为null
+     */
+    public ImportJob.Report getReport(long jobId) {
+        ImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        return job == null ? null : job.report();
+    }
+
+    /**
+     * 最近的导入任务，按创建时间倒序
+     */
+    public List<ImportJob.Report> listReports() {
+        List<ImportJob> recent;
+        synchronized (jobs) {
+            recent = new ArrayList<>(jobs.values());
+        }
+        List<ImportJob.Report> reports = new ArrayList<>(recent.size());
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            reports.add(recent.get(i).report());
+        }
+        return reports;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.event.ProductsCreatedEvent;
+import com.wheatmall.product.search.ProductSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品搜索服务
+ *
+ * 启动时按ID分批读取商品目录建立 {@link ProductSearchIndex}，
+ * 之后随 {@link ProductChangedEvent} 增量更新、随 {@link ProductsCreatedEvent} 整批加入
+ * （事件在商品写锁内发布，索引与目录的修改顺序一致）。
+ */
+@Slf4j
+@Service
+public class ProductSearchService {
+
+    /** 建索引时每批读取的商品数 */
+    private static final int BUILD_BATCH_SIZE = 1024;
+
+    private final ProductService productService;
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    public ProductSearchService(ProductService productService) {
+        this.productService = productService;
+        long start = System.nanoTime();
+        Long cursor = null;
+        List<Product> batch;
+        do {
+            batch = productService.listAfter(cursor, BUILD_BATCH_SIZE);
+            index.addAll(batch);
+            cursor = batch.isEmpty() ? cursor : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        log.info("商品搜索索引就绪, 商品数: {}, 词数: {}, 耗时: {}ms", index.size(), index.termCount(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 搜索商品（名称和描述），按相关度降序
+     * @param query 查询文本
+     * @param limit 最多返回的数量
+     * @return 商品列表
+     */
+    public List<Product> search(String query, int limit) {
+        List<ProductSearchIndex.Hit> hits = index.search(query, limit);
+        List<Product> products = new ArrayList<>(hits.size());
+        for (ProductSearchIndex.Hit hit : hits) {
+            Product product = productService.getById(hit.productId());
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 商品变更时同步更新索引
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        index.update(event.getBefore(), event.getAfter());
+    }
+
+    /**
+     * 批量新增商品时整批加入索引
+     */
+    @EventListener
+    public void onProductsCreated(ProductsCreatedEvent event) {
+        index.addAll(event.getProducts());
+    }
+}
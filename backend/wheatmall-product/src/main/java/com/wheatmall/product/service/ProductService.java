@@ -0,0 +1,408 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.product.catalog.ProductCatalog;
+import com.wheatmall.product.dto.StockDeduction;
+import com.wheatmall.product.dto.StockDeductionResult;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.exception.StockNotEnoughException;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.event.ProductsCreatedEvent;
+import com.wheatmall.product.snapshot.CatalogChangeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品服务（内存商品目录，模拟数据，不连接数据库）
+ *
+ * 商品存储在 {@link ProductCatalog} 中，每次修改都整体替换并递增version，
+ * 读操作不加服务级锁，写操作串行：先追加变更日志，再修改目录，并在写锁内发布 {@link ProductChangedEvent}（批量新增为 {@link ProductsCreatedEvent}）。
+ * 变更日志组提交，写操作在写锁外等待所在批次持久化后才返回，并发的修改共用一次fsync。
+ * 启动时目录可能已从快照恢复，只在目录为空时写入模拟数据，然后重放快照之后的变更。
+ */
+@Slf4j
+@Service
+public class ProductService {
+
+    /** 价格小数位数 */
+    private static final int PRICE_SCALE = 2;
+
+    /** 价格上限：以分为单位能放进long */
+    public static final BigDecimal MAX_PRICE = BigDecimal.valueOf(Long.MAX_VALUE, PRICE_SCALE);
+
+    private final ProductCatalog catalog;
+
+    private final CatalogChangeLog changeLog;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductService(ProductCatalog catalog, CatalogChangeLog changeLog,
+                          ApplicationEventPublisher eventPublisher) {
+        this.catalog = catalog;
+        this.changeLog = changeLog;
+        this.eventPublisher = eventPublisher;
+        if (catalog.size() == 0) {
+            initMockData();
+        }
+        int replayed = changeLog.replay(catalog.getSequence(), catalog);
+        log.info("商品目录就绪, 商品数: {}, 重放变更: {}, sequence: {}", catalog.size(), replayed, catalog.getSequence());
+    }
+
+    /**
+     * 初始化模拟商品数据（变更序号为0，不写变更日志）
+     */
+    private void initMockData() {
+        LocalDateTime now = LocalDateTime.now();
+        catalog.put(new Product(1L, "iPhone 15", new BigDecimal("5999.00"), 50,
+                "Apple iPhone 15", now, now, 1L), 0);
+        catalog.put(new Product(2L, "MacBook Pro", new BigDecimal("12999.00"), 30,
+                "Apple MacBook Pro", now, now, 1L), 0);
+        catalog.put(new Product(3L, "AirPods Pro", new BigDecimal("1999.00"), 100,
+                "Apple AirPods Pro", now, now, 1L), 0);
+    }
+
+    /**
+     * 根据ID查询商品
+     * @param id 商品ID
+     * @return 商品信息，不存在时返回null
+     */
+    public Product getById(Long id) {
+        return id == null ? null : catalog.get(id);
+    }
+
+    /**
+     * 批量查询商品
+     * @param ids 商品ID
+     * @return 存在的商品，按ids的顺序；不存在的跳过，重复的ID返回多次
+     */
+    public List<Product> getByIds(List<Long> ids) {
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = getById(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 查询所有商品（按ID升序）
+     * @return 商品列表
+     */
+    public List<Product> list() {
+        return catalog.listAfter(Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 键集分页查询：返回ID大于cursor的前limit个商品（按ID升序）
+     * 按ID有序定位起点，复杂度O(log n + limit)，与页码深度无关
+     * @param cursor 上一页最后一个商品ID，null表示从头开始
+     * @param limit 最多返回的数量
+     * @return 商品列表
+     */
+    public List<Product> listAfter(Long cursor, int limit) {
+        return catalog.listAfter(cursor == null ? Long.MIN_VALUE : cursor, limit);
+    }
+
+    /**
+     * 流式读取所有商品（按ID升序）
+     * 按需逐批读取，下游请求更多数据时才读取下一批，内存占用只与batchSize有关
+     * @param batchSize 每批读取的数量
+     * @return 商品流
+     */
+    public Flux<Product> stream(int batchSize) {
+        return Flux.<List<Product>, Long>generate(() -> Long.MIN_VALUE, (cursor, sink) -> {
+            List<Product> batch = listAfter(cursor, batchSize);
+            if (batch.isEmpty()) {
+                sink.complete();
+                return cursor;
+            }
+            sink.next(batch);
+            return batch.get(batch.size() - 1).getId();
+        }).concatMapIterable(batch -> batch, 1);
+    }
+
+    /**
+     * 获取商品目录摘要
+     * 任一商品新增、删除或版本变化都会改变摘要，O(1)读取，无需遍历目录
+     */
+    public long getCatalogDigest() {
+        return catalog.getDigest();
+    }
+
+    /**
+     * 更新商品，只覆盖非空字段
+     * @param id 商品ID
+     * @param changes 待更新的字段
+     * @return 更新后的商品，不存在时返回null
+     * @throws IllegalArgumentException 价格非法时抛出，见 {@link #isValidPrice}
+     */
+    public Product update(Long id, Product changes) {
+        if (!isValidPrice(changes.getPrice())) {
+            throw new IllegalArgumentException("商品价格非法: " + changes.getPrice());
+        }
+        Product after;
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            Product before = catalog.get(id);
+            if (before == null) {
+                return null;
+            }
+            after = new Product(
+                    id,
+                    changes.getName() != null ? changes.getName() : before.getName(),
+                    changes.getPrice() != null ? changes.getPrice() : before.getPrice(),
+                    changes.getStock() != null ? changes.getStock() : before.getStock(),
+                    changes.getDescription() != null ? changes.getDescription() : before.getDescription(),
+                    before.getCreateTime(),
+                    LocalDateTime.now(),
+                    before.getVersion() + 1
+            );
+            requireStorable(after);
+            long sequence = catalog.getSequence() + 1;
+            // 先追加日志再修改目录：日志不可用时直接抛出，目录不变；日志顺序与目录修改顺序一致
+            durable = changeLog.append(sequence, after);
+            catalog.put(after, sequence);
+            eventPublisher.publishEvent(new ProductChangedEvent(before, after));
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(durable);
+        log.debug("商品已更新, id: {}, version: {}", id, after.getVersion());
+        return after;
+    }
+
+    /**
+     * 批量新增商品（导入）
+     * 整批只加一次写锁：按当前最大ID顺序分配ID，变更日志一起追加（同一次fsync），写入目录，
+     * 发布一次 {@link ProductsCreatedEvent}；在写锁外等待整批持久化后返回。
+     * @param drafts 待新增的商品，只使用名称、价格、库存和描述，ID、时间和版本由服务端填写
+     * @return 新增后的商品，与drafts顺序一致
+     * @throws IllegalArgumentException 名称为空或价格非法（含超出 {@link #MAX_PRICE}）时抛出，整批都不写入
+     */
+    public List<Product> createAll(List<Product> drafts) {
+        // 整批在追加日志之前完成校验和价格换算，日志写入后目录不会再拒绝其中任何一条
+        for (Product draft : drafts) {
+            if (draft.getName() == null || draft.getPrice() == null || !isValidPrice(draft.getPrice())) {
+                throw new IllegalArgumentException("商品名称或价格非法: " + draft.getName() + ", " + draft.getPrice());
+            }
+            requireStorable(draft);
+        }
+        if (drafts.isEmpty()) {
+            return List.of();
+        }
+        List<Product> created = new ArrayList<>(drafts.size());
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long id = catalog.maxId();
+            for (Product draft : drafts) {
+                created.add(new Product(++id, draft.getName(), draft.getPrice(), draft.getStock(),
+                        draft.getDescription(), now, now, 1L));
+            }
+            long firstSequence = catalog.getSequence() + 1;
+            durable = changeLog.appendAll(firstSequence, created);
+            for (int i = 0; i < created.size(); i++) {
+                catalog.put(created.get(i), firstSequence + i);
+            }
+            eventPublisher.publishEvent(new ProductsCreatedEvent(created));
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(durable);
+        log.debug("已批量新增商品, 数量: {}, ID: {} - {}", created.size(), created.get(0).getId(),
+                created.get(created.size() - 1).getId());
+        return created;
+    }
+
+    /**
+     * 扣减库存
+     * 检查和扣减在写锁内完成（内存操作），然后在写锁外等待库存变更持久化，
+     * 并发扣减的变更日志合并为一次fsync，返回的future在所在批次落盘后完成。
+     * @param id 商品ID
+     * @param quantity 扣减数量，必须大于0
+     * @return 扣减后的商品，不存在时为null；变更日志写入失败时以UncheckedIOException异常完成
+     * @throws StockNotEnoughException 库存不足时抛出，库存不变
+     * @throws IllegalStateException 变更日志已关闭
+     * @throws java.io.UncheckedIOException 变更日志此前已写入失败
+     */
+    public CompletableFuture<Product> deductStock(Long id, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("扣减数量必须大于0: " + quantity);
+        }
+        Product after;
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            Product before = catalog.get(id);
+            if (before == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            int stock = before.getStock() == null ? 0 : before.getStock();
+            if (stock < quantity) {
+                throw new StockNotEnoughException(id, stock, quantity);
+            }
+            after = new Product(id, before.getName(), before.getPrice(), stock - quantity, before.getDescription(),
+                    before.getCreateTime(), LocalDateTime.now(), before.getVersion() + 1);
+            long sequence = catalog.getSequence() + 1;
+            durable = changeLog.appendStock(sequence, after);
+            catalog.put(after, sequence);
+            eventPublisher.publishEvent(new ProductChangedEvent(before, after));
+        } finally {
+            writeLock.unlock();
+        }
+        return durable.thenApply(ignored -> after);
+    }
+
+    /**
+     * 批量扣减库存
+     * 在一次写锁内按顺序逐项扣减，各项互不影响（库存不足或商品不存在的项跳过，同一商品可以出现多次）；
+     * 成功项的变更日志一起组提交，返回的future在全部落盘后完成
+     * @param deductions 扣减项，数量必须大于0
+     * @return 与deductions一一对应的结果；变更日志写入失败时以UncheckedIOException异常完成
+     */
+    public CompletableFuture<List<StockDeductionResult>> deductStockBatch(List<StockDeduction> deductions) {
+        for (StockDeduction deduction : deductions) {
+            if (deduction.getQuantity() == null || deduction.getQuantity() <= 0) {
+                throw new IllegalArgumentException("扣减数量必须大于0: " + deduction.getQuantity());
+            }
+        }
+        List<StockDeductionResult> results = new ArrayList<>(deductions.size());
+        // 变更按追加顺序持久化，最后一条完成时前面的都已完成
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        writeLock.lock();
+        try {
+            for (StockDeduction deduction : deductions) {
+                Product before = getById(deduction.getProductId());
+                if (before == null) {
+                    results.add(new StockDeductionResult(deduction.getProductId(),
+                            BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), null, null, null));
+                    continue;
+                }
+                int stock = before.getStock() == null ? 0 : before.getStock();
+                if (stock < deduction.getQuantity()) {
+                    results.add(new StockDeductionResult(before.getId(), BizCodeEnum.STOCK_NOT_ENOUGH.getCode(),
+                            before.getName(), before.getPrice(), stock));
+                    continue;
+                }
+                Product after = new Product(before.getId(), before.getName(), before.getPrice(),
+                        stock - deduction.getQuantity(), before.getDescription(), before.getCreateTime(),
+                        LocalDateTime.now(), before.getVersion() + 1);
+                long sequence = catalog.getSequence() + 1;
+                durable = changeLog.appendStock(sequence, after);
+                catalog.put(after, sequence);
+                eventPublisher.publishEvent(new ProductChangedEvent(before, after));
+                results.add(new StockDeductionResult(after.getId(), 0, after.getName(), after.getPrice(),
+                        after.getStock()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return durable.thenApply(ignored -> results);
+    }
+
+    /**
+     * 批量归还库存（订单取消或超时未支付）
+     * 与 {@link #deductStockBatch} 相同：一次写锁内逐项增加库存，变更日志一起组提交
+     * @param releases 归还项，数量必须大于0
+     * @return 与releases一一对应的结果，商品不存在的项为PRODUCT_NOT_FOUND，归还后库存超出int范围的项为PARAM_ERROR（库存不变）；
+     *         变更日志写入失败时以UncheckedIOException异常完成
+     */
+    public CompletableFuture<List<StockDeductionResult>> releaseStockBatch(List<StockDeduction> releases) {
+        for (StockDeduction release : releases) {
+            if (release.getQuantity() == null || release.getQuantity() <= 0) {
+                throw new IllegalArgumentException("归还数量必须大于0: " + release.getQuantity());
+            }
+        }
+        List<StockDeductionResult> results = new ArrayList<>(releases.size());
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        writeLock.lock();
+        try {
+            for (StockDeduction release : releases) {
+                Product before = getById(release.getProductId());
+                if (before == null) {
+                    results.add(new StockDeductionResult(release.getProductId(),
+                            BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), null, null, null));
+                    continue;
+                }
+                int stock = before.getStock() == null ? 0 : before.getStock();
+                int released;
+                try {
+                    released = Math.addExact(stock, release.getQuantity());
+                } catch (ArithmeticException e) {
+                    results.add(new StockDeductionResult(before.getId(), BizCodeEnum.PARAM_ERROR.getCode(),
+                            before.getName(), before.getPrice(), stock));
+                    continue;
+                }
+                Product after = new Product(before.getId(), before.getName(), before.getPrice(),
+                        released, before.getDescription(), before.getCreateTime(),
+                        LocalDateTime.now(), before.getVersion() + 1);
+                long sequence = catalog.getSequence() + 1;
+                durable = changeLog.appendStock(sequence, after);
+                catalog.put(after, sequence);
+                eventPublisher.publishEvent(new ProductChangedEvent(before, after));
+                results.add(new StockDeductionResult(after.getId(), 0, after.getName(), after.getPrice(),
+                        after.getStock()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return durable.thenApply(ignored -> results);
+    }
+
+    /**
+     * 价格不能为负、最多两位小数，以分为单位不超过long的范围（目录以分存储）
+     * @param price 价格，null表示不修改
+     */
+    public static boolean isValidPrice(BigDecimal price) {
+        return price == null || (price.signum() >= 0 && price.stripTrailingZeros().scale() <= PRICE_SCALE
+                && price.compareTo(MAX_PRICE) <= 0);
+    }
+
+    /**
+     * 在追加变更日志之前把价格换算为分，换算失败时日志和目录都不变
+     * 写入日志后目录不能再拒绝这条记录，否则重放时同样失败，服务无法启动
+     * @throws IllegalArgumentException 价格无法以分存储时抛出
+     */
+    private static void requireStorable(Product product) {
+        BigDecimal price = product.getPrice();
+        if (price == null) {
+            return;
+        }
+        try {
+            price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("商品价格非法: " + price, e);
+        }
+    }
+
+    /**
+     * 等待变更持久化，把CompletionException还原为原始的运行时异常
+     */
+    private static void awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
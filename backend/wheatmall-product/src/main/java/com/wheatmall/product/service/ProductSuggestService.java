@@ -0,0 +1,114 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.event.ProductsCreatedEvent;
+import com.wheatmall.product.search.ProductSuggester;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品名称补全服务
+ *
+ * 补全结构 {@link ProductSuggester} 不可变，查询无锁；商品名称或热度变化只做标记，
+ * 由后台定时任务整体重建后替换，补全结果相对商品变更最多延迟一个重建间隔。
+ * 热度取进程启动以来的累计销量（库存扣减数量），不持久化。
+ */
+@Slf4j
+@Service
+public class ProductSuggestService {
+
+    /** 重建时每批读取的商品数 */
+    private static final int BUILD_BATCH_SIZE = 1024;
+
+    private final ProductService productService;
+
+    /** 商品ID → 累计销量 */
+    private final Map<Long, Long> sales = new ConcurrentHashMap<>();
+
+    /** 上次重建后名称或热度是否有变化 */
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    private volatile ProductSuggester suggester;
+
+    public ProductSuggestService(ProductService productService) {
+        this.productService = productService;
+        this.suggester = build();
+    }
+
+    /**
+     * 返回以prefix开头的商品名称（忽略大小写和全半角），按热度降序
+     * @param prefix 前缀
+     * @param limit 最多返回的数量，不超过 {@link ProductSuggester#MAX_SUGGESTIONS}
+     * @return 商品名称列表
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return suggester.suggest(prefix, limit);
+    }
+
+    /**
+     * 有变化时重建补全结构
+     * @return 是否重建
+     */
+    @Scheduled(fixedDelayString = "${wheatmall.product.suggest.rebuild-interval:PT10S}",
+            initialDelayString = "${wheatmall.product.suggest.rebuild-interval:PT10S}")
+    public boolean rebuildIfChanged() {
+        // 先清标记再读目录，重建期间的变更会留到下一次
+        if (!changed.getAndSet(false)) {
+            return false;
+        }
+        suggester = build();
+        return true;
+    }
+
+    /**
+     * 新增、删除、改名或扣减库存时标记需要重建，扣减数量计入销量
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Product before = event.getBefore();
+        Product after = event.getAfter();
+        if (after == null) {
+            sales.remove(before.getId());
+        } else if (before != null && before.getStock() != null && after.getStock() != null
+                && after.getStock() < before.getStock()) {
+            sales.merge(after.getId(), (long) (before.getStock() - after.getStock()), Long::sum);
+        } else if (before != null && Objects.equals(before.getName(), after.getName())) {
+            return;
+        }
+        changed.set(true);
+    }
+
+    /**
+     * 批量新增商品时标记需要重建
+     */
+    @EventListener
+    public void onProductsCreated(ProductsCreatedEvent event) {
+        changed.set(true);
+    }
+
+    private ProductSuggester build() {
+        long start = System.nanoTime();
+        ProductSuggester.Builder builder = new ProductSuggester.Builder();
+        Long cursor = null;
+        List<Product> batch;
+        do {
+            batch = productService.listAfter(cursor, BUILD_BATCH_SIZE);
+            for (Product product : batch) {
+                builder.add(product.getName(), sales.getOrDefault(product.getId(), 0L));
+            }
+            cursor = batch.isEmpty() ? cursor : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        ProductSuggester built = builder.build();
+        log.info("商品名称补全已重建, 名称数: {}, 耗时: {}ms", built.size(), (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+}
@@ -0,0 +1,152 @@
+package com.wheatmall.product.service;
+
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.common.sketch.SlidingWindowTopK;
+import com.wheatmall.product.dto.SalesRank;
+import com.wheatmall.product.dto.TrendingProduct;
+import com.wheatmall.product.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 畅销榜和近期热销：按下单事件流式统计，不查询订单
+ *
+ * 销量记在 {@link SlidingWindowTopK} 中（Count-Min Sketch + Space-Saving，子窗口环），内存固定，与商品数无关；
+ * 事件时间取订单号中的时间戳。统计窗口默认最近1小时（60个1分钟的子窗口，包括当前这一分钟），近期窗口默认最近5分钟。
+ * 销量是近似值：不小于真实销量，超出部分以很高的概率不超过 maxError（见 {@link #getMaxError}）。
+ * 按下单统计，订单之后取消或超时关闭不扣除；订单服务至少一次转发，重复的事件会重复计入。
+ * 写入（消费线程）和查询以this为锁，查询在锁外补充商品名称。
+ */
+@Service
+public class SalesTrendService {
+
+    private final ProductService productService;
+
+    private final LongSupplier clock;
+
+    private final long minRecentQuantity;
+
+    /** 由this锁保护 */
+    private final SlidingWindowTopK sales;
+
+    @Autowired
+    public SalesTrendService(ProductService productService,
+                             @Value("${wheatmall.product.sales-trends.window:PT1H}") Duration window,
+                             @Value("${wheatmall.product.sales-trends.sub-windows:60}") int subWindows,
+                             @Value("${wheatmall.product.sales-trends.recent-window:PT5M}") Duration recentWindow,
+                             @Value("${wheatmall.product.sales-trends.sketch-width:2048}") int sketchWidth,
+                             @Value("${wheatmall.product.sales-trends.sketch-depth:4}") int sketchDepth,
+                             @Value("${wheatmall.product.sales-trends.top-k:100}") int topK,
+                             @Value("${wheatmall.product.sales-trends.min-recent-quantity:5}") long minRecentQuantity) {
+        this(productService, window, subWindows, recentWindow, sketchWidth, sketchDepth, topK, minRecentQuantity,
+                System::currentTimeMillis);
+    }
+
+    SalesTrendService(ProductService productService, Duration window, int subWindows, Duration recentWindow,
+                      int sketchWidth, int sketchDepth, int topK, long minRecentQuantity, LongSupplier clock) {
+        if (subWindows <= 0 || window.toMillis() % subWindows != 0) {
+            throw new IllegalArgumentException("统计窗口须能均分为子窗口: " + window + " / " + subWindows);
+        }
+        long subWindowMillis = window.toMillis() / subWindows;
+        if (recentWindow.toMillis() % subWindowMillis != 0) {
+            throw new IllegalArgumentException("近期窗口须为子窗口长度的整数倍: " + recentWindow);
+        }
+        this.productService = productService;
+        this.clock = clock;
+        this.minRecentQuantity = minRecentQuantity;
+        this.sales = new SlidingWindowTopK(subWindowMillis, subWindows, (int) (recentWindow.toMillis() / subWindowMillis),
+                sketchWidth, sketchDepth, topK);
+    }
+
+    /**
+     * 计入一批下单事件（扣减库存事件），早于统计窗口的不计入
+     * @return 计入的事件数
+     */
+    public synchronized int record(List<StockDeductionEvent> events) {
+        long now = clock.getAsLong();
+        int recorded = 0;
+        for (StockDeductionEvent event : events) {
+            if (sales.add(event.productId(), event.quantity(), SnowflakeIdGenerator.timestampOf(event.orderId()), now)) {
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * 统计窗口内销量最多的商品
+     * @param limit 最多返回的数量，不超过 {@link #getMaxSize()}
+     * @return 按估计销量降序
+     */
+    public List<SalesRank> bestSellers(int limit) {
+        List<SlidingWindowTopK.Ranked> ranked;
+        synchronized (this) {
+            ranked = sales.top(limit, clock.getAsLong());
+        }
+        List<SalesRank> result = new ArrayList<>(ranked.size());
+        for (SlidingWindowTopK.Ranked rank : ranked) {
+            result.add(new SalesRank(rank.key(), nameOf(rank.key()), rank.count()));
+        }
+        return result;
+    }
+
+    /**
+     * 近期销量增长最快的商品（近期每分段平均销量与之前的之比），近期销量低于min-recent-quantity的不计入
+     * @param limit 最多返回的数量
+     * @return 按增长比值降序
+     */
+    public List<TrendingProduct> trending(int limit) {
+        List<SlidingWindowTopK.Trend> trends;
+        synchronized (this) {
+            trends = sales.trending(limit, minRecentQuantity, clock.getAsLong());
+        }
+        List<TrendingProduct> result = new ArrayList<>(trends.size());
+        for (SlidingWindowTopK.Trend trend : trends) {
+            result.add(new TrendingProduct(trend.key(), nameOf(trend.key()), trend.recentCount(), trend.earlierCount(),
+                    trend.score()));
+        }
+        return result;
+    }
+
+    /**
+     * 查询返回数量的上限（每个子窗口跟踪的商品数）
+     */
+    public int getMaxSize() {
+        return sales.getTopK();
+    }
+
+    /**
+     * 统计窗口内的总销量
+     */
+    public synchronized long getWindowTotal() {
+        sales.advance(clock.getAsLong());
+        return sales.getWindowTotal();
+    }
+
+    /**
+     * 统计窗口内估计销量的误差上限：以不低于 1 - e^-depth 的概率，估计值 - 真实销量 ≤ e / width × 窗口总销量
+     */
+    public synchronized long getMaxError() {
+        sales.advance(clock.getAsLong());
+        return (long) Math.ceil(sales.getEpsilon() * sales.getWindowTotal());
+    }
+
+    /**
+     * 早于统计窗口而未计入的事件数
+     */
+    public synchronized long getDroppedCount() {
+        return sales.getDroppedCount();
+    }
+
+    private String nameOf(long productId) {
+        Product product = productService.getById(productId);
+        return product == null ? null : product.getName();
+    }
+}
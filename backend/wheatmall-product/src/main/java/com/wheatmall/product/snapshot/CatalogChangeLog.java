@@ -0,0 +1,81 @@
+package com.wheatmall.product.snapshot;
+
+import com.wheatmall.product.catalog.ProductCatalog;
+import com.wheatmall.product.entity.Product;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 商品目录变更日志
+ *
+ * 每次修改目录前先按序号顺序追加变更（序号 + 修改后的商品），返回的future在变更持久化后完成，
+ * 调用方在future完成后才向客户端确认；实现可以把并发追加的多条变更合并为一次fsync（组提交）。
+ * 启动时在快照基础上重放序号更大的变更，快照完成后截断快照已包含的部分。
+ * 重放是幂等的：每条变更记录的都是修改后的值，同一条变更应用多次结果相同。
+ */
+public interface CatalogChangeLog {
+
+    /**
+     * 不记录任何变更（单元测试或不需要持久化时使用）
+     */
+    CatalogChangeLog NONE = new CatalogChangeLog() {
+        @Override
+        public CompletableFuture<Void> append(long sequence, Product product) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> appendStock(long sequence, Product product) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public int replay(long afterSequence, ProductCatalog catalog) {
+            return 0;
+        }
+
+        @Override
+        public void truncate(long sequence) {
+        }
+    };
+
+    /**
+     * 追加一条商品变更（记录完整商品）
+     * @return 持久化后完成的future，写入失败时以UncheckedIOException异常完成
+     * @throws java.io.UncheckedIOException 日志此前已写入失败时抛出，调用方不应再修改目录
+     */
+    CompletableFuture<Void> append(long sequence, Product product);
+
+    /**
+     * 追加一条库存变更（只记录ID、库存、版本和更新时间），重放时在目录中已有的商品上修改
+     * @return 持久化后完成的future，写入失败时以UncheckedIOException异常完成
+     * @throws java.io.UncheckedIOException 日志此前已写入失败时抛出，调用方不应再修改目录
+     */
+    CompletableFuture<Void> appendStock(long sequence, Product product);
+
+    /**
+     * 按顺序追加多条商品变更，序号从firstSequence起连续递增；实现应让这些变更一起持久化（同一次fsync）
+     * @return 全部变更持久化后完成的future，写入失败时以UncheckedIOException异常完成
+     * @throws java.io.UncheckedIOException 日志此前已写入失败时抛出，调用方不应再修改目录
+     */
+    default CompletableFuture<Void> appendAll(long firstSequence, List<Product> products) {
+        // 变更按追加顺序持久化，最后一条完成时前面的都已完成
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < products.size(); i++) {
+            last = append(firstSequence + i, products.get(i));
+        }
+        return last;
+    }
+
+    /**
+     * 把序号大于afterSequence的变更按顺序应用到目录
+     * @return 应用的变更条数
+     */
+    int replay(long afterSequence, ProductCatalog catalog);
+
+    /**
+     * 丢弃序号不大于sequence的变更（已包含在快照中）
+     */
+    void truncate(long sequence);
+}
@@ -0,0 +1,74 @@
+package com.wheatmall.product.snapshot;
+
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.catalog.ProductCatalog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 定期生成商品目录快照
+ *
+ * 目录有新变更时写快照，成功后截断变更日志中快照已包含的部分；
+ * 应用关闭时再写一次，滚动发布时新实例直接映射快照，几乎不需要重放。
+ * 只有堆外目录支持快照。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wheatmall.product.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class CatalogSnapshotScheduler {
+
+    private final ProductCatalog catalog;
+
+    private final CatalogSnapshotStore snapshotStore;
+
+    private final CatalogChangeLog changeLog;
+
+    private long lastSnapshotSequence;
+
+    public CatalogSnapshotScheduler(ProductCatalog catalog, CatalogSnapshotStore snapshotStore,
+                                    CatalogChangeLog changeLog) {
+        this.catalog = catalog;
+        this.snapshotStore = snapshotStore;
+        this.changeLog = changeLog;
+        this.lastSnapshotSequence = snapshotStore.latestSequence();
+    }
+
+    @Scheduled(fixedDelayString = "${wheatmall.product.snapshot.interval:PT5M}",
+            initialDelayString = "${wheatmall.product.snapshot.interval:PT5M}")
+    public void scheduledSnapshot() {
+        snapshot();
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * 目录有新变更时写快照
+     * @return 是否写入了新快照
+     */
+    public synchronized boolean snapshot() {
+        if (!(catalog instanceof OffHeapProductCatalog offHeapCatalog)
+                || catalog.getSequence() == lastSnapshotSequence) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            long sequence = snapshotStore.write(offHeapCatalog);
+            changeLog.truncate(sequence);
+            lastSnapshotSequence = sequence;
+            log.info("已写入商品目录快照, sequence: {}, 商品数: {}, 耗时: {}ms", sequence, catalog.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException e) {
+            log.error("写入商品目录快照失败", e);
+            return false;
+        }
+    }
+}
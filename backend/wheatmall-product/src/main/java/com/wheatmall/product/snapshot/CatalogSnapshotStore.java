@@ -0,0 +1,133 @@
+package com.wheatmall.product.snapshot;
+
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 商品目录快照文件管理
+ *
+ * 快照存放在 {data-dir}/snapshots 目录，文件名带变更序号（catalog-{sequence}.snap）。
+ * 写入时先写临时文件并fsync，再原子重命名为正式文件并fsync目录，
+ * 任何时刻崩溃都不会留下半个正式快照；加载时从序号最大的快照开始，校验失败则回退到上一个。
+ */
+@Slf4j
+@Component
+public class CatalogSnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "catalog-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final String TEMP_FILE = "catalog.snap.tmp";
+
+    private final Path directory;
+
+    private final int keep;
+
+    public CatalogSnapshotStore(@Value("${wheatmall.product.data-dir:/tmp/wheatmall-product}") String dataDir,
+                                @Value("${wheatmall.product.snapshot.keep:2}") int keep) {
+        this.directory = Paths.get(dataDir, "snapshots");
+        this.keep = Math.max(keep, 1);
+    }
+
+    /**
+     * 映射最新的有效快照
+     * @return 快照中的目录，没有可用快照时返回empty
+     */
+    public Optional<OffHeapProductCatalog> loadLatest() {
+        List<Path> snapshots;
+        try {
+            Files.deleteIfExists(directory.resolve(TEMP_FILE));
+            snapshots = snapshots();
+        } catch (IOException e) {
+            log.warn("读取商品目录快照目录失败: {}", directory, e);
+            return Optional.empty();
+        }
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path snapshot = snapshots.get(i);
+            long start = System.nanoTime();
+            try {
+                OffHeapProductCatalog catalog = OffHeapProductCatalog.mapSnapshot(snapshot);
+                log.info("已加载商品目录快照: {}, 商品数: {}, 耗时: {}ms", snapshot.getFileName(), catalog.size(),
+                        (System.nanoTime() - start) / 1_000_000);
+                return Optional.of(catalog);
+            } catch (IOException e) {
+                log.warn("商品目录快照不可用，尝试上一个: {}", snapshot, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 写入快照并原子替换，保留最近keep个快照
+     * @return 快照对应的变更序号
+     */
+    public synchronized long write(OffHeapProductCatalog catalog) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(TEMP_FILE);
+        long sequence = catalog.writeSnapshot(temp);
+        Files.move(temp, directory.resolve(snapshotName(sequence)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // 目录项也要落盘，否则掉电后重命名可能丢失
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        List<Path> snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - keep; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return sequence;
+    }
+
+    /**
+     * 最新快照的变更序号，没有快照时返回-1
+     */
+    public long latestSequence() {
+        try {
+            List<Path> snapshots = snapshots();
+            return snapshots.isEmpty() ? -1 : sequenceOf(snapshots.get(snapshots.size() - 1));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 按序号升序列出快照文件
+     */
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(CatalogSnapshotStore::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private static String snapshotName(long sequence) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
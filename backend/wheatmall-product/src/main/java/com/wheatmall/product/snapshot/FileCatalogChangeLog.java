@@ -0,0 +1,509 @@
+package com.wheatmall.product.snapshot;
+
+import com.wheatmall.product.catalog.ProductCatalog;
+import com.wheatmall.product.entity.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于文件的商品目录变更日志（组提交）
+ *
+ * 日志按段存放在 {data-dir}/changes 目录，段文件以段内第一条变更的序号命名。
+ * 每条记录：payloadLength(int) crc32c(int) payload[sequence(long) + 类型(byte) + 商品或库存变更]。
+ *
+ * 追加只把记录放入待写队列，由单独的写线程批量写入：写线程每次取走队列中的全部记录，
+ * 一次write + 一次fsync，然后完成这一批的future。fsync期间到达的记录自动进入下一批，
+ * 并发越高批次越大，吞吐量取决于批次大小而不是磁盘每秒能做的fsync次数。
+ * 某一批写入失败后日志进入失败状态，之后的追加都会失败（fsync失败后无法确认哪些数据已落盘，不能重试）。
+ *
+ * 重放时遇到不完整或校验失败的记录（进程在写入中途崩溃）即截断该段尾部。
+ * 截断时关闭当前段，之后的追加写入新段；后继段起始序号不大于截断点+1的旧段被删除。
+ */
+@Slf4j
+@Component
+public class FileCatalogChangeLog implements CatalogChangeLog {
+
+    private static final String SEGMENT_PREFIX = "changes-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    /** 单条记录的最大长度，超过时视为损坏 */
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /** 记录类型：完整商品 */
+    private static final byte KIND_PRODUCT = 1;
+
+    /** 记录类型：库存变更（ID、库存、版本、更新时间） */
+    private static final byte KIND_STOCK = 2;
+
+    private final Path directory;
+
+    /** 保护pending、lastAppend、failure、closed和writer */
+    private final Object queueLock = new Object();
+
+    private List<PendingRecord> pending = new ArrayList<>();
+
+    private CompletableFuture<Void> lastAppend = CompletableFuture.completedFuture(null);
+
+    private IOException failure;
+
+    private boolean closed;
+
+    private Thread writer;
+
+    /** 以下字段只由写线程（或持有this锁的截断、关闭操作）访问 */
+    private FileChannel current;
+
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private volatile long syncCount;
+
+    private volatile long recordCount;
+
+    public FileCatalogChangeLog(@Value("${wheatmall.product.data-dir:/tmp/wheatmall-product}") String dataDir) {
+        this.directory = Paths.get(dataDir, "changes");
+    }
+
+    @Override
+    public CompletableFuture<Void> append(long sequence, Product product) {
+        return enqueue(sequence, encode(sequence, product));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendStock(long sequence, Product product) {
+        return enqueue(sequence, encodeStock(sequence, product));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAll(long firstSequence, List<Product> products) {
+        List<PendingRecord> records = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            records.add(record(firstSequence + i, encode(firstSequence + i, products.get(i))));
+        }
+        return enqueue(records);
+    }
+
+    @Override
+    public synchronized int replay(long afterSequence, ProductCatalog catalog) {
+        int applied = 0;
+        try {
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                // 后继段的起始序号不大于afterSequence+1时，本段全部已应用，不必读取
+                if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                    continue;
+                }
+                applied += replaySegment(segments.get(i), afterSequence, catalog);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("重放商品变更日志失败", e);
+        }
+        return applied;
+    }
+
+    @Override
+    public void truncate(long sequence) {
+        awaitPending();
+        synchronized (this) {
+            try {
+                closeCurrent();
+                List<Path> segments = segments();
+                for (int i = 0; i + 1 < segments.size(); i++) {
+                    if (firstSequence(segments.get(i + 1)) <= sequence + 1) {
+                        Files.delete(segments.get(i));
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("截断商品变更日志失败, sequence: {}", sequence, e);
+            }
+        }
+    }
+
+    /**
+     * 写完已追加的记录后关闭日志
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        Thread writerThread;
+        synchronized (queueLock) {
+            closed = true;
+            writerThread = writer;
+            queueLock.notifyAll();
+        }
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            closeCurrent();
+        }
+    }
+
+    /**
+     * 已执行的fsync次数
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * 已持久化的记录数
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private CompletableFuture<Void> enqueue(long sequence, byte[] payload) {
+        return enqueue(List.of(record(sequence, payload)));
+    }
+
+    private static PendingRecord record(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return new PendingRecord(sequence, payload, (int) crc.getValue(), new CompletableFuture<>());
+    }
+
+    /**
+     * 把记录一起放入待写队列（写线程一次取走全部，同一次调用的记录必定在同一批）
+     * @return 最后一条记录持久化后完成的future
+     */
+    private CompletableFuture<Void> enqueue(List<PendingRecord> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable = records.get(records.size() - 1).durable;
+        synchronized (queueLock) {
+            if (failure != null) {
+                throw new UncheckedIOException("商品变更日志已写入失败, sequence: " + records.get(0).sequence, failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("商品变更日志已关闭");
+            }
+            if (writer == null) {
+                writer = new Thread(this::writeLoop, "catalog-change-log-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+            pending.addAll(records);
+            lastAppend = durable;
+            queueLock.notifyAll();
+        }
+        return durable;
+    }
+
+    /**
+     * 写线程：每次取走队列中的全部记录，写成一批
+     */
+    private void writeLoop() {
+        while (true) {
+            List<PendingRecord> batch;
+            synchronized (queueLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        IOException error;
+        synchronized (queueLock) {
+            error = failure;
+        }
+        if (error == null) {
+            try {
+                synchronized (this) {
+                    if (current == null) {
+                        Files.createDirectories(directory);
+                        current = FileChannel.open(directory.resolve(segmentName(batch.get(0).sequence)),
+                                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    }
+                    ByteBuffer buffer = fill(batch);
+                    while (buffer.hasRemaining()) {
+                        current.write(buffer);
+                    }
+                    current.force(false);
+                }
+                syncCount++;
+                recordCount += batch.size();
+                for (PendingRecord record : batch) {
+                    record.durable.complete(null);
+                }
+                return;
+            } catch (IOException e) {
+                log.error("写入商品变更日志失败, 之后的变更将无法持久化, 起始sequence: {}", batch.get(0).sequence, e);
+                synchronized (queueLock) {
+                    failure = e;
+                }
+                error = e;
+            }
+        }
+        UncheckedIOException cause = new UncheckedIOException("写入商品变更日志失败", error);
+        for (PendingRecord record : batch) {
+            record.durable.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 把一批记录依次编码到复用的直接缓冲区
+     */
+    private ByteBuffer fill(List<PendingRecord> batch) {
+        int bytes = 0;
+        for (PendingRecord record : batch) {
+            bytes += RECORD_HEADER_BYTES + record.payload.length;
+        }
+        if (bytes > batchBuffer.capacity()) {
+            batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes - 1) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer buffer = batchBuffer.clear();
+        for (PendingRecord record : batch) {
+            buffer.putInt(record.payload.length).putInt(record.crc).put(record.payload);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * 等待已追加的记录全部写完（写入失败也算完成）
+     */
+    private void awaitPending() {
+        CompletableFuture<Void> last;
+        synchronized (queueLock) {
+            last = lastAppend;
+        }
+        try {
+            last.join();
+        } catch (CompletionException e) {
+            // 失败已由追加方处理
+        }
+    }
+
+    private int replaySegment(Path segment, long afterSequence, ProductCatalog catalog) throws IOException {
+        int applied = 0;
+        long validBytes = 0;
+        long size = Files.size(segment);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (validBytes + RECORD_HEADER_BYTES <= size) {
+                int length = Integer.reverseBytes(in.readInt());
+                int expectedCrc = Integer.reverseBytes(in.readInt());
+                if (length <= 0 || length > MAX_RECORD_BYTES || validBytes + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                byte[] payload = in.readNBytes(length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long sequence = record.readLong();
+                if (sequence > afterSequence && apply(record, sequence, catalog)) {
+                    applied++;
+                }
+                validBytes += RECORD_HEADER_BYTES + length;
+            }
+        }
+        if (validBytes < size) {
+            log.warn("商品变更日志尾部不完整，截断: {}, 有效字节: {}, 文件大小: {}", segment, validBytes, size);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 把一条记录应用到目录
+     * @return 是否已应用
+     */
+    private static boolean apply(DataInputStream record, long sequence, ProductCatalog catalog) throws IOException {
+        byte kind = record.readByte();
+        if (kind == KIND_PRODUCT) {
+            Product product = decodeProduct(record);
+            try {
+                catalog.put(product, sequence);
+            } catch (ArithmeticException e) {
+                // 旧版本可能写入过目录无法保存的价格（当时写入目录已失败，序号被下一条变更重用），跳过
+                log.warn("商品变更记录的价格超出范围，跳过, id: {}, price: {}, sequence: {}", product.getId(),
+                        product.getPrice(), sequence);
+                return false;
+            }
+            return true;
+        }
+        if (kind != KIND_STOCK) {
+            throw new IOException("未知的商品变更记录类型: " + kind + ", sequence: " + sequence);
+        }
+        long id = record.readLong();
+        int stock = record.readInt();
+        LocalDateTime updateTime = readTime(record);
+        long version = record.readLong();
+        Product current = catalog.get(id);
+        if (current == null) {
+            log.warn("库存变更对应的商品不存在，跳过, id: {}, sequence: {}", id, sequence);
+            return false;
+        }
+        Product product = new Product(id, current.getName(), current.getPrice(), stock,
+                current.getDescription(), current.getCreateTime(), updateTime, version);
+        catalog.put(product, sequence);
+        return true;
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(firstSequence(a), firstSequence(b)))
+                    .toList();
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static byte[] encode(long sequence, Product product) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeByte(KIND_PRODUCT);
+            out.writeLong(product.getId());
+            writeString(out, product.getName());
+            writeString(out, product.getPrice() == null ? null : product.getPrice().toPlainString());
+            out.writeBoolean(product.getStock() != null);
+            if (product.getStock() != null) {
+                out.writeInt(product.getStock());
+            }
+            writeString(out, product.getDescription());
+            writeTime(out, product.getCreateTime());
+            writeTime(out, product.getUpdateTime());
+            out.writeBoolean(product.getVersion() != null);
+            if (product.getVersion() != null) {
+                out.writeLong(product.getVersion());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 库存变更记录：ID、库存、更新时间、版本（库存和版本不能为空）
+     */
+    static byte[] encodeStock(long sequence, Product product) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeByte(KIND_STOCK);
+            out.writeLong(product.getId());
+            out.writeInt(product.getStock());
+            writeTime(out, product.getUpdateTime());
+            out.writeLong(product.getVersion());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Product decodeProduct(DataInputStream in) throws IOException {
+        Product product = new Product();
+        product.setId(in.readLong());
+        product.setName(readString(in));
+        String price = readString(in);
+        product.setPrice(price == null ? null : new BigDecimal(price));
+        product.setStock(in.readBoolean() ? in.readInt() : null);
+        product.setDescription(readString(in));
+        product.setCreateTime(readTime(in));
+        product.setUpdateTime(readTime(in));
+        product.setVersion(in.readBoolean() ? in.readLong() : null);
+        return product;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    private record PendingRecord(long sequence, byte[] payload, int crc, CompletableFuture<Void> durable) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.wheatmall.product.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.catalog.ProductCatalog;
+import com.wheatmall.product.entity.Product;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 商品目录内存占用与GC停顿对比：堆内对象（heap） vs 堆外列式（off-heap）
+ *
+ * 每种布局在独立JVM中运行，依次输出：
+ * - 装载后的堆占用（Full GC之后）和堆外占用（direct buffer pool）
+ * - 显式Full GC的停顿时间（反映存活对象扫描成本）
+ * - 随机读负载下的Young GC次数、总停顿和最大停顿
+ *
+ * 运行方式（10M商品：堆外布局约1GB direct内存；堆内布局约3.5GB堆）：
+ * java -Xmx6g -XX:+UseG1GC -XX:MaxDirectMemorySize=2g -cp ... \
+ *     com.wheatmall.product.benchmark.CatalogFootprintBenchmark off-heap 10000000
+ */
+public class CatalogFootprintBenchmark {
+
+    private static final int READS = 5_000_000;
+
+    private static final List<Long> PAUSES = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) {
+        String store = args.length > 0 ? args[0] : "off-heap";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        listenGcPauses();
+
+        long start = System.nanoTime();
+        ProductCatalog catalog = "heap".equals(store) ? new HeapProductCatalog() : new OffHeapProductCatalog(count);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= count; i++) {
+            LocalDateTime time = base.plusSeconds(i);
+            catalog.put(new Product((long) i, "商品-" + i, BigDecimal.valueOf(100 + i % 100_000, 2), i % 1000,
+                    "商品描述-" + i, time, time, 1L), i);
+        }
+        System.out.printf("store=%s count=%,d load=%dms%n", store, count, (System.nanoTime() - start) / 1_000_000);
+
+        fullGc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long directUsed = directMemoryUsed();
+        System.out.printf("heapUsed=%,dMB directUsed=%,dMB bytesPerSku(heap+direct)=%d%n",
+                heapUsed >> 20, directUsed >> 20, (heapUsed + directUsed) / count);
+
+        List<Long> fullGcMillis = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            long gcStart = System.nanoTime();
+            System.gc();
+            fullGcMillis.add((System.nanoTime() - gcStart) / 1_000_000);
+        }
+        System.out.printf("fullGcPause(ms)=%s%n", fullGcMillis);
+
+        PAUSES.clear();
+        long readStart = System.nanoTime();
+        long checksum = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < READS; i++) {
+            Product product = catalog.get(1 + random.nextInt(count));
+            checksum += product.getStock();
+        }
+        long readMillis = (System.nanoTime() - readStart) / 1_000_000;
+        List<Long> pauses;
+        synchronized (PAUSES) {
+            pauses = new ArrayList<>(PAUSES);
+        }
+        System.out.printf("reads=%,d time=%dms gcCount=%d gcTotal=%dms gcMax=%dms (checksum %d)%n",
+                READS, readMillis, pauses.size(), pauses.stream().mapToLong(Long::longValue).sum(),
+                pauses.stream().mapToLong(Long::longValue).max().orElse(0), checksum);
+        // 保持目录可达，直到测量结束
+        System.out.println("size=" + catalog.size());
+    }
+
+    private static void fullGc() {
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+        }
+    }
+
+    private static long directMemoryUsed() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    private static void listenGcPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    if (!"System.gc()".equals(info.getGcCause())) {
+                        PAUSES.add(info.getGcInfo().getDuration());
+                    }
+                }
+            }, null, null);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 商品目录快照基准：写快照耗时、文件大小，以及映射快照到可服务的耗时（冷启动）
+ *
+ * 运行方式：
+ * java -Xmx1g -XX:MaxDirectMemorySize=2g -cp ... \
+ *     com.wheatmall.product.benchmark.CatalogSnapshotBenchmark 10000000 /tmp/catalog.snap
+ * 只传文件参数（write=false）时只测映射，可在清空页缓存后测真正的冷启动
+ */
+public class CatalogSnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path file = Path.of(args.length > 1 ? args[1] : "/tmp/catalog.snap");
+        boolean write = args.length <= 2 || Boolean.parseBoolean(args[2]);
+
+        if (write) {
+            OffHeapProductCatalog catalog = new OffHeapProductCatalog(count);
+            LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+            for (int i = 1; i <= count; i++) {
+                LocalDateTime time = base.plusSeconds(i);
+                catalog.put(new Product((long) i, "商品-" + i, BigDecimal.valueOf(100 + i % 100_000, 2), i % 1000,
+                        "商品描述-" + i, time, time, 1L), i);
+            }
+            long start = System.nanoTime();
+            catalog.writeSnapshot(file);
+            System.out.printf("write: count=%,d size=%,dMB time=%dms%n", count, Files.size(file) >> 20,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+
+        long start = System.nanoTime();
+        OffHeapProductCatalog mapped = OffHeapProductCatalog.mapSnapshot(file);
+        long mapMillis = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        long checksum = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++) {
+            checksum += mapped.get(1 + random.nextInt(mapped.size())).getStock();
+        }
+        System.out.printf("map+verify: count=%,d time=%dms, first 100k random reads: %dms (checksum %d)%n",
+                mapped.size(), mapMillis, (System.nanoTime() - start) / 1_000_000, checksum);
+    }
+}
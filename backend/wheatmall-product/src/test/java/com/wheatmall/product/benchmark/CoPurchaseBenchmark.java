@@ -0,0 +1,180 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.recommend.CoPurchaseMatrix;
+import com.wheatmall.product.recommend.CoPurchaseSnapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 同现矩阵基准：随机生成购物篮（2~5个商品，商品热度近似Zipf；每个商品有5个固定的"搭配商品"，
+ * 篮中其余商品一半取第一个商品的搭配、一半随机），按购物篮两两计入矩阵，统计
+ * - 写入吞吐量（商品对/秒）、矩阵堆内存（估计值和GC后实测）、矩阵项数、剪枝和减半次数
+ * - 生成快照的耗时和快照内存、快照查询延迟
+ * - 质量：最热门的1000个商品，快照前5个相关商品中有几个是搭配商品
+ * - 对照：HashMap&lt;Long, HashMap&lt;Long, Integer&gt;&gt; 不剪枝的堆内存（只在商品数不超过100万时运行）
+ * - 保存、加载矩阵文件的耗时和文件大小
+ *
+ * 运行方式（堆内存按GC后的已用内存估算，建议固定堆大小）：
+ * java -Xms6g -Xmx6g -cp ... com.wheatmall.product.benchmark.CoPurchaseBenchmark 5000000 1000000,5000000 10000000
+ * （参数：购物篮数、逗号分隔的商品数、矩阵项数上限）
+ */
+public class CoPurchaseBenchmark {
+
+    private static final int MAX_NEIGHBORS = 32;
+
+    private static final int TOP_K = 20;
+
+    private static final int COMPLEMENTS = 5;
+
+    private static final int QUERIES = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int baskets = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String[] skuCounts = (args.length > 1 ? args[1] : "1000000,5000000").split(",");
+        long maxEntries = args.length > 2 ? Long.parseLong(args[2]) : 10_000_000;
+        // 预热
+        run(baskets / 10, 100_000, maxEntries, false);
+        for (String skus : skuCounts) {
+            run(baskets, Integer.parseInt(skus.trim()), maxEntries, true);
+        }
+    }
+
+    private static void run(int basketCount, int skus, long maxEntries, boolean print) throws Exception {
+        usedHeap();
+        Random random = new Random(skus);
+        long[][] baskets = new long[basketCount][];
+        long pairs = 0;
+        for (int b = 0; b < basketCount; b++) {
+            int size = 2 + random.nextInt(4);
+            long first = zipf(random, skus);
+            long[] basket = new long[size];
+            basket[0] = first;
+            for (int i = 1; i < size; i++) {
+                basket[i] = random.nextBoolean() ? complement(first, random.nextInt(COMPLEMENTS), skus)
+                        : zipf(random, skus);
+            }
+            baskets[b] = basket;
+            pairs += (long) size * (size - 1) / 2;
+        }
+
+        long before = usedHeap();
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix(MAX_NEIGHBORS, maxEntries);
+        long began = System.nanoTime();
+        for (long[] basket : baskets) {
+            for (int i = 1; i < basket.length; i++) {
+                for (int j = 0; j < i; j++) {
+                    matrix.addPair(basket[i], basket[j], 1);
+                }
+            }
+        }
+        long addNanos = System.nanoTime() - began;
+        long matrixHeap = usedHeap() - before;
+
+        began = System.nanoTime();
+        CoPurchaseSnapshot snapshot = matrix.snapshot(TOP_K);
+        long snapshotNanos = System.nanoTime() - began;
+
+        long[] queryNanos = new long[QUERIES];
+        long found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long sku = zipf(random, skus);
+            long t = System.nanoTime();
+            found += snapshot.related(sku, 10).size();
+            queryNanos[q] = System.nanoTime() - t;
+        }
+
+        Path file = Files.createTempFile("co-purchase", ".dat");
+        began = System.nanoTime();
+        matrix.save(file);
+        long saveNanos = System.nanoTime() - began;
+        began = System.nanoTime();
+        CoPurchaseMatrix loaded = CoPurchaseMatrix.load(file, MAX_NEIGHBORS, maxEntries);
+        long loadNanos = System.nanoTime() - began;
+        long fileBytes = Files.size(file);
+        Files.delete(file);
+        if (!print) {
+            return;
+        }
+
+        // 最热门的商品是 1..1000（Zipf近似下ID越小越热门）
+        int hits = 0;
+        for (long sku = 1; sku <= 1000; sku++) {
+            for (CoPurchaseSnapshot.Neighbor neighbor : snapshot.related(sku, COMPLEMENTS)) {
+                for (int c = 0; c < COMPLEMENTS; c++) {
+                    if (neighbor.productId() == complement(sku, c, skus)) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("skus=%,d baskets=%,d pairs=%,d maxEntries=%,d%n", skus, basketCount, pairs, maxEntries);
+        System.out.printf("  matrix add pairs/s=%,d rows=%,d entries=%,d pruned=%,d decays=%d estimate=%,d MB heap=%,d MB%n",
+                pairs * 1_000_000_000L / addNanos, matrix.size(), matrix.getEntries(), matrix.getPrunedCount(),
+                matrix.getDecayCount(), matrix.estimateBytes() >> 20, matrixHeap >> 20);
+        System.out.printf("  snapshot build=%dms size=%,d heap=%,d MB query p50=%.2fus p99=%.2fus p999=%.2fus avg results=%.1f%n",
+                snapshotNanos / 1_000_000, snapshot.size(), snapshot.estimateBytes() >> 20,
+                percentile(queryNanos, 0.5), percentile(queryNanos, 0.99), percentile(queryNanos, 0.999),
+                (double) found / QUERIES);
+        System.out.printf("  complements in top%d of hottest 1000: %d/%d%n", COMPLEMENTS, hits, 1000 * COMPLEMENTS);
+        System.out.printf("  save=%dms load=%dms file=%,d MB (loaded rows=%,d)%n", saveNanos / 1_000_000,
+                loadNanos / 1_000_000, fileBytes >> 20, loaded.size());
+        loaded = null;
+        matrix = null;
+
+        if (skus <= 1_000_000) {
+            before = usedHeap();
+            Map<Long, Map<Long, Integer>> exact = new HashMap<>();
+            began = System.nanoTime();
+            for (long[] basket : baskets) {
+                for (int i = 1; i < basket.length; i++) {
+                    for (int j = 0; j < i; j++) {
+                        if (basket[i] != basket[j]) {
+                            exact.computeIfAbsent(basket[i], k -> new HashMap<>()).merge(basket[j], 1, Integer::sum);
+                            exact.computeIfAbsent(basket[j], k -> new HashMap<>()).merge(basket[i], 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            long exactNanos = System.nanoTime() - began;
+            long exactHeap = usedHeap() - before;
+            long exactEntries = 0;
+            for (Map<Long, Integer> row : exact.values()) {
+                exactEntries += row.size();
+            }
+            System.out.printf("  HashMap add pairs/s=%,d rows=%,d entries=%,d heap=%,d MB%n",
+                    pairs * 1_000_000_000L / exactNanos, exact.size(), exactEntries, exactHeap >> 20);
+        }
+    }
+
+    /**
+     * Zipf(s=1)近似：CDF约为 ln k / ln N
+     */
+    private static long zipf(Random random, int skus) {
+        return Math.max(1, (long) Math.pow(skus, random.nextDouble()));
+    }
+
+    private static long complement(long sku, int index, int skus) {
+        return 1 + Math.floorMod(sku * 7919 + (index + 1) * 104_729L, (long) skus);
+    }
+
+    private static double percentile(long[] nanos, double p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (sorted.length * p)] / 1000.0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,179 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.common.sketch.HotKeyDetector;
+import com.wheatmall.common.sketch.SpaceSaving;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点键检测基准
+ * - 请求路径开销：每次 record 的纳秒数（抽样间隔1、16），对照 ConcurrentHashMap&lt;Long, LongAdder&gt; 精确计数
+ *   和加锁的 SpaceSaving；键序列预先生成，循环本身的开销单独测出后扣除
+ * - 多线程：threads个线程同时 record 的总吞吐量
+ * - 检测质量：Zipf 访问流（商品数skus），热点判定与精确计数得到的热点（占比≥1%）相比的召回率和误报数
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.product.benchmark.HotKeyBenchmark 1000000 20000000 4
+ * （参数：商品数、每轮访问次数、线程数）
+ */
+public class HotKeyBenchmark {
+
+    private static final double HOT_SHARE = 0.01;
+
+    private static final double COOL_SHARE = 0.005;
+
+    private static final int CAPACITY = 256;
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int skus = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long[] stream = new long[1 << 22];
+        Random random = new Random(42);
+        for (int i = 0; i < stream.length; i++) {
+            stream[i] = zipf(random, skus);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            boolean print = round == 2;
+            double loop = nanosPerOp(requests, stream, key -> sink += key);
+            HotKeyDetector unsampled = newDetector(1, 1 << 16);
+            double recordAll = nanosPerOp(requests, stream, unsampled::record) - loop;
+            HotKeyDetector sampled = newDetector(16, 1 << 16);
+            double recordSampled = nanosPerOp(requests, stream, sampled::record) - loop;
+            ConcurrentHashMap<Long, LongAdder> exact = new ConcurrentHashMap<>();
+            double map = nanosPerOp(requests, stream,
+                    key -> exact.computeIfAbsent(key, k -> new LongAdder()).increment()) - loop;
+            SpaceSaving locked = new SpaceSaving(CAPACITY);
+            double spaceSaving = nanosPerOp(requests, stream, key -> {
+                synchronized (locked) {
+                    locked.add(key, 1);
+                }
+            }) - loop;
+            if (print) {
+                System.out.printf("single thread ns/op (loop %.2fns subtracted, sink %d): detector rate=1 %.2f, "
+                        + "rate=16 %.2f, ConcurrentHashMap %.2f, synchronized SpaceSaving %.2f%n",
+                        loop, sink & 1, recordAll, recordSampled, map, spaceSaving);
+            }
+        }
+
+        for (int rate : new int[]{1, 16}) {
+            HotKeyDetector detector = newDetector(rate, 1 << 16);
+            long nanos = concurrent(threads, requests, stream, detector::record);
+            ConcurrentHashMap<Long, LongAdder> exact = new ConcurrentHashMap<>();
+            long mapNanos = concurrent(threads, requests, stream,
+                    key -> exact.computeIfAbsent(key, k -> new LongAdder()).increment());
+            System.out.printf("%d threads rate=%d: detector %,d records/s, ConcurrentHashMap %,d records/s%n",
+                    threads, rate, (long) threads * requests * 1_000_000_000L / nanos,
+                    (long) threads * requests * 1_000_000_000L / mapNanos);
+        }
+
+        for (int rate : new int[]{1, 16, 64}) {
+            quality(skus, requests, rate);
+        }
+    }
+
+    private static HotKeyDetector newDetector(int rate, int bufferSize) {
+        return new HotKeyDetector(64, rate, bufferSize, CAPACITY, HOT_SHARE, COOL_SHARE, 100);
+    }
+
+    private static double nanosPerOp(int requests, long[] stream, KeyConsumer consumer) {
+        int mask = stream.length - 1;
+        long began = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            consumer.accept(stream[i & mask]);
+        }
+        return (double) (System.nanoTime() - began) / requests;
+    }
+
+    private static long concurrent(int threads, int requests, long[] stream, KeyConsumer consumer)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7919;
+            workers[t] = new Thread(() -> {
+                int mask = stream.length - 1;
+                for (int i = 0; i < requests; i++) {
+                    consumer.accept(stream[(i + offset) & mask]);
+                }
+            });
+        }
+        long began = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - began;
+    }
+
+    /**
+     * 每个窗口100万次访问，前后10个窗口；每1万次访问取样一次（模拟后台取样）
+     */
+    private static void quality(int skus, int requests, int rate) {
+        int windows = 10;
+        int perWindow = requests / windows;
+        HotKeyDetector detector = new HotKeyDetector(64, rate, 1 << 14, CAPACITY, HOT_SHARE, COOL_SHARE, 100);
+        Random random = new Random(rate);
+        long hits = 0;
+        long expected = 0;
+        long falsePositives = 0;
+        long clearMisses = 0;
+        for (int w = 0; w < windows; w++) {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (int i = 0; i < perWindow; i++) {
+                long key = zipf(random, skus);
+                counts.merge(key, 1, Integer::sum);
+                detector.record(key);
+                if (i % 10_000 == 0) {
+                    detector.drain();
+                }
+            }
+            HotKeyDetector.HotSet hotSet = detector.endWindow();
+            Set<Long> exact = new TreeSet<>();
+            for (Map.Entry<Long, Integer> e : counts.entrySet()) {
+                if (e.getValue() >= HOT_SHARE * perWindow) {
+                    exact.add(e.getKey());
+                }
+            }
+            for (long key : exact) {
+                if (hotSet.contains(key)) {
+                    hits++;
+                } else if (counts.get(key) >= 2 * HOT_SHARE * perWindow) {
+                    clearMisses++;
+                }
+            }
+            for (HotKeyDetector.HotKey key : hotSet.keys()) {
+                if (counts.getOrDefault(key.key(), 0) < COOL_SHARE * perWindow) {
+                    falsePositives++;
+                }
+            }
+            expected += exact.size();
+        }
+        System.out.printf("quality rate=%d windows=%d requests/window=%,d: hot recall %d/%d (missed with share>=2%%: %d), "
+                + "below cool-share %d, dropped samples %d%n", rate, windows, perWindow, hits, expected, clearMisses,
+                falsePositives,
+                detector.getDroppedSamples());
+    }
+
+    /**
+     * Zipf(s=1)近似：CDF约为 ln k / ln N
+     */
+    private static long zipf(Random random, int skus) {
+        return Math.max(1, (long) Math.pow(skus, random.nextDouble()));
+    }
+
+    @FunctionalInterface
+    private interface KeyConsumer {
+        void accept(long key);
+    }
+}
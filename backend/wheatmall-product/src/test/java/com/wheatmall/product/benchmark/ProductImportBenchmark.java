@@ -0,0 +1,110 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.event.ProductsCreatedEvent;
+import com.wheatmall.product.imports.ImportFormat;
+import com.wheatmall.product.imports.ImportJob;
+import com.wheatmall.product.imports.ProductImporter;
+import com.wheatmall.product.service.ProductFilterService;
+import com.wheatmall.product.service.ProductSearchService;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.snapshot.FileCatalogChangeLog;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品导入基准：生成CSV文件后完整导入（解析校验、变更日志、目录、搜索和价格索引），
+ * 输出每秒导入行数和fsync次数；每批1个商品即逐行写入的基线。
+ * 第三个参数为parse时只解析校验、丢弃结果，配合很小的-Xmx验证内存占用与文件大小无关
+ *
+ * 运行方式：
+ * java -Xmx1g -cp ... com.wheatmall.product.benchmark.ProductImportBenchmark 1000000 /tmp/import-bench
+ * java -Xmx32m -cp ... com.wheatmall.product.benchmark.ProductImportBenchmark 1000000 /tmp/import-bench parse
+ */
+public class ProductImportBenchmark {
+
+    private static final String[] CATEGORIES = {"手机", "笔记本电脑", "蓝牙耳机", "智能手表", "电视机", "空调"};
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dataDir = Files.createDirectories(Path.of(args.length > 1 ? args[1] : "/tmp/import-bench"));
+        Path file = dataDir.resolve("products.csv");
+        Random random = new Random(7);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("name,price,stock,description\n");
+            for (int i = 1; i <= rows; i++) {
+                // 约1%的行价格非法
+                String price = random.nextInt(100) == 0 ? "-1" : (random.nextInt(1_000_000) / 100.0) + "";
+                writer.write("\"供应商商品 " + CATEGORIES[random.nextInt(CATEGORIES.length)] + " X" + i + "\","
+                        + price + "," + random.nextInt(1000) + ",批量导入测试商品\n");
+            }
+        }
+        System.out.printf("file: rows=%,d size=%,dMB%n", rows, Files.size(file) >> 20);
+        if (args.length > 2 && args[2].equals("parse")) {
+            parseOnly(file);
+            return;
+        }
+
+        run(file, Files.createTempDirectory(dataDir, "run"), 1000);
+        // 逐行写入只导入前2万行，否则耗时过长
+        Path head = dataDir.resolve("head.csv");
+        try (var lines = Files.lines(file)) {
+            Files.write(head, lines.limit(20_001).toList());
+        }
+        run(head, Files.createTempDirectory(dataDir, "run"), 1);
+    }
+
+    private static void parseOnly(Path file) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        ImportJob job = new ImportJob(1, ImportFormat.CSV);
+        AtomicLong parsed = new AtomicLong();
+        long start = System.nanoTime();
+        try (InputStream input = Files.newInputStream(file)) {
+            new ProductImporter(pool, 1000, batch -> parsed.addAndGet(batch.size())).run(input, ImportFormat.CSV, job);
+        }
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        ImportJob.Report report = job.report();
+        System.out.printf("parse only: status=%s parsed=%,d failed=%,d time=%dms rows/s=%,d max heap=%,dMB%n",
+                report.status(), parsed.get(), report.failed(), nanos / 1_000_000,
+                report.linesRead() * 1_000_000_000L / nanos, Runtime.getRuntime().maxMemory() >> 20);
+    }
+
+    private static void run(Path file, Path dataDir, int batchSize) throws Exception {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(1024);
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        Object[] listeners = new Object[2];
+        ProductService service = new ProductService(catalog, changeLog, event -> {
+            if (event instanceof ProductsCreatedEvent created && listeners[0] != null) {
+                ((ProductSearchService) listeners[0]).onProductsCreated(created);
+                ((ProductFilterService) listeners[1]).onProductsCreated(created);
+            }
+        });
+        listeners[1] = new ProductFilterService(service);
+        listeners[0] = new ProductSearchService(service);
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        ImportJob job = new ImportJob(1, ImportFormat.CSV);
+        long syncsBefore = changeLog.getSyncCount();
+        long start = System.nanoTime();
+        try (InputStream input = Files.newInputStream(file)) {
+            new ProductImporter(pool, batchSize, service::createAll).run(input, ImportFormat.CSV, job);
+        }
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        changeLog.close();
+
+        ImportJob.Report report = job.report();
+        System.out.printf("batch=%d status=%s imported=%,d failed=%,d time=%dms rows/s=%,d fsyncs=%,d%n",
+                batchSize, report.status(), report.imported(), report.failed(),
+                nanos / 1_000_000, report.linesRead() * 1_000_000_000L / nanos,
+                changeLog.getSyncCount() - syncsBefore);
+    }
+}
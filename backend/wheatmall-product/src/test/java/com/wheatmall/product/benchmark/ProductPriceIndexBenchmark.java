@@ -0,0 +1,104 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.search.ProductPriceIndex;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 商品价格索引基准：建索引耗时和内存、价格区间查询延迟、改价吞吐，与全量扫描+排序对比
+ *
+ * 运行方式：
+ * java -Xmx3g -cp ... com.wheatmall.product.benchmark.ProductPriceIndexBenchmark 1000000
+ */
+public class ProductPriceIndexBenchmark {
+
+    private static final int QUERIES = 100_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(3);
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            products[i] = new Product(i + 1L, null, BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2),
+                    random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(100), null, null, null, 1L);
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ProductPriceIndex index = new ProductPriceIndex();
+        for (Product product : products) {
+            index.update(null, product);
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long bytes = usedHeap() - heapBefore;
+        System.out.printf("build: count=%,d inStock=%,d time=%dms heap=%,dMB (%d B/product)%n", index.size(),
+                index.inStockSize(), buildMillis, bytes >> 20, bytes / count);
+
+        query(index, random, "price 1000-2000, in stock, asc, 20", "1000", "2000", true, false);
+        query(index, random, "price 1000-2000, desc, 20", "1000", "2000", false, true);
+        query(index, random, "all prices, in stock, asc, 20", null, null, true, false);
+
+        // 改价：每次修改都在索引中删除旧条目、加入新条目，包含周期性合并
+        start = System.nanoTime();
+        int updates = count;
+        for (int i = 0; i < updates; i++) {
+            int slot = random.nextInt(count);
+            Product before = products[slot];
+            Product after = new Product(before.getId(), null, BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2),
+                    before.getStock(), null, null, null, before.getVersion() + 1);
+            index.update(before, after);
+            products[slot] = after;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("price updates: %,d in %dms (%,d/s)%n", updates, elapsed / 1_000_000,
+                updates * 1_000_000_000L / elapsed);
+        query(index, random, "after updates: price 1000-2000, in stock, asc, 20", "1000", "2000", true, false);
+
+        // 对照：全量过滤 + 排序取前20
+        BigDecimal min = new BigDecimal("1000");
+        BigDecimal max = new BigDecimal("2000");
+        start = System.nanoTime();
+        List<Product> scanned = null;
+        for (int round = 0; round < 5; round++) {
+            scanned = Arrays.stream(products)
+                    .filter(p -> p.getStock() > 0 && p.getPrice().compareTo(min) >= 0 && p.getPrice().compareTo(max) <= 0)
+                    .sorted(Comparator.comparing(Product::getPrice).thenComparing(Product::getId))
+                    .limit(20)
+                    .toList();
+        }
+        System.out.printf("full scan + sort: results=%d avg=%dms%n", scanned.size(),
+                (System.nanoTime() - start) / 5 / 1_000_000);
+    }
+
+    private static void query(ProductPriceIndex index, Random random, String label, String minPrice,
+                              String maxPrice, boolean inStock, boolean descending) {
+        BigDecimal min = minPrice == null ? null : new BigDecimal(minPrice);
+        BigDecimal max = maxPrice == null ? null : new BigDecimal(maxPrice);
+        long[] latencies = new long[QUERIES];
+        long results = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            // 一半查询从随机游标翻页
+            ProductPriceIndex.Entry after = q % 2 == 0 ? null
+                    : new ProductPriceIndex.Entry(100_000 + random.nextInt(100_000), random.nextInt(1_000_000));
+            long queryStart = System.nanoTime();
+            results += index.range(min, max, inStock, descending, after, 20).size();
+            latencies[q] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s: avg results=%.1f p50=%dns p99=%dns%n", label, (double) results / QUERIES,
+                latencies[QUERIES / 2], latencies[QUERIES * 99 / 100]);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
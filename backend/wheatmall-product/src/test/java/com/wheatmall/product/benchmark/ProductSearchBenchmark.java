@@ -0,0 +1,112 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.search.ProductSearchIndex;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 商品搜索基准：建索引耗时、索引内存占用、查询延迟，与逐个商品contains扫描对比
+ *
+ * 运行方式：
+ * java -Xmx3g -cp ... com.wheatmall.product.benchmark.ProductSearchBenchmark 2000000
+ */
+public class ProductSearchBenchmark {
+
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "联想", "戴尔", "索尼", "海尔", "美的", "格力", "三星",
+            "OPPO", "vivo"};
+
+    private static final String[] CATEGORIES = {"手机", "笔记本电脑", "平板电脑", "蓝牙耳机", "智能手表", "电视机", "空调",
+            "冰箱", "洗衣机", "电饭煲", "吸尘器", "相机"};
+
+    private static final String[] ATTRIBUTES = {"旗舰版", "青春版", "轻薄", "大容量", "降噪", "高清", "变频", "静音", "防水",
+            "快充", "商务", "游戏"};
+
+    private static final String[] COLORS = {"黑色", "白色", "银色", "蓝色", "金色"};
+
+    private static final int QUERIES = 20_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(7);
+        String[] names = new String[count];
+        String[] descriptions = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = pick(BRANDS, random) + pick(CATEGORIES, random) + pick(ATTRIBUTES, random)
+                    + " X" + random.nextInt(5000) + " " + pick(COLORS, random);
+            descriptions[i] = "测试商品-" + (i + 1) + " " + pick(ATTRIBUTES, random) + pick(CATEGORIES, random)
+                    + "，" + pick(COLORS, random) + "款";
+        }
+
+        long heapBefore = usedHeap();
+        ProductSearchIndex index = new ProductSearchIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            index.update(null, new Product(i + 1L, names[i], null, 0, descriptions[i], null, null, 1L));
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long indexBytes = usedHeap() - heapBefore;
+        System.out.printf("build: count=%,d time=%dms terms=%,d postings=%,dMB heap=%,dMB (%d B/product)%n",
+                count, buildMillis, index.termCount(), index.postingBytes() >> 20, indexBytes >> 20,
+                indexBytes / count);
+
+        String[][] queries = {
+                {"手机"},
+                {"测试商品"},
+                {"华为", "手机"},
+                {"蓝牙耳机", "降噪"},
+                {"小米", "空调", "静音", "白色"},
+                {"x1234"},
+        };
+        for (String[] terms : queries) {
+            String query = String.join(" ", terms);
+            long[] latencies = new long[QUERIES];
+            int hits = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                long queryStart = System.nanoTime();
+                hits = index.search(query, 20).size();
+                latencies[q] = System.nanoTime() - queryStart;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("query '%s': hits=%d p50=%dus p99=%dus%n", query, hits,
+                    latencies[QUERIES / 2] / 1000, latencies[QUERIES * 99 / 100] / 1000);
+        }
+
+        // 对照：逐个商品做contains，两个词都包含即命中
+        start = System.nanoTime();
+        int matched = 0;
+        for (int round = 0; round < 5; round++) {
+            matched = 0;
+            for (int i = 0; i < count; i++) {
+                if (containsAll(names[i], descriptions[i], List.of("华为", "手机"))) {
+                    matched++;
+                }
+            }
+        }
+        System.out.printf("contains scan '华为 手机': matched=%,d avg=%dms%n", matched,
+                (System.nanoTime() - start) / 5 / 1_000_000);
+    }
+
+    private static boolean containsAll(String name, String description, List<String> terms) {
+        for (String term : terms) {
+            if (!name.contains(term) && !description.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,80 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.search.ProductSuggester;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 商品名称补全基准：建树耗时、内存占用、按前缀长度统计的查询延迟和每次查询分配的字节数
+ *
+ * 运行方式：
+ * java -Xmx3g -cp ... com.wheatmall.product.benchmark.ProductSuggestBenchmark 1000000
+ */
+public class ProductSuggestBenchmark {
+
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "联想", "戴尔", "索尼", "海尔", "美的", "格力", "三星",
+            "OPPO", "vivo"};
+
+    private static final String[] CATEGORIES = {"手机", "笔记本电脑", "平板电脑", "蓝牙耳机", "智能手表", "电视机", "空调",
+            "冰箱", "洗衣机", "电饭煲", "吸尘器", "相机"};
+
+    private static final int QUERIES = 200_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(7);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = BRANDS[random.nextInt(BRANDS.length)] + CATEGORIES[random.nextInt(CATEGORIES.length)]
+                    + " X" + random.nextInt(count / 10 + 1) + "-" + i;
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ProductSuggester.Builder builder = new ProductSuggester.Builder();
+        for (int i = 0; i < count; i++) {
+            // 热度近似幂律分布
+            builder.add(names[i], (long) (1000 / (1 + random.nextInt(1000))));
+        }
+        ProductSuggester suggester = builder.build();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        builder = null;
+        long bytes = usedHeap() - heapBefore;
+        System.out.printf("build: names=%,d time=%dms heap=%,dMB (%d B/name，不含名称字符串)%n",
+                suggester.size(), buildMillis, bytes >> 20, bytes / count);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int length : new int[]{1, 2, 4, 6, 8, 10}) {
+            String[] prefixes = new String[1024];
+            for (int i = 0; i < prefixes.length; i++) {
+                String name = names[random.nextInt(count)];
+                prefixes[i] = name.substring(0, Math.min(length, name.length()));
+            }
+            long[] latencies = new long[QUERIES];
+            long results = 0;
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            for (int q = 0; q < QUERIES; q++) {
+                long queryStart = System.nanoTime();
+                List<String> suggestions = suggester.suggest(prefixes[q & 1023], 10);
+                latencies[q] = System.nanoTime() - queryStart;
+                results += suggestions.size();
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            Arrays.sort(latencies);
+            System.out.printf("prefix length %d: avg results=%.1f p50=%dns p99=%dns alloc=%d B/query%n", length,
+                    (double) results / QUERIES, latencies[QUERIES / 2], latencies[QUERIES * 99 / 100],
+                    allocated / QUERIES);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
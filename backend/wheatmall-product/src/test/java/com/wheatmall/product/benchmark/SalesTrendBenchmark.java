@@ -0,0 +1,164 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.common.sketch.SlidingWindowTopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 畅销榜统计基准：一小时的下单事件（60个1分钟子窗口，商品销量近似Zipf分布），对比
+ * - sketch：SlidingWindowTopK（Count-Min Sketch width×4 + 每个子窗口Space-Saving 100个）
+ * - exact：每个子窗口一个 HashMap（商品ID → 销量），查询时合并60个子窗口后排序
+ * 统计写入吞吐量、堆内存、Top-100查询延迟，以及sketch结果的召回率和误差（与exact比较）
+ *
+ * 运行方式（堆内存按GC后的已用内存估算，建议固定堆大小）：
+ * java -Xms3g -Xmx3g -cp ... com.wheatmall.product.benchmark.SalesTrendBenchmark 5000000 100000,1000000,10000000 2048,8192
+ * （参数：事件数、逗号分隔的商品数、逗号分隔的sketch width）
+ */
+public class SalesTrendBenchmark {
+
+    private static final long MINUTE = 60_000;
+
+    private static final int SUB_WINDOWS = 60;
+
+    private static final int TOP = 100;
+
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String[] skuCounts = (args.length > 1 ? args[1] : "100000,1000000,10000000").split(",");
+        String[] widths = (args.length > 2 ? args[2] : "2048,8192").split(",");
+        // 预热
+        run(events / 5, 100_000, 2048, false);
+        for (String skus : skuCounts) {
+            for (String width : widths) {
+                run(events, Integer.parseInt(skus.trim()), Integer.parseInt(width.trim()), true);
+            }
+        }
+    }
+
+    private static void run(int events, int skus, int width, boolean print) {
+        usedHeap();
+        Random random = new Random(skus);
+        long[] keys = new long[events];
+        int[] quantities = new int[events];
+        for (int i = 0; i < events; i++) {
+            // Zipf(s=1)近似：CDF约为 ln k / ln N
+            keys[i] = (long) Math.pow(skus, random.nextDouble());
+            quantities[i] = 1 + random.nextInt(3);
+        }
+        long start = 1_000 * MINUTE;
+        long end = start + SUB_WINDOWS * MINUTE - 1;
+
+        long before = usedHeap();
+        SlidingWindowTopK sketch = new SlidingWindowTopK(MINUTE, SUB_WINDOWS, 5, width, 4, TOP);
+        long began = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            long time = start + (long) i * (SUB_WINDOWS * MINUTE) / events;
+            sketch.add(keys[i], quantities[i], time, time);
+        }
+        long sketchNanos = System.nanoTime() - began;
+        long sketchHeap = usedHeap() - before;
+
+        before = usedHeap();
+        List<Map<Long, long[]>> exact = new ArrayList<>(SUB_WINDOWS);
+        for (int i = 0; i < SUB_WINDOWS; i++) {
+            exact.add(new HashMap<>());
+        }
+        began = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            int minute = (int) ((long) i * SUB_WINDOWS / events);
+            exact.get(minute).computeIfAbsent(keys[i], k -> new long[1])[0] += quantities[i];
+        }
+        long exactNanos = System.nanoTime() - began;
+        long exactHeap = usedHeap() - before;
+
+        List<SlidingWindowTopK.Ranked> top = null;
+        long[] sketchQuery = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            long t = System.nanoTime();
+            top = sketch.top(TOP, end);
+            sketchQuery[q] = System.nanoTime() - t;
+        }
+        int exactQueries = Math.max(3, QUERIES / 20);
+        long[] exactQuery = new long[exactQueries];
+        long[][] exactTop = null;
+        for (int q = 0; q < exactQueries; q++) {
+            long t = System.nanoTime();
+            exactTop = exactTop(exact);
+            exactQuery[q] = System.nanoTime() - t;
+        }
+        if (!print) {
+            return;
+        }
+
+        Map<Long, Long> truth = new HashMap<>();
+        for (Map<Long, long[]> minute : exact) {
+            minute.forEach((key, count) -> truth.merge(key, count[0], Long::sum));
+        }
+        Set<Long> true10 = new HashSet<>();
+        Set<Long> true100 = new HashSet<>();
+        for (int i = 0; i < TOP; i++) {
+            true100.add(exactTop[i][0]);
+            if (i < 10) {
+                true10.add(exactTop[i][0]);
+            }
+        }
+        int hit10 = 0;
+        int hit100 = 0;
+        long maxError = 0;
+        for (int i = 0; i < top.size(); i++) {
+            long key = top.get(i).key();
+            hit100 += true100.contains(key) ? 1 : 0;
+            hit10 += i < 10 && true10.contains(key) ? 1 : 0;
+            maxError = Math.max(maxError, top.get(i).count() - truth.getOrDefault(key, 0L));
+        }
+        long bound = (long) Math.ceil(sketch.getEpsilon() * sketch.getWindowTotal());
+        System.out.printf("skus=%,d events=%,d distinct=%,d total=%,d%n", skus, events, truth.size(),
+                sketch.getWindowTotal());
+        System.out.printf("  sketch width=%d add/s=%,d heap=%,d KB top%d p50=%.2fms recall@10=%d/10 recall@100=%d/100 "
+                        + "maxError=%d bound=%d (%.4f%% of #%d count %d)%n",
+                width, events * 1_000_000_000L / sketchNanos, sketchHeap >> 10, TOP, percentile(sketchQuery, 0.5), hit10,
+                hit100, maxError, bound, 100.0 * bound / sketch.getWindowTotal(), TOP, exactTop[TOP - 1][1]);
+        System.out.printf("  exact  add/s=%,d heap=%,d KB top%d p50=%.2fms%n", events * 1_000_000_000L / exactNanos,
+                exactHeap >> 10, TOP, percentile(exactQuery, 0.5));
+    }
+
+    /**
+     * 合并各子窗口后取销量最多的TOP个：[商品ID, 销量]
+     */
+    private static long[][] exactTop(List<Map<Long, long[]>> minutes) {
+        Map<Long, long[]> merged = new HashMap<>();
+        for (Map<Long, long[]> minute : minutes) {
+            minute.forEach((key, count) -> merged.computeIfAbsent(key, k -> new long[1])[0] += count[0]);
+        }
+        long[][] all = new long[merged.size()][];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+            all[i++] = new long[]{entry.getKey(), entry.getValue()[0]};
+        }
+        Arrays.sort(all, (a, b) -> Long.compare(b[1], a[1]));
+        return Arrays.copyOf(all, Math.min(TOP, all.length));
+    }
+
+    private static double percentile(long[] nanos, double p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (sorted.length * p)] / 1_000_000.0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,70 @@
+package com.wheatmall.product.benchmark;
+
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.snapshot.FileCatalogChangeLog;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存扣减基准：不同并发下每秒扣减次数、fsync次数和平均批次大小
+ * 单线程时每次扣减一次fsync，即逐条持久化的基线
+ *
+ * 运行方式：
+ * java -cp ... com.wheatmall.product.benchmark.StockDeductionBenchmark /tmp/stock-bench 1,4,16,64 5
+ */
+public class StockDeductionBenchmark {
+
+    private static final int PRODUCTS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Path.of(args.length > 0 ? args[0] : "/tmp/stock-bench");
+        String[] threadCounts = (args.length > 1 ? args[1] : "1,4,16,64").split(",");
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        for (String threadCount : threadCounts) {
+            run(Files.createTempDirectory(Files.createDirectories(dataDir), "run"), Integer.parseInt(threadCount), seconds);
+        }
+    }
+
+    private static void run(Path dataDir, int threads, int seconds) throws Exception {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(PRODUCTS);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            catalog.put(new Product(id, "商品-" + id, new BigDecimal("9.90"), Integer.MAX_VALUE, null, now, now, 1L), 0);
+        }
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        ProductService service = new ProductService(catalog, changeLog, event -> { });
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        LongAdder deductions = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    service.deductStock(1L + random.nextInt(PRODUCTS), 1).join();
+                    deductions.increment();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        changeLog.close();
+
+        long total = deductions.sum();
+        System.out.printf("threads=%d deductions/s=%,d fsyncs/s=%,d avg batch=%.1f%n", threads, total / seconds,
+                changeLog.getSyncCount() / seconds, (double) changeLog.getRecordCount() / changeLog.getSyncCount());
+    }
+}
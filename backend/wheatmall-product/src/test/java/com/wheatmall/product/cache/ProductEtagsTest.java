@@ -0,0 +1,31 @@
+package com.wheatmall.product.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductEtags单元测试
+ */
+class ProductEtagsTest {
+
+    @Test
+    void testOfProduct() {
+        assertEquals("\"1-3\"", ProductEtags.ofProduct(1L, 3L, ResponseVariant.JSON));
+        assertEquals("\"1-3-s\"", ProductEtags.ofProduct(1L, 3L, ResponseVariant.SMILE));
+        assertEquals("\"1-3-s-f5\"", ProductEtags.ofProduct(1L, 3L, ResponseVariant.SMILE, 0b101));
+    }
+
+    @Test
+    void testMatches() {
+        String etag = "\"1-3\"";
+        assertTrue(ProductEtags.matches("\"1-3\"", etag));
+        assertTrue(ProductEtags.matches("W/\"1-3\"", etag));
+        assertTrue(ProductEtags.matches("\"1-2\", \"1-3\"", etag));
+        assertTrue(ProductEtags.matches("*", etag));
+        assertFalse(ProductEtags.matches("\"1-2\"", etag));
+        assertFalse(ProductEtags.matches("\"1-3-s\"", etag));
+        assertFalse(ProductEtags.matches("\"11-3\"", etag));
+        assertFalse(ProductEtags.matches(null, etag));
+    }
+}
@@ -0,0 +1,98 @@
+package com.wheatmall.product.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.snapshot.CatalogChangeLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.wheatmall.product.projection.ProductProjection.ALL;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductHotKeys单元测试
+ */
+class ProductHotKeysTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ProductResponseCache responseCache = new ProductResponseCache(1 << 20);
+
+    private final List<Object> listeners = new ArrayList<>();
+
+    /** 商品变更事件依次交给缓存失效和热点预热，与Spring中的监听器顺序相同 */
+    private final ProductService productService = new ProductService(new OffHeapProductCatalog(16),
+            CatalogChangeLog.NONE, event -> {
+                ProductChangedEvent changed = (ProductChangedEvent) event;
+                responseCache.onProductChanged(changed);
+                for (Object listener : listeners) {
+                    ((ProductHotKeys) listener).onProductChanged(changed);
+                }
+            });
+
+    private ProductHotKeys newHotKeys() {
+        ProductHotKeys hotKeys = new ProductHotKeys(productService, responseCache, objectMapper, 1, 1, 64, 16, 0.1,
+                0.05, 10);
+        listeners.add(hotKeys);
+        return hotKeys;
+    }
+
+    @Test
+    void testPinAndPrewarm() throws Exception {
+        ProductHotKeys hotKeys = newHotKeys();
+        for (int i = 0; i < 20; i++) {
+            hotKeys.record(2L);
+        }
+        for (long id = 100; id < 110; id++) {
+            hotKeys.record(id);
+        }
+        hotKeys.endWindow();
+
+        assertTrue(hotKeys.isHot(2L));
+        assertTrue(responseCache.isPinned(2L));
+        assertFalse(responseCache.isPinned(100L));
+        Product product = productService.getById(2L);
+        ProductResponseCache.Entry entry = responseCache.get(2L, ResponseVariant.JSON, ALL, product.getVersion());
+        assertNotNull(entry);
+        assertArrayEquals(objectMapper.writeValueAsBytes(R.ok(product)), entry.getBody());
+
+        // 热点商品变更后立即写入新版本；非热点商品只失效
+        responseCache.put(1L, ResponseVariant.JSON, ALL, productService.getById(1L).getVersion(), new byte[]{1});
+        Product changes = new Product();
+        changes.setStock(10);
+        productService.update(2L, changes);
+        productService.update(1L, changes);
+        Product updated = productService.getById(2L);
+        assertNotEquals(product.getVersion(), updated.getVersion());
+        entry = responseCache.get(2L, ResponseVariant.JSON, ALL, updated.getVersion());
+        assertNotNull(entry);
+        assertArrayEquals(objectMapper.writeValueAsBytes(R.ok(updated)), entry.getBody());
+        assertNull(responseCache.get(1L, ResponseVariant.JSON, ALL, productService.getById(1L).getVersion()));
+    }
+
+    @Test
+    void testCooledProductUnpinned() {
+        ProductHotKeys hotKeys = newHotKeys();
+        for (int i = 0; i < 20; i++) {
+            hotKeys.record(2L);
+        }
+        hotKeys.endWindow();
+        assertTrue(responseCache.isPinned(2L));
+
+        for (long id = 100; id < 130; id++) {
+            hotKeys.record(id);
+        }
+        hotKeys.endWindow();
+        assertFalse(hotKeys.isHot(2L));
+        assertFalse(responseCache.isPinned(2L));
+        assertTrue(hotKeys.hotProducts().isEmpty());
+    }
+}
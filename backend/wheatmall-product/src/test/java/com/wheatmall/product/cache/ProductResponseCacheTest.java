@@ -0,0 +1,112 @@
+package com.wheatmall.product.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static com.wheatmall.product.projection.ProductProjection.ALL;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductResponseCache单元测试
+ */
+class ProductResponseCacheTest {
+
+    @Test
+    void testHitAndVersionMismatch() {
+        ProductResponseCache cache = new ProductResponseCache(1024);
+        cache.put(1L, ResponseVariant.JSON, ALL, 3L, new byte[]{1, 2, 3});
+
+        ProductResponseCache.Entry entry = cache.get(1L, ResponseVariant.JSON, ALL, 3L);
+        assertNotNull(entry);
+        assertEquals("\"1-3\"", entry.getEtag());
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.getBody());
+
+        // 不同版本、不同编码都不命中
+        assertNull(cache.get(1L, ResponseVariant.JSON, ALL, 4L));
+        assertNull(cache.get(1L, ResponseVariant.SMILE, ALL, 3L));
+    }
+
+    @Test
+    void testOlderVersionDoesNotOverwrite() {
+        ProductResponseCache cache = new ProductResponseCache(1024);
+        cache.put(1L, ResponseVariant.JSON, ALL, 5L, new byte[]{5});
+        cache.put(1L, ResponseVariant.JSON, ALL, 4L, new byte[]{4});
+
+        assertNotNull(cache.get(1L, ResponseVariant.JSON, ALL, 5L));
+        assertEquals(1, cache.getTotalBytes());
+    }
+
+    @Test
+    void testInvalidate() {
+        ProductResponseCache cache = new ProductResponseCache(1024);
+        cache.put(1L, ResponseVariant.JSON, ALL, 1L, new byte[10]);
+        cache.put(1L, ResponseVariant.SMILE, ALL, 1L, new byte[8]);
+        assertEquals(18, cache.getTotalBytes());
+
+        cache.invalidate(1L);
+
+        assertNull(cache.get(1L, ResponseVariant.JSON, ALL, 1L));
+        assertNull(cache.get(1L, ResponseVariant.SMILE, ALL, 1L));
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    void testProjectionsInvalidatedTogether() {
+        ProductResponseCache cache = new ProductResponseCache(1024);
+        cache.put(1L, ResponseVariant.JSON, ALL, 1L, new byte[10]);
+        cache.put(1L, ResponseVariant.JSON, 0b101, 1L, new byte[4]);
+
+        ProductResponseCache.Entry projected = cache.get(1L, ResponseVariant.JSON, 0b101, 1L);
+        assertNotNull(projected);
+        assertEquals("\"1-1-f5\"", projected.getEtag());
+        assertNull(cache.get(1L, ResponseVariant.JSON, 0b11, 1L));
+
+        // 新版本写入时丢弃旧版本的其他表示
+        cache.put(1L, ResponseVariant.JSON, ALL, 2L, new byte[12]);
+        assertNull(cache.get(1L, ResponseVariant.JSON, 0b101, 1L));
+        assertEquals(12, cache.getTotalBytes());
+
+        cache.invalidate(1L);
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    void testBoundedByTotalBytes() {
+        ProductResponseCache cache = new ProductResponseCache(1000);
+        for (long id = 0; id < 100; id++) {
+            cache.put(id, ResponseVariant.JSON, ALL, 1L, new byte[100]);
+        }
+        assertTrue(cache.getTotalBytes() <= 1000);
+
+        // 超过单条目上限的响应不缓存
+        cache.put(999L, ResponseVariant.JSON, ALL, 1L, new byte[500]);
+        assertNull(cache.get(999L, ResponseVariant.JSON, ALL, 1L));
+    }
+
+    @Test
+    void testPinnedNotEvicted() {
+        ProductResponseCache cache = new ProductResponseCache(1000);
+        cache.pin(new long[]{7L, 3L});
+        assertTrue(cache.isPinned(3L));
+        assertFalse(cache.isPinned(4L));
+        for (long id = 0; id < 100; id++) {
+            cache.put(id, ResponseVariant.JSON, ALL, 1L, new byte[100]);
+        }
+        assertTrue(cache.getTotalBytes() <= 1000);
+        assertNotNull(cache.get(3L, ResponseVariant.JSON, ALL, 1L));
+        assertNotNull(cache.get(7L, ResponseVariant.JSON, ALL, 1L));
+
+        // 固定的商品仍然随变更失效
+        cache.invalidate(3L);
+        assertNull(cache.get(3L, ResponseVariant.JSON, ALL, 1L));
+    }
+
+    @Test
+    void testParseProductId() {
+        assertEquals(12L, ProductResponseCacheFilter.parseProductId("/api/product/12"));
+        assertEquals(7L, ProductResponseCacheFilter.parseProductId("/api/product/get/7"));
+        assertEquals(-1L, ProductResponseCacheFilter.parseProductId("/api/product/list"));
+        assertEquals(-1L, ProductResponseCacheFilter.parseProductId("/api/product/"));
+        assertEquals(-1L, ProductResponseCacheFilter.parseProductId("/api/order/1"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.wheatmall.product.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ResponseVariant单元测试
+ */
+class ResponseVariantTest {
+
+    @Test
+    void testFromAccept() {
+        assertEquals(ResponseVariant.JSON, ResponseVariant.fromAccept(null));
+        assertEquals(ResponseVariant.JSON, ResponseVariant.fromAccept("*/*"));
+        assertEquals(ResponseVariant.JSON, ResponseVariant.fromAccept("application/json"));
+        assertEquals(ResponseVariant.SMILE, ResponseVariant.fromAccept("application/x-jackson-smile"));
+        // 内部调用：优先Smile，JSON为备选
+        assertEquals(ResponseVariant.SMILE,
+                ResponseVariant.fromAccept("application/x-jackson-smile, application/json;q=0.9"));
+        assertEquals(ResponseVariant.SMILE, ResponseVariant.fromAccept("*/*, application/x-jackson-smile"));
+        assertNull(ResponseVariant.fromAccept("text/html"));
+        assertNull(ResponseVariant.fromAccept("application/json;q=abc"));
+    }
+
+    @Test
+    void testFromAcceptHonorsQuality() {
+        // 出现Smile但q值更低时，转换器选择JSON
+        assertEquals(ResponseVariant.JSON,
+                ResponseVariant.fromAccept("application/x-jackson-smile;q=0.5, application/json"));
+        assertEquals(ResponseVariant.JSON,
+                ResponseVariant.fromAccept("application/x-jackson-smile;q=0.1, */*;q=0.8"));
+        assertEquals(ResponseVariant.JSON, ResponseVariant.fromAccept("application/x-jackson-smile;q=0, */*"));
+        // q值相同时按转换器的注册顺序，JSON在前
+        assertEquals(ResponseVariant.JSON,
+                ResponseVariant.fromAccept("application/json, application/x-jackson-smile"));
+        assertNull(ResponseVariant.fromAccept("application/x-jackson-smile;q=0"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.wheatmall.product.catalog;
+
+import com.wheatmall.product.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OffHeapProductCatalog单元测试
+ */
+class OffHeapProductCatalogTest {
+
+    private static Product product(long id, String name, String price) {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 19, 12, 30, 15, 123456789);
+        return new Product(id, name, new BigDecimal(price), 10, "描述-" + name, time, time.plusSeconds(1), 1L);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    void testRoundTrip() {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        Product product = product(1L, "iPhone 15", "5999.00");
+        catalog.put(product, 1);
+
+        assertEquals(product, catalog.get(1L));
+        assertNull(catalog.get(2L));
+
+        Product empty = new Product(2L, null, null, null, null, null, null, null);
+        catalog.put(empty, 0);
+        assertEquals(empty, catalog.get(2L));
+    }
+
+    @Test
+    void testOrderedInsertAndGrow() {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        for (long id = 100; id > 0; id -= 2) {
+            catalog.put(product(id, "p" + id, "1.50"), 0);
+        }
+        for (long id = 1; id < 100; id += 2) {
+            catalog.put(product(id, "p" + id, "1.50"), 0);
+        }
+
+        assertEquals(100, catalog.size());
+        List<Product> page = catalog.listAfter(41L, 3);
+        assertEquals(List.of(42L, 43L, 44L), page.stream().map(Product::getId).toList());
+        assertEquals("p43", page.get(1).getName());
+        assertEquals(100, catalog.listAfter(Long.MIN_VALUE, Integer.MAX_VALUE).size());
+        assertTrue(catalog.listAfter(100L, 10).isEmpty());
+    }
+
+    @Test
+    void testReplace() {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        catalog.put(product(1L, "旧名称", "1.00"), 0);
+        long used = catalog.getStringBytes();
+
+        // 字符串未变化时复用原引用
+        catalog.put(product(1L, "旧名称", "2.00"), 0);
+        assertEquals(used, catalog.getStringBytes());
+        assertEquals(new BigDecimal("2.00"), catalog.get(1L).getPrice());
+
+        catalog.put(product(1L, "新名称", "2.00"), 0);
+        assertEquals("新名称", catalog.get(1L).getName());
+        assertEquals(1, catalog.size());
+        // 名称和描述都被替换，旧字节计入垃圾
+        assertEquals(utf8Length("旧名称") + utf8Length("描述-旧名称") + 2 * Integer.BYTES,
+                catalog.getGarbageStringBytes());
+    }
+
+    @Test
+    void testPriceScale() {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        catalog.put(product(1L, "a", "3"), 0);
+        assertEquals(0, new BigDecimal("3").compareTo(catalog.get(1L).getPrice()));
+
+        assertThrows(ArithmeticException.class, () -> catalog.put(product(2L, "b", "0.001"), 0));
+        assertEquals(1, catalog.size());
+    }
+
+    @Test
+    void testSnapshotRoundTrip(@TempDir Path dir) throws Exception {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        for (long id = 1; id <= 100; id++) {
+            catalog.put(product(id, "p" + id, "1.50"), id);
+        }
+        catalog.put(product(7L, "改名", "9.99"), 101);
+        Path file = dir.resolve("catalog.snap");
+
+        assertEquals(101, catalog.writeSnapshot(file));
+        OffHeapProductCatalog mapped = OffHeapProductCatalog.mapSnapshot(file);
+
+        assertEquals(100, mapped.size());
+        assertEquals(101, mapped.getSequence());
+        assertEquals(catalog.getDigest(), mapped.getDigest());
+        assertEquals(catalog.get(7L), mapped.get(7L));
+        assertEquals(catalog.listAfter(Long.MIN_VALUE, 100), mapped.listAfter(Long.MIN_VALUE, 100));
+
+        // 映射出的目录可以继续写入，且不影响快照文件
+        mapped.put(product(101L, "新增", "1.00"), 102);
+        mapped.put(product(1L, "p1-新", "2.00"), 103);
+        assertEquals("新增", mapped.get(101L).getName());
+        assertEquals("p1-新", mapped.get(1L).getName());
+        assertEquals("p1", OffHeapProductCatalog.mapSnapshot(file).get(1L).getName());
+    }
+
+    @Test
+    void testSnapshotChecksum(@TempDir Path dir) throws Exception {
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        catalog.put(product(1L, "iPhone 15", "5999.00"), 1);
+        Path file = dir.resolve("catalog.snap");
+        catalog.writeSnapshot(file);
+
+        // 篡改最后一个数据段（字符串块）中的一个字节
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> OffHeapProductCatalog.mapSnapshot(file));
+    }
+}
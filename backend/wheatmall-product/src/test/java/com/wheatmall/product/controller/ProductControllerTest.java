@@ -1,16 +1,52 @@
 package com.wheatmall.product.controller;
 
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
 import com.wheatmall.common.utils.R;
+import com.wheatmall.product.cache.ProductHotKeys;
+import com.wheatmall.product.cache.ProductResponseCache;
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.dto.HotProduct;
+import com.wheatmall.product.dto.RelatedProduct;
+import com.wheatmall.product.dto.SalesRank;
+import com.wheatmall.product.dto.StockDeduction;
+import com.wheatmall.product.dto.StockDeductionResult;
+import com.wheatmall.product.dto.TrendingProduct;
 import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.event.ProductChangedEvent;
+import com.wheatmall.product.imports.ImportJob;
+import com.wheatmall.product.projection.ProjectedProduct;
+import com.wheatmall.product.service.CoPurchaseService;
+import com.wheatmall.product.service.ProductFilterService;
+import com.wheatmall.product.service.ProductImportService;
+import com.wheatmall.product.service.ProductSearchService;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.service.ProductSuggestService;
+import com.wheatmall.product.service.SalesTrendService;
+import com.wheatmall.product.snapshot.CatalogChangeLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 
 /**
  * ProductController单元测试
@@ -19,6 +55,35 @@ import static org.junit.jupiter.api.Assertions.*;
 @ExtendWith(MockitoExtension.class)
 class ProductControllerTest {
 
+    @Spy
+    private ProductService productService = new ProductService(new OffHeapProductCatalog(16), CatalogChangeLog.NONE, event -> { });
+
+    @Spy
+    private ProductSearchService productSearchService = new ProductSearchService(productService);
+
+    @Spy
+    private ProductSuggestService productSuggestService = new ProductSuggestService(productService);
+
+    @Spy
+    private ProductFilterService productFilterService = new ProductFilterService(productService);
+
+    @Spy
+    private ProductImportService productImportService = new ProductImportService(productService);
+
+    @Spy
+    private SalesTrendService salesTrendService = new SalesTrendService(productService, Duration.ofHours(1), 60,
+            Duration.ofMinutes(5), 256, 4, 20, 1);
+
+    /** 测试中不保存矩阵，数据目录不会生成 */
+    @Spy
+    private CoPurchaseService coPurchaseService = new CoPurchaseService(productService, "target/co-purchase-test",
+            Duration.ofMinutes(30), 20, 100, 32, 100000, 20);
+
+    /** 抽样间隔1（每次访问都记录），样本数不少于10时判定 */
+    @Spy
+    private ProductHotKeys hotKeys = new ProductHotKeys(productService, new ProductResponseCache(1 << 20),
+            Jackson2ObjectMapperBuilder.json().build(), 1, 1, 64, 16, 0.1, 0.05, 10);
+
     @InjectMocks
     private ProductController productController;
 
@@ -40,13 +105,21 @@ class ProductControllerTest {
 
         Product product = result.getData();
         assertEquals(1L, product.getId());
-        assertEquals("测试商品-1", product.getName());
+        assertEquals("iPhone 15", product.getName());
+    }
+
+    @Test
+    void testGetProductByIdNotFound() {
+        R<Product> result = productController.getProductById(999L);
+
+        assertEquals(BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), result.getCode());
+        assertNull(result.getData());
     }
 
     @Test
     void testGetProductList() {
         // 执行测试
-        R<List<Product>> result = productController.getProductList();
+        R<List<Product>> result = productController.getProductList(null, null);
 
         // 验证结果
         assertNotNull(result);
@@ -59,6 +132,42 @@ class ProductControllerTest {
         // 验证第一个商品
         Product firstProduct = products.get(0);
         assertEquals("iPhone 15", firstProduct.getName());
+        // 不传size时按默认每页数量分页，不足一页没有下一页
+        assertNull(result.get(ProductController.NEXT_CURSOR));
+    }
+
+    @Test
+    void testGetProductListPaged() {
+        R<List<Product>> first = productController.getProductList(null, 2);
+        assertEquals(2, first.getData().size());
+        assertEquals(2L, first.get(ProductController.NEXT_CURSOR));
+
+        R<List<Product>> second = productController.getProductList(2L, 2);
+        assertEquals(1, second.getData().size());
+        assertEquals(3L, second.getData().get(0).getId());
+        assertNull(second.get(ProductController.NEXT_CURSOR));
+
+        R<List<Product>> invalid = productController.getProductList(null, 0);
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), invalid.getCode());
+    }
+
+    @Test
+    void testStreamProducts() {
+        List<Product> products = productController.streamProducts(null).cast(Product.class).collectList().block();
+
+        assertNotNull(products);
+        assertEquals(3, products.size());
+        assertEquals(List.of(1L, 2L, 3L), products.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void testStreamProductsProjected() {
+        List<?> products = productController.streamProducts("id,price").collectList().block();
+
+        assertNotNull(products);
+        assertEquals(3, products.size());
+        assertTrue(products.get(0) instanceof ProjectedProduct);
+        assertThrows(ResponseStatusException.class, () -> productController.streamProducts("id,color"));
     }
 
     @Test
@@ -72,6 +181,243 @@ class ProductControllerTest {
 
         Product product = result.getData();
         assertEquals(2L, product.getId());
-        assertEquals("测试商品-2", product.getName());
+        assertEquals("MacBook Pro", product.getName());
+    }
+
+    @Test
+    void testUpdateProduct() {
+        Product changes = new Product();
+        changes.setPrice(new BigDecimal("4999.00"));
+
+        R<Product> result = productController.updateProduct(1L, changes);
+
+        assertEquals(0, result.getCode());
+        Product updated = result.getData();
+        assertEquals(new BigDecimal("4999.00"), updated.getPrice());
+        assertEquals("iPhone 15", updated.getName());
+        assertEquals(2L, updated.getVersion());
+    }
+
+    @Test
+    void testUpdateProductPriceOutOfRange() {
+        Product changes = new Product();
+        changes.setPrice(new BigDecimal("1E+17"));
+
+        // 以分为单位超出long的价格在写日志前拒绝，商品不变
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.updateProduct(1L, changes).getCode());
+        assertEquals(1L, productService.getById(1L).getVersion());
+        changes.setPrice(new BigDecimal("92233720368547758.07"));
+        assertEquals(0, productController.updateProduct(1L, changes).getCode());
+    }
+
+    @Test
+    void testDeductStock() {
+        R<Product> result = productController.deductStock(3L, 5).join();
+
+        assertEquals(0, result.getCode());
+        assertEquals(95, result.getData().getStock());
+        assertEquals(2L, result.getData().getVersion());
+        assertEquals(95, productController.getProductById(3L).getData().getStock());
+    }
+
+    @Test
+    void testDeductStockRejected() {
+        assertEquals(BizCodeEnum.STOCK_NOT_ENOUGH.getCode(), productController.deductStock(2L, 31).join().getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.deductStock(2L, 0).join().getCode());
+        assertEquals(BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), productController.deductStock(999L, 1).join().getCode());
+        // 失败的扣减不修改库存
+        Product product = productController.getProductById(2L).getData();
+        assertEquals(30, product.getStock());
+        assertEquals(1L, product.getVersion());
+    }
+
+    @Test
+    void testDeductStockStorageFailure() {
+        // 变更日志已关闭或写入失败不是库存不足
+        doThrow(new IllegalStateException("商品变更日志已关闭")).when(productService).deductStock(3L, 1);
+        assertEquals(BizCodeEnum.SYSTEM_ERROR.getCode(), productController.deductStock(3L, 1).join().getCode());
+        doThrow(new UncheckedIOException("商品变更日志已写入失败", new IOException("disk full")))
+                .when(productService).deductStock(3L, 2);
+        assertEquals(BizCodeEnum.SYSTEM_ERROR.getCode(), productController.deductStock(3L, 2).join().getCode());
+        doReturn(CompletableFuture.failedFuture(new UncheckedIOException("写入商品变更日志失败",
+                new IOException("disk full")))).when(productService).deductStock(3L, 3);
+        assertEquals(BizCodeEnum.SYSTEM_ERROR.getCode(), productController.deductStock(3L, 3).join().getCode());
+    }
+
+    @Test
+    void testGetProducts() {
+        R<List<Product>> result = productController.getProducts(List.of(3L, 999L, 1L));
+
+        assertEquals(0, result.getCode());
+        // 按请求的顺序返回，不存在的跳过
+        assertEquals(List.of(3L, 1L), result.getData().stream().map(Product::getId).toList());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getProducts(List.of()).getCode());
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 0; id <= ProductController.MAX_BATCH_GET; id++) {
+            tooMany.add(id);
+        }
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getProducts(tooMany).getCode());
+    }
+
+    @Test
+    void testDeductStockBatch() {
+        R<List<StockDeductionResult>> result = productController.deductStockBatch(List.of(
+                new StockDeduction(3L, 60), new StockDeduction(2L, 31), new StockDeduction(3L, 50),
+                new StockDeduction(999L, 1), new StockDeduction(3L, 40))).join();
+
+        assertEquals(0, result.getCode());
+        List<StockDeductionResult> items = result.getData();
+        // 各项按顺序独立扣减：第三项时库存只剩40
+        assertEquals(List.of(0, BizCodeEnum.STOCK_NOT_ENOUGH.getCode(), BizCodeEnum.STOCK_NOT_ENOUGH.getCode(),
+                BizCodeEnum.PRODUCT_NOT_FOUND.getCode(), 0), items.stream().map(StockDeductionResult::getCode).toList());
+        assertEquals(40, items.get(0).getStock());
+        assertEquals(30, items.get(1).getStock());
+        assertEquals(0, items.get(4).getStock());
+        assertEquals("AirPods Pro", items.get(4).getName());
+        assertEquals(new BigDecimal("1999.00"), items.get(4).getPrice());
+        assertEquals(0, productController.getProductById(3L).getData().getStock());
+        assertEquals(3L, productController.getProductById(3L).getData().getVersion());
+
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(),
+                productController.deductStockBatch(List.of(new StockDeduction(1L, 0))).join().getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.deductStockBatch(List.of()).join().getCode());
+    }
+
+    @Test
+    void testSearchProducts() {
+        R<List<Product>> result = productController.searchProducts("apple pro", null);
+
+        assertEquals(0, result.getCode());
+        // 两个商品得分相同，按索引顺序
+        assertEquals(List.of(2L, 3L), result.getData().stream().map(Product::getId).toList());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.searchProducts("apple", 0).getCode());
+    }
+
+    @Test
+    void testSuggestProducts() {
+        assertEquals(List.of("iPhone 15"), productController.suggestProducts("IPH", null).getData());
+
+        // 扣减库存计入销量，重建后销量高的排在前面
+        Product before = productService.getById(3L);
+        productService.deductStock(3L, 5).join();
+        productSuggestService.onProductChanged(new ProductChangedEvent(before, productService.getById(3L)));
+        assertTrue(productSuggestService.rebuildIfChanged());
+        assertFalse(productSuggestService.rebuildIfChanged());
+        assertEquals(List.of("AirPods Pro", "iPhone 15", "MacBook Pro"),
+                productController.suggestProducts("", null).getData());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.suggestProducts("i", 21).getCode());
+    }
+
+    @Test
+    void testFilterProducts() {
+        R<List<Product>> first = productController.filterProducts(new BigDecimal("1000"), null, true, false, null, 2);
+
+        assertEquals(0, first.getCode());
+        assertEquals(List.of(3L, 1L), first.getData().stream().map(Product::getId).toList());
+        assertEquals("5999.00,1", first.get(ProductController.NEXT_CURSOR));
+
+        R<List<Product>> second = productController.filterProducts(new BigDecimal("1000"), null, true, false,
+                "5999.00,1", 2);
+        assertEquals(List.of(2L), second.getData().stream().map(Product::getId).toList());
+        assertNull(second.get(ProductController.NEXT_CURSOR));
+
+        assertEquals(List.of(2L, 1L, 3L), productController.filterProducts(null, null, false, true, null, null)
+                .getData().stream().map(Product::getId).toList());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(),
+                productController.filterProducts(null, null, false, false, "bad", null).getCode());
+    }
+
+    @Test
+    void testImportProducts() {
+        String csv = "name,price,stock,description\n"
+                + "\"Pixel 9, 256G\",4999.00,10,新品\n"
+                + "Galaxy S25,-1,5,\n"
+                + "Mate 70,5499,3,\n";
+        R<ImportJob.Report> result = productController.importProducts("CSV",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, result.getCode());
+        ImportJob.Report report = result.getData();
+        assertEquals(ImportJob.Status.COMPLETED, report.status());
+        assertEquals(4, report.linesRead());
+        assertEquals(2, report.imported());
+        assertEquals(1, report.failed());
+        assertEquals(3, report.errors().get(0).line());
+        // 新商品按文件顺序接在已有ID之后
+        assertEquals("Pixel 9, 256G", productController.getProductById(4L).getData().getName());
+        assertEquals("Mate 70", productController.getProductById(5L).getData().getName());
+        assertEquals(report, productController.getImportReport(report.id()).getData());
+        assertEquals(BizCodeEnum.DATA_NOT_FOUND.getCode(), productController.getImportReport(999L).getCode());
+
+        R<ImportJob.Report> badHeader = productController.importProducts("csv",
+                new ByteArrayInputStream("title,price\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(BizCodeEnum.OPERATION_FAILED.getCode(), badHeader.getCode());
+        assertEquals(ImportJob.Status.FAILED, badHeader.getData().status());
+        assertEquals(List.of(badHeader.getData().id(), report.id()), productController.listImportReports().getData()
+                .stream().map(ImportJob.Report::id).toList());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(),
+                productController.importProducts("xml", new ByteArrayInputStream(new byte[0])).getCode());
+    }
+
+    @Test
+    void testBestSellersAndTrending() {
+        SnowflakeIdGenerator orderIds = new SnowflakeIdGenerator(1);
+        salesTrendService.record(List.of(new StockDeductionEvent(orderIds.nextId(), 1L, 3),
+                new StockDeductionEvent(orderIds.nextId(), 3L, 7), new StockDeductionEvent(orderIds.nextId(), 1L, 1)));
+
+        R<List<SalesRank>> bestSellers = productController.getBestSellers(null);
+        assertEquals(List.of(3L, 1L), bestSellers.getData().stream().map(SalesRank::getProductId).toList());
+        assertEquals("AirPods Pro", bestSellers.getData().get(0).getName());
+        assertEquals(7L, bestSellers.getData().get(0).getQuantity());
+        assertEquals(11L, bestSellers.get(ProductController.WINDOW_TOTAL));
+        assertEquals(1L, bestSellers.get(ProductController.MAX_ERROR));
+
+        // 之前没有销量，近期都在增长
+        R<List<TrendingProduct>> trending = productController.getTrending(1);
+        assertEquals(1, trending.getData().size());
+        assertEquals(3L, trending.getData().get(0).getProductId());
+
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getBestSellers(0).getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getTrending(21).getCode());
+    }
+
+    @Test
+    void testRelatedProducts() {
+        SnowflakeIdGenerator orderIds = new SnowflakeIdGenerator(1);
+        // 用户7先后买了商品1、2、3，用户8买了商品1、3
+        coPurchaseService.record(List.of(new StockDeductionEvent(orderIds.nextId(), 1L, 1, 7L),
+                new StockDeductionEvent(orderIds.nextId(), 2L, 1, 7L),
+                new StockDeductionEvent(orderIds.nextId(), 3L, 1, 7L),
+                new StockDeductionEvent(orderIds.nextId(), 1L, 1, 8L),
+                new StockDeductionEvent(orderIds.nextId(), 3L, 2, 8L)), 5);
+        coPurchaseService.rebuildIfChanged();
+
+        R<List<RelatedProduct>> related = productController.getRelatedProducts(1L, null);
+        assertEquals(List.of(3L, 2L), related.getData().stream().map(RelatedProduct::getProductId).toList());
+        assertEquals("AirPods Pro", related.getData().get(0).getName());
+        assertEquals(2, related.getData().get(0).getCount());
+        assertEquals(1, productController.getRelatedProducts(2L, 1).getData().size());
+        assertTrue(productController.getRelatedProducts(999L, null).getData().isEmpty());
+
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getRelatedProducts(1L, 0).getCode());
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), productController.getRelatedProducts(1L, 21).getCode());
+    }
+
+    @Test
+    void testHotProducts() {
+        assertTrue(productController.getHotProducts().getData().isEmpty());
+        for (int i = 0; i < 30; i++) {
+            hotKeys.record(1L);
+        }
+        for (int i = 0; i < 10; i++) {
+            hotKeys.record(100L + i);
+        }
+        hotKeys.endWindow();
+
+        List<HotProduct> hot = productController.getHotProducts().getData();
+        assertEquals(List.of(1L), hot.stream().map(HotProduct::getProductId).toList());
+        assertEquals("iPhone 15", hot.get(0).getName());
+        assertEquals(30L, hot.get(0).getRequests());
+        assertEquals(0.75, hot.get(0).getShare(), 1e-9);
     }
 }
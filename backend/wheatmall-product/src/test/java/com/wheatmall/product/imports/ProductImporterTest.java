@@ -0,0 +1,130 @@
+package com.wheatmall.product.imports;
+
+import com.wheatmall.product.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductImporter与ProductRowParser单元测试
+ */
+class ProductImporterTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final List<List<Product>> batches = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private ImportJob run(String content, ImportFormat format, int batchSize) {
+        ImportJob job = new ImportJob(1, format);
+        new ProductImporter(pool, batchSize, batch -> batches.add(List.copyOf(batch)))
+                .run(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format, job);
+        return job;
+    }
+
+    @Test
+    void testCsvKeepsOrderAcrossChunksAndBatches() {
+        StringBuilder csv = new StringBuilder("﻿stock,name,price\r\n");
+        int rows = 10_000;
+        for (int i = 1; i <= rows; i++) {
+            // 每100行有一行价格非法
+            csv.append(i).append(",商品").append(i).append(',').append(i % 100 == 0 ? "abc" : "1.50").append("\r\n");
+        }
+        ImportJob.Report report = run(csv.toString(), ImportFormat.CSV, 1000).report();
+
+        assertEquals(ImportJob.Status.COMPLETED, report.status());
+        assertEquals(rows + 1, report.linesRead());
+        assertEquals(rows - 100, report.imported());
+        assertEquals(100, report.failed());
+        // 行号包含表头行
+        assertEquals(101, report.errors().get(0).line());
+        assertEquals(10_001, report.errors().get(99).line());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 1000));
+        List<Product> products = batches.stream().flatMap(List::stream).toList();
+        assertEquals("商品1", products.get(0).getName());
+        assertEquals("商品101", products.get(99).getName());
+        assertEquals(9_999, products.get(products.size() - 1).getStock());
+        assertEquals(new BigDecimal("1.50"), products.get(0).getPrice());
+    }
+
+    @Test
+    void testNdjsonValidation() {
+        String ndjson = """
+                {"name": "耳机", "price": 199.9, "stock": 3, "description": "降噪", "brand": "忽略"}
+
+                {"name": "  ", "price": 1, "stock": 1}
+                {"name": "手表", "price": 1.999, "stock": 1}
+                {"name": "手表", "price": 1e20, "stock": 1}
+                {"name": "手表", "price": 1, "stock": 1.5}
+                {"name": "手表", "price": 1}
+                [1, 2]
+                {"name": "相机",
+                """;
+        ImportJob.Report report = run(ndjson, ImportFormat.NDJSON, 10).report();
+
+        assertEquals(ImportJob.Status.COMPLETED, report.status());
+        assertEquals(1, report.imported());
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L),
+                report.errors().stream().map(ImportJob.RowError::line).toList());
+        assertTrue(report.errors().get(2).message().startsWith("价格超出范围"));
+        Product product = batches.get(0).get(0);
+        assertEquals("耳机", product.getName());
+        assertEquals(new BigDecimal("199.9"), product.getPrice());
+        assertEquals("降噪", product.getDescription());
+        assertNull(product.getId());
+    }
+
+    @Test
+    void testOversizedLineAndErrorLimit() {
+        StringBuilder ndjson = new StringBuilder("{\"name\": \"" + "长".repeat(ProductImporter.MAX_LINE_CHARS) + "\"}\n");
+        for (int i = 0; i < ImportJob.MAX_ERRORS + 10; i++) {
+            ndjson.append("{}\n");
+        }
+        ImportJob.Report report = run(ndjson.toString(), ImportFormat.NDJSON, 10).report();
+
+        assertEquals(ImportJob.MAX_ERRORS + 11, report.failed());
+        assertEquals(ImportJob.MAX_ERRORS, report.errors().size());
+        assertTrue(report.errorsTruncated());
+        assertEquals("行超过最大长度", report.errors().get(0).message());
+        assertEquals(0, report.imported());
+    }
+
+    @Test
+    void testCsvHeaderAndQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> ProductRowParser.csv("name,price"));
+        assertEquals(List.of("a,b", "say \"hi\"", ""), ProductRowParser.splitCsv("\"a,b\",\"say \"\"hi\"\"\","));
+        ProductRowParser.Row row = ProductRowParser.csv("name,price,stock").parse("\"未闭合,1,1");
+        assertNull(row.product());
+        assertNotNull(row.error());
+
+        ImportJob job = run("name,stock\n", ImportFormat.CSV, 10);
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertTrue(job.report().message().contains("price"));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void testWriteFailureStopsImport() {
+        ImportJob job = new ImportJob(1, ImportFormat.CSV);
+        new ProductImporter(pool, 1, batch -> {
+            throw new IllegalStateException("磁盘已满");
+        }).run(new ByteArrayInputStream("name,price,stock\n手机,1,1\n".getBytes(StandardCharsets.UTF_8)),
+                ImportFormat.CSV, job);
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals("磁盘已满", job.report().message());
+        assertEquals(0, job.report().imported());
+    }
+}
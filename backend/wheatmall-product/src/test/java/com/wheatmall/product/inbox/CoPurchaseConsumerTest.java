@@ -0,0 +1,151 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.dto.RelatedProduct;
+import com.wheatmall.product.service.CoPurchaseService;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.snapshot.CatalogChangeLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoPurchaseConsumer、CoPurchaseService单元测试（文件事件日志 + 内存商品目录）
+ */
+class CoPurchaseConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    private final SnowflakeIdGenerator orderIds = new SnowflakeIdGenerator(1);
+
+    private ProductService productService;
+
+    private FileEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(new HeapProductCatalog(), CatalogChangeLog.NONE, event -> { });
+        eventLog = new FileEventLog(dir.resolve("events"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+    }
+
+    private CoPurchaseService coPurchaseService() {
+        return new CoPurchaseService(productService, dir.toString(),
+                Duration.ofMinutes(30), 3, 100, 8, 1000, 4);
+    }
+
+    private CoPurchaseConsumer consumer(CoPurchaseService coPurchaseService) {
+        return new CoPurchaseConsumer(coPurchaseService, dir.resolve("events"), 100, Duration.ofMillis(5), false);
+    }
+
+    private void publish(long orderId, long productId, long userId, String type) throws IOException {
+        StockDeductionEvent event = new StockDeductionEvent(orderId, productId, 1, userId);
+        eventLog.append(List.of(EventMessage.of(orderId, type, event.encode())));
+    }
+
+    /**
+     * 若干分钟之前的订单号
+     */
+    private static long orderIdAt(long minutesAgo, long sequence) {
+        return (System.currentTimeMillis() - Duration.ofMinutes(minutesAgo).toMillis()
+                - SnowflakeIdGenerator.EPOCH_MILLIS) << (SnowflakeIdGenerator.WORKER_ID_BITS
+                + SnowflakeIdGenerator.SEQUENCE_BITS) | sequence;
+    }
+
+    private static List<Long> productIds(List<RelatedProduct> related) {
+        return related.stream().map(RelatedProduct::getProductId).toList();
+    }
+
+    @Test
+    void testBasketsBySession() throws IOException {
+        CoPurchaseService coPurchaseService = coPurchaseService();
+        CoPurchaseConsumer consumer = consumer(coPurchaseService);
+        try {
+            // 用户7：1小时前买了商品3，之后一个篮子里依次买了商品1、2、3
+            publish(orderIdAt(60, 0), 3L, 7L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(10, 0), 1L, 7L, StockDeductionEvent.TYPE);
+            long orderId = orderIdAt(9, 0);
+            publish(orderId, 2L, 7L, StockDeductionEvent.TYPE);
+            // 重复转发的订单不再计数
+            publish(orderId, 2L, 7L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(8, 0), 3L, 7L, StockDeductionEvent.TYPE);
+            // 用户8也先后买了商品1、2；未登录用户和释放库存不计入
+            publish(orderIdAt(5, 1), 1L, 8L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(5, 2), 2L, 8L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(5, 3), 1L, 0L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(5, 4), 3L, 0L, StockDeductionEvent.TYPE);
+            publish(orderIdAt(5, 5), 3L, 8L, StockDeductionEvent.RELEASE_TYPE);
+
+            assertEquals(10, consumer.consumeOnce());
+            assertEquals(10, coPurchaseService.getPosition());
+            // 重建快照之前查询不到
+            assertTrue(coPurchaseService.related(1L, 4).isEmpty());
+            assertTrue(coPurchaseService.rebuildIfChanged());
+            assertFalse(coPurchaseService.rebuildIfChanged());
+
+            List<RelatedProduct> related = coPurchaseService.related(1L, 4);
+            assertEquals(List.of(2L, 3L), productIds(related));
+            assertEquals(2, related.get(0).getCount());
+            assertEquals("MacBook Pro", related.get(0).getName());
+            assertEquals(1, related.get(1).getCount());
+            assertEquals(List.of(1L, 2L), productIds(coPurchaseService.related(3L, 4)));
+            assertEquals(List.of(1L), productIds(coPurchaseService.related(2L, 1)));
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Test
+    void testRestartFromSavedPosition() throws IOException {
+        CoPurchaseService first = coPurchaseService();
+        CoPurchaseConsumer firstConsumer = consumer(first);
+        publish(orderIds.nextId(), 1L, 7L, StockDeductionEvent.TYPE);
+        publish(orderIds.nextId(), 2L, 7L, StockDeductionEvent.TYPE);
+        assertEquals(2, firstConsumer.consumeOnce());
+        firstConsumer.close();
+        first.close();
+        // 保存之后计入的事件在重启后重新计入
+        publish(orderIds.nextId(), 4L, 9L, StockDeductionEvent.TYPE);
+        publish(orderIds.nextId(), 5L, 9L, StockDeductionEvent.TYPE);
+        CoPurchaseConsumer unsaved = consumer(first);
+        try {
+            assertEquals(2, unsaved.consumeOnce());
+        } finally {
+            unsaved.close();
+        }
+
+        CoPurchaseService restarted = coPurchaseService();
+        assertEquals(2, restarted.getPosition());
+        // 启动时从加载的矩阵生成快照
+        assertEquals(List.of(2L), productIds(restarted.related(1L, 4)));
+        CoPurchaseConsumer second = consumer(restarted);
+        try {
+            assertEquals(2, second.consumeOnce());
+            assertEquals(0, second.consumeOnce());
+            assertTrue(restarted.rebuildIfChanged());
+            assertEquals(List.of(5L), productIds(restarted.related(4L, 4)));
+            assertEquals(1, restarted.related(4L, 4).get(0).getCount());
+            assertTrue(restarted.saveIfChanged());
+            assertFalse(restarted.saveIfChanged());
+        } finally {
+            second.close();
+        }
+    }
+}
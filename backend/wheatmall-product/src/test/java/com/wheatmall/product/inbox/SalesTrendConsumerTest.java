@@ -0,0 +1,137 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.common.id.SnowflakeIdGenerator;
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.dto.SalesRank;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.service.SalesTrendService;
+import com.wheatmall.product.snapshot.CatalogChangeLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SalesTrendConsumer单元测试（文件事件日志 + 内存商品目录）
+ */
+class SalesTrendConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    private final SnowflakeIdGenerator orderIds = new SnowflakeIdGenerator(1);
+
+    private ProductService productService;
+
+    private FileEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(new HeapProductCatalog(), CatalogChangeLog.NONE, event -> { });
+        eventLog = new FileEventLog(dir.resolve("events"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+    }
+
+    private SalesTrendService salesTrendService() {
+        return new SalesTrendService(productService, Duration.ofHours(1), 60, Duration.ofMinutes(5), 256, 4, 20, 1);
+    }
+
+    private SalesTrendConsumer consumer(SalesTrendService salesTrendService, long replayEvents) {
+        return new SalesTrendConsumer(salesTrendService, dir.resolve("events"),
+                dir.resolve("consumers").resolve(SalesTrendConsumer.CONSUMER_NAME + ".offset"), 100,
+                Duration.ofMillis(5), replayEvents, false);
+    }
+
+    private void publish(long orderId, long productId, int quantity, String type) throws IOException {
+        StockDeductionEvent event = new StockDeductionEvent(orderId, productId, quantity);
+        eventLog.append(List.of(EventMessage.of(orderId, type, event.encode())));
+    }
+
+    private static List<Long> productIds(List<SalesRank> ranks) {
+        List<Long> ids = new ArrayList<>();
+        for (SalesRank rank : ranks) {
+            ids.add(rank.getProductId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testRecordsOrdersInWindow() throws IOException {
+        SalesTrendService salesTrendService = salesTrendService();
+        SalesTrendConsumer consumer = consumer(salesTrendService, 0);
+        try {
+            publish(orderIds.nextId(), 1L, 2, StockDeductionEvent.TYPE);
+            publish(orderIds.nextId(), 2L, 5, StockDeductionEvent.TYPE);
+            publish(orderIds.nextId(), 1L, 1, StockDeductionEvent.TYPE);
+            // 释放库存不扣除销量
+            publish(orderIds.nextId(), 2L, 5, StockDeductionEvent.RELEASE_TYPE);
+            // 2小时前的订单早于统计窗口
+            long oldOrderId = (System.currentTimeMillis() - Duration.ofHours(2).toMillis()
+                    - SnowflakeIdGenerator.EPOCH_MILLIS) << (SnowflakeIdGenerator.WORKER_ID_BITS
+                    + SnowflakeIdGenerator.SEQUENCE_BITS);
+            publish(oldOrderId, 3L, 100, StockDeductionEvent.TYPE);
+
+            assertEquals(5, consumer.consumeOnce());
+            assertEquals(3, consumer.getRecordedCount());
+            assertEquals(5, consumer.getPosition());
+            assertEquals(1, salesTrendService.getDroppedCount());
+
+            List<SalesRank> ranks = salesTrendService.bestSellers(10);
+            assertEquals(List.of(2L, 1L), productIds(ranks));
+            assertEquals(5L, ranks.get(0).getQuantity());
+            assertEquals("MacBook Pro", ranks.get(0).getName());
+            assertEquals(3L, ranks.get(1).getQuantity());
+            assertEquals(8, salesTrendService.getWindowTotal());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Test
+    void testReplaysOnRestart() throws IOException {
+        SalesTrendConsumer first = consumer(salesTrendService(), 1000);
+        publish(orderIds.nextId(), 1L, 2, StockDeductionEvent.TYPE);
+        publish(orderIds.nextId(), 2L, 1, StockDeductionEvent.TYPE);
+        assertEquals(2, first.consumeOnce());
+        first.close();
+        publish(orderIds.nextId(), 2L, 4, StockDeductionEvent.TYPE);
+
+        // 重启后统计从消费位置之前的事件重放
+        SalesTrendService restarted = salesTrendService();
+        SalesTrendConsumer second = consumer(restarted, 1000);
+        try {
+            assertEquals(3, second.consumeOnce());
+            assertEquals(List.of(2L, 1L), productIds(restarted.bestSellers(10)));
+            assertEquals(7, restarted.getWindowTotal());
+            assertEquals(0, second.consumeOnce());
+        } finally {
+            second.close();
+        }
+
+        // 不重放时只计入消费位置之后的事件
+        SalesTrendService withoutReplay = salesTrendService();
+        SalesTrendConsumer third = consumer(withoutReplay, 0);
+        try {
+            publish(orderIds.nextId(), 3L, 1, StockDeductionEvent.TYPE);
+            assertEquals(1, third.consumeOnce());
+            assertEquals(1, withoutReplay.getWindowTotal());
+        } finally {
+            third.close();
+        }
+    }
+}
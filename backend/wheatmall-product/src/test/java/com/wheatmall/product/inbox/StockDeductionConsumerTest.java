@@ -0,0 +1,209 @@
+package com.wheatmall.product.inbox;
+
+import com.wheatmall.common.event.EventMessage;
+import com.wheatmall.common.event.FileEventLog;
+import com.wheatmall.common.event.StockDeductionEvent;
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.service.ProductService;
+import com.wheatmall.product.snapshot.FileCatalogChangeLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StockDeductionConsumer单元测试（文件事件日志 + 内存商品目录）
+ */
+class StockDeductionConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    private FileCatalogChangeLog changeLog;
+
+    private ProductService productService;
+
+    private FileEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new FileCatalogChangeLog(dir.resolve("product").toString());
+        // 模拟数据：商品1库存50，商品2库存30
+        productService = new ProductService(new HeapProductCatalog(), changeLog, event -> { });
+        eventLog = new FileEventLog(dir.resolve("events"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+        changeLog.close();
+    }
+
+    private StockDeductionConsumer consumer(boolean start) {
+        return consumer(1000, start);
+    }
+
+    private StockDeductionConsumer consumer(int dedupWindow, boolean start) {
+        return new StockDeductionConsumer(productService, dir.resolve("events"),
+                dir.resolve(StockDeductionEvent.REJECTED_TOPIC),
+                dir.resolve("consumers").resolve("stock-deduction.offset"), 100, Duration.ofMillis(5), dedupWindow,
+                start);
+    }
+
+    private void publish(long... orderIdProductQuantity) throws IOException {
+        List<EventMessage> events = new ArrayList<>();
+        for (int i = 0; i < orderIdProductQuantity.length; i += 3) {
+            StockDeductionEvent event = new StockDeductionEvent(orderIdProductQuantity[i], orderIdProductQuantity[i + 1],
+                    (int) orderIdProductQuantity[i + 2]);
+            events.add(EventMessage.of(event.orderId(), StockDeductionEvent.TYPE, event.encode()));
+        }
+        eventLog.append(events);
+    }
+
+    @Test
+    void testDeductsOncePerOrder() throws IOException {
+        StockDeductionConsumer consumer = consumer(false);
+        try {
+            assertEquals(0, consumer.consumeOnce());
+            // 订单101的事件重发了一次
+            publish(101, 1, 5, 102, 2, 3, 101, 1, 5);
+            assertEquals(3, consumer.consumeOnce());
+            assertEquals(45, productService.getById(1L).getStock());
+            assertEquals(27, productService.getById(2L).getStock());
+            assertEquals(2, consumer.getAppliedCount());
+            assertEquals(1, consumer.getDuplicateCount());
+            assertEquals(3, consumer.getPosition());
+
+            // 库存不足、商品不存在的不重试
+            publish(103, 1, 1000, 104, 999, 1);
+            assertEquals(2, consumer.consumeOnce());
+            assertEquals(2, consumer.getRejectedCount());
+            assertEquals(45, productService.getById(1L).getStock());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void publishRelease(long orderId, long productId, int quantity) throws IOException {
+        StockDeductionEvent event = new StockDeductionEvent(orderId, productId, quantity);
+        eventLog.append(List.of(EventMessage.of(orderId, StockDeductionEvent.RELEASE_TYPE, event.encode())));
+    }
+
+    @Test
+    void testReleasesStockOfCancelledOrders() throws IOException {
+        StockDeductionConsumer consumer = consumer(false);
+        try {
+            // 同一批中先扣减后释放，释放事件也会重发
+            publish(101, 1, 5, 102, 1, 1000);
+            publishRelease(101, 1, 5);
+            publishRelease(101, 1, 5);
+            // 扣减失败（库存不足）的订单不释放
+            publishRelease(102, 1, 1000);
+            assertEquals(5, consumer.consumeOnce());
+            assertEquals(50, productService.getById(1L).getStock());
+            assertEquals(1, consumer.getAppliedCount());
+            assertEquals(1, consumer.getReleasedCount());
+            assertEquals(1, consumer.getSkippedReleaseCount());
+            assertEquals(1, consumer.getDuplicateCount());
+            assertEquals(1, consumer.getRejectedCount());
+
+            // 扣减结果不在去重窗口中（如异步下单同步扣减的订单）时照常释放
+            publishRelease(103, 2, 4);
+            assertEquals(1, consumer.consumeOnce());
+            assertEquals(34, productService.getById(2L).getStock());
+
+            // 归还后库存超出int范围的不归还
+            publishRelease(104, 3, Integer.MAX_VALUE);
+            assertEquals(1, consumer.consumeOnce());
+            assertEquals(2, consumer.getRejectedCount());
+            assertEquals(100, productService.getById(3L).getStock());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Test
+    void testRestartResumesFromCheckpointAndKeepsDedup() throws IOException {
+        StockDeductionConsumer consumer = consumer(false);
+        publish(101, 1, 5, 102, 1, 5);
+        assertEquals(2, consumer.consumeOnce());
+        consumer.close();
+
+        // 重启后从消费位置继续，消费位置之前的订单号仍能去重
+        publish(101, 1, 5, 103, 1, 5);
+        StockDeductionConsumer restarted = consumer(false);
+        try {
+            assertEquals(2, restarted.consumeOnce());
+            assertEquals(1, restarted.getDuplicateCount());
+            assertEquals(35, productService.getById(1L).getStock());
+            assertEquals(4, restarted.getPosition());
+            // 释放事件同样在重启后去重
+            publishRelease(102, 1, 5);
+            assertEquals(1, restarted.consumeOnce());
+            restarted.close();
+            publishRelease(102, 1, 5);
+            restarted = consumer(false);
+            assertEquals(1, restarted.consumeOnce());
+            assertEquals(1, restarted.getDuplicateCount());
+            assertEquals(40, productService.getById(1L).getStock());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void testSkipsReleaseOfRejectedOrderAfterRestart() throws IOException {
+        // 去重窗口只有1条：被拒绝的订单不能依赖去重窗口
+        StockDeductionConsumer consumer = consumer(1, false);
+        publish(101, 1, 1000, 102, 1, 5, 103, 2, 3);
+        assertEquals(3, consumer.consumeOnce());
+        assertEquals(1, consumer.getRejectedCount());
+        consumer.close();
+
+        publishRelease(101, 1, 1000);
+        StockDeductionConsumer restarted = consumer(1, false);
+        try {
+            assertEquals(1, restarted.consumeOnce());
+            assertEquals(1, restarted.getSkippedReleaseCount());
+            assertEquals(0, restarted.getReleasedCount());
+            assertEquals(45, productService.getById(1L).getStock());
+        } finally {
+            restarted.close();
+        }
+
+        // 被拒绝的扣减已写入被拒绝事件的主题
+        try (FileEventLog rejections = new FileEventLog(dir.resolve(StockDeductionEvent.REJECTED_TOPIC));
+             FileEventLog.Reader reader = rejections.reader(0)) {
+            List<EventMessage> events = reader.poll(10);
+            assertEquals(1, events.size());
+            assertEquals(101, events.get(0).id());
+            assertEquals(StockDeductionEvent.REJECTED_TYPE, events.get(0).type());
+            assertEquals(1000, StockDeductionEvent.decode(events.get(0).payload()).quantity());
+        }
+    }
+
+    @Test
+    void testBackgroundConsumer() throws Exception {
+        StockDeductionConsumer consumer = consumer(true);
+        try {
+            publish(201, 3, 10);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (consumer.getPosition() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, consumer.getPosition());
+            assertEquals(90, productService.getById(3L).getStock());
+        } finally {
+            consumer.close();
+        }
+    }
+}
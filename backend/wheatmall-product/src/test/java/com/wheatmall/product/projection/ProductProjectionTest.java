@@ -0,0 +1,90 @@
+package com.wheatmall.product.projection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wheatmall.common.codec.BinaryCodec;
+import com.wheatmall.common.enums.BizCodeEnum;
+import com.wheatmall.common.utils.R;
+import com.wheatmall.product.controller.ProductController;
+import com.wheatmall.product.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductProjection单元测试
+ */
+class ProductProjectionTest {
+
+    private final Product product = new Product(1L, "iPhone 15", new BigDecimal("5999.00"), 50, "苹果手机",
+            LocalDateTime.of(2026, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 2, 0, 0), 3L);
+
+    @Test
+    void testParse() {
+        assertNull(ProductProjection.parse(null));
+        assertNull(ProductProjection.parse(" "));
+
+        ProductProjection projection = ProductProjection.parse("price, id");
+        assertEquals((1 << ProductField.ID.ordinal()) | (1 << ProductField.PRICE.ordinal()), projection.getMask());
+        // 相同字段集合共用同一个编译结果
+        assertSame(projection, ProductProjection.parse("id,price"));
+
+        assertThrows(IllegalArgumentException.class, () -> ProductProjection.parse("id,color"));
+        assertEquals(-1, ProductProjection.parseMask("color"));
+        assertEquals(ProductProjection.ALL, ProductProjection.parseMask(null));
+    }
+
+    @Test
+    void testWriteJson() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        R<Object> r = ProductProjectionAdvice.project(R.ok(product), ProductProjection.parse("id,price,stock"));
+
+        JsonNode data = mapper.readTree(mapper.writeValueAsBytes(r)).get("data");
+        assertEquals(3, data.size());
+        assertEquals(1L, data.get("id").asLong());
+        assertEquals(0, new BigDecimal("5999.00").compareTo(data.get("price").decimalValue()));
+        assertEquals(50, data.get("stock").asInt());
+    }
+
+    @Test
+    void testWriteSmileMatchesFullSerialization() throws Exception {
+        ObjectMapper mapper = BinaryCodec.smileObjectMapper();
+        R<Object> r = ProductProjectionAdvice.project(R.ok(List.of(product)),
+                ProductProjection.of(ProductProjection.ALL));
+
+        JsonNode projected = mapper.readTree(mapper.writeValueAsBytes(r)).get("data").get(0);
+        JsonNode full = mapper.readTree(mapper.writeValueAsBytes(product));
+        assertEquals(full, projected);
+    }
+
+    @Test
+    void testProjectKeepsCodeAndExtra() {
+        R<Object> r = ProductProjectionAdvice.project(
+                R.<List<Product>>fail(BizCodeEnum.PARAM_ERROR).put("nextCursor", 2L),
+                ProductProjection.parse("id"));
+
+        assertEquals(BizCodeEnum.PARAM_ERROR.getCode(), r.getCode());
+        assertEquals(2L, r.get("nextCursor"));
+    }
+
+    @Test
+    void testAdviceOnlySupportsProductReads() throws Exception {
+        ProductProjectionAdvice advice = new ProductProjectionAdvice();
+        assertTrue(advice.supports(returnTypeOf("getProductById", Long.class), null));
+        assertTrue(advice.supports(returnTypeOf("getProducts", List.class), null));
+        // 更新、扣减库存和不返回商品的接口不做投影，fields参数不合法时也不返回参数错误
+        assertFalse(advice.supports(returnTypeOf("updateProduct", Long.class, Product.class), null));
+        assertFalse(advice.supports(returnTypeOf("deductStock", Long.class, int.class), null));
+        assertFalse(advice.supports(returnTypeOf("getHotProducts"), null));
+    }
+
+    private static MethodParameter returnTypeOf(String name, Class<?>... parameterTypes) throws Exception {
+        return new MethodParameter(ProductController.class.getMethod(name, parameterTypes), -1);
+    }
+}
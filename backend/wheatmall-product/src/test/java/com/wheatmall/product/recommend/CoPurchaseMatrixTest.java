@@ -0,0 +1,148 @@
+package com.wheatmall.product.recommend;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoPurchaseMatrix、CoPurchaseSnapshot、LongIntMap单元测试
+ */
+class CoPurchaseMatrixTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Long> productIds(List<CoPurchaseSnapshot.Neighbor> neighbors) {
+        return neighbors.stream().map(CoPurchaseSnapshot.Neighbor::productId).toList();
+    }
+
+    @Test
+    void testLongIntMap() {
+        LongIntMap map = new LongIntMap();
+        for (long key = 1; key <= 100; key++) {
+            assertTrue(map.add(key * 1_000_003L, (int) key));
+        }
+        assertFalse(map.add(5 * 1_000_003L, 10));
+        assertEquals(100, map.size());
+        assertEquals(15, map.get(5 * 1_000_003L));
+        assertEquals(0, map.get(7L));
+
+        long[] keys = new long[3];
+        int[] values = new int[3];
+        assertEquals(3, map.top(3, keys, values));
+        assertArrayEquals(new long[]{100 * 1_000_003L, 99 * 1_000_003L, 98 * 1_000_003L}, keys);
+
+        // 减半后计数为1的键被移除
+        assertEquals(1, map.halve());
+        assertEquals(99, map.size());
+        assertEquals(7, map.get(5 * 1_000_003L));
+        assertEquals(0, map.get(1_000_003L));
+
+        map.retainTop(10);
+        assertEquals(10, map.size());
+        assertEquals(50, map.get(100 * 1_000_003L));
+        // 第10、11名的计数都是45，保留键较小的
+        assertEquals(45, map.get(90 * 1_000_003L));
+        assertEquals(0, map.get(91 * 1_000_003L));
+        assertEquals(16, map.capacity());
+    }
+
+    @Test
+    void testSnapshotOrder() {
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix(8, 1000);
+        matrix.addPair(1L, 2L, 3);
+        matrix.addPair(1L, 3L, 5);
+        matrix.addPair(1L, 4L, 3);
+        matrix.addPair(2L, 3L, 1);
+        matrix.addPair(5L, 5L, 1);
+        assertEquals(4, matrix.size());
+        assertEquals(8, matrix.getEntries());
+        assertEquals(3, matrix.count(2L, 1L));
+        assertEquals(0, matrix.count(5L, 5L));
+
+        CoPurchaseSnapshot snapshot = matrix.snapshot(2);
+        assertEquals(4, snapshot.size());
+        // 次数相同时按商品ID升序，只保留前topK个
+        assertEquals(List.of(3L, 2L), productIds(snapshot.related(1L, 10)));
+        assertEquals(5, snapshot.related(1L, 10).get(0).count());
+        assertEquals(List.of(1L, 3L), productIds(snapshot.related(2L, 10)));
+        assertEquals(List.of(1L), productIds(snapshot.related(4L, 10)));
+        assertEquals(List.of(1L), productIds(snapshot.related(3L, 1)));
+        assertTrue(snapshot.related(6L, 10).isEmpty());
+
+        // 快照不随矩阵变化
+        matrix.addPair(4L, 6L, 1);
+        assertTrue(snapshot.related(6L, 10).isEmpty());
+        assertEquals(List.of(4L), productIds(matrix.snapshot(2).related(6L, 10)));
+    }
+
+    @Test
+    void testPruneAndDecay() {
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix(4, 1000);
+        // 商品1与10、11同现多次，之后与很多只出现一次的商品同现
+        matrix.addPair(1L, 10L, 5);
+        matrix.addPair(1L, 11L, 4);
+        for (long other = 100; other < 110; other++) {
+            matrix.addPair(1L, other, 1);
+        }
+        assertEquals(5, matrix.count(1L, 10L));
+        assertEquals(4, matrix.count(1L, 11L));
+        assertTrue(matrix.getPrunedCount() > 0);
+        // 每行不超过4项；相关商品行里的商品1不受影响
+        assertEquals(1, matrix.count(109L, 1L));
+        assertTrue(matrix.snapshot(10).related(1L, 10).size() <= 4);
+
+        // 总项数超过上限后所有次数减半，减到0的项和空行移除
+        CoPurchaseMatrix bounded = new CoPurchaseMatrix(4, 8);
+        bounded.addPair(1L, 2L, 4);
+        bounded.addPair(3L, 4L, 1);
+        bounded.addPair(5L, 6L, 1);
+        bounded.addPair(7L, 8L, 1);
+        assertEquals(8, bounded.getEntries());
+        bounded.addPair(9L, 10L, 1);
+        assertEquals(1, bounded.getDecayCount());
+        assertEquals(2, bounded.getEntries());
+        assertEquals(2, bounded.size());
+        assertEquals(2, bounded.count(1L, 2L));
+        assertEquals(0, bounded.count(9L, 10L));
+        assertEquals(List.of(2L), productIds(bounded.snapshot(4).related(1L, 4)));
+        assertTrue(bounded.snapshot(4).related(9L, 4).isEmpty());
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix(8, 1000);
+        matrix.addPair(1L, 2L, 3);
+        matrix.addPair(1L, 3L, 2);
+        matrix.addPair(2L, 3L, 7);
+        matrix.setPosition(42);
+        Path file = dir.resolve("recommend").resolve("co-purchase.dat");
+        matrix.save(file);
+
+        CoPurchaseMatrix loaded = CoPurchaseMatrix.load(file, 8, 1000);
+        assertEquals(42, loaded.getPosition());
+        assertEquals(3, loaded.size());
+        assertEquals(6, loaded.getEntries());
+        assertEquals(7, loaded.count(3L, 2L));
+        assertEquals(List.of(3L, 1L), productIds(loaded.snapshot(8).related(2L, 8)));
+
+        // 以更小的每行上限加载，之后超出上限时只保留次数最多的
+        CoPurchaseMatrix smaller = CoPurchaseMatrix.load(file, 2, 1000);
+        assertEquals(6, smaller.getEntries());
+        smaller.addPair(2L, 4L, 1);
+        assertEquals(0, smaller.count(2L, 1L));
+        assertEquals(7, smaller.count(2L, 3L));
+
+        // 内容损坏时校验失败
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> CoPurchaseMatrix.load(file, 8, 1000));
+    }
+}
@@ -0,0 +1,113 @@
+package com.wheatmall.product.search;
+
+import com.wheatmall.product.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductPriceIndex单元测试
+ */
+class ProductPriceIndexTest {
+
+    private static Product product(long id, String price, int stock) {
+        return new Product(id, "商品" + id, price == null ? null : new BigDecimal(price), stock, null, null, null, 1L);
+    }
+
+    private static List<Long> ids(List<ProductPriceIndex.Entry> entries) {
+        return entries.stream().map(ProductPriceIndex.Entry::productId).toList();
+    }
+
+    @Test
+    void testRangeAndStockFilter() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        index.update(null, product(1L, "5999.00", 50));
+        index.update(null, product(2L, "12999.00", 0));
+        index.update(null, product(3L, "1999.00", 100));
+        index.update(null, product(4L, "1999.00", 10));
+        index.update(null, product(5L, null, 10));
+
+        assertEquals(4, index.size());
+        assertEquals(List.of(3L, 4L, 1L, 2L), ids(index.range(null, null, false, false, null, 10)));
+        assertEquals(List.of(1L, 4L, 3L), ids(index.range(null, null, true, true, null, 10)));
+        // 区间两端都包含，多余的小数位向区间内取整
+        assertEquals(List.of(3L, 4L, 1L), ids(index.range(new BigDecimal("1999"), new BigDecimal("5999.001"),
+                false, false, null, 10)));
+        assertEquals(List.of(), ids(index.range(new BigDecimal("2000"), new BigDecimal("5998.999"),
+                false, false, null, 10)));
+
+        // 售罄后从有库存索引中移除，改价后位置随之变化
+        Product before = product(1L, "5999.00", 50);
+        Product soldOut = product(1L, "5999.00", 0);
+        index.update(before, soldOut);
+        assertEquals(List.of(3L, 4L), ids(index.range(null, null, true, false, null, 10)));
+        index.update(soldOut, product(1L, "999.00", 5));
+        assertEquals(List.of(1L, 3L, 4L), ids(index.range(null, null, true, false, null, 10)));
+        index.update(product(4L, "1999.00", 10), null);
+        assertEquals(List.of(1L, 3L, 2L), ids(index.range(null, null, false, false, null, 10)));
+    }
+
+    @Test
+    void testCursor() {
+        ProductPriceIndex.Entry entry = new ProductPriceIndex.Entry(599900, 1L);
+        assertEquals("5999.00,1", entry.toCursor());
+        assertEquals(entry, ProductPriceIndex.Entry.parseCursor("5999,1"));
+        assertThrows(IllegalArgumentException.class, () -> ProductPriceIndex.Entry.parseCursor("5999.001,1"));
+        assertThrows(IllegalArgumentException.class, () -> ProductPriceIndex.Entry.parseCursor("abc"));
+    }
+
+    @Test
+    void testRandomUpdatesMatchSortedScan() {
+        Random random = new Random(5);
+        ProductPriceIndex index = new ProductPriceIndex();
+        Map<Long, Product> products = new HashMap<>();
+        // 足够多的修改，覆盖多次合并以及合并前后的增量
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(3000);
+            Product before = products.get(id);
+            Product after = random.nextInt(20) == 0 ? null
+                    : product(id, random.nextInt(500) + "." + random.nextInt(10), random.nextInt(3));
+            if (before == null && after == null) {
+                continue;
+            }
+            index.update(before, after);
+            if (after == null) {
+                products.remove(id);
+            } else {
+                products.put(id, after);
+            }
+        }
+
+        Comparator<Product> byPrice = Comparator.comparing(Product::getPrice).thenComparing(Product::getId);
+        for (boolean inStock : new boolean[]{false, true}) {
+            for (boolean descending : new boolean[]{false, true}) {
+                List<Long> expected = products.values().stream()
+                        .filter(p -> p.getPrice().compareTo(new BigDecimal("100")) >= 0
+                                && p.getPrice().compareTo(new BigDecimal("300")) <= 0)
+                        .filter(p -> !inStock || p.getStock() > 0)
+                        .sorted(descending ? byPrice.reversed() : byPrice)
+                        .map(Product::getId)
+                        .toList();
+                // 按游标翻页拼出全部结果
+                List<Long> actual = new ArrayList<>();
+                ProductPriceIndex.Entry after = null;
+                List<ProductPriceIndex.Entry> page;
+                do {
+                    page = index.range(new BigDecimal("100"), new BigDecimal("300"), inStock, descending, after, 97);
+                    actual.addAll(ids(page));
+                    after = page.isEmpty() ? null : page.get(page.size() - 1);
+                } while (page.size() == 97);
+                assertEquals(expected, actual, "inStock=" + inStock + ", descending=" + descending);
+            }
+        }
+        assertEquals(products.size(), index.size());
+    }
+}
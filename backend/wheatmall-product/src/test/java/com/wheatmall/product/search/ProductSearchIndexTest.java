@@ -0,0 +1,98 @@
+package com.wheatmall.product.search;
+
+import com.wheatmall.product.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductTokenizer与ProductSearchIndex单元测试
+ */
+class ProductSearchIndexTest {
+
+    private static Product product(long id, String name, String description) {
+        return new Product(id, name, null, 0, description, null, null, 1L);
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("测试", "试商", "商品", "123"), ProductTokenizer.tokenize("测试商品-123"));
+        assertEquals(List.of("apple", "iphone", "15", "手机"), ProductTokenizer.tokenize("Apple iPhone 15 手机"));
+        // 孤立的单字保留，全角字母数字转半角
+        assertEquals(List.of("a", "款", "x1"), ProductTokenizer.tokenize("A 款 Ｘ１"));
+        assertEquals(List.of(), ProductTokenizer.tokenize(null));
+    }
+
+    @Test
+    void testSearchRanksNameAboveDescription() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.update(null, product(1L, "蓝牙耳机", "无线降噪"));
+        index.update(null, product(2L, "手机壳", "适配蓝牙耳机收纳"));
+        index.update(null, product(3L, "笔记本电脑", "轻薄办公"));
+
+        assertEquals(List.of(1L, 2L), ids(index.search("蓝牙耳机", 10)));
+        // 所有二元组都必须命中
+        assertEquals(List.of(), ids(index.search("蓝牙电脑", 10)));
+        assertEquals(List.of(3L), ids(index.search("笔记本", 10)));
+        assertEquals(List.of(1L), ids(index.search("蓝牙耳机", 1)));
+    }
+
+    @Test
+    void testIncrementalUpdate() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Product before = product(1L, "iPhone 15", "Apple 手机");
+        index.update(null, before);
+        Product after = product(1L, "iPhone 16", "Apple 手机");
+        index.update(before, after);
+
+        assertEquals(List.of(), ids(index.search("iphone 15", 10)));
+        assertEquals(List.of(1L), ids(index.search("iphone 16", 10)));
+        assertEquals(1, index.size());
+
+        index.update(after, null);
+        assertEquals(List.of(), ids(index.search("apple", 10)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testPrunedSearchMatchesExhaustiveRanking() {
+        String[] words = {"手机", "耳机", "电脑", "平板", "手表", "相机"};
+        Random random = new Random(42);
+        ProductSearchIndex index = new ProductSearchIndex();
+        Product[] products = new Product[5000];
+        for (int i = 0; i < products.length; i++) {
+            StringBuilder name = new StringBuilder();
+            int count = 1 + random.nextInt(4);
+            for (int w = 0; w < count; w++) {
+                name.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            products[i] = product(i + 1, name.toString(), "型号" + random.nextInt(50));
+            index.update(null, products[i]);
+        }
+        // 反复修改一部分商品，触发压缩
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < products.length; i += 2) {
+                Product changed = product(i + 1, products[i].getName() + words[random.nextInt(words.length)],
+                        products[i].getDescription());
+                index.update(products[i], changed);
+                products[i] = changed;
+            }
+        }
+        assertEquals(products.length, index.size());
+
+        // 跳块后的前10名与取全部结果后的前10名一致
+        for (String query : new String[]{"手机", "手机 耳机", "相机 型号7"}) {
+            List<ProductSearchIndex.Hit> all = index.search(query, products.length);
+            List<ProductSearchIndex.Hit> top = index.search(query, 10);
+            assertFalse(top.isEmpty());
+            assertEquals(all.subList(0, top.size()), top);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.wheatmall.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductSuggester单元测试
+ */
+class ProductSuggesterTest {
+
+    @Test
+    void testSuggestByPopularity() {
+        ProductSuggester suggester = new ProductSuggester.Builder()
+                .add("iPhone 15", 10)
+                .add("iPhone 15 Pro", 30)
+                .add("iPad Air", 20)
+                .add("MacBook Pro", 50)
+                .build();
+
+        assertEquals(List.of("iPhone 15 Pro", "iPad Air", "iPhone 15"), suggester.suggest("i", 10));
+        assertEquals(List.of("iPhone 15 Pro", "iPhone 15"), suggester.suggest("iphone", 10));
+        assertEquals(List.of("iPhone 15 Pro"), suggester.suggest("iphone", 1));
+        assertEquals(List.of(), suggester.suggest("pro", 10));
+        assertEquals(List.of("MacBook Pro", "iPhone 15 Pro"), suggester.suggest("", 2));
+    }
+
+    @Test
+    void testNormalization() {
+        ProductSuggester suggester = new ProductSuggester.Builder()
+                .add("华为Mate 60", 1)
+                .add("华为mate 60", 2)
+                .add("  ", 100)
+                .add(null, 100)
+                .build();
+
+        // 归一化后相同的名称合并，热度相加，保留先加入的写法
+        assertEquals(1, suggester.size());
+        assertEquals(List.of("华为Mate 60"), suggester.suggest("华为ＭＡＴＥ", 10));
+        assertEquals(List.of(), suggester.suggest("华为P", 10));
+    }
+
+    @Test
+    void testPrecomputedMatchesScan() {
+        Random random = new Random(11);
+        String[] prefixes = {"华为", "小米", "苹果", "Apple ", "apple-"};
+        ProductSuggester.Builder builder = new ProductSuggester.Builder();
+        List<String> names = new ArrayList<>();
+        List<Long> scores = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String name = prefixes[random.nextInt(prefixes.length)] + "手机" + random.nextInt(3000);
+            long score = random.nextInt(50);
+            builder.add(name, score);
+            int existing = names.indexOf(name);
+            if (existing >= 0) {
+                scores.set(existing, scores.get(existing) + score);
+            } else {
+                names.add(name);
+                scores.add(score);
+            }
+        }
+        ProductSuggester suggester = builder.build();
+
+        for (String prefix : List.of("", "华", "华为手机", "华为手机1", "apple", "APPLE ", "小米手机29", "苹果手机1234")) {
+            List<Integer> matched = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).toLowerCase().startsWith(prefix.toLowerCase())) {
+                    matched.add(i);
+                }
+            }
+            matched.sort(Comparator.<Integer>comparingLong(i -> -scores.get(i)).thenComparing(i -> names.get(i).toLowerCase()));
+            List<String> expected = matched.stream().limit(ProductSuggester.MAX_SUGGESTIONS).map(names::get).toList();
+            assertEquals(expected, suggester.suggest(prefix, ProductSuggester.MAX_SUGGESTIONS), prefix);
+        }
+    }
+}
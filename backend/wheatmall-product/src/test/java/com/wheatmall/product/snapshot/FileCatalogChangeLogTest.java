@@ -0,0 +1,248 @@
+package com.wheatmall.product.snapshot;
+
+import com.wheatmall.product.catalog.HeapProductCatalog;
+import com.wheatmall.product.catalog.OffHeapProductCatalog;
+import com.wheatmall.product.entity.Product;
+import com.wheatmall.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FileCatalogChangeLog与CatalogSnapshotStore单元测试
+ */
+class FileCatalogChangeLogTest {
+
+    @TempDir
+    Path dataDir;
+
+    private static Product product(long id, int stock) {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 19, 12, 0, 0, 1000);
+        return new Product(id, "商品" + id, new BigDecimal("19.90"), stock, null, time, time, (long) stock);
+    }
+
+    @Test
+    void testReplayAfterSequence() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        for (int seq = 1; seq <= 5; seq++) {
+            changeLog.append(seq, product(1L, seq));
+        }
+        changeLog.close();
+
+        HeapProductCatalog catalog = new HeapProductCatalog();
+        assertEquals(2, new FileCatalogChangeLog(dataDir.toString()).replay(3, catalog));
+        assertEquals(product(1L, 5), catalog.get(1L));
+        assertEquals(5, catalog.getSequence());
+    }
+
+    @Test
+    void testPriceOutOfRangeNotLogged() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        ProductService productService = new ProductService(new OffHeapProductCatalog(16), changeLog, event -> { });
+        Product changes = new Product();
+        changes.setPrice(new BigDecimal("1E+17"));
+        assertThrows(IllegalArgumentException.class, () -> productService.update(1L, changes));
+        changes.setPrice(new BigDecimal("88.00"));
+        productService.update(1L, changes);
+        changeLog.close();
+
+        // 日志中只有成功的那次修改，重放后服务可以正常启动
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        assertEquals(1, new FileCatalogChangeLog(dataDir.toString()).replay(0, catalog));
+        assertEquals(1, catalog.getSequence());
+        assertEquals(new BigDecimal("88.00"), catalog.get(1L).getPrice());
+    }
+
+    @Test
+    void testCreateAllRejectsWholeBatch() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        ProductService productService = new ProductService(catalog, changeLog, event -> { });
+        Product overflow = new Product(null, "超价", new BigDecimal("1E+20"), 1, null, null, null, null);
+        List<Product> drafts = List.of(new Product(null, "正常", new BigDecimal("9.90"), 1, null, null, null, null),
+                overflow);
+        assertThrows(IllegalArgumentException.class, () -> productService.createAll(drafts));
+        changeLog.close();
+
+        // 目录和日志都没有写入
+        assertEquals(3, catalog.size());
+        assertEquals(0, new FileCatalogChangeLog(dataDir.toString()).replay(0, new OffHeapProductCatalog(16)));
+    }
+
+    @Test
+    void testReplaySkipsPriceOutOfRange() throws Exception {
+        // 旧版本写入的价格超出范围的记录，之后的变更重用了它的序号
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        Product overflow = product(1L, 1);
+        overflow.setPrice(new BigDecimal("1E+17"));
+        changeLog.append(1, overflow);
+        changeLog.append(1, product(1L, 2));
+        changeLog.close();
+
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        assertEquals(1, new FileCatalogChangeLog(dataDir.toString()).replay(0, catalog));
+        assertEquals(product(1L, 2), catalog.get(1L));
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        changeLog.append(1, product(1L, 1));
+        changeLog.append(2, product(2L, 2));
+        changeLog.close();
+        Path segment = segments()[0];
+        long size = Files.size(segment);
+        // 模拟写入中途崩溃：截掉最后一条记录的末尾
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        HeapProductCatalog catalog = new HeapProductCatalog();
+        FileCatalogChangeLog reopened = new FileCatalogChangeLog(dataDir.toString());
+        assertEquals(1, reopened.replay(0, catalog));
+        assertNull(catalog.get(2L));
+        assertTrue(Files.size(segment) < size - 3);
+
+        // 截断后可以继续追加
+        reopened.append(2, product(2L, 3)).join();
+        assertEquals(2, new FileCatalogChangeLog(dataDir.toString()).replay(0, new HeapProductCatalog()));
+    }
+
+    @Test
+    void testSnapshotThenTruncate() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        CatalogSnapshotStore store = new CatalogSnapshotStore(dataDir.toString(), 2);
+        OffHeapProductCatalog catalog = new OffHeapProductCatalog(16);
+        for (int seq = 1; seq <= 3; seq++) {
+            changeLog.append(seq, product(seq, seq));
+            catalog.put(product(seq, seq), seq);
+        }
+
+        assertEquals(3, store.write(catalog));
+        changeLog.truncate(3);
+        changeLog.append(4, product(4L, 4));
+        catalog.put(product(4L, 4), 4);
+        // 快照之后的第二个段出现，第一个段的变更都已包含在快照中
+        store.write(catalog);
+        changeLog.truncate(4);
+        assertEquals(1, segments().length);
+
+        // 模拟重启：映射快照后只重放更新的变更
+        changeLog.append(5, product(5L, 5));
+        changeLog.close();
+        OffHeapProductCatalog restored = store.loadLatest().orElseThrow();
+        assertEquals(4, restored.getSequence());
+        assertEquals(1, new FileCatalogChangeLog(dataDir.toString()).replay(restored.getSequence(), restored));
+        assertEquals(5, restored.size());
+        assertEquals(4, store.latestSequence());
+    }
+
+    @Test
+    void testStockChangeReplay() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        changeLog.append(1, product(1L, 10));
+        Product deducted = product(1L, 7);
+        deducted.setUpdateTime(LocalDateTime.of(2026, 10, 20, 8, 30));
+        deducted.setName("库存记录不含名称");
+        changeLog.appendStock(2, deducted).join();
+        changeLog.close();
+
+        HeapProductCatalog catalog = new HeapProductCatalog();
+        assertEquals(2, new FileCatalogChangeLog(dataDir.toString()).replay(0, catalog));
+        Product restored = catalog.get(1L);
+        assertEquals(7, restored.getStock());
+        assertEquals(7L, restored.getVersion());
+        assertEquals(deducted.getUpdateTime(), restored.getUpdateTime());
+        // 库存记录之外的字段保持不变
+        assertEquals("商品1", restored.getName());
+        assertEquals(2, catalog.getSequence());
+    }
+
+    @Test
+    void testAppendAllSharesOneSync() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        changeLog.append(1, product(1L, 1)).join();
+        long syncs = changeLog.getSyncCount();
+        List<Product> batch = new ArrayList<>();
+        for (long id = 2; id <= 101; id++) {
+            batch.add(product(id, (int) id));
+        }
+        changeLog.appendAll(2, batch).join();
+        // 同一批的记录一起入队，只需一次fsync
+        assertEquals(syncs + 1, changeLog.getSyncCount());
+        changeLog.close();
+
+        HeapProductCatalog catalog = new HeapProductCatalog();
+        assertEquals(101, new FileCatalogChangeLog(dataDir.toString()).replay(0, catalog));
+        assertEquals(101, catalog.getSequence());
+        assertEquals(product(101L, 101), catalog.get(101L));
+    }
+
+    @Test
+    void testConcurrentAppendsShareSync() throws Exception {
+        FileCatalogChangeLog changeLog = new FileCatalogChangeLog(dataDir.toString());
+        int threads = 8;
+        int perThread = 200;
+        Object sequenceLock = new Object();
+        long[] nextSequence = {1};
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        CompletableFuture<Void> durable;
+                        // 与ProductService一样，在锁内分配序号并追加，保证日志按序号排列
+                        synchronized (sequenceLock) {
+                            long sequence = nextSequence[0]++;
+                            durable = changeLog.appendStock(sequence, product(sequence, (int) sequence));
+                        }
+                        durable.join();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        changeLog.close();
+
+        assertEquals(threads * perThread, changeLog.getRecordCount());
+        assertTrue(changeLog.getSyncCount() < threads * perThread,
+                "fsync次数应少于记录数: " + changeLog.getSyncCount());
+        // 库存记录只修改已有商品，先放入全部商品再重放
+        HeapProductCatalog catalog = new HeapProductCatalog();
+        for (long id = 1; id <= threads * perThread; id++) {
+            catalog.put(product(id, 0), 0);
+        }
+        assertEquals(threads * perThread, new FileCatalogChangeLog(dataDir.toString()).replay(0, catalog));
+        assertEquals(threads * perThread, catalog.getSequence());
+        assertEquals(100, catalog.get(100L).getStock());
+    }
+
+    private Path[] segments() throws Exception {
+        try (Stream<Path> files = Files.list(dataDir.resolve("changes"))) {
+            return files.sorted().toArray(Path[]::new);
+        }
+    }
+}